@@ -0,0 +1,48 @@
+// Compares request concurrency and tail latency between platform and virtual thread serving.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e TOKEN=<jwt> -e PROJECT_ID=<id> -e FOLDER=/ loadtest/virtual-threads.js
+//
+// Run it once with spring.threads.virtual.enabled=false and once with true, keeping the datasource pool size the
+// same, and compare http_req_duration p(99) together with the highest vus level that still meets the thresholds.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const baseUrl = __ENV.BASE_URL || 'http://localhost:8080';
+const params = {
+    headers: {
+        Authorization: `Bearer ${__ENV.TOKEN}`,
+        'X-Project-Id': __ENV.PROJECT_ID,
+    },
+};
+
+export const options = {
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+        http_req_duration: ['p(99)<1000'],
+    },
+    scenarios: {
+        ramp: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: '30s', target: 100 },
+                { duration: '1m', target: 400 },
+                { duration: '1m', target: 1000 },
+                { duration: '30s', target: 0 },
+            ],
+        },
+    },
+};
+
+export default function () {
+    const folder = encodeURIComponent(__ENV.FOLDER || '/');
+    const responses = http.batch([
+        ['GET', `${baseUrl}/api/auth/self`, null, params],
+        ['GET', `${baseUrl}/api/listings/subfolders?folder=${folder}&page=1&pageSize=50`, null, params],
+        ['GET', `${baseUrl}/api/storage`, null, params],
+    ]);
+    for (const response of responses) {
+        check(response, { 'status is 2xx': r => r.status >= 200 && r.status < 300 });
+    }
+}
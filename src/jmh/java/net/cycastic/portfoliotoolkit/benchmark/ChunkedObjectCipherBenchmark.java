@@ -0,0 +1,73 @@
+package net.cycastic.portfoliotoolkit.benchmark;
+
+import net.cycastic.portfoliotoolkit.configuration.StorageEncryptionConfiguration;
+import net.cycastic.portfoliotoolkit.service.impl.ChunkedObjectCipher;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming encryption of attachments at rest. Every operation moves one MiB, so operations per second read as MiB/s.
+ * The range benchmark reads 4 KiB out of the same MiB, which only decrypts the chunk holding it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkedObjectCipherBenchmark {
+    private static final int SIZE = 1024 * 1024;
+
+    private ChunkedObjectCipher cipher;
+    private ChunkedObjectCipher.Header header;
+    private byte[] plainText;
+    private byte[] cipherText;
+    private final byte[] buffer = new byte[8192];
+
+    @Setup
+    public void setup() throws IOException {
+        var configuration = new StorageEncryptionConfiguration();
+        configuration.setKey("benchmark-storage-key");
+        cipher = new ChunkedObjectCipher(configuration);
+        header = ChunkedObjectCipher.Header.generate();
+        plainText = new byte[SIZE];
+        new Random(42).nextBytes(plainText);
+        try (var stream = cipher.encrypt(new ByteArrayInputStream(plainText), header)){
+            cipherText = stream.readAllBytes();
+        }
+    }
+
+    private long drain(InputStream stream) throws IOException {
+        try (stream){
+            long total = 0;
+            int read;
+            while ((read = stream.read(buffer)) > 0){
+                total += read;
+            }
+            return total;
+        }
+    }
+
+    @Benchmark
+    public long encrypt() throws IOException {
+        return drain(cipher.encrypt(new ByteArrayInputStream(plainText), header));
+    }
+
+    @Benchmark
+    public long decrypt() throws IOException {
+        return drain(cipher.decrypt(new ByteArrayInputStream(cipherText), cipherText.length));
+    }
+
+    @Benchmark
+    public long decryptRange() throws IOException {
+        var offset = SIZE / 2 + 100;
+        var range = ChunkedObjectCipher.getEncryptedRange(offset, 4096, cipherText.length);
+        var chunks = new ByteArrayInputStream(cipherText, (int) range.start(), (int) (range.end() - range.start() + 1));
+        return drain(cipher.decrypt(chunks, header, cipherText.length, offset, 4096));
+    }
+}
@@ -0,0 +1,123 @@
+package net.cycastic.portfoliotoolkit.benchmark;
+
+import net.cycastic.portfoliotoolkit.configuration.CacheConfigurations;
+import net.cycastic.portfoliotoolkit.configuration.EmailTemplateConfigurations;
+import net.cycastic.portfoliotoolkit.configuration.SymmetricPresignerConfiguration;
+import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
+import net.cycastic.portfoliotoolkit.service.EmailTemplateEngine;
+import net.cycastic.portfoliotoolkit.service.StoragePresigner;
+import net.cycastic.portfoliotoolkit.service.impl.EmailImageCache;
+import net.cycastic.portfoliotoolkit.service.impl.FreemarkerEmailTemplateEngine;
+import net.cycastic.portfoliotoolkit.service.impl.SymmetricPresigner;
+import net.cycastic.portfoliotoolkit.service.impl.UriPresigner;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering compiled email templates: the registration mail with an inline logo, and a mail merge style template
+ * that signs image URLs through {@code <@loadImage>}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailTemplateBenchmark {
+    private static final String REGISTRATION_TEMPLATE = "templates/register/RegistrationCompletionMail.ftl";
+    private static final String MERGE_TEMPLATE = """
+            <html><body>
+            <p>Hello ${firstName} ${lastName},</p>
+            <p>Your order #${orderId} totalling ${total} has shipped.</p>
+            <@loadImage path="/media/images/banner.png" alt="Banner" style="width: 100%"/>
+            <p>Track it <a href="${trackingUrl}">here</a>.</p>
+            </body></html>
+            """;
+
+    private static final StoragePresigner.Scope SCOPE = new StoragePresigner.Scope(42, 7, "https://api.example.com");
+
+    private EmailTemplateEngine.CompiledTemplate registrationTemplate;
+    private EmailTemplateEngine.CompiledTemplate mergeTemplate;
+    private Map<String, Object> registrationParameters;
+    private Map<String, Object> mergeParameters;
+
+    @Setup
+    public void setup(){
+        var presignerConfiguration = new SymmetricPresignerConfiguration();
+        presignerConfiguration.setKey("benchmark-presigner-key");
+        var uriPresigner = new UriPresigner(new SymmetricPresigner(presignerConfiguration));
+        var storagePresigner = new StoragePresigner() {
+            @Override
+            public Scope getCurrentScope() {
+                return SCOPE;
+            }
+
+            private static URI getUri(Scope scope, String listingPath){
+                // Same URL shape as StoragePresignerImpl, without the share token lookup
+                return URI.create(scope.backendOrigin() + "/api/storage?projectId=" + scope.projectId()
+                        + "&userId=" + scope.userId()
+                        + "&shareToken=3f2a9c1e-5b7d-4e0f-8a6b-1c2d3e4f5a6b"
+                        + "&path=" + ApplicationUtilities.encodeURIComponent(listingPath));
+            }
+
+            @Override
+            public String sign(Scope scope, String listingPath) {
+                return uriPresigner.signUri(getUri(scope, listingPath)).toString();
+            }
+
+            @Override
+            public List<String> sign(Scope scope, List<String> listingPaths) {
+                var uris = new ArrayList<URI>(listingPaths.size());
+                for (var listingPath : listingPaths){
+                    uris.add(getUri(scope, listingPath));
+                }
+                var urls = new ArrayList<String>(uris.size());
+                for (var uri : uriPresigner.signUris(uris)){
+                    urls.add(uri.toString());
+                }
+                return urls;
+            }
+        };
+        var emailImageCache = new EmailImageCache(new CacheConfigurations());
+        var engine = new FreemarkerEmailTemplateEngine(storagePresigner, emailImageCache, new EmailTemplateConfigurations());
+
+        registrationTemplate = engine.getResourceTemplate(REGISTRATION_TEMPLATE);
+        mergeTemplate = engine.compile(new ByteArrayInputStream(MERGE_TEMPLATE.getBytes(StandardCharsets.UTF_8)));
+
+        registrationParameters = new HashMap<>();
+        registrationParameters.put("completionUri", "https://app.example.com/complete-signup?submission=abc");
+        registrationParameters.put("__debugBackendCompletionUri", "https://api.example.com/api/auth/complete");
+        registrationParameters.put("lastName", "Nguyen");
+        registrationParameters.put("notValidAfter", "Jan 1, 2030");
+        registrationParameters.put("logo", emailImageCache.getResource("static/logo.png", "image/png"));
+
+        mergeParameters = Map.of("firstName", "Linh",
+                "lastName", "Nguyen",
+                "orderId", "100234",
+                "total", "$42.00",
+                "trackingUrl", "https://track.example.com/100234");
+    }
+
+    @Benchmark
+    public byte[] renderRegistration(){
+        var stream = new ByteArrayOutputStream(4096);
+        registrationTemplate.render(stream, registrationParameters);
+        return stream.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] renderWithSignedImage(){
+        var stream = new ByteArrayOutputStream(4096);
+        mergeTemplate.render(stream, mergeParameters, SCOPE);
+        return stream.toByteArray();
+    }
+}
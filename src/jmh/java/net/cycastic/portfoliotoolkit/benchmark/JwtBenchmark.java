@@ -0,0 +1,54 @@
+package net.cycastic.portfoliotoolkit.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.cycastic.portfoliotoolkit.configuration.auth.JwtConfiguration;
+import net.cycastic.portfoliotoolkit.domain.ApplicationConstants;
+import net.cycastic.portfoliotoolkit.service.impl.auth.ECAsymmetricKeyGenerator;
+import net.cycastic.portfoliotoolkit.service.impl.auth.StandardJwtService;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issuing tokens at sign-in and verifying them on every authenticated request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+    private StandardJwtService jwtService;
+    private Map<String, Object> claims;
+    private String token;
+
+    @Setup
+    public void setup(){
+        var keyPair = new ECAsymmetricKeyGenerator().generate();
+        var configuration = new JwtConfiguration();
+        configuration.setValidForMillis(TimeUnit.HOURS.toMillis(3));
+        jwtService = new StandardJwtService(configuration,
+                (ECPrivateKey) keyPair.privateKey(),
+                (ECPublicKey) keyPair.publicKey(),
+                new SimpleMeterRegistry());
+        claims = Map.of(ApplicationConstants.ROLES_ENTRY, Set.of("USER"),
+                ApplicationConstants.SECURITY_STAMP_ENTRY, "c2VjdXJpdHktc3RhbXAtYmVuY2htYXJr");
+        token = jwtService.generateTokens("42", claims);
+    }
+
+    @Benchmark
+    public String issue(){
+        return jwtService.generateTokens("42", claims);
+    }
+
+    @Benchmark
+    public Claims verify(){
+        return jwtService.extractClaims(token);
+    }
+}
@@ -0,0 +1,100 @@
+package net.cycastic.portfoliotoolkit.benchmark;
+
+import net.cycastic.portfoliotoolkit.application.listing.service.ListingService;
+import net.cycastic.portfoliotoolkit.domain.model.ListingAccessControlPolicy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Glob based access control as done by {@link ListingService#verifyAccess}: combining the applicable policies into
+ * one pattern, then matching a page of listing paths against it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingAccessBenchmark {
+    private static final int USER_ID = 7;
+    private static final String[] GLOBS = {
+            "/public/**",
+            "/docs/*.pdf",
+            "/docs/*/index.html",
+            "/users/7/**",
+            "/media/images/*.png",
+            "/media/images/*.jpg",
+            "/media/videos/**",
+            "/reports/2024-*/summary.csv",
+    };
+
+    @Param({"50"})
+    public int pathCount;
+
+    private List<ListingAccessControlPolicy> policies;
+    private List<String> paths;
+    private Pattern allowPattern;
+
+    @Setup
+    public void setup(){
+        policies = new ArrayList<>();
+        var priority = 0;
+        for (var glob : GLOBS){
+            policies.add(ListingAccessControlPolicy.builder()
+                    .globPath(glob)
+                    .priority(priority++)
+                    .isAllowed(true)
+                    .build());
+            // Policies of other users are filtered out before compiling
+            policies.add(ListingAccessControlPolicy.builder()
+                    .globPath(glob + "/private")
+                    .priority(priority++)
+                    .isAllowed(true)
+                    .applyToId(USER_ID + 1)
+                    .build());
+        }
+
+        paths = new ArrayList<>(pathCount);
+        for (int i = 0; i < pathCount; i++){
+            paths.add(switch (i % 4){
+                case 0 -> "/public/site/page-" + i + ".html";
+                case 1 -> "/docs/manual-" + i + ".pdf";
+                case 2 -> "/media/images/photo-" + i + ".png";
+                default -> "/users/7/notes/" + i + ".txt";
+            });
+        }
+        allowPattern = ListingService.getAllowPattern(policies, USER_ID);
+    }
+
+    @Benchmark
+    public Pattern compilePolicies(){
+        return ListingService.getAllowPattern(policies, USER_ID);
+    }
+
+    @Benchmark
+    public int matchPaths(){
+        var allowed = 0;
+        for (var path : paths){
+            if (allowPattern.matcher(path).matches()){
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    @Benchmark
+    public int verifyAccess(){
+        var pattern = ListingService.getAllowPattern(policies, USER_ID);
+        var allowed = 0;
+        for (var path : paths){
+            if (pattern.matcher(path).matches()){
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+}
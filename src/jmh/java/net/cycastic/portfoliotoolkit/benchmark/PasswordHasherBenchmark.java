@@ -0,0 +1,46 @@
+package net.cycastic.portfoliotoolkit.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.cycastic.portfoliotoolkit.configuration.auth.Pbkdf2Configuration;
+import net.cycastic.portfoliotoolkit.service.impl.Pbkdf2PasswordHasher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PBKDF2 hashing cost, which bounds sign-in throughput per core. Run with {@code -p iterations=...} to size the
+ * configured iteration count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PasswordHasherBenchmark {
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"310000"})
+    public int iterations;
+
+    private Pbkdf2PasswordHasher hasher;
+    private String hash;
+
+    @Setup
+    public void setup(){
+        var configuration = new Pbkdf2Configuration();
+        configuration.setIterations(iterations);
+        hasher = new Pbkdf2PasswordHasher(configuration, new SimpleMeterRegistry());
+        hash = hasher.hash(PASSWORD);
+    }
+
+    @Benchmark
+    public String hash(){
+        return hasher.hash(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verify(){
+        return hasher.verify(PASSWORD, hash);
+    }
+}
@@ -0,0 +1,82 @@
+package net.cycastic.portfoliotoolkit.benchmark;
+
+import an.awesome.pipelinr.Command;
+import an.awesome.pipelinr.Notification;
+import an.awesome.pipelinr.Pipelinr;
+import net.cycastic.portfoliotoolkit.configuration.PipelinrRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old wiring, which scanned the application context and matched handler generics on every send,
+ * with {@link PipelinrRegistry}. The context holds one handler per command type plus a pass-through middleware,
+ * roughly the shape of the real application with fewer handlers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelinrDispatchBenchmark {
+    public record CommandA(int value) implements Command<Integer> {}
+    public record CommandB(int value) implements Command<Integer> {}
+    public record CommandC(int value) implements Command<Integer> {}
+    public record CommandD(int value) implements Command<Integer> {}
+    public record CommandE(int value) implements Command<Integer> {}
+    public record CommandF(int value) implements Command<Integer> {}
+    public record CommandG(int value) implements Command<Integer> {}
+    public record CommandH(int value) implements Command<Integer> {}
+
+    public static class HandlerA implements Command.Handler<CommandA, Integer> { public Integer handle(CommandA c) { return c.value(); } }
+    public static class HandlerB implements Command.Handler<CommandB, Integer> { public Integer handle(CommandB c) { return c.value(); } }
+    public static class HandlerC implements Command.Handler<CommandC, Integer> { public Integer handle(CommandC c) { return c.value(); } }
+    public static class HandlerD implements Command.Handler<CommandD, Integer> { public Integer handle(CommandD c) { return c.value(); } }
+    public static class HandlerE implements Command.Handler<CommandE, Integer> { public Integer handle(CommandE c) { return c.value(); } }
+    public static class HandlerF implements Command.Handler<CommandF, Integer> { public Integer handle(CommandF c) { return c.value(); } }
+    public static class HandlerG implements Command.Handler<CommandG, Integer> { public Integer handle(CommandG c) { return c.value(); } }
+    public static class HandlerH implements Command.Handler<CommandH, Integer> { public Integer handle(CommandH c) { return c.value(); } }
+
+    public static class PassThroughMiddleware implements Command.Middleware {
+        @Override
+        public <R, C extends Command<R>> R invoke(C command, Next<R> next) {
+            return next.invoke();
+        }
+    }
+
+    private AnnotationConfigApplicationContext context;
+    private Pipelinr contextScanning;
+    private Pipelinr registry;
+    private final CommandH command = new CommandH(42);
+
+    @Setup
+    public void setup(){
+        context = new AnnotationConfigApplicationContext(HandlerA.class, HandlerB.class, HandlerC.class, HandlerD.class,
+                HandlerE.class, HandlerF.class, HandlerG.class, HandlerH.class, PassThroughMiddleware.class);
+        contextScanning = new Pipelinr()
+                .with(() -> context.getBeansOfType(Command.Handler.class).values().stream())
+                .with(() -> context.getBeansOfType(Notification.Handler.class).values().stream())
+                .with(() -> context.getBeansOfType(Notification.Middleware.class).values().stream())
+                .with(() -> context.getBeansOfType(Command.Middleware.class).values().stream());
+        var pipelinrRegistry = new PipelinrRegistry(context);
+        pipelinrRegistry.afterSingletonsInstantiated();
+        registry = pipelinrRegistry.createPipelinr();
+    }
+
+    @TearDown
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public Integer contextScanning(){
+        return contextScanning.send(command);
+    }
+
+    @Benchmark
+    public Integer registry(){
+        return registry.send(command);
+    }
+}
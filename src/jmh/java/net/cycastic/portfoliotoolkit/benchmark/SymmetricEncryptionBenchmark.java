@@ -0,0 +1,46 @@
+package net.cycastic.portfoliotoolkit.benchmark;
+
+import net.cycastic.portfoliotoolkit.configuration.SymmetricEncryptionConfiguration;
+import net.cycastic.portfoliotoolkit.service.impl.SymmetricEncryptionProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AES-GCM encryption of secrets such as SMTP passwords, including the text encoding of the cipher text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SymmetricEncryptionBenchmark {
+    @Param({"32", "4096"})
+    public int size;
+
+    private SymmetricEncryptionProvider provider;
+    private byte[] plainText;
+    private byte[] cipherText;
+
+    @Setup
+    public void setup(){
+        var configuration = new SymmetricEncryptionConfiguration();
+        configuration.setKey("benchmark-encryption-key");
+        provider = new SymmetricEncryptionProvider(configuration);
+        plainText = new byte[size];
+        new Random(42).nextBytes(plainText);
+        cipherText = provider.encrypt(plainText);
+    }
+
+    @Benchmark
+    public byte[] encrypt(){
+        return provider.encrypt(plainText);
+    }
+
+    @Benchmark
+    public byte[] decrypt(){
+        return provider.decrypt(cipherText);
+    }
+}
@@ -0,0 +1,273 @@
+package net.cycastic.portfoliotoolkit.benchmark;
+
+import net.cycastic.portfoliotoolkit.configuration.SymmetricPresignerConfiguration;
+import net.cycastic.portfoliotoolkit.domain.ApplicationConstants;
+import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
+import net.cycastic.portfoliotoolkit.service.Presigner;
+import net.cycastic.portfoliotoolkit.service.impl.SymmetricPresigner;
+import net.cycastic.portfoliotoolkit.service.impl.UriPresigner;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass URI canonicalization and percent-encoding against the split/regex implementation they
+ * replaced. Setup fails if the two produce a different byte for any sample whose signature the old implementation could
+ * verify, so a run doubles as a compatibility check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UriCanonicalizationBenchmark {
+    /**
+     * The previous implementation, kept verbatim as the reference for signature compatibility.
+     */
+    public static class Legacy {
+        private final Presigner presigner;
+
+        public Legacy(Presigner presigner){
+            this.presigner = presigner;
+        }
+
+        public static String encodeURIComponent(Object obj){
+            return URLEncoder.encode(obj instanceof String s ? s : obj.toString(), StandardCharsets.UTF_8)
+                    .replaceAll("\\+", "%20")
+                    .replaceAll("%21", "!")
+                    .replaceAll("%27", "'")
+                    .replaceAll("%28", "(")
+                    .replaceAll("%29", ")")
+                    .replaceAll("%7E", "~");
+        }
+
+        private static URI buildUri(String scheme, String rawAuthority, String rawPath, String rawQuery, String rawFragment){
+            var sb = new StringBuilder()
+                    .append(scheme)
+                    .append("://")
+                    .append(rawAuthority)
+                    .append(rawPath);
+            if (rawQuery != null){
+                sb.append('?').append(rawQuery);
+            }
+            if (rawFragment != null){
+                sb.append('#').append(rawFragment);
+            }
+
+            return URI.create(sb.toString());
+        }
+
+        public URI signUri(URI uri){
+            var query = uri.getRawQuery();
+            var queryParts = new ArrayList<String>();
+            if (query != null) {
+                for (var param : query.split("&")) {
+                    if (param.startsWith(ApplicationConstants.PresignSignatureEntry + "=")) {
+                        throw new IllegalStateException("URI already contains a signature parameter");
+                    }
+                    if (param.startsWith(ApplicationConstants.PresignSignatureAlgorithmEntry + "=")) {
+                        throw new IllegalStateException("URI already contains a signature algorithm parameter");
+                    }
+
+                    queryParts.add(param);
+                }
+            }
+
+            var baseUri = buildUri(uri.getScheme(), uri.getRawAuthority(), uri.getRawPath(), query, uri.getRawFragment());
+            var signature = presigner.getSignature(baseUri.toString(), presigner.getDefaultAlgorithm());
+
+            queryParts.add(ApplicationConstants.PresignSignatureEntry + "=" + encodeURIComponent(signature));
+            queryParts.add(ApplicationConstants.PresignSignatureAlgorithmEntry + "=" + encodeURIComponent(presigner.getDefaultAlgorithm()));
+
+            query = String.join("&", queryParts);
+            return buildUri(uri.getScheme(), uri.getRawAuthority(), uri.getRawPath(), query, uri.getFragment());
+        }
+
+        public boolean verifyUri(URI uri){
+            var query = uri.getRawQuery();
+            if (query == null) {
+                return false;
+            }
+
+            var otherParams = new ArrayList<String>();
+            var signatures = new ArrayList<String>();
+            var algorithms = new ArrayList<String>();
+            for (var param : query.split("&")) {
+                if (param.startsWith(ApplicationConstants.PresignSignatureEntry + "=")) {
+                    var parts = param.split("=", 2);
+                    if (parts.length == 2) {
+                        signatures.add(URLDecoder.decode(parts[1], StandardCharsets.UTF_8));
+                    }
+                } else if (param.startsWith(ApplicationConstants.PresignSignatureAlgorithmEntry + "=")){
+                    var parts = param.split("=", 2);
+                    if (parts.length == 2) {
+                        algorithms.add(URLDecoder.decode(parts[1], StandardCharsets.UTF_8));
+                    }
+                } else {
+                    otherParams.add(param);
+                }
+            }
+
+            if (signatures.isEmpty() || algorithms.isEmpty()) {
+                return false;
+            }
+            if (signatures.size() > 1 || algorithms.size() > 1) {
+                return false;
+            }
+            var foundSignature = signatures.getFirst();
+            var foundAlgo = algorithms.getFirst();
+
+            var newQuery = otherParams.isEmpty() ? null : String.join("&", otherParams);
+            var baseUri = buildUri(uri.getScheme(), uri.getRawAuthority(), uri.getRawPath(), newQuery, uri.getRawFragment());
+            return presigner.verifySignature(baseUri.toString(), foundSignature, foundAlgo);
+        }
+    }
+
+    /**
+     * Remembers the last data and signature handed to the wrapped presigner.
+     */
+    private static class RecordingPresigner implements Presigner {
+        private final Presigner presigner;
+        private String lastData;
+        private String lastSignature;
+
+        private RecordingPresigner(Presigner presigner){
+            this.presigner = presigner;
+        }
+
+        @Override
+        public String getSignature(String data, String algorithm) {
+            lastData = data;
+            lastSignature = presigner.getSignature(data, algorithm);
+            return lastSignature;
+        }
+
+        @Override
+        public boolean verifySignature(String data, String signature, String algorithm) {
+            lastData = data;
+            lastSignature = signature;
+            return presigner.verifySignature(data, signature, algorithm);
+        }
+
+        @Override
+        public String getDefaultAlgorithm() {
+            return presigner.getDefaultAlgorithm();
+        }
+    }
+
+    public static final List<String> SAMPLE_VALUES = List.of(
+            "/media/images/photo one.png",
+            "plain-value_1.txt",
+            "a+b=c&d",
+            "(it's) ~fine!*",
+            "résumé – été.pdf",
+            "日本語/ファイル.txt",
+            "emoji 😀 face",
+            "broken \uD800 surrogate",
+            "trailing \uDC00",
+            "tab\tnew\nline",
+            "100% \"quoted\" <tag>");
+
+    public static final List<String> SAMPLE_URIS = List.of(
+            "https://api.example.com/api/storage?projectId=42&userId=7&shareToken=3f2a9c1e-5b7d-4e0f-8a6b-1c2d3e4f5a6b&path=%2Fmedia%2Fimages%2Fphoto%20one.png",
+            "https://api.example.com/api/auth/complete?userId=7&securityStamp=abc%2Bdef%3D&notValidBefore=1700000000&notValidAfter=1700086400",
+            "https://api.example.com/api/storage",
+            "https://api.example.com/api/storage?",
+            "https://api.example.com/api/storage?&",
+            "https://api.example.com/api/storage?a=1&&b=2&",
+            "https://api.example.com/api/storage?&leading=1",
+            "http://localhost:8080/path%20with%20spaces/x?q=a%26b#frag",
+            "https://user@api.example.com:8443/p?x-pt-signaturex=1");
+
+    private UriPresigner uriPresigner;
+    private Legacy legacy;
+    private URI unsigned;
+    private URI signed;
+    private String value;
+
+    private static void checkSame(String what, String sample, Object actual, Object expected){
+        if (!Objects.equals(actual, expected)){
+            throw new IllegalStateException(String.format("%s differs for %s: %s != %s", what, sample, actual, expected));
+        }
+    }
+
+    public static void verifyCompatibility(Presigner presigner){
+        for (var sample : SAMPLE_VALUES){
+            checkSame("Encoding", sample, ApplicationUtilities.encodeURIComponent(sample), Legacy.encodeURIComponent(sample));
+        }
+
+        var current = new RecordingPresigner(presigner);
+        var previous = new RecordingPresigner(presigner);
+        var uriPresigner = new UriPresigner(current);
+        var legacy = new Legacy(previous);
+        for (var sample : SAMPLE_URIS){
+            var uri = URI.create(sample);
+            var signedUri = uriPresigner.signUri(uri);
+            var signedData = current.lastData;
+            var legacySignedUri = legacy.signUri(uri);
+            var legacySignedData = previous.lastData;
+            // Signatures of queries with trailing separators never verified before, only those that did must match
+            if (legacy.verifyUri(legacySignedUri)){
+                checkSame("Signed URI", sample, signedUri.toString(), legacySignedUri.toString());
+                checkSame("Signed data", sample, signedData, legacySignedData);
+            }
+
+            checkSame("Verification", sample, uriPresigner.verifyUri(signedUri), true);
+            legacy.verifyUri(signedUri);
+            checkSame("Verified data", sample, current.lastData, previous.lastData);
+            checkSame("Verified signature", sample, current.lastSignature, previous.lastSignature);
+        }
+    }
+
+    @Setup
+    public void setup(){
+        var configuration = new SymmetricPresignerConfiguration();
+        configuration.setKey("benchmark-presigner-key");
+        var presigner = new SymmetricPresigner(configuration);
+        verifyCompatibility(presigner);
+
+        uriPresigner = new UriPresigner(presigner);
+        legacy = new Legacy(presigner);
+        unsigned = URI.create(SAMPLE_URIS.getFirst());
+        signed = uriPresigner.signUri(unsigned);
+        value = Objects.requireNonNull(SAMPLE_VALUES.getFirst());
+    }
+
+    @Benchmark
+    public String encodeLegacy(){
+        return Legacy.encodeURIComponent(value);
+    }
+
+    @Benchmark
+    public String encode(){
+        return ApplicationUtilities.encodeURIComponent(value);
+    }
+
+    @Benchmark
+    public URI signLegacy(){
+        return legacy.signUri(unsigned);
+    }
+
+    @Benchmark
+    public URI sign(){
+        return uriPresigner.signUri(unsigned);
+    }
+
+    @Benchmark
+    public boolean verifyLegacy(){
+        return legacy.verifyUri(signed);
+    }
+
+    @Benchmark
+    public boolean verify(){
+        return uriPresigner.verifyUri(signed);
+    }
+}
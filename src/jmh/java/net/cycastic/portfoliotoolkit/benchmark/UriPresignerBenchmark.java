@@ -0,0 +1,56 @@
+package net.cycastic.portfoliotoolkit.benchmark;
+
+import net.cycastic.portfoliotoolkit.configuration.SymmetricPresignerConfiguration;
+import net.cycastic.portfoliotoolkit.service.impl.SymmetricPresigner;
+import net.cycastic.portfoliotoolkit.service.impl.UriPresigner;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing and verifying storage URLs with the local HMAC presigner, the path taken by every attachment download.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UriPresignerBenchmark {
+    private UriPresigner uriPresigner;
+    private URI unsigned;
+    private URI signed;
+    private List<URI> batch;
+
+    @Setup
+    public void setup(){
+        var configuration = new SymmetricPresignerConfiguration();
+        configuration.setKey("benchmark-presigner-key");
+        uriPresigner = new UriPresigner(new SymmetricPresigner(configuration));
+        unsigned = URI.create("https://api.example.com/api/storage?projectId=42&userId=7&shareToken=3f2a9c1e-5b7d-4e0f-8a6b-1c2d3e4f5a6b&path=%2Fmedia%2Fimages%2Fphoto%20one.png");
+        signed = uriPresigner.signUri(unsigned);
+        batch = new ArrayList<>();
+        for (var i = 0; i < 16; i++){
+            batch.add(URI.create("https://api.example.com/api/storage?projectId=42&userId=7&shareToken=3f2a9c1e-5b7d-4e0f-8a6b-1c2d3e4f5a6b&path=%2Fmedia%2Fimages%2Fphoto-" + i + ".png"));
+        }
+    }
+
+    @Benchmark
+    public URI signUri(){
+        return uriPresigner.signUri(unsigned);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public List<URI> signUris(){
+        return uriPresigner.signUris(batch);
+    }
+
+    @Benchmark
+    public boolean verifyUri(){
+        return uriPresigner.verifyUri(signed);
+    }
+}
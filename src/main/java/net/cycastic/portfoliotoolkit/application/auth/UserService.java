@@ -2,6 +2,7 @@ package net.cycastic.portfoliotoolkit.application.auth;
 
 import jakarta.validation.constraints.NotNull;
 import lombok.SneakyThrows;
+import net.cycastic.portfoliotoolkit.application.email.service.EmailQueueService;
 import net.cycastic.portfoliotoolkit.configuration.RegistrationConfigurations;
 import net.cycastic.portfoliotoolkit.domain.ApplicationConstants;
 import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
@@ -15,19 +16,17 @@ import net.cycastic.portfoliotoolkit.domain.repository.UserRepository;
 import net.cycastic.portfoliotoolkit.service.*;
 import net.cycastic.portfoliotoolkit.service.auth.JwtIssuer;
 import net.cycastic.portfoliotoolkit.service.impl.ApplicationEmailSender;
+import net.cycastic.portfoliotoolkit.service.impl.EmailImageCache;
 import net.cycastic.portfoliotoolkit.service.impl.UriPresigner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamSource;
-import org.springframework.core.task.TaskExecutor;
 import org.springframework.lang.Nullable;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
@@ -42,6 +41,8 @@ import java.util.stream.Collectors;
 public class UserService {
     private static final String DUMMY_TEXT = "Hello World!";
     private static final SecureRandom RANDOM = new SecureRandom();
+    private static final String REGISTRATION_COMPLETION_TEMPLATE = "templates/register/RegistrationCompletionMail.ftl";
+    private static final String LOGO_RESOURCE = "static/logo.png";
 
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
     private final UserRepository userRepository;
@@ -54,10 +55,11 @@ public class UserService {
     private final UriPresigner uriPresigner;
     private final EmailTemplateEngine emailTemplateEngine;
     private final ApplicationEmailSender applicationEmailSender;
-    private final TaskExecutor taskScheduler;
+    private final EmailQueueService emailQueueService;
+    private final EmailImageCache emailImageCache;
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordHasher passwordHasher, PasswordValidator passwordValidator, JwtIssuer jwtIssuer, RegistrationConfigurations registrationConfigurations, UrlAccessor urlAccessor, UriPresigner uriPresigner, EmailTemplateEngine emailTemplateEngine, ApplicationEmailSender applicationEmailSender, TaskExecutor taskScheduler){
+    public UserService(UserRepository userRepository, PasswordHasher passwordHasher, PasswordValidator passwordValidator, JwtIssuer jwtIssuer, RegistrationConfigurations registrationConfigurations, UrlAccessor urlAccessor, UriPresigner uriPresigner, EmailTemplateEngine emailTemplateEngine, ApplicationEmailSender applicationEmailSender, EmailQueueService emailQueueService, EmailImageCache emailImageCache){
         this.userRepository = userRepository;
         this.passwordHasher = passwordHasher;
         this.passwordValidator = passwordValidator;
@@ -68,7 +70,8 @@ public class UserService {
         this.uriPresigner = uriPresigner;
         this.emailTemplateEngine = emailTemplateEngine;
         this.applicationEmailSender = applicationEmailSender;
-        this.taskScheduler = taskScheduler;
+        this.emailQueueService = emailQueueService;
+        this.emailImageCache = emailImageCache;
     }
 
     public static void refreshSecurityStamp(User user){
@@ -176,10 +179,6 @@ public class UserService {
         return uriPresigner.signUri(backendCompletionUri);
     }
 
-    private static InputStream loadIconImage(){
-        return UserService.class.getClassLoader().getResourceAsStream("static/logo.png");
-    }
-
     @SneakyThrows
     private void sendConfirmationEmailInternal(@NotNull UserDto user, String securityStamp){
         var nvb = OffsetDateTime.now();
@@ -197,39 +196,22 @@ public class UserService {
                 "notValidAfter", DateTimeFormatter.ofLocalizedDate(FormatStyle.MEDIUM)
                         .withLocale(Locale.ROOT)
                         .format(nva),
-                "logo", new EmailImage() {
-                    @Override
-                    public String getFileName() {
-                        return "logo.png";
-                    }
-
-                    @Override
-                    public String getMimeType() {
-                        return "image/png";
-                    }
-
-                    @Override
-                    public InputStreamSource getImageSource() {
-                        return UserService::loadIconImage;
-                    }
-                }
+                "logo", emailImageCache.getResource(LOGO_RESOURCE, "image/png")
         );
         byte[] renderedContent;
         EmailTemplateEngine.RenderResult renderResult;
 
         try (var byteStream = new ByteArrayOutputStream()){
-            try (var templateStream = getClass().getClassLoader().getResourceAsStream("templates/register/RegistrationCompletionMail.ftl")){
-                renderResult = emailTemplateEngine.render(templateStream, byteStream, parameters);
-            }
-
+            renderResult = emailTemplateEngine.getResourceTemplate(REGISTRATION_COMPLETION_TEMPLATE)
+                    .render(byteStream, parameters);
             renderedContent = byteStream.toByteArray();
         }
 
-        applicationEmailSender.sendHtml(user.getEmail(),
+        emailQueueService.enqueue(ApplicationEmailSender.SENDER_KEY, applicationEmailSender.createMessage(user.getEmail(),
                 null,
                 "Complete your registration with PortfolioToolkit",
                 new String(renderedContent, StandardCharsets.UTF_8),
-                renderResult.getImageStreamSource());
+                renderResult.getImageStreamSource()));
     }
 
     public void sendConfirmationEmail(User user){
@@ -242,13 +224,11 @@ public class UserService {
         final var securityStamp = Base64.getEncoder().encodeToString(user.getSecurityStamp());
         final var dto = UserDto.fromDomain(user);
 
-        taskScheduler.execute(() -> {
-            try {
-                sendConfirmationEmailInternal(dto, securityStamp);
-                logger.info("Confirmation email sent to user {}", dto.getId());
-            } catch (Exception e) {
-                logger.error("Failed to send confirmation email to user {}", dto.getId(), e);
-            }
-        });
+        try {
+            sendConfirmationEmailInternal(dto, securityStamp);
+            logger.info("Confirmation email queued for user {}", dto.getId());
+        } catch (Exception e) {
+            logger.error("Failed to queue confirmation email for user {}", dto.getId(), e);
+        }
     }
 }
@@ -0,0 +1,32 @@
+package net.cycastic.portfoliotoolkit.application.email.merge.create;
+
+import an.awesome.pipelinr.Command;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import net.cycastic.portfoliotoolkit.domain.dto.IdDto;
+import org.springframework.lang.Nullable;
+
+@Data
+@NoArgsConstructor
+public class CreateMailMergeJobCommand implements Command<IdDto> {
+    private int credentialId;
+
+    @NotNull
+    private String templatePath;
+
+    @NotNull
+    private String subject;
+
+    /**
+     * A CSV or NDJSON attachment listing holding the recipients.
+     */
+    @Nullable
+    private String recipientListPath;
+
+    /**
+     * A listing prefix; every CSV or NDJSON attachment under it is read in path order.
+     */
+    @Nullable
+    private String recipientListPrefix;
+}
@@ -0,0 +1,84 @@
+package net.cycastic.portfoliotoolkit.application.email.merge.create;
+
+import an.awesome.pipelinr.Command;
+import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.email.service.EmailTemplateResolver;
+import net.cycastic.portfoliotoolkit.application.email.service.MailMergeJobRunner;
+import net.cycastic.portfoliotoolkit.application.email.service.ProjectEmailSenderRegistry;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
+import net.cycastic.portfoliotoolkit.domain.dto.IdDto;
+import net.cycastic.portfoliotoolkit.domain.exception.ForbiddenException;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import net.cycastic.portfoliotoolkit.domain.model.MailMergeJob;
+import net.cycastic.portfoliotoolkit.domain.model.MailMergeJobStatus;
+import net.cycastic.portfoliotoolkit.domain.model.MailMergeSourceType;
+import net.cycastic.portfoliotoolkit.domain.repository.MailMergeJobRepository;
+import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentListingRepository;
+import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
+import net.cycastic.portfoliotoolkit.service.UrlAccessor;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+
+@Component
+@RequiredArgsConstructor
+public class CreateMailMergeJobCommandHandler implements Command.Handler<CreateMailMergeJobCommand, IdDto> {
+    private final LoggedUserAccessor loggedUserAccessor;
+    private final ProjectMetadataCache projectMetadataCache;
+    private final ProjectEmailSenderRegistry projectEmailSenderRegistry;
+    private final EmailTemplateResolver emailTemplateResolver;
+    private final AttachmentListingRepository attachmentListingRepository;
+    private final MailMergeJobRepository mailMergeJobRepository;
+    private final MailMergeJobRunner mailMergeJobRunner;
+    private final UrlAccessor urlAccessor;
+
+    @Override
+    public IdDto handle(CreateMailMergeJobCommand command) {
+        var projectId = loggedUserAccessor.getProjectId();
+        var metadata = projectMetadataCache.find(projectId)
+                .orElseThrow(ForbiddenException::new);
+        if (!loggedUserAccessor.isAdmin() && !metadata.isOwnedBy(loggedUserAccessor.getUserId())){
+            throw new ForbiddenException();
+        }
+        var sender = projectEmailSenderRegistry.get(command.getCredentialId());
+        if (sender.projectId() != projectId){
+            throw new ForbiddenException();
+        }
+        // Compiles the template now so that syntax errors are reported to the caller rather than in the job
+        emailTemplateResolver.getTemplate(projectId, command.getTemplatePath());
+
+        MailMergeSourceType sourceType;
+        String sourcePath;
+        if (command.getRecipientListPath() != null){
+            var listing = attachmentListingRepository.findByListing_Project_IdAndListing_ListingPath(projectId, command.getRecipientListPath())
+                    .orElseThrow(() -> new RequestException(404, "Recipient list does not exist"));
+            if (!listing.isUploadCompleted()){
+                throw new RequestException(400, "Recipient list upload is not completed");
+            }
+            sourceType = MailMergeJobRunner.getFileSourceType(command.getRecipientListPath(), listing.getMimeType());
+            if (sourceType == null){
+                throw new RequestException(400, "Recipient list must be a CSV or NDJSON file");
+            }
+            sourcePath = command.getRecipientListPath();
+        } else {
+            sourceType = MailMergeSourceType.LISTING_PREFIX;
+            sourcePath = command.getRecipientListPrefix();
+        }
+
+        var job = MailMergeJob.builder()
+                .projectId(projectId)
+                .createdBy(loggedUserAccessor.getUserId())
+                .credentialId(sender.credentialId())
+                .templatePath(command.getTemplatePath())
+                .subject(command.getSubject())
+                .sourceType(sourceType)
+                .sourcePath(sourcePath)
+                .backendOrigin(urlAccessor.getBackendOrigin())
+                .status(MailMergeJobStatus.PENDING)
+                .createdAt(OffsetDateTime.now())
+                .build();
+        mailMergeJobRepository.save(job);
+        mailMergeJobRunner.submit(job.getId());
+        return new IdDto(job.getId());
+    }
+}
@@ -0,0 +1,22 @@
+package net.cycastic.portfoliotoolkit.application.email.merge.create;
+
+import net.cycastic.portfoliotoolkit.application.validation.CommandValidator;
+import net.cycastic.portfoliotoolkit.domain.dto.IdDto;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CreateMailMergeJobCommandValidator implements CommandValidator<CreateMailMergeJobCommand, IdDto> {
+    @Override
+    public void validate(CreateMailMergeJobCommand command) {
+        if (command.getSubject().isBlank()){
+            throw new RequestException(400, "Subject must not be empty");
+        }
+        if ((command.getRecipientListPath() == null) == (command.getRecipientListPrefix() == null)){
+            throw new RequestException(400, "Exactly one of recipient list path or recipient list prefix must be supplied");
+        }
+        if (command.getRecipientListPrefix() != null && !command.getRecipientListPrefix().startsWith("/")){
+            throw new RequestException(400, "Listing path must start with a forward slash");
+        }
+    }
+}
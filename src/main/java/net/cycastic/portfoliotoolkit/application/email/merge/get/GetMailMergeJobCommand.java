@@ -0,0 +1,10 @@
+package net.cycastic.portfoliotoolkit.application.email.merge.get;
+
+import an.awesome.pipelinr.Command;
+import lombok.Data;
+import net.cycastic.portfoliotoolkit.domain.dto.MailMergeJobDto;
+
+@Data
+public class GetMailMergeJobCommand implements Command<MailMergeJobDto> {
+    private long id;
+}
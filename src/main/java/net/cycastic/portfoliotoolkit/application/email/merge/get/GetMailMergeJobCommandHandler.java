@@ -0,0 +1,32 @@
+package net.cycastic.portfoliotoolkit.application.email.merge.get;
+
+import an.awesome.pipelinr.Command;
+import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
+import net.cycastic.portfoliotoolkit.domain.dto.MailMergeJobDto;
+import net.cycastic.portfoliotoolkit.domain.exception.ForbiddenException;
+import net.cycastic.portfoliotoolkit.domain.repository.MailMergeJobRepository;
+import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class GetMailMergeJobCommandHandler implements Command.Handler<GetMailMergeJobCommand, MailMergeJobDto> {
+    private final MailMergeJobRepository mailMergeJobRepository;
+    private final ProjectMetadataCache projectMetadataCache;
+    private final LoggedUserAccessor loggedUserAccessor;
+
+    @Override
+    public MailMergeJobDto handle(GetMailMergeJobCommand command) {
+        var job = mailMergeJobRepository.findById(command.getId())
+                .orElseThrow(ForbiddenException::new);
+        if (job.getProjectId() != loggedUserAccessor.getProjectId()){
+            throw new ForbiddenException();
+        }
+        if (!loggedUserAccessor.isAdmin() && !projectMetadataCache.get(job.getProjectId()).isOwnedBy(loggedUserAccessor.getUserId())){
+            throw new ForbiddenException();
+        }
+
+        return new MailMergeJobDto(job);
+    }
+}
@@ -3,10 +3,10 @@ package net.cycastic.portfoliotoolkit.application.email.preview;
 import an.awesome.pipelinr.Command;
 import lombok.Data;
 import net.cycastic.portfoliotoolkit.domain.model.EmailParameter;
-import org.springframework.core.io.InputStreamSource;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Data
-public class PreviewEmailCommand implements Command<InputStreamSource> {
+public class PreviewEmailCommand implements Command<StreamingResponseBody> {
     private EmailParameter[] constants;
     private String templatePath;
 }
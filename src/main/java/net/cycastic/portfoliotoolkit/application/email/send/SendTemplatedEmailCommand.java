@@ -0,0 +1,30 @@
+package net.cycastic.portfoliotoolkit.application.email.send;
+
+import an.awesome.pipelinr.Command;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import net.cycastic.portfoliotoolkit.domain.dto.IdDto;
+import net.cycastic.portfoliotoolkit.domain.model.EmailParameter;
+import org.springframework.lang.Nullable;
+
+@Data
+@NoArgsConstructor
+public class SendTemplatedEmailCommand implements Command<IdDto> {
+    private int credentialId;
+
+    @NotNull
+    private String templatePath;
+
+    @NotNull
+    private String to;
+
+    @Nullable
+    private String cc;
+
+    @NotNull
+    private String subject;
+
+    @Nullable
+    private EmailParameter[] constants;
+}
@@ -0,0 +1,57 @@
+package net.cycastic.portfoliotoolkit.application.email.send;
+
+import an.awesome.pipelinr.Command;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import net.cycastic.portfoliotoolkit.application.email.service.EmailQueueService;
+import net.cycastic.portfoliotoolkit.application.email.service.EmailTemplateResolver;
+import net.cycastic.portfoliotoolkit.application.email.service.ProjectEmailSenderRegistry;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
+import net.cycastic.portfoliotoolkit.domain.dto.IdDto;
+import net.cycastic.portfoliotoolkit.domain.exception.ForbiddenException;
+import net.cycastic.portfoliotoolkit.domain.model.EmailParameter;
+import net.cycastic.portfoliotoolkit.service.EmailTemplateEngine;
+import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+@Component
+@RequiredArgsConstructor
+public class SendTemplatedEmailCommandHandler implements Command.Handler<SendTemplatedEmailCommand, IdDto> {
+    private final LoggedUserAccessor loggedUserAccessor;
+    private final ProjectMetadataCache projectMetadataCache;
+    private final ProjectEmailSenderRegistry projectEmailSenderRegistry;
+    private final EmailTemplateResolver emailTemplateResolver;
+    private final EmailQueueService emailQueueService;
+
+    @Override
+    @SneakyThrows
+    public IdDto handle(SendTemplatedEmailCommand command) {
+        var projectId = loggedUserAccessor.getProjectId();
+        var metadata = projectMetadataCache.find(projectId)
+                .orElseThrow(ForbiddenException::new);
+        if (!loggedUserAccessor.isAdmin() && !metadata.isOwnedBy(loggedUserAccessor.getUserId())){
+            throw new ForbiddenException();
+        }
+        var sender = projectEmailSenderRegistry.get(command.getCredentialId());
+        if (sender.projectId() != projectId){
+            throw new ForbiddenException();
+        }
+
+        var template = emailTemplateResolver.getTemplate(projectId, command.getTemplatePath());
+        var constants = Objects.requireNonNullElseGet(command.getConstants(), () -> new EmailParameter[0]);
+        String htmlBody;
+        EmailTemplateEngine.RenderResult renderResult;
+        try (var byteStream = new ByteArrayOutputStream()){
+            renderResult = template.render(byteStream, constants);
+            htmlBody = byteStream.toString(StandardCharsets.UTF_8);
+        }
+
+        var id = emailQueueService.enqueue(ProjectEmailSenderRegistry.getSenderKey(sender.credentialId()),
+                sender.createMessage(command.getTo(), command.getCc(), command.getSubject(), htmlBody, renderResult.getImageStreamSource()));
+        return new IdDto(id);
+    }
+}
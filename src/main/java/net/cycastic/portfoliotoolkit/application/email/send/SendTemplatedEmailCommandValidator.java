@@ -0,0 +1,23 @@
+package net.cycastic.portfoliotoolkit.application.email.send;
+
+import net.cycastic.portfoliotoolkit.application.validation.CommandValidator;
+import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
+import net.cycastic.portfoliotoolkit.domain.dto.IdDto;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SendTemplatedEmailCommandValidator implements CommandValidator<SendTemplatedEmailCommand, IdDto> {
+    @Override
+    public void validate(SendTemplatedEmailCommand command) {
+        if (!ApplicationUtilities.isEmail(command.getTo())){
+            throw new RequestException(400, "Invalid recipient address");
+        }
+        if (command.getCc() != null && !ApplicationUtilities.isEmail(command.getCc())){
+            throw new RequestException(400, "Invalid CC address");
+        }
+        if (command.getSubject().isBlank()){
+            throw new RequestException(400, "Subject must not be empty");
+        }
+    }
+}
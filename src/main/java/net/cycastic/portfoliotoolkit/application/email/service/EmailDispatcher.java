@@ -0,0 +1,294 @@
+package net.cycastic.portfoliotoolkit.application.email.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.cycastic.portfoliotoolkit.configuration.mail.EmailQueueConfigurations;
+import net.cycastic.portfoliotoolkit.domain.model.OutboundEmail;
+import net.cycastic.portfoliotoolkit.domain.model.OutboundEmailStatus;
+import net.cycastic.portfoliotoolkit.domain.repository.OutboundEmailRepository;
+import net.cycastic.portfoliotoolkit.service.EmailImage;
+import net.cycastic.portfoliotoolkit.service.EmailSender;
+import net.cycastic.portfoliotoolkit.service.EmailSenderResolver;
+import net.cycastic.portfoliotoolkit.service.impl.EmailImageCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the outbound email queue on a dedicated thread. Due messages are leased in batches, grouped by sender
+ * and handed to the sender in one call so that every batch reuses a single SMTP connection. Failed messages are
+ * retried with exponential backoff until {@code max-attempts} is reached.
+ */
+@Component
+public class EmailDispatcher implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(EmailDispatcher.class);
+    private static final int MAX_ERROR_LENGTH = 1024;
+    private static final List<OutboundEmailStatus> QUEUED_STATUSES = List.of(OutboundEmailStatus.PENDING, OutboundEmailStatus.SENDING);
+
+    private static class RateLimiter {
+        private final double permitsPerSecond;
+        private final double capacity;
+        private double permits;
+        private long lastRefill = System.nanoTime();
+
+        private RateLimiter(double permitsPerSecond){
+            this.permitsPerSecond = permitsPerSecond;
+            this.capacity = Math.max(1, permitsPerSecond);
+            this.permits = capacity;
+        }
+
+        private void refill(){
+            var now = System.nanoTime();
+            permits = Math.min(capacity, permits + (now - lastRefill) / 1e9 * permitsPerSecond);
+            lastRefill = now;
+        }
+
+        /**
+         * Blocks until at least one permit is available and takes up to {@code requested} permits.
+         */
+        private int acquire(int requested) throws InterruptedException {
+            refill();
+            if (permits < 1){
+                TimeUnit.NANOSECONDS.sleep((long) ((1 - permits) / permitsPerSecond * 1e9));
+                refill();
+            }
+            var granted = (int) Math.max(1, Math.min(requested, Math.floor(permits)));
+            permits -= granted;
+            return granted;
+        }
+    }
+
+    private final OutboundEmailRepository outboundEmailRepository;
+    private final EmailQueueConfigurations configurations;
+    private final ObjectProvider<EmailSenderResolver> senderResolvers;
+    private final TransactionTemplate transactionTemplate;
+    private final EmailImageCache emailImageCache;
+    private final Map<String, RateLimiter> rateLimiters = new HashMap<>();
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final Timer sendDuration;
+    private final Timer deliveryDelay;
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private volatile ScheduledExecutorService executor;
+
+    @Autowired
+    public EmailDispatcher(OutboundEmailRepository outboundEmailRepository,
+                           EmailQueueConfigurations configurations,
+                           ObjectProvider<EmailSenderResolver> senderResolvers,
+                           TransactionTemplate transactionTemplate,
+                           EmailImageCache emailImageCache,
+                           MeterRegistry meterRegistry){
+        this.outboundEmailRepository = outboundEmailRepository;
+        this.configurations = configurations;
+        this.senderResolvers = senderResolvers;
+        this.transactionTemplate = transactionTemplate;
+        this.emailImageCache = emailImageCache;
+        Gauge.builder("email.queue.depth", queueDepth, AtomicLong::get)
+                .description("Messages waiting to be sent")
+                .register(meterRegistry);
+        sendDuration = Timer.builder("email.send.duration")
+                .description("Time spent sending one batch over SMTP")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        deliveryDelay = Timer.builder("email.delivery.delay")
+                .description("Time between enqueueing and sending a message")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        sentCounter = Counter.builder("email.send.results").tag("outcome", "sent").register(meterRegistry);
+        retriedCounter = Counter.builder("email.send.results").tag("outcome", "retried").register(meterRegistry);
+        failedCounter = Counter.builder("email.send.results").tag("outcome", "failed").register(meterRegistry);
+    }
+
+    private @Nullable EmailSender resolveSender(String senderKey){
+        for (var resolver : senderResolvers){
+            var sender = resolver.resolve(senderKey);
+            if (sender != null){
+                return sender;
+            }
+        }
+        return null;
+    }
+
+    private List<OutboundEmail> lease(){
+        return transactionTemplate.execute(status -> {
+            var now = OffsetDateTime.now();
+            var ids = outboundEmailRepository.findDueIdsForUpdate(now, configurations.getBatchSize());
+            if (ids.isEmpty()){
+                return List.of();
+            }
+
+            var maxAttempts = configurations.getMaxAttempts();
+            var exhausted = outboundEmailRepository.failExhausted(ids, OutboundEmailStatus.FAILED, now, maxAttempts);
+            if (exhausted > 0){
+                logger.error("Giving up on {} email(s) whose sending never completed", exhausted);
+                failedCounter.increment(exhausted);
+            }
+            if (outboundEmailRepository.lease(ids, OutboundEmailStatus.SENDING, now.plusSeconds(configurations.getLeaseSeconds()), maxAttempts) == 0){
+                return List.of();
+            }
+            return outboundEmailRepository.findWithImagesByIdIn(ids).stream()
+                    .filter(e -> e.getStatus() == OutboundEmailStatus.SENDING)
+                    .toList();
+        });
+    }
+
+    private EmailSender.Message toMessage(OutboundEmail email){
+        Map<String, EmailImage> images = HashMap.newHashMap(email.getImages().size());
+        for (var image : email.getImages()){
+            var blob = image.getBlob();
+            // Messages sharing an image share one encoded copy of it
+            images.put(image.getContentId(), emailImageCache.intern(blob.getHash(), image.getContentId(), blob.getMimeType(), blob.getContent()));
+        }
+        return new EmailSender.Message(email.getFromAddress(),
+                email.getFromName(),
+                email.getToAddress(),
+                email.getCcAddress(),
+                email.getSubject(),
+                email.getHtmlBody(),
+                images);
+    }
+
+    private Duration getRetryDelay(int attempts){
+        var base = configurations.getRetryBaseDelaySeconds();
+        var shift = Math.min(attempts - 1, 30);
+        return Duration.ofSeconds(Math.min(base << shift, configurations.getRetryMaxDelaySeconds()));
+    }
+
+    private void onSent(OutboundEmail email, OffsetDateTime now){
+        transactionTemplate.executeWithoutResult(status -> outboundEmailRepository.markSent(email.getId(), OutboundEmailStatus.SENT, now));
+        deliveryDelay.record(Duration.between(email.getCreatedAt(), now));
+        sentCounter.increment();
+    }
+
+    private void onFailed(OutboundEmail email, String error, boolean permanent){
+        // Already counted when the message was leased
+        var attempts = email.getAttempts();
+        var now = OffsetDateTime.now();
+        var giveUp = permanent || attempts >= configurations.getMaxAttempts();
+        var truncated = error == null ? null : error.substring(0, Math.min(error.length(), MAX_ERROR_LENGTH));
+        transactionTemplate.executeWithoutResult(status -> outboundEmailRepository.markAttemptFailed(email.getId(),
+                giveUp ? OutboundEmailStatus.FAILED : OutboundEmailStatus.PENDING,
+                attempts,
+                giveUp ? now : now.plus(getRetryDelay(attempts)),
+                truncated));
+        if (giveUp){
+            logger.error("Giving up on email {} after {} attempt(s): {}", email.getId(), attempts, error);
+            failedCounter.increment();
+        } else {
+            retriedCounter.increment();
+        }
+    }
+
+    private void send(String senderKey, List<OutboundEmail> emails) throws InterruptedException {
+        var sender = resolveSender(senderKey);
+        if (sender == null){
+            for (var email : emails){
+                onFailed(email, "Unknown sender: " + senderKey, true);
+            }
+            return;
+        }
+
+        var rateLimiter = configurations.getSendRatePerSecond() > 0
+                ? rateLimiters.computeIfAbsent(senderKey, k -> new RateLimiter(configurations.getSendRatePerSecond()))
+                : null;
+        var offset = 0;
+        while (offset < emails.size()){
+            var count = rateLimiter == null ? emails.size() - offset : rateLimiter.acquire(emails.size() - offset);
+            var chunk = emails.subList(offset, offset + count);
+            offset += count;
+
+            var start = System.nanoTime();
+            Map<Integer, Exception> failures;
+            try {
+                failures = sender.sendBatch(chunk.stream().map(this::toMessage).toList());
+            } catch (Exception e){
+                failures = HashMap.newHashMap(chunk.size());
+                for (int i = 0; i < chunk.size(); i++){
+                    failures.put(i, e);
+                }
+            }
+            sendDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            var now = OffsetDateTime.now();
+            for (int i = 0; i < chunk.size(); i++){
+                var failure = failures.get(i);
+                if (failure == null){
+                    onSent(chunk.get(i), now);
+                } else {
+                    onFailed(chunk.get(i), failure.getMessage(), false);
+                }
+            }
+        }
+    }
+
+    private void dispatch(){
+        try {
+            while (true){
+                var batch = lease();
+                if (batch.isEmpty()){
+                    break;
+                }
+
+                var bySender = batch.stream()
+                        .collect(Collectors.groupingBy(OutboundEmail::getSenderKey, LinkedHashMap::new, Collectors.toList()));
+                for (var entry : bySender.entrySet()){
+                    send(entry.getKey(), entry.getValue());
+                }
+                if (batch.size() < configurations.getBatchSize()){
+                    break;
+                }
+            }
+            queueDepth.set(outboundEmailRepository.countByStatusIn(QUEUED_STATUSES));
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        } catch (Exception e){
+            logger.error("Exception caught while dispatching emails", e);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!configurations.isDispatcherEnabled()){
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("email-dispatcher")
+                .daemon(true)
+                .factory());
+        executor.scheduleWithFixedDelay(this::dispatch, 0, configurations.getPollIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        var current = executor;
+        if (current == null){
+            return;
+        }
+
+        current.shutdownNow();
+        executor = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return executor != null;
+    }
+}
@@ -0,0 +1,119 @@
+package net.cycastic.portfoliotoolkit.application.email.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.transaction.Transactional;
+import net.cycastic.portfoliotoolkit.domain.model.OutboundEmail;
+import net.cycastic.portfoliotoolkit.domain.model.OutboundEmailImage;
+import net.cycastic.portfoliotoolkit.domain.model.OutboundEmailStatus;
+import net.cycastic.portfoliotoolkit.domain.repository.EmailImageBlobRepository;
+import net.cycastic.portfoliotoolkit.domain.repository.OutboundEmailRepository;
+import net.cycastic.portfoliotoolkit.service.EmailSender;
+import net.cycastic.portfoliotoolkit.service.impl.CachedEmailImage;
+import net.cycastic.portfoliotoolkit.service.impl.EmailImageCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persists outbound messages for {@link EmailDispatcher}. Enqueueing takes part in the caller's transaction, so a
+ * message is only sent if the work that produced it commits. Inline images are stored once per content hash and
+ * referenced by every message that embeds them.
+ */
+@Service
+public class EmailQueueService {
+    /**
+     * How long an unreferenced image blob is kept after it was last stored. Hashes are remembered as stored for only
+     * half of it, so a remembered blob is never swept underneath a message referencing it.
+     */
+    public static final Duration IMAGE_BLOB_GRACE_PERIOD = Duration.ofHours(1);
+
+    private final OutboundEmailRepository outboundEmailRepository;
+    private final EmailImageBlobRepository emailImageBlobRepository;
+    private final EmailImageCache emailImageCache;
+    private final Cache<String, Boolean> storedImageHashes = Caffeine.newBuilder()
+            .maximumSize(4096)
+            .expireAfterWrite(IMAGE_BLOB_GRACE_PERIOD.dividedBy(2))
+            .build();
+
+    @Autowired
+    public EmailQueueService(OutboundEmailRepository outboundEmailRepository,
+                             EmailImageBlobRepository emailImageBlobRepository,
+                             EmailImageCache emailImageCache){
+        this.outboundEmailRepository = outboundEmailRepository;
+        this.emailImageBlobRepository = emailImageBlobRepository;
+        this.emailImageCache = emailImageCache;
+    }
+
+    private void storeImage(CachedEmailImage image, OffsetDateTime now){
+        var hash = image.getHash();
+        if (storedImageHashes.getIfPresent(hash) != null){
+            return;
+        }
+
+        emailImageBlobRepository.insertIfAbsent(hash, image.getMimeType(), image.getContent(), now);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()){
+            storedImageHashes.put(hash, Boolean.TRUE);
+            return;
+        }
+
+        // Only skip the insert once the row is known to be committed
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                storedImageHashes.put(hash, Boolean.TRUE);
+            }
+        });
+    }
+
+    private OutboundEmail toOutboundEmail(String senderKey, EmailSender.Message message, OffsetDateTime now){
+        var email = OutboundEmail.builder()
+                .senderKey(senderKey)
+                .fromAddress(message.fromAddress())
+                .fromName(message.fromName())
+                .toAddress(message.to())
+                .ccAddress(message.cc())
+                .subject(message.subject())
+                .htmlBody(message.htmlBody())
+                .status(OutboundEmailStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build();
+        if (message.imageStreamSource() != null){
+            for (var entry : message.imageStreamSource().entrySet()){
+                var image = emailImageCache.intern(entry.getValue());
+                storeImage(image, now);
+                email.getImages().add(OutboundEmailImage.builder()
+                        .email(email)
+                        .contentId(entry.getKey())
+                        .blob(emailImageBlobRepository.getReferenceById(image.getHash()))
+                        .build());
+            }
+        }
+        return email;
+    }
+
+    @Transactional
+    public long enqueue(String senderKey, EmailSender.Message message){
+        var email = toOutboundEmail(senderKey, message, OffsetDateTime.now());
+        outboundEmailRepository.save(email);
+        return email.getId();
+    }
+
+    @Transactional
+    public void enqueueAll(String senderKey, List<EmailSender.Message> messages){
+        var now = OffsetDateTime.now();
+        var emails = new ArrayList<OutboundEmail>(messages.size());
+        for (var message : messages){
+            emails.add(toOutboundEmail(senderKey, message, now));
+        }
+        outboundEmailRepository.saveAll(emails);
+    }
+}
@@ -0,0 +1,39 @@
+package net.cycastic.portfoliotoolkit.application.email.service;
+
+import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.configuration.EmailTemplateConfigurations;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentListingRepository;
+import net.cycastic.portfoliotoolkit.service.EmailTemplateEngine;
+import net.cycastic.portfoliotoolkit.service.StorageProvider;
+import net.cycastic.portfoliotoolkit.service.impl.SizeLimitedInputStream;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+public class EmailTemplateResolver {
+    private final EmailTemplateEngine emailTemplateEngine;
+    private final AttachmentListingRepository attachmentListingRepository;
+    private final StorageProvider storageProvider;
+    private final EmailTemplateConfigurations emailTemplateConfigurations;
+
+    public EmailTemplateEngine.CompiledTemplate getTemplate(int projectId, String templatePath){
+        var listing = attachmentListingRepository.findByListing_Project_IdAndListing_ListingPath(projectId, templatePath)
+                .orElseThrow(() -> new RequestException(404, "Listing does not exists"));
+        if (!listing.getObjectKey().endsWith(".ftl") && !listing.getMimeType().equals("text/x-freemarker") && !listing.getMimeType().equals("application/x-freemarker")){
+            throw new RequestException(400, "Supplied file is not a valid FreeMarker template");
+        }
+
+        var bucket = storageProvider.getBucket(listing.getBucketName());
+        var templateKey = new EmailTemplateEngine.StorageTemplateKey(listing.getBucketName(), listing.getObjectKey(), listing.getVersion());
+        return emailTemplateEngine.getTemplate(templateKey, () -> {
+            var stream = bucket.openDownloadStream(listing.getObjectKey());
+            if (emailTemplateConfigurations.getMaxTemplateFileSize() == null){
+                return stream;
+            }
+
+            // The parser reads straight from the object stream, so the limit is enforced while reading
+            return new SizeLimitedInputStream(stream, emailTemplateConfigurations.getMaxTemplateFileSize(), "Template file limit exceeded");
+        });
+    }
+}
@@ -0,0 +1,375 @@
+package net.cycastic.portfoliotoolkit.application.email.service;
+
+import net.cycastic.portfoliotoolkit.configuration.mail.MailMergeConfigurations;
+import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import net.cycastic.portfoliotoolkit.domain.model.EmailParameterType;
+import net.cycastic.portfoliotoolkit.domain.model.MailMergeJob;
+import net.cycastic.portfoliotoolkit.domain.model.MailMergeJobStatus;
+import net.cycastic.portfoliotoolkit.domain.model.MailMergeSourceType;
+import net.cycastic.portfoliotoolkit.domain.model.listing.AttachmentListing;
+import net.cycastic.portfoliotoolkit.domain.repository.EmailTemplateRepository;
+import net.cycastic.portfoliotoolkit.domain.repository.MailMergeJobRepository;
+import net.cycastic.portfoliotoolkit.domain.repository.ProjectRepository;
+import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentListingRepository;
+import net.cycastic.portfoliotoolkit.service.EmailSender;
+import net.cycastic.portfoliotoolkit.service.EmailTemplateEngine;
+import net.cycastic.portfoliotoolkit.service.StoragePresigner;
+import net.cycastic.portfoliotoolkit.service.StorageProvider;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs mail-merge jobs in the background. Recipients are read sequentially and handled in chunks: each chunk is
+ * rendered in parallel from the one compiled template, then enqueued together with the job's progress in a single
+ * transaction. Only one chunk per job is held in memory at a time.
+ * <p>
+ * Running jobs hold a lease renewed with every chunk. A job whose worker died is resumed once its lease expires,
+ * skipping the recipients whose progress was already committed.
+ */
+@Service
+public class MailMergeJobRunner implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(MailMergeJobRunner.class);
+    private static final int MAX_ERROR_LENGTH = 1024;
+    private static final int FILE_PAGE_SIZE = 64;
+
+    private record JobContext(MailMergeJob job,
+                              UUID leaseToken,
+                              ProjectEmailSenderRegistry.ProjectSender sender,
+                              EmailTemplateEngine.CompiledTemplate template,
+                              StoragePresigner.Scope signingScope,
+                              Map<String, Object> defaultParameters,
+                              AtomicInteger recipientsToSkip) {}
+
+    /**
+     * Thrown once the job was taken over by another worker or failed, which rolls back the chunk being recorded.
+     */
+    private static class LeaseLostException extends RuntimeException {
+        private LeaseLostException(){
+            super(null, null, false, false);
+        }
+    }
+
+    private final MailMergeJobRepository mailMergeJobRepository;
+    private final AttachmentListingRepository attachmentListingRepository;
+    private final EmailTemplateRepository emailTemplateRepository;
+    private final ProjectRepository projectRepository;
+    private final ProjectEmailSenderRegistry projectEmailSenderRegistry;
+    private final EmailTemplateResolver emailTemplateResolver;
+    private final EmailQueueService emailQueueService;
+    private final StorageProvider storageProvider;
+    private final TransactionTemplate transactionTemplate;
+    private final MailMergeConfigurations configurations;
+    private final ExecutorService jobExecutor;
+    private final ExecutorService renderExecutor;
+
+    @Autowired
+    public MailMergeJobRunner(MailMergeJobRepository mailMergeJobRepository,
+                              AttachmentListingRepository attachmentListingRepository,
+                              EmailTemplateRepository emailTemplateRepository,
+                              ProjectRepository projectRepository,
+                              ProjectEmailSenderRegistry projectEmailSenderRegistry,
+                              EmailTemplateResolver emailTemplateResolver,
+                              EmailQueueService emailQueueService,
+                              StorageProvider storageProvider,
+                              TransactionTemplate transactionTemplate,
+                              MailMergeConfigurations configurations,
+                              Environment environment){
+        this.mailMergeJobRepository = mailMergeJobRepository;
+        this.attachmentListingRepository = attachmentListingRepository;
+        this.emailTemplateRepository = emailTemplateRepository;
+        this.projectRepository = projectRepository;
+        this.projectEmailSenderRegistry = projectEmailSenderRegistry;
+        this.emailTemplateResolver = emailTemplateResolver;
+        this.emailQueueService = emailQueueService;
+        this.storageProvider = storageProvider;
+        this.transactionTemplate = transactionTemplate;
+        this.configurations = configurations;
+        // Jobs mostly wait on storage and the database; rendering is CPU bound and always stays on platform threads
+        this.jobExecutor = Executors.newFixedThreadPool(configurations.getMaxConcurrentJobs(), Threading.VIRTUAL.isActive(environment)
+                ? Thread.ofVirtual().name("mail-merge-", 0).factory()
+                : namedThreads("mail-merge-"));
+        var renderThreads = configurations.getRenderThreads() > 0
+                ? configurations.getRenderThreads()
+                : Runtime.getRuntime().availableProcessors();
+        this.renderExecutor = Executors.newFixedThreadPool(renderThreads, namedThreads("mail-merge-render-"));
+    }
+
+    private static ThreadFactory namedThreads(String prefix){
+        return Thread.ofPlatform()
+                .name(prefix, 0)
+                .daemon(true)
+                .factory();
+    }
+
+    /**
+     * Returns the recipient file format for a listing, or {@code null} if it is neither CSV nor NDJSON.
+     */
+    public static @Nullable MailMergeSourceType getFileSourceType(String listingPath, @Nullable String mimeType){
+        var extension = FilenameUtils.getExtension(listingPath).toLowerCase(Locale.ROOT);
+        if (extension.equals("csv") || "text/csv".equals(mimeType)){
+            return MailMergeSourceType.CSV;
+        }
+        if (extension.equals("ndjson") || extension.equals("jsonl") || "application/x-ndjson".equals(mimeType)){
+            return MailMergeSourceType.NDJSON;
+        }
+
+        return null;
+    }
+
+    public void submit(long jobId){
+        if (!TransactionSynchronizationManager.isSynchronizationActive()){
+            jobExecutor.execute(() -> run(jobId));
+            return;
+        }
+
+        // The job row is not visible to the worker until the creating transaction commits
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                jobExecutor.execute(() -> run(jobId));
+            }
+        });
+    }
+
+    private OffsetDateTime getLeaseExpiry(OffsetDateTime now){
+        return now.minusSeconds(configurations.getLeaseSeconds());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${application.email.merge.lease-seconds:300}",
+            fixedDelayString = "${application.email.merge.lease-seconds:300}",
+            timeUnit = TimeUnit.SECONDS)
+    public void resumeJobs(){
+        var ids = mailMergeJobRepository.findClaimableIds(MailMergeJobStatus.PENDING,
+                MailMergeJobStatus.RUNNING,
+                getLeaseExpiry(OffsetDateTime.now()));
+        for (var id : ids){
+            submit(id);
+        }
+    }
+
+    private static String truncate(String error){
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    /**
+     * Returns false when the job was taken over by another worker or failed elsewhere in the meantime.
+     */
+    private boolean complete(long jobId, UUID leaseToken, MailMergeJobStatus status, @Nullable String lastError){
+        var completed = transactionTemplate.execute(s -> mailMergeJobRepository.complete(jobId,
+                leaseToken,
+                status,
+                OffsetDateTime.now(),
+                lastError));
+        return completed != null && completed > 0;
+    }
+
+    private void run(long jobId){
+        var now = OffsetDateTime.now();
+        var leaseToken = UUID.randomUUID();
+        var claimed = transactionTemplate.execute(status -> mailMergeJobRepository.claim(jobId,
+                MailMergeJobStatus.PENDING,
+                MailMergeJobStatus.RUNNING,
+                now,
+                getLeaseExpiry(now),
+                leaseToken));
+        if (claimed == null || claimed == 0){
+            return;
+        }
+
+        var completed = false;
+        try {
+            var job = mailMergeJobRepository.findById(jobId)
+                    .orElseThrow(() -> new IllegalStateException("Mail merge job disappeared: " + jobId));
+            execute(createContext(job, leaseToken));
+            completed = complete(jobId, leaseToken, MailMergeJobStatus.COMPLETED, null);
+        } catch (LeaseLostException e){
+            // Reported below
+        } catch (Exception e){
+            logger.error("Mail merge job {} failed", jobId, e);
+            var message = e instanceof RequestException ? e.getMessage() : "Internal error: " + e.getClass().getSimpleName();
+            if (complete(jobId, leaseToken, MailMergeJobStatus.FAILED, truncate(Objects.requireNonNullElse(message, "Unknown error")))){
+                return;
+            }
+        }
+
+        if (completed){
+            logger.info("Mail merge job {} completed", jobId);
+        } else {
+            logger.warn("Mail merge job {} was taken over or failed elsewhere, stopped", jobId);
+        }
+    }
+
+    private JobContext createContext(MailMergeJob job, UUID leaseToken){
+        if (job.getCredentialId() == null){
+            throw new RequestException(404, "SMTP credential was deleted");
+        }
+        var sender = projectEmailSenderRegistry.get(job.getCredentialId());
+        var template = emailTemplateResolver.getTemplate(job.getProjectId(), job.getTemplatePath());
+        var signingScope = new StoragePresigner.Scope(job.getProjectId(), job.getCreatedBy(), job.getBackendOrigin());
+
+        Map<String, Object> defaults = Map.of();
+        var emailTemplate = emailTemplateRepository.findByAttachmentListing_Listing_ProjectAndAttachmentListing_Listing_ListingPath(
+                projectRepository.getReferenceById(job.getProjectId()), job.getTemplatePath());
+        if (emailTemplate.isPresent()){
+            var parameters = emailTemplate.get().getParameters();
+            if (parameters != null && parameters.getParameters() != null){
+                defaults = EmailTemplateEngine.buildParameterMap(parameters.getParameters());
+            }
+        }
+        return new JobContext(job, leaseToken, sender, template, signingScope, defaults,
+                new AtomicInteger(job.getQueuedCount() + job.getFailedCount()));
+    }
+
+    private static Map<String, EmailParameterType> getParameterTypes(JobContext context){
+        var types = HashMap.<String, EmailParameterType>newHashMap(context.defaultParameters().size());
+        for (var entry : context.defaultParameters().entrySet()){
+            types.put(entry.getKey(), entry.getValue() instanceof Double ? EmailParameterType.DECIMAL : EmailParameterType.TEXT);
+        }
+        return types;
+    }
+
+    private void execute(JobContext context) throws IOException {
+        var job = context.job();
+        if (job.getSourceType() != MailMergeSourceType.LISTING_PREFIX){
+            var listing = attachmentListingRepository.findByListing_Project_IdAndListing_ListingPath(job.getProjectId(), job.getSourcePath())
+                    .orElseThrow(() -> new RequestException(404, "Recipient list does not exist"));
+            processFile(context, listing, job.getSourceType());
+            return;
+        }
+
+        var page = 0;
+        while (true){
+            var files = attachmentListingRepository.findCompletedByPathPrefix(job.getProjectId(),
+                    job.getSourcePath(),
+                    PageRequest.of(page++, FILE_PAGE_SIZE));
+            for (var listing : files){
+                var sourceType = getFileSourceType(listing.getListing().getListingPath(), listing.getMimeType());
+                if (sourceType != null){
+                    processFile(context, listing, sourceType);
+                }
+            }
+            if (!files.hasNext()){
+                break;
+            }
+        }
+    }
+
+    private void processFile(JobContext context, AttachmentListing listing, MailMergeSourceType sourceType) throws IOException {
+        var stream = storageProvider.getBucket(listing.getBucketName()).openDownloadStream(listing.getObjectKey());
+        var bufferedReader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        try (var reader = MailMergeRecipientReader.open(sourceType, bufferedReader, getParameterTypes(context))){
+            var chunk = new ArrayList<MailMergeRecipientReader.Recipient>(configurations.getChunkSize());
+            MailMergeRecipientReader.Recipient recipient;
+            while ((recipient = reader.next()) != null){
+                // Recipients are read in the same order every time, so the committed progress is where a resumed
+                // job picks up
+                if (context.recipientsToSkip().get() > 0){
+                    context.recipientsToSkip().decrementAndGet();
+                    continue;
+                }
+                chunk.add(recipient);
+                if (chunk.size() >= configurations.getChunkSize()){
+                    processChunk(context, chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()){
+                processChunk(context, chunk);
+            }
+        }
+    }
+
+    private EmailSender.Message render(JobContext context, MailMergeRecipientReader.Recipient recipient) throws IOException {
+        if (recipient.to() == null || !ApplicationUtilities.isEmail(recipient.to())){
+            throw new RequestException(400, "Invalid recipient address");
+        }
+        if (recipient.cc() != null && !ApplicationUtilities.isEmail(recipient.cc())){
+            throw new RequestException(400, "Invalid CC address");
+        }
+
+        var parameters = new HashMap<>(context.defaultParameters());
+        parameters.putAll(recipient.parameters());
+        try (var byteStream = new ByteArrayOutputStream()){
+            var renderResult = context.template().render(byteStream, parameters, context.signingScope());
+            return context.sender().createMessage(recipient.to(),
+                    recipient.cc(),
+                    context.job().getSubject(),
+                    byteStream.toString(StandardCharsets.UTF_8),
+                    renderResult.getImageStreamSource());
+        }
+    }
+
+    private void processChunk(JobContext context, List<MailMergeRecipientReader.Recipient> chunk){
+        var futures = new ArrayList<CompletableFuture<EmailSender.Message>>(chunk.size());
+        for (var recipient : chunk){
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return render(context, recipient);
+                } catch (IOException e){
+                    throw new CompletionException(e);
+                }
+            }, renderExecutor));
+        }
+
+        var messages = new ArrayList<EmailSender.Message>(chunk.size());
+        var failed = 0;
+        String lastError = null;
+        for (int i = 0; i < futures.size(); i++){
+            try {
+                messages.add(futures.get(i).join());
+            } catch (CompletionException e){
+                failed++;
+                var cause = e.getCause() == null ? e : e.getCause();
+                lastError = truncate(String.format("Line %d: %s", chunk.get(i).lineNumber(), cause.getMessage()));
+            }
+        }
+
+        var jobId = context.job().getId();
+        var senderKey = ProjectEmailSenderRegistry.getSenderKey(context.sender().credentialId());
+        var failedCount = failed;
+        var error = lastError;
+        transactionTemplate.executeWithoutResult(status -> {
+            if (mailMergeJobRepository.addProgress(jobId, context.leaseToken(), messages.size(), failedCount, error, OffsetDateTime.now()) == 0){
+                throw new LeaseLostException();
+            }
+            emailQueueService.enqueueAll(senderKey, messages);
+        });
+    }
+
+    @Override
+    public void destroy() {
+        jobExecutor.shutdownNow();
+        renderExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,231 @@
+package net.cycastic.portfoliotoolkit.application.email.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.cycastic.portfoliotoolkit.domain.model.EmailParameterType;
+import net.cycastic.portfoliotoolkit.domain.model.MailMergeSourceType;
+import org.springframework.lang.Nullable;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Reads recipients one record at a time from a CSV file (with a header row) or an NDJSON file, so that a file of
+ * any size is processed in constant memory. Each record needs a {@code to} field; {@code cc} is optional and every
+ * other field becomes a template parameter.
+ */
+public abstract class MailMergeRecipientReader implements Closeable {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String TO_FIELD = "to";
+    private static final String CC_FIELD = "cc";
+
+    public record Recipient(long lineNumber, @Nullable String to, @Nullable String cc, Map<String, Object> parameters) {}
+
+    protected final BufferedReader reader;
+    protected final Map<String, EmailParameterType> parameterTypes;
+    protected long lineNumber;
+
+    protected MailMergeRecipientReader(BufferedReader reader, Map<String, EmailParameterType> parameterTypes){
+        this.reader = reader;
+        this.parameterTypes = parameterTypes;
+    }
+
+    public static MailMergeRecipientReader open(MailMergeSourceType sourceType, BufferedReader reader, Map<String, EmailParameterType> parameterTypes){
+        return switch (sourceType){
+            case CSV -> new CsvReader(reader, parameterTypes);
+            case NDJSON -> new NdjsonReader(reader, parameterTypes);
+            default -> throw new IllegalArgumentException("Not a file source: " + sourceType);
+        };
+    }
+
+    /**
+     * Returns the next recipient, or {@code null} at the end of the file.
+     */
+    public abstract @Nullable Recipient next() throws IOException;
+
+    protected Object convert(String name, String value){
+        if (parameterTypes.get(name) == EmailParameterType.DECIMAL){
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e){
+                return value;
+            }
+        }
+
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static class CsvReader extends MailMergeRecipientReader {
+        private final StringBuilder field = new StringBuilder();
+        private @Nullable String[] header;
+        private boolean endOfFile;
+
+        private CsvReader(BufferedReader reader, Map<String, EmailParameterType> parameterTypes){
+            super(reader, parameterTypes);
+        }
+
+        /**
+         * Reads one RFC 4180 record. Quoted fields may contain separators, escaped quotes and line breaks.
+         */
+        private @Nullable List<String> readRecord() throws IOException {
+            if (endOfFile){
+                return null;
+            }
+
+            var fields = new ArrayList<String>();
+            var quoted = false;
+            var any = false;
+            field.setLength(0);
+            while (true){
+                var c = reader.read();
+                if (c == -1){
+                    endOfFile = true;
+                    if (quoted){
+                        throw new IOException("Unterminated quoted field at line " + lineNumber);
+                    }
+                    if (!any){
+                        return null;
+                    }
+
+                    fields.add(field.toString());
+                    return fields;
+                }
+
+                any = true;
+                if (quoted){
+                    if (c == '"'){
+                        reader.mark(1);
+                        if (reader.read() == '"'){
+                            field.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        if (c == '\n'){
+                            lineNumber++;
+                        }
+                        field.append((char) c);
+                    }
+                    continue;
+                }
+
+                switch (c){
+                    case '"' -> quoted = true;
+                    case ',' -> {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                    }
+                    case '\r' -> {}
+                    case '\n' -> {
+                        lineNumber++;
+                        fields.add(field.toString());
+                        return fields;
+                    }
+                    default -> field.append((char) c);
+                }
+            }
+        }
+
+        @Override
+        public @Nullable Recipient next() throws IOException {
+            if (header == null){
+                var headerRecord = readRecord();
+                if (headerRecord == null){
+                    return null;
+                }
+
+                header = headerRecord.stream()
+                        .map(String::trim)
+                        .toArray(String[]::new);
+            }
+
+            while (true){
+                var record = readRecord();
+                if (record == null){
+                    return null;
+                }
+                if (record.size() == 1 && record.getFirst().isEmpty()){
+                    continue;
+                }
+
+                String to = null;
+                String cc = null;
+                var parameters = HashMap.<String, Object>newHashMap(header.length);
+                for (int i = 0; i < Math.min(header.length, record.size()); i++){
+                    var name = header[i];
+                    var value = record.get(i);
+                    if (TO_FIELD.equalsIgnoreCase(name)){
+                        to = value.trim();
+                    } else if (CC_FIELD.equalsIgnoreCase(name)){
+                        cc = value.isBlank() ? null : value.trim();
+                    } else {
+                        parameters.put(name, convert(name, value));
+                    }
+                }
+                return new Recipient(lineNumber, to, cc, parameters);
+            }
+        }
+    }
+
+    private static class NdjsonReader extends MailMergeRecipientReader {
+        private NdjsonReader(BufferedReader reader, Map<String, EmailParameterType> parameterTypes){
+            super(reader, parameterTypes);
+        }
+
+        private static @Nullable String getText(JsonNode node, String field){
+            var value = node.get(field);
+            return value == null || value.isNull() ? null : value.asText();
+        }
+
+        @Override
+        public @Nullable Recipient next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null){
+                    return null;
+                }
+            } while (line.isBlank());
+
+            JsonNode node;
+            try {
+                node = MAPPER.readTree(line);
+            } catch (IOException e){
+                return new Recipient(lineNumber, null, null, Map.of());
+            }
+            if (!node.isObject()){
+                return new Recipient(lineNumber, null, null, Map.of());
+            }
+
+            var parameters = HashMap.<String, Object>newHashMap(node.size());
+            for (var it = node.fields(); it.hasNext(); ){
+                var entry = it.next();
+                var name = entry.getKey();
+                if (TO_FIELD.equals(name) || CC_FIELD.equals(name)){
+                    continue;
+                }
+
+                var value = entry.getValue();
+                if (value.isNumber()){
+                    parameters.put(name, value.asDouble());
+                } else if (value.isBoolean()){
+                    parameters.put(name, value.asBoolean());
+                } else if (value.isTextual()){
+                    parameters.put(name, convert(name, value.asText()));
+                } else if (!value.isNull()){
+                    parameters.put(name, value.toString());
+                }
+            }
+            return new Recipient(lineNumber, getText(node, TO_FIELD), getText(node, CC_FIELD), parameters);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package net.cycastic.portfoliotoolkit.application.email.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectEncryptionService;
+import net.cycastic.portfoliotoolkit.configuration.CacheConfigurations;
+import net.cycastic.portfoliotoolkit.configuration.CacheUtilities;
+import net.cycastic.portfoliotoolkit.configuration.mail.MailSettings;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import net.cycastic.portfoliotoolkit.domain.model.EncryptedSmtpCredential;
+import net.cycastic.portfoliotoolkit.domain.repository.EncryptedSmtpCredentialRepository;
+import net.cycastic.portfoliotoolkit.service.EmailImage;
+import net.cycastic.portfoliotoolkit.service.EmailSender;
+import net.cycastic.portfoliotoolkit.service.EmailSenderResolver;
+import net.cycastic.portfoliotoolkit.service.impl.EmailSenderImpl;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds one {@link EmailSender} per stored SMTP credential and keeps it, together with its open SMTP connection,
+ * until the credential changes or the sender has been idle for {@code application.cache.smtp-sender-idle-seconds}.
+ * Removed senders have their connection closed, idle ones are expired by a scheduler rather than on the next cache
+ * access, which may never come.
+ */
+@Service
+public class ProjectEmailSenderRegistry implements EmailSenderResolver, DisposableBean {
+    private static final String SENDER_KEY_PREFIX = "smtp:";
+
+    public record ProjectSender(int credentialId, int projectId, String fromAddress, String fromName, EmailSenderImpl sender) {
+        public EmailSender.Message createMessage(String to, @Nullable String cc, String subject, String htmlBody, @Nullable Map<String, EmailImage> imageStreamSource){
+            return new EmailSender.Message(fromAddress, fromName, to, cc, subject, htmlBody, imageStreamSource);
+        }
+    }
+
+    private final EncryptedSmtpCredentialRepository encryptedSmtpCredentialRepository;
+    private final ProjectEncryptionService projectEncryptionService;
+    private final Cache<Integer, Optional<ProjectSender>> senders;
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public ProjectEmailSenderRegistry(EncryptedSmtpCredentialRepository encryptedSmtpCredentialRepository,
+                                      ProjectEncryptionService projectEncryptionService,
+                                      CacheConfigurations cacheConfigurations){
+        this.encryptedSmtpCredentialRepository = encryptedSmtpCredentialRepository;
+        this.projectEncryptionService = projectEncryptionService;
+        this.senders = Caffeine.newBuilder()
+                .maximumSize(cacheConfigurations.getSmtpSenderMaximumSize())
+                .expireAfterAccess(Duration.ofSeconds(cacheConfigurations.getSmtpSenderIdleSeconds()))
+                .scheduler(Scheduler.systemScheduler())
+                .<Integer, Optional<ProjectSender>>removalListener((id, sender, cause) -> close(sender))
+                .build();
+    }
+
+    private static void close(@Nullable Optional<ProjectSender> sender){
+        if (sender != null){
+            sender.ifPresent(s -> s.sender().close());
+        }
+    }
+
+    private Optional<ProjectSender> load(int credentialId){
+        return encryptedSmtpCredentialRepository.findById(credentialId)
+                .map(this::createSender);
+    }
+
+    private ProjectSender createSender(EncryptedSmtpCredential credential){
+        var projectId = credential.getProject().getId();
+        var decrypted = projectEncryptionService.decryptAll(projectId,
+                List.of(credential.getFromAddress(), credential.getPassword()));
+
+        var settings = new MailSettings();
+        settings.setHost(credential.getServerAddress());
+        settings.setPort(credential.getPort());
+        settings.setUsername(decrypted.get(0));
+        settings.setPassword(decrypted.get(1));
+        settings.setAuth(true);
+        settings.setStarttls("starttls".equals(credential.getSecureSmtp().toLowerCase(Locale.ROOT)));
+        settings.setTimeout(credential.getTimeout());
+        settings.setReuseConnection(true);
+
+        return new ProjectSender(credential.getId(), projectId, decrypted.get(0), credential.getFromName(), new EmailSenderImpl(settings));
+    }
+
+    private Optional<ProjectSender> getOrLoad(int credentialId){
+        return CacheUtilities.getOrLoad(senders, generation, credentialId, this::load, ProjectEmailSenderRegistry::close);
+    }
+
+    public static String getSenderKey(int credentialId){
+        return SENDER_KEY_PREFIX + credentialId;
+    }
+
+    public ProjectSender get(int credentialId){
+        return getOrLoad(credentialId)
+                .orElseThrow(() -> new RequestException(404, "Credential not found"));
+    }
+
+    public void invalidate(int credentialId){
+        CacheUtilities.invalidate(senders, generation, credentialId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()){
+            return;
+        }
+
+        // A concurrent send may rebuild the sender from the old row before the transaction commits
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                CacheUtilities.invalidate(senders, generation, credentialId);
+            }
+        });
+    }
+
+    @Override
+    public @Nullable EmailSender resolve(String senderKey) {
+        if (!senderKey.startsWith(SENDER_KEY_PREFIX)){
+            return null;
+        }
+
+        int credentialId;
+        try {
+            credentialId = Integer.parseInt(senderKey.substring(SENDER_KEY_PREFIX.length()));
+        } catch (NumberFormatException e){
+            return null;
+        }
+        return getOrLoad(credentialId)
+                .map(ProjectSender::sender)
+                .orElse(null);
+    }
+
+    @Override
+    public void destroy() {
+        // The removal listener runs asynchronously and may not get to run before shutdown
+        senders.asMap().values().forEach(ProjectEmailSenderRegistry::close);
+        senders.invalidateAll();
+        senders.cleanUp();
+    }
+}
@@ -1,20 +1,29 @@
 package net.cycastic.portfoliotoolkit.application.email.smtp.delete;
 
 import an.awesome.pipelinr.Command;
+import jakarta.transaction.Transactional;
 import jakarta.validation.constraints.Null;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.email.service.ProjectEmailSenderRegistry;
 import net.cycastic.portfoliotoolkit.domain.exception.ForbiddenException;
+import net.cycastic.portfoliotoolkit.domain.model.MailMergeJobStatus;
 import net.cycastic.portfoliotoolkit.domain.repository.EncryptedSmtpCredentialRepository;
+import net.cycastic.portfoliotoolkit.domain.repository.MailMergeJobRepository;
 import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
 import org.springframework.stereotype.Component;
 
+import java.time.OffsetDateTime;
+
 @Component
 @RequiredArgsConstructor
 public class DeleteSmtpCredentialCommandHandler implements Command.Handler<DeleteSmtpCredentialCommand, @Null Object> {
     private final EncryptedSmtpCredentialRepository encryptedSmtpCredentialRepository;
+    private final MailMergeJobRepository mailMergeJobRepository;
+    private final ProjectEmailSenderRegistry projectEmailSenderRegistry;
     private final LoggedUserAccessor loggedUserAccessor;
 
     @Override
+    @Transactional
     public @Null Object handle(DeleteSmtpCredentialCommand command) {
         var credential = encryptedSmtpCredentialRepository.findById(command.getId())
                 .orElseThrow(ForbiddenException::new);
@@ -23,7 +32,15 @@ public class DeleteSmtpCredentialCommandHandler implements Command.Handler<Delet
             throw new ForbiddenException();
         }
 
+        // Job history is kept, the foreign key only clears the credential
+        mailMergeJobRepository.failByCredential(credential.getId(),
+                MailMergeJobStatus.PENDING,
+                MailMergeJobStatus.RUNNING,
+                MailMergeJobStatus.FAILED,
+                OffsetDateTime.now(),
+                "SMTP credential was deleted");
         encryptedSmtpCredentialRepository.delete(credential);
+        projectEmailSenderRegistry.invalidate(command.getId());
         return null;
     }
 }
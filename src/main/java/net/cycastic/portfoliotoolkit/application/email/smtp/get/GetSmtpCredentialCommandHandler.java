@@ -2,19 +2,21 @@ package net.cycastic.portfoliotoolkit.application.email.smtp.get;
 
 import an.awesome.pipelinr.Command;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectEncryptionService;
 import net.cycastic.portfoliotoolkit.domain.exception.ForbiddenException;
 import net.cycastic.portfoliotoolkit.domain.repository.EncryptedSmtpCredentialRepository;
 import net.cycastic.portfoliotoolkit.domain.dto.DecryptedSmtpCredentialDto;
-import net.cycastic.portfoliotoolkit.service.DecryptionProvider;
 import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 @RequiredArgsConstructor
 public class GetSmtpCredentialCommandHandler implements Command.Handler<GetSmtpCredentialCommand, DecryptedSmtpCredentialDto> {
     private final EncryptedSmtpCredentialRepository encryptedSmtpCredentialRepository;
     private final LoggedUserAccessor loggedUserAccessor;
-    private final DecryptionProvider decryptionProvider;
+    private final ProjectEncryptionService projectEncryptionService;
 
     @Override
     public DecryptedSmtpCredentialDto handle(GetSmtpCredentialCommand command) {
@@ -25,8 +27,8 @@ public class GetSmtpCredentialCommandHandler implements Command.Handler<GetSmtpC
             throw new ForbiddenException();
         }
 
-        var address = decryptionProvider.decrypt(credential.getFromAddress());
-        var password = decryptionProvider.decrypt(credential.getPassword());
-        return new DecryptedSmtpCredentialDto(credential, address, password);
+        var decrypted = projectEncryptionService.decryptAll(credential.getProject().getId(),
+                List.of(credential.getFromAddress(), credential.getPassword()));
+        return new DecryptedSmtpCredentialDto(credential, decrypted.get(0), decrypted.get(1));
     }
 }
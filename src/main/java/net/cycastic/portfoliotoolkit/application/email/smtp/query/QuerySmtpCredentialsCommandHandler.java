@@ -2,9 +2,9 @@ package net.cycastic.portfoliotoolkit.application.email.smtp.query;
 
 import an.awesome.pipelinr.Command;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
 import net.cycastic.portfoliotoolkit.domain.exception.ForbiddenException;
 import net.cycastic.portfoliotoolkit.domain.repository.EncryptedSmtpCredentialRepository;
-import net.cycastic.portfoliotoolkit.domain.repository.ProjectRepository;
 import net.cycastic.portfoliotoolkit.domain.dto.BaseSmtpCredentialDto;
 import net.cycastic.portfoliotoolkit.domain.dto.paging.PageResponseDto;
 import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
@@ -14,16 +14,18 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class QuerySmtpCredentialsCommandHandler implements Command.Handler<QuerySmtpCredentialsCommand, PageResponseDto<BaseSmtpCredentialDto>> {
     private final EncryptedSmtpCredentialRepository encryptedSmtpCredentialRepository;
-    private final ProjectRepository projectRepository;
+    private final ProjectMetadataCache projectMetadataCache;
     private final LoggedUserAccessor loggedUserAccessor;
 
     @Override
     public PageResponseDto<BaseSmtpCredentialDto> handle(QuerySmtpCredentialsCommand command) {
-        var project = projectRepository.findById(loggedUserAccessor.getProjectId())
+        var projectId = loggedUserAccessor.getProjectId();
+        var metadata = projectMetadataCache.find(projectId)
                 .orElseThrow(ForbiddenException::new);
-        if (!loggedUserAccessor.isAdmin() && !project.getUser().getId().equals(loggedUserAccessor.getUserId())){
+        if (!loggedUserAccessor.isAdmin() && !metadata.isOwnedBy(loggedUserAccessor.getUserId())){
             throw new ForbiddenException();
         }
+        var project = projectMetadataCache.getReference(projectId);
 
         var page = encryptedSmtpCredentialRepository.findByProject(project, command.toPageable());
         return PageResponseDto.fromDomain(page, BaseSmtpCredentialDto::new);
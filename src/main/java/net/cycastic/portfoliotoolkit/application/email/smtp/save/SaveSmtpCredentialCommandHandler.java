@@ -2,30 +2,39 @@ package net.cycastic.portfoliotoolkit.application.email.smtp.save;
 
 import an.awesome.pipelinr.Command;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.email.service.ProjectEmailSenderRegistry;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectEncryptionService;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
 import net.cycastic.portfoliotoolkit.domain.exception.ForbiddenException;
 import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
 import net.cycastic.portfoliotoolkit.domain.model.EncryptedSmtpCredential;
 import net.cycastic.portfoliotoolkit.domain.repository.EncryptedSmtpCredentialRepository;
-import net.cycastic.portfoliotoolkit.domain.repository.ProjectRepository;
 import net.cycastic.portfoliotoolkit.domain.dto.IdDto;
-import net.cycastic.portfoliotoolkit.service.EncryptionProvider;
 import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 @RequiredArgsConstructor
 public class SaveSmtpCredentialCommandHandler implements Command.Handler<SaveSmtpCredentialCommand, IdDto> {
     private final EncryptedSmtpCredentialRepository encryptedSmtpCredentialRepository;
-    private final ProjectRepository projectRepository;
+    private final ProjectEmailSenderRegistry projectEmailSenderRegistry;
+    private final ProjectMetadataCache projectMetadataCache;
     private final LoggedUserAccessor loggedUserAccessor;
-    private final EncryptionProvider encryptionProvider;
+    private final ProjectEncryptionService projectEncryptionService;
 
     @Override
     public IdDto handle(SaveSmtpCredentialCommand command) {
         EncryptedSmtpCredential credential;
         if (command.getId() == null){
-            var project = projectRepository.findById(loggedUserAccessor.getProjectId())
-                    .orElseThrow(ForbiddenException::new);
+            var projectId = loggedUserAccessor.getProjectId();
+            if (projectMetadataCache.find(projectId).isEmpty()){
+                throw new ForbiddenException();
+            }
+            var project = projectMetadataCache.getReference(projectId);
+            var encrypted = projectEncryptionService.encryptAll(projectId,
+                    List.of(command.getFromAddress(), command.getPassword()));
 
             credential = EncryptedSmtpCredential.builder()
                     .project(project)
@@ -33,9 +42,9 @@ public class SaveSmtpCredentialCommandHandler implements Command.Handler<SaveSmt
                     .secureSmtp(command.getSecureSmtp())
                     .port(command.getPort())
                     .timeout(command.getTimeout())
-                    .fromAddress(encryptionProvider.encrypt(command.getFromAddress()))
+                    .fromAddress(encrypted.get(0))
                     .fromName(command.getFromName())
-                    .password(encryptionProvider.encrypt(command.getPassword()))
+                    .password(encrypted.get(1))
                     .build();
         } else {
             credential = encryptedSmtpCredentialRepository.findById(command.getId())
@@ -45,16 +54,19 @@ public class SaveSmtpCredentialCommandHandler implements Command.Handler<SaveSmt
                 throw new ForbiddenException();
             }
 
+            var encrypted = projectEncryptionService.encryptAll(credential.getProject().getId(),
+                    List.of(command.getFromAddress(), command.getPassword()));
             credential.setServerAddress(command.getServerAddress());
             credential.setSecureSmtp(command.getSecureSmtp());
             credential.setPort(command.getPort());
             credential.setTimeout(command.getTimeout());
-            credential.setFromAddress(encryptionProvider.encrypt(command.getFromAddress()));
+            credential.setFromAddress(encrypted.get(0));
             credential.setFromName(command.getFromName());
-            credential.setPassword(encryptionProvider.encrypt(command.getPassword()));
+            credential.setPassword(encrypted.get(1));
         }
 
         encryptedSmtpCredentialRepository.save(credential);
+        projectEmailSenderRegistry.invalidate(credential.getId());
         return new IdDto(credential.getId());
     }
 }
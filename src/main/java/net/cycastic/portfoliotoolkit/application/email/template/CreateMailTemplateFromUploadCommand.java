@@ -1,22 +1,21 @@
 package net.cycastic.portfoliotoolkit.application.email.template;
 
 import an.awesome.pipelinr.Command;
-import jakarta.validation.constraints.NotNull;
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import net.cycastic.portfoliotoolkit.domain.dto.AttachmentPresignedDto;
+import net.cycastic.portfoliotoolkit.domain.dto.listing.AttachmentUploadDto;
+import net.cycastic.portfoliotoolkit.domain.model.EmailParameter;
+import org.springframework.lang.Nullable;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
-public class CreateMailTemplateFromUploadCommand implements Command<AttachmentPresignedDto> {
-    @NotNull
-    private String templateName;
-
-    private String listingPath;
-
-    private String fileName;
-
-    private String mimeType;
+@EqualsAndHashCode(callSuper = true)
+public class CreateMailTemplateFromUploadCommand extends AttachmentUploadDto implements Command<AttachmentPresignedDto> {
+    /**
+     * Default values and types for the template's parameters. Recipient values take precedence in mail merges.
+     */
+    @Nullable
+    private EmailParameter[] parameters;
 }
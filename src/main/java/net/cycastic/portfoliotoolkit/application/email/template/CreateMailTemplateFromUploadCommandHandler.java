@@ -1,26 +1,69 @@
 package net.cycastic.portfoliotoolkit.application.email.template;
 
 import an.awesome.pipelinr.Command;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import net.cycastic.portfoliotoolkit.application.listing.service.ListingService;
-import net.cycastic.portfoliotoolkit.domain.repository.ProjectRepository;
-import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentListingRepository;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
 import net.cycastic.portfoliotoolkit.domain.dto.AttachmentPresignedDto;
+import net.cycastic.portfoliotoolkit.domain.exception.ForbiddenException;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import net.cycastic.portfoliotoolkit.domain.model.EmailParameters;
+import net.cycastic.portfoliotoolkit.domain.model.EmailTemplate;
+import net.cycastic.portfoliotoolkit.domain.repository.EmailTemplateRepository;
+import net.cycastic.portfoliotoolkit.service.EmailTemplateEngine;
 import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
 import net.cycastic.portfoliotoolkit.service.StorageProvider;
 import org.springframework.stereotype.Component;
 
+import java.time.OffsetDateTime;
+
 @Component
 @RequiredArgsConstructor
 public class CreateMailTemplateFromUploadCommandHandler implements Command.Handler<CreateMailTemplateFromUploadCommand, AttachmentPresignedDto> {
+    private static final String TEMPLATE_MIME_TYPE = "text/x-freemarker";
+
     private final ListingService listingService;
     private final StorageProvider storageProvider;
-    private final ProjectRepository projectRepository;
+    private final ProjectMetadataCache projectMetadataCache;
     private final LoggedUserAccessor loggedUserAccessor;
-    private final AttachmentListingRepository attachmentListingRepository;
+    private final EmailTemplateRepository emailTemplateRepository;
 
     @Override
+    @Transactional
     public AttachmentPresignedDto handle(CreateMailTemplateFromUploadCommand command) {
-        throw new UnsupportedOperationException();
+        var projectId = loggedUserAccessor.getProjectId();
+        var metadata = projectMetadataCache.get(projectId);
+        if (!loggedUserAccessor.isAdmin() && !metadata.isOwnedBy(loggedUserAccessor.getUserId())){
+            throw new ForbiddenException();
+        }
+        if (!command.getPath().endsWith(".ftl")){
+            throw new RequestException(400, "Template path must end with .ftl");
+        }
+        if (command.getParameters() != null){
+            // Rejects duplicated names and malformed decimals up front
+            EmailTemplateEngine.buildParameterMap(command.getParameters());
+        }
+
+        var project = projectMetadataCache.getReference(projectId);
+        var incompleteAttachment = listingService.saveTemporaryAttachment(project,
+                command.getPath(),
+                command.getMimeType() != null ? command.getMimeType() : TEMPLATE_MIME_TYPE);
+        var template = EmailTemplate.builder()
+                .attachmentListing(incompleteAttachment)
+                .build();
+        template.setParameters(command.getParameters() == null ? null : new EmailParameters(command.getParameters()));
+        emailTemplateRepository.save(template);
+
+        var uploadUrl = storageProvider.getBucket(incompleteAttachment.getBucketName())
+                .generatePresignedUploadPath(incompleteAttachment.getObjectKey(),
+                        command.getPath(),
+                        OffsetDateTime.now().plusMinutes(2),
+                        command.getContentLength(),
+                        command.getSha256());
+        return AttachmentPresignedDto.builder()
+                .id(incompleteAttachment.getId())
+                .url(uploadUrl)
+                .build();
     }
 }
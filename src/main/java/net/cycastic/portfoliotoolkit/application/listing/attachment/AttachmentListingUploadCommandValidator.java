@@ -3,6 +3,7 @@ package net.cycastic.portfoliotoolkit.application.listing.attachment;
 import an.awesome.pipelinr.Command;
 import lombok.RequiredArgsConstructor;
 import net.cycastic.portfoliotoolkit.application.listing.attachment.create.CreateAttachmentListingCommand;
+import net.cycastic.portfoliotoolkit.application.listing.service.StorageUsageService;
 import net.cycastic.portfoliotoolkit.application.validation.CommandValidator;
 import net.cycastic.portfoliotoolkit.domain.dto.AttachmentPresignedDto;
 import net.cycastic.portfoliotoolkit.domain.dto.listing.AttachmentUploadDto;
@@ -21,13 +22,15 @@ import java.util.regex.Pattern;
 public class AttachmentListingUploadCommandValidator implements CommandValidator {
     private static final Logger logger = LoggerFactory.getLogger(AttachmentListingUploadCommandValidator.class);
     private static final Pattern INVALID_PATH = Pattern.compile("/{2}|\\p{Cntrl}");
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
     private final LoggedUserAccessor loggedUserAccessor;
     private final UserRepository userRepository;
     private final LimitProvider limitProvider;
+    private final StorageUsageService storageUsageService;
 
     @Override
-    public boolean matches(Command o) {
-        return o instanceof AttachmentUploadDto;
+    public boolean supports(Class commandType) {
+        return AttachmentUploadDto.class.isAssignableFrom(commandType);
     }
 
     @Override
@@ -46,6 +49,9 @@ public class AttachmentListingUploadCommandValidator implements CommandValidator
         if (command.getContentLength() <= 0){
             throw new RequestException(400, "Invalid content length");
         }
+        if (command.getSha256() != null && !SHA256.matcher(command.getSha256()).matches()){
+            throw new RequestException(400, "SHA-256 must be 64 lowercase hexadecimal characters");
+        }
 
         var user = userRepository.findById(loggedUserAccessor.getUserId())
                 .orElseThrow(() -> new RequestException(404, "User not found"));
@@ -56,9 +62,6 @@ public class AttachmentListingUploadCommandValidator implements CommandValidator
             throw new RequestException(413, "File is larger than permitted limit.");
         }
 
-        var acc = command.getContentLength() + user.getAccumulatedAttachmentStorageUsage();
-        if (limit.getAllAttachmentSize() != null && acc > limit.getAllAttachmentSize()){
-            throw new RequestException(413, "Accumulated storage usage exceeded");
-        }
+        storageUsageService.checkLimits(user, command.getContentLength(), limit);
     }
 }
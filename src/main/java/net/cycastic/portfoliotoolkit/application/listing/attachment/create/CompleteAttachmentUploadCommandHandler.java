@@ -5,7 +5,9 @@ import jakarta.transaction.Transactional;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Null;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.listing.service.AttachmentObjectService;
 import net.cycastic.portfoliotoolkit.application.listing.service.ListingService;
+import net.cycastic.portfoliotoolkit.application.listing.service.StorageUsageService;
 import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
 import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
 import net.cycastic.portfoliotoolkit.domain.model.listing.AttachmentListing;
@@ -29,6 +31,8 @@ public class CompleteAttachmentUploadCommandHandler implements Command.Handler<C
     private final AttachmentListingRepository attachmentListingRepository;
     private final UserRepository userRepository;
     private final LimitProvider limitProvider;
+    private final AttachmentObjectService attachmentObjectService;
+    private final StorageUsageService storageUsageService;
 
     private void completeAttachmentUpload(@NotNull AttachmentListing listing){
         final var oldObjectKey = listing.getObjectKey();
@@ -59,9 +63,10 @@ public class CompleteAttachmentUploadCommandHandler implements Command.Handler<C
             return null;
         }
 
-        long size;
+        var bucketName = listing.getBucketName();
+        StorageProvider.BucketProvider.ObjectMetadata metadata;
         try {
-            size = storageProvider.getBucket(listing.getBucketName()).getObjectSize(listing.getObjectKey());
+            metadata = storageProvider.getBucket(bucketName).getObjectMetadata(listing.getObjectKey());
         } catch (RequestException e){
             if (e.getResponseCode() == 404){
                 throw new RequestException(400, "Object has not been uploaded yet");
@@ -70,6 +75,7 @@ public class CompleteAttachmentUploadCommandHandler implements Command.Handler<C
             throw e;
         }
 
+        var size = metadata.size();
         var user = userRepository.findByAttachmentListing(listing)
                 .orElseThrow(() -> new RequestException(404, "User not found"));
         var limit = limitProvider.extractUsageDetails(user);
@@ -78,14 +84,18 @@ public class CompleteAttachmentUploadCommandHandler implements Command.Handler<C
                     size, limit.getPerAttachmentSize());
             throw new RequestException(413, "File is larger than permitted limit");
         }
-        var acc = user.getAccumulatedAttachmentStorageUsage() + size;
-        if (limit.getAllAttachmentSize() != null && acc > limit.getAllAttachmentSize()){
-            throw new RequestException(413, "Accumulated storage usage exceeded");
+
+        // Content the user already stores under another attachment is not charged twice
+        var contentKey = metadata.sha256() == null ? null : AttachmentObjectService.getObjectKey(metadata.sha256(), listing.getObjectKey());
+        var charged = contentKey != null && attachmentObjectService.isChargedFor(user, bucketName, contentKey) ? 0 : size;
+        // Charged before the object is moved, so that a rejected upload leaves the listing untouched
+        storageUsageService.charge(user, charged, limit);
+        if (contentKey == null){
+            completeAttachmentUpload(listing);
+        } else {
+            attachmentObjectService.completeUpload(listing, contentKey, size);
         }
-        completeAttachmentUpload(listing);
 
-        user.setAccumulatedAttachmentStorageUsage(acc);
-        userRepository.save(user);
         return null;
     }
 }
@@ -2,11 +2,10 @@ package net.cycastic.portfoliotoolkit.application.listing.attachment.create;
 
 import an.awesome.pipelinr.Command;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
 import net.cycastic.portfoliotoolkit.application.listing.service.ListingService;
 import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
 import net.cycastic.portfoliotoolkit.domain.dto.AttachmentPresignedDto;
-import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
-import net.cycastic.portfoliotoolkit.domain.repository.ProjectRepository;
 import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
 import net.cycastic.portfoliotoolkit.service.StorageProvider;
 import org.springframework.stereotype.Component;
@@ -18,13 +17,12 @@ import java.time.OffsetDateTime;
 public class CreateAttachmentListingCommandHandler implements Command.Handler<CreateAttachmentListingCommand, AttachmentPresignedDto> {
     private final ListingService listingService;
     private final StorageProvider storageProvider;
-    private final ProjectRepository projectRepository;
+    private final ProjectMetadataCache projectMetadataCache;
     private final LoggedUserAccessor loggedUserAccessor;
 
     @Override
     public AttachmentPresignedDto handle(CreateAttachmentListingCommand command) {
-        var project = projectRepository.findById(loggedUserAccessor.getProjectId())
-                .orElseThrow(() -> new RequestException(404, "Project not found"));
+        var project = projectMetadataCache.getReference(loggedUserAccessor.getProjectId());
 
         var path = command.getPath();
         var incompleteAttachment = listingService.saveTemporaryAttachment(project,
@@ -35,7 +33,8 @@ public class CreateAttachmentListingCommandHandler implements Command.Handler<Cr
                 .generatePresignedUploadPath(incompleteAttachment.getObjectKey(),
                         path,
                         OffsetDateTime.now().plusMinutes(2), // TODO: Override this
-                        command.getContentLength());
+                        command.getContentLength(),
+                        command.getSha256());
         return AttachmentPresignedDto.builder()
                 .id(incompleteAttachment.getId())
                 .url(uploadUrl)
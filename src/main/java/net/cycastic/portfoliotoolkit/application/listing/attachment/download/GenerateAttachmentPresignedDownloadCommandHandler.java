@@ -3,17 +3,15 @@ package net.cycastic.portfoliotoolkit.application.listing.attachment.download;
 import an.awesome.pipelinr.Command;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
+import net.cycastic.portfoliotoolkit.application.listing.service.AttachmentDownloadService;
 import net.cycastic.portfoliotoolkit.application.listing.service.ListingService;
 import net.cycastic.portfoliotoolkit.domain.dto.AttachmentPresignedDto;
 import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
-import net.cycastic.portfoliotoolkit.domain.repository.ProjectRepository;
 import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentListingRepository;
 import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
-import net.cycastic.portfoliotoolkit.service.StorageProvider;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
-import java.time.OffsetDateTime;
 import java.util.stream.Stream;
 
 @Component
@@ -21,13 +19,12 @@ import java.util.stream.Stream;
 public class GenerateAttachmentPresignedDownloadCommandHandler implements Command.Handler<GenerateAttachmentPresignedDownloadCommand, AttachmentPresignedDto> {
     private final ListingService listingService;
     private final LoggedUserAccessor loggedUserAccessor;
-    private final ProjectRepository projectRepository;
+    private final ProjectMetadataCache projectMetadataCache;
     private final AttachmentListingRepository attachmentListingRepository;
-    private final StorageProvider storageProvider;
+    private final AttachmentDownloadService attachmentDownloadService;
 
     private AttachmentPresignedDto handle(GenerateAttachmentPresignedDownloadCommand command, @NotNull Integer projectId, boolean verifyAccess){
-        var project = projectRepository.findById(projectId)
-                .orElseThrow(() -> new RequestException(404, "Project not found"));
+        var project = projectMetadataCache.getReference(projectId);
 
         if (verifyAccess){
             listingService.verifyAccess(project, Stream.of(command.getListingPath()));
@@ -36,10 +33,7 @@ public class GenerateAttachmentPresignedDownloadCommandHandler implements Comman
         var listing = attachmentListingRepository.findByListing_ProjectAndListing_ListingPath(project, command.getListingPath())
                 .orElseThrow(() -> new RequestException(404, "Listing not found"));
 
-        var url = storageProvider.getBucket(listing.getBucketName())
-                .generatePresignedDownloadPath(listing.getObjectKey(),
-                        new File(command.getListingPath()).getName(),
-                        OffsetDateTime.now().plusHours(6)); // TODO: Override this
+        var url = attachmentDownloadService.getDownloadUrl(listing.getBucketName(), listing.getObjectKey(), command.getListingPath());
         return AttachmentPresignedDto.builder()
                 .id(listing.getId())
                 .url(url)
@@ -4,13 +4,13 @@ import an.awesome.pipelinr.Command;
 import jakarta.transaction.Transactional;
 import jakarta.validation.constraints.Null;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.listing.service.AttachmentObjectService;
+import net.cycastic.portfoliotoolkit.application.listing.service.StorageUsageService;
 import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
 import net.cycastic.portfoliotoolkit.domain.repository.UserRepository;
 import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentListingRepository;
 import net.cycastic.portfoliotoolkit.domain.repository.listing.ListingRepository;
-import net.cycastic.portfoliotoolkit.service.DeferrableStorageProvider;
 import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
-import net.cycastic.portfoliotoolkit.service.StorageProvider;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -19,9 +19,9 @@ public class OverwriteAttachmentListingCommandHandler implements Command.Handler
     private final AttachmentListingRepository attachmentListingRepository;
     private final LoggedUserAccessor loggedUserAccessor;
     private final ListingRepository listingRepository;
-    private final StorageProvider storageProvider;
-    private final DeferrableStorageProvider deferrableStorageProvider;
+    private final AttachmentObjectService attachmentObjectService;
     private final UserRepository userRepository;
+    private final StorageUsageService storageUsageService;
 
     @Override
     @Transactional
@@ -42,11 +42,9 @@ public class OverwriteAttachmentListingCommandHandler implements Command.Handler
         var user = userRepository.findByAttachmentListing(source)
                 .orElseThrow(() -> new RequestException(404, "User not found"));
         sourceListing.setListingPath(destinationListing.getListingPath());
-        var destSize = storageProvider.getBucket(destination.getBucketName()).getObjectSize(destination.getObjectKey());
-        user.setAccumulatedAttachmentStorageUsage(user.getAccumulatedAttachmentStorageUsage() - destSize);
-        deferrableStorageProvider.getBucket(destination.getBucketName()).deleteFile(destination.getObjectKey());
+        var destSize = attachmentObjectService.release(destination, user);
+        storageUsageService.release(user, destSize);
 
-        userRepository.save(user);
         attachmentListingRepository.delete(destination);
         listingRepository.delete(destinationListing);
         listingRepository.save(sourceListing);
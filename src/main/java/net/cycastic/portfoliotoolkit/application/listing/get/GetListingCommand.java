@@ -9,4 +9,5 @@ import org.springframework.lang.Nullable;
 public class GetListingCommand implements Command<ListingDto> {
     private @Nullable Integer projectId;
     private String listingPath;
+    private boolean includeDownloadUrl;
 }
@@ -3,27 +3,29 @@ package net.cycastic.portfoliotoolkit.application.listing.get;
 import an.awesome.pipelinr.Command;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
+import net.cycastic.portfoliotoolkit.application.listing.service.AttachmentDownloadService;
 import net.cycastic.portfoliotoolkit.application.listing.service.ListingService;
 import net.cycastic.portfoliotoolkit.domain.dto.listing.ListingDto;
 import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
-import net.cycastic.portfoliotoolkit.domain.repository.ProjectRepository;
 import net.cycastic.portfoliotoolkit.domain.repository.listing.ListingRepository;
 import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.stream.Stream;
 
 @Component
 @RequiredArgsConstructor
 public class GetListingCommandHandler implements Command.Handler<GetListingCommand, ListingDto> {
     private final ListingService listingService;
+    private final AttachmentDownloadService attachmentDownloadService;
     private final LoggedUserAccessor loggedUserAccessor;
     private final ListingRepository listingRepository;
-    private final ProjectRepository projectRepository;
+    private final ProjectMetadataCache projectMetadataCache;
 
     private ListingDto handle(GetListingCommand command, @NotNull Integer projectId, boolean verifyAccess){
-        var project = projectRepository.findById(projectId)
-                .orElseThrow(() -> new RequestException(404, "Project not found"));
+        var project = projectMetadataCache.getReference(projectId);
 
         if (verifyAccess){
             listingService.verifyAccess(project, Stream.of(command.getListingPath()));
@@ -31,7 +33,11 @@ public class GetListingCommandHandler implements Command.Handler<GetListingComma
 
         var listing = listingRepository.findByProjectAndListingPath(project, command.getListingPath())
                 .orElseThrow(() -> new RequestException(404, "Listing not found"));
-        return listingService.toDto(listing);
+        var dto = listingService.toDto(listing);
+        if (command.isIncludeDownloadUrl()){
+            attachmentDownloadService.embedDownloadUrls(List.of(dto));
+        }
+        return dto;
     }
 
     @Override
@@ -20,4 +20,6 @@ public class QueryListingCommand extends PageRequestDto implements Command<PageR
     private @Nullable Integer projectId;
 
     private String prefix;
+
+    private boolean includeDownloadUrls;
 }
@@ -3,10 +3,10 @@ package net.cycastic.portfoliotoolkit.application.listing.query;
 import an.awesome.pipelinr.Command;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
+import net.cycastic.portfoliotoolkit.application.listing.service.AttachmentDownloadService;
 import net.cycastic.portfoliotoolkit.application.listing.service.ListingService;
-import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
 import net.cycastic.portfoliotoolkit.domain.model.listing.Listing;
-import net.cycastic.portfoliotoolkit.domain.repository.ProjectRepository;
 import net.cycastic.portfoliotoolkit.domain.repository.listing.ListingRepository;
 import net.cycastic.portfoliotoolkit.domain.dto.listing.ListingDto;
 import net.cycastic.portfoliotoolkit.domain.dto.paging.PageResponseDto;
@@ -17,27 +17,31 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class QueryListingCommandHandler implements Command.Handler<QueryListingCommand, PageResponseDto<ListingDto>> {
     private final ListingService listingService;
+    private final AttachmentDownloadService attachmentDownloadService;
     private final LoggedUserAccessor loggedUserAccessor;
     private final ListingRepository listingRepository;
-    private final ProjectRepository projectRepository;
+    private final ProjectMetadataCache projectMetadataCache;
 
     private PageResponseDto<ListingDto> handle(QueryListingCommand command, @NotNull Integer projectId, boolean verifyAccess){
-        var project = projectRepository.findById(projectId)
-                .orElseThrow(() -> new RequestException(404, "Project not found"));
+        var metadata = projectMetadataCache.get(projectId);
+        var project = projectMetadataCache.getReference(projectId);
         var page = listingRepository.findListingsByProjectAndListingPathStartingWith(project,
                 command.getPrefix(),
                 command.toPageable());
         var currentUserId = loggedUserAccessor.tryGetUserId();
-        if (loggedUserAccessor.isAdmin() ||
+        var privileged = loggedUserAccessor.isAdmin() ||
                 (currentUserId.isPresent() &&
-                        project.getUser().getId().equals(currentUserId.get()))){
-            return listingService.toDto(page);
+                        metadata.isOwnedBy(currentUserId.get()));
+        if (!privileged && verifyAccess) {
+            listingService.verifyAccess(project, page.getContent().stream().map(Listing::getListingPath));
         }
 
-        if (verifyAccess) {
-            listingService.verifyAccess(project, page.getContent().stream().map(Listing::getListingPath));
+        var dto = listingService.toDto(page);
+        if (command.isIncludeDownloadUrls()){
+            // Access to the whole page was settled above, so the URLs are signed without further checks
+            attachmentDownloadService.embedDownloadUrls(dto.getItems());
         }
-        return listingService.toDto(page);
+        return dto;
     }
 
     @Override
@@ -2,12 +2,11 @@ package net.cycastic.portfoliotoolkit.application.listing.query;
 
 import an.awesome.pipelinr.Command;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
 import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
 import net.cycastic.portfoliotoolkit.domain.dto.FolderItemDto;
 import net.cycastic.portfoliotoolkit.domain.dto.FolderItemType;
 import net.cycastic.portfoliotoolkit.domain.dto.paging.PageResponseDto;
-import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
-import net.cycastic.portfoliotoolkit.domain.repository.ProjectRepository;
 import net.cycastic.portfoliotoolkit.domain.repository.listing.ListingRepository;
 import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
 import org.springframework.stereotype.Component;
@@ -16,7 +15,7 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class QuerySingleLevelCommandHandler implements Command.Handler<QuerySingleLevelCommand, PageResponseDto<FolderItemDto>> {
     private final LoggedUserAccessor loggedUserAccessor;
-    private final ProjectRepository projectRepository;
+    private final ProjectMetadataCache projectMetadataCache;
     private final ListingRepository listingRepository;
 
     @Override
@@ -28,8 +27,7 @@ public class QuerySingleLevelCommandHandler implements Command.Handler<QuerySing
         if (!folder.endsWith("/")){
             folder = folder + '/';
         }
-        var project = projectRepository.findById(loggedUserAccessor.getProjectId())
-                .orElseThrow(() -> new RequestException(404, "Project not found"));
+        var project = projectMetadataCache.getReference(loggedUserAccessor.getProjectId());
 
         var page = listingRepository.findItems(project, folder, command.toPageable());
 
@@ -0,0 +1,71 @@
+package net.cycastic.portfoliotoolkit.application.listing.service;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.domain.dto.listing.AttachmentDto;
+import net.cycastic.portfoliotoolkit.domain.dto.listing.ListingDto;
+import net.cycastic.portfoliotoolkit.service.StorageProvider;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Issues presigned download URLs for attachments. Callers are expected to have verified access to the listings.
+ */
+@Lazy
+@Service
+@RequiredArgsConstructor
+public class AttachmentDownloadService {
+    private static final long DOWNLOAD_URL_VALID_HOURS = 6;
+
+    private final StorageProvider storageProvider;
+
+    private static OffsetDateTime getExpiration(){
+        return OffsetDateTime.now().plusHours(DOWNLOAD_URL_VALID_HOURS);
+    }
+
+    private static String getFileName(String listingPath){
+        return new File(listingPath).getName();
+    }
+
+    public @NotNull String getDownloadUrl(@NotNull String bucketName, @NotNull String objectKey, @NotNull String listingPath){
+        return storageProvider.getBucket(bucketName)
+                .generatePresignedDownloadPath(objectKey, getFileName(listingPath), getExpiration());
+    }
+
+    /**
+     * Fills in the download URL of every attachment among {@code listings}, presigning each bucket's attachments
+     * as one batch.
+     */
+    public void embedDownloadUrls(@NotNull Collection<? extends ListingDto> listings){
+        var byBucket = new HashMap<String, List<AttachmentDto>>();
+        for (var listing : listings){
+            if (listing instanceof AttachmentDto attachment){
+                byBucket.computeIfAbsent(attachment.getBucketName(), k -> new ArrayList<>()).add(attachment);
+            }
+        }
+        if (byBucket.isEmpty()){
+            return;
+        }
+
+        var expiration = getExpiration();
+        for (var entry : byBucket.entrySet()){
+            var attachments = entry.getValue();
+            var objects = new ArrayList<StorageProvider.BucketProvider.DownloadObject>(attachments.size());
+            for (var attachment : attachments){
+                objects.add(new StorageProvider.BucketProvider.DownloadObject(attachment.getObjectKey(), getFileName(attachment.getPath())));
+            }
+
+            var urls = storageProvider.getBucket(entry.getKey()).generatePresignedDownloadPaths(objects, expiration);
+            for (var i = 0; i < attachments.size(); i++){
+                attachments.get(i).setDownloadUrl(urls.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package net.cycastic.portfoliotoolkit.application.listing.service;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
+import net.cycastic.portfoliotoolkit.domain.model.User;
+import net.cycastic.portfoliotoolkit.domain.model.listing.AttachmentListing;
+import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentListingRepository;
+import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentObjectRepository;
+import net.cycastic.portfoliotoolkit.service.DeferrableStorageProvider;
+import net.cycastic.portfoliotoolkit.service.StorageProvider;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Tracks how many completed attachments point at each content-addressed object. Objects uploaded with a SHA-256 are
+ * stored once per bucket under {@link #CONTENT_ADDRESSED_PREFIX}, every other object belongs to a single attachment.
+ * Unreferenced objects are removed by {@link net.cycastic.portfoliotoolkit.service.cleaners.UnreferencedObjectCleanup}.
+ */
+@Lazy
+@Service
+@RequiredArgsConstructor
+public class AttachmentObjectService {
+    public static final String CONTENT_ADDRESSED_PREFIX = "sha256/";
+
+    private final StorageProvider storageProvider;
+    private final DeferrableStorageProvider deferrableStorageProvider;
+    private final AttachmentObjectRepository attachmentObjectRepository;
+    private final AttachmentListingRepository attachmentListingRepository;
+
+    public static boolean isContentAddressed(@NotNull String objectKey){
+        return objectKey.startsWith(CONTENT_ADDRESSED_PREFIX);
+    }
+
+    /**
+     * The key holding content with the given SHA-256. The extension of the uploaded key is kept, as template
+     * resolution and content type detection still look at it.
+     */
+    public static @NotNull String getObjectKey(@NotNull String sha256, @NotNull String temporaryObjectKey){
+        var fileExt = FilenameUtils.getExtension(temporaryObjectKey);
+        return CONTENT_ADDRESSED_PREFIX + ApplicationUtilities.shardObjectKey(fileExt.isEmpty() ? sha256 : sha256 + "." + fileExt);
+    }
+
+    /**
+     * Whether {@code user} is already charged for the object, through another completed attachment.
+     */
+    public boolean isChargedFor(@NotNull User user, @NotNull String bucketName, @NotNull String objectKey){
+        return attachmentListingRepository.existsCompletedByUserAndObject(user, bucketName, objectKey);
+    }
+
+    /**
+     * Points {@code listing} at the content-addressed {@code objectKey} and marks it as completed. The uploaded object
+     * is only copied when no other attachment holds the same content.
+     */
+    public void completeUpload(@NotNull AttachmentListing listing, @NotNull String objectKey, long size){
+        var bucketName = listing.getBucketName();
+        var temporaryObjectKey = listing.getObjectKey();
+        var now = OffsetDateTime.now();
+        // The row stays locked until commit, so the cleaner cannot remove the object underneath us
+        if (attachmentObjectRepository.addReference(bucketName, objectKey, size, now) == 1){
+            storageProvider.getBucket(bucketName).copyFile(temporaryObjectKey, objectKey);
+        }
+
+        listing.setObjectKey(objectKey);
+        listing.setUploadCompleted(true);
+        attachmentListingRepository.save(listing);
+        deferrableStorageProvider.getBucket(bucketName).deleteFile(temporaryObjectKey);
+    }
+
+    /**
+     * Drops the reference {@code attachment} holds on its object and returns how many bytes {@code user} is no longer
+     * charged for. The attachment must already be saved as not completed.
+     */
+    public long release(@NotNull AttachmentListing attachment, @NotNull User user){
+        var bucketName = attachment.getBucketName();
+        var objectKey = attachment.getObjectKey();
+        if (!isContentAddressed(objectKey)){
+            var size = storageProvider.getBucket(bucketName).getObjectSize(objectKey);
+            deferrableStorageProvider.getBucket(bucketName).deleteFile(objectKey);
+            return size;
+        }
+
+        var size = attachmentObjectRepository.findSize(bucketName, objectKey)
+                .orElseThrow(() -> new IllegalStateException("Untracked content-addressed object: " + objectKey));
+        attachmentObjectRepository.decrementRefCount(bucketName, objectKey, OffsetDateTime.now());
+        return isChargedFor(user, bucketName, objectKey) ? 0 : size;
+    }
+}
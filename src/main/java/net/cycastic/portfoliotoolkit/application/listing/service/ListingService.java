@@ -5,6 +5,7 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.transaction.Transactional;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
 import net.cycastic.portfoliotoolkit.configuration.S3Configurations;
 import net.cycastic.portfoliotoolkit.domain.exception.ForbiddenException;
 import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
@@ -17,18 +18,18 @@ import net.cycastic.portfoliotoolkit.domain.repository.UserRepository;
 import net.cycastic.portfoliotoolkit.domain.repository.listing.*;
 import net.cycastic.portfoliotoolkit.domain.dto.listing.ListingDto;
 import net.cycastic.portfoliotoolkit.domain.dto.paging.PageResponseDto;
-import net.cycastic.portfoliotoolkit.service.DeferrableStorageProvider;
 import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
-import net.cycastic.portfoliotoolkit.service.StorageProvider;
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
@@ -52,9 +53,10 @@ public class ListingService {
     private final ListingACPRepository listingACPRepository;
     private final LoggedUserAccessor loggedUserAccessor;
     private final List<ListingResolver> resolvers;
-    private final StorageProvider storageProvider;
-    private final DeferrableStorageProvider deferrableStorageProvider;
+    private final AttachmentObjectService attachmentObjectService;
+    private final StorageUsageService storageUsageService;
     private final UserRepository userRepository;
+    private final ProjectMetadataCache projectMetadataCache;
 
     private final TextListingRepository textListingRepository;
     private final DecimalListingRepository decimalListingRepository;
@@ -102,23 +104,29 @@ public class ListingService {
         return pattern;
     }
 
+    /**
+     * Combines the allowing policies that apply to a user, or to everyone, into a single pattern over listing paths.
+     */
+    public static Pattern getAllowPattern(@NotNull Collection<ListingAccessControlPolicy> policies, @Nullable Integer userId){
+        return joinPatterns(policies.stream()
+                .filter(policy -> policy.getApplyToId() == null || policy.getApplyToId().equals(userId))
+                .filter(ListingAccessControlPolicy::isAllowed)
+                .map(ListingService::getRegex));
+    }
+
     public void verifyAccess(@NotNull Project project,
                              @NotNull Stream<String> listingPaths){
         if (loggedUserAccessor.isAdmin()){
             return;
         }
 
-        if (project.getUser().getId().equals(loggedUserAccessor.getUserId())){
+        if (projectMetadataCache.get(project.getId()).isOwnedBy(loggedUserAccessor.getUserId())){
             return;
         }
         var currentUserId = loggedUserAccessor.tryGetUserId();
         var policies = listingACPRepository.findListingAccessControlPoliciesByProject(project,
                 Sort.by("priority").ascending());
-        var baseFilter = policies.stream()
-                .filter(policy -> policy.getApplyToId() == null ||
-                        (currentUserId.isPresent() && policy.getApplyToId().equals(currentUserId.get())));
-        var allowPattern = joinPatterns(baseFilter.filter(ListingAccessControlPolicy::isAllowed)
-                .map(ListingService::getRegex));
+        var allowPattern = getAllowPattern(policies, currentUserId.orElse(null));
 
         try (listingPaths){
             var it = listingPaths.iterator();
@@ -208,12 +216,10 @@ public class ListingService {
             attachment.setUploadCompleted(false);
             attachmentListingRepository.save(attachment);
 
-            var size = storageProvider.getBucket(attachment.getBucketName()).getObjectSize(attachment.getObjectKey());
             var user = userRepository.findByListing(listing)
                     .orElseThrow(() -> new RequestException(404, "User not found"));
-            user.setAccumulatedAttachmentStorageUsage(user.getAccumulatedAttachmentStorageUsage() - size);
-            deferrableStorageProvider.getBucket(attachment.getBucketName()).deleteFile(attachment.getObjectKey());
-            userRepository.save(user);
+            var size = attachmentObjectService.release(attachment, user);
+            storageUsageService.release(user, size);
         }
 
         attachmentListingRepository.delete(attachment);
@@ -0,0 +1,78 @@
+package net.cycastic.portfoliotoolkit.application.listing.service;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.domain.exception.ForbiddenException;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import net.cycastic.portfoliotoolkit.domain.model.User;
+import net.cycastic.portfoliotoolkit.domain.model.UserStorageUsage;
+import net.cycastic.portfoliotoolkit.domain.repository.UserStorageUsageRepository;
+import net.cycastic.portfoliotoolkit.service.UsageDetails;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+/**
+ * Charges completed attachments against a user's storage and attachment count limits. Every change is a single
+ * conditional update of the user's usage row, so concurrent uploads never fail on a stale read and only hold the row
+ * until their own transaction commits.
+ */
+@Lazy
+@Service
+@RequiredArgsConstructor
+public class StorageUsageService {
+    private final UserStorageUsageRepository userStorageUsageRepository;
+
+    public @NotNull UserStorageUsage getUsage(@NotNull User user){
+        return userStorageUsageRepository.findById(user.getId())
+                .orElseGet(() -> new UserStorageUsage(user.getId(), 0, 0));
+    }
+
+    /**
+     * Fails early when one more attachment of {@code bytes} would exceed the limits. The limits are only enforced
+     * atomically by {@link #charge}, once the upload completes.
+     */
+    public void checkLimits(@NotNull User user, long bytes, @NotNull UsageDetails limit){
+        throwIfExceeded(getUsage(user), bytes, limit);
+    }
+
+    /**
+     * Charges one attachment of {@code bytes}, bytes already charged for shared content should not be passed again.
+     */
+    public void charge(@NotNull User user, long bytes, @NotNull UsageDetails limit){
+        var userId = user.getId();
+        if (userStorageUsageRepository.charge(userId, bytes, limit.getAllAttachmentSize(), limit.getAttachmentCount()) > 0){
+            return;
+        }
+        if (userStorageUsageRepository.existsById(userId)){
+            throwIfExceeded(getUsage(user), bytes, limit);
+            // The snapshot read may predate whatever pushed the usage over the limit
+            throw new RequestException(413, "Accumulated storage usage exceeded");
+        }
+
+        userStorageUsageRepository.insertIfAbsent(userId);
+        if (userStorageUsageRepository.charge(userId, bytes, limit.getAllAttachmentSize(), limit.getAttachmentCount()) == 0){
+            throwIfExceeded(new UserStorageUsage(userId, 0, 0), bytes, limit);
+            throw new RequestException(413, "Accumulated storage usage exceeded");
+        }
+    }
+
+    public void release(@NotNull User user, long bytes){
+        userStorageUsageRepository.release(user.getId(), bytes);
+    }
+
+    /**
+     * Overwrites the usage with a recount, for {@link net.cycastic.portfoliotoolkit.command.CalculateAccumulatedStorage}.
+     */
+    public void reset(@NotNull User user, long usedBytes, int attachmentCount){
+        userStorageUsageRepository.upsert(user.getId(), usedBytes, attachmentCount);
+    }
+
+    private static void throwIfExceeded(@NotNull UserStorageUsage usage, long bytes, @NotNull UsageDetails limit){
+        if (limit.getAttachmentCount() != null && usage.getAttachmentCount() >= limit.getAttachmentCount()){
+            throw new ForbiddenException("Current user has reached attachment limit");
+        }
+        if (limit.getAllAttachmentSize() != null && usage.getUsedBytes() + bytes > limit.getAllAttachmentSize()){
+            throw new RequestException(413, "Accumulated storage usage exceeded");
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package net.cycastic.portfoliotoolkit.application.metrics;
+
+import an.awesome.pipelinr.Command;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of every command, including validation, as {@code pipelinr.commands} tagged with the command
+ * type and outcome. Timers are resolved once per command class so that recording does not allocate.
+ */
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CommandMetricsMiddleware implements Command.Middleware {
+    private record CommandTimers(Timer success, Timer failure) {}
+
+    private final MeterRegistry meterRegistry;
+    private final ClassValue<CommandTimers> timers = new ClassValue<>() {
+        @Override
+        protected CommandTimers computeValue(Class<?> type) {
+            return new CommandTimers(createTimer(type, "success"), createTimer(type, "failure"));
+        }
+    };
+
+    private Timer createTimer(Class<?> commandType, String outcome){
+        return Timer.builder("pipelinr.commands")
+                .description("Command handling latency")
+                .tag("command", commandType.getSimpleName())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <R, C extends Command<R>> R invoke(C command, Next<R> next) {
+        var commandTimers = timers.get(command.getClass());
+        var start = System.nanoTime();
+        var success = false;
+        try {
+            var result = next.invoke();
+            success = true;
+            return result;
+        } finally {
+            (success ? commandTimers.success() : commandTimers.failure())
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -7,24 +7,26 @@ import net.cycastic.portfoliotoolkit.service.auth.AsymmetricJwtVerifier;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Component
 public class GetJwksCommandHandler implements Command.Handler<GetJwksCommand, JwksDto> {
-    private final Collection<AsymmetricJwtVerifier> asymmetricJwtVerifiers;
+    private final List<AsymmetricJwtVerifier> asymmetricJwtVerifiers;
 
     @Autowired
     public GetJwksCommandHandler(List<AsymmetricJwtVerifier> asymmetricJwtVerifiers) {
-        this.asymmetricJwtVerifiers = new HashSet<>(asymmetricJwtVerifiers);
+        this.asymmetricJwtVerifiers = List.copyOf(new HashSet<>(asymmetricJwtVerifiers));
     }
 
     @Override
     public JwksDto handle(GetJwksCommand command) {
+        // Verifiers keep their documents precomputed, so the common single verifier case allocates nothing
+        if (asymmetricJwtVerifiers.size() == 1){
+            return asymmetricJwtVerifiers.getFirst().getJwks();
+        }
         return new JwksDto(asymmetricJwtVerifiers.stream()
-                .map(AsymmetricJwtVerifier::getJwk)
+                .flatMap(v -> v.getJwks().getKeys().stream())
                 .toList());
     }
 }
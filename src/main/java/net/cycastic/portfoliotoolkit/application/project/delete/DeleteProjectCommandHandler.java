@@ -3,6 +3,8 @@ package net.cycastic.portfoliotoolkit.application.project.delete;
 import an.awesome.pipelinr.Command;
 import jakarta.validation.constraints.Null;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
+import net.cycastic.portfoliotoolkit.configuration.auth.ProjectCorsConfigurationCache;
 import net.cycastic.portfoliotoolkit.domain.exception.ForbiddenException;
 import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
 import net.cycastic.portfoliotoolkit.domain.repository.ProjectRepository;
@@ -16,6 +18,8 @@ import java.time.OffsetDateTime;
 public class DeleteProjectCommandHandler implements Command.Handler<DeleteProjectCommand, @Null Object> {
     private final LoggedUserAccessor loggedUserAccessor;
     private final ProjectRepository projectRepository;
+    private final ProjectMetadataCache projectMetadataCache;
+    private final ProjectCorsConfigurationCache projectCorsConfigurationCache;
 
     @Override
     public @Null Object handle(DeleteProjectCommand command) {
@@ -29,6 +33,8 @@ public class DeleteProjectCommandHandler implements Command.Handler<DeleteProjec
 
         project.setRemovedAt(OffsetDateTime.now());
         projectRepository.save(project);
+        projectMetadataCache.invalidate(project.getId());
+        projectCorsConfigurationCache.invalidate(project.getId());
         return null;
     }
 }
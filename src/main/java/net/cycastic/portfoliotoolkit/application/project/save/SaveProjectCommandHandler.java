@@ -3,6 +3,8 @@ package net.cycastic.portfoliotoolkit.application.project.save;
 import an.awesome.pipelinr.Command;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
+import net.cycastic.portfoliotoolkit.configuration.auth.ProjectCorsConfigurationCache;
 import net.cycastic.portfoliotoolkit.domain.dto.IdDto;
 import net.cycastic.portfoliotoolkit.domain.exception.ForbiddenException;
 import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
@@ -21,6 +23,8 @@ public class SaveProjectCommandHandler implements Command.Handler<SaveProjectCom
     private final LoggedUserAccessor loggedUserAccessor;
     private final UserRepository userRepository;
     private final ProjectRepository projectRepository;
+    private final ProjectMetadataCache projectMetadataCache;
+    private final ProjectCorsConfigurationCache projectCorsConfigurationCache;
     private final LimitProvider limitProvider;
 
     private Integer createProject(SaveProjectCommand command){
@@ -41,6 +45,8 @@ public class SaveProjectCommandHandler implements Command.Handler<SaveProjectCom
                 .createdAt(OffsetDateTime.now())
                 .build();
         projectRepository.save(project);
+        projectMetadataCache.invalidate(project.getId());
+        projectCorsConfigurationCache.invalidate(project.getId());
         return project.getId();
     }
 
@@ -52,6 +58,8 @@ public class SaveProjectCommandHandler implements Command.Handler<SaveProjectCom
         project.setUpdatedAt(OffsetDateTime.now());
 
         projectRepository.save(project);
+        projectMetadataCache.invalidate(project.getId());
+        projectCorsConfigurationCache.invalidate(project.getId());
         return project.getId();
     }
 
@@ -0,0 +1,204 @@
+package net.cycastic.portfoliotoolkit.application.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.validation.constraints.NotNull;
+import lombok.SneakyThrows;
+import net.cycastic.portfoliotoolkit.configuration.CacheConfigurations;
+import net.cycastic.portfoliotoolkit.configuration.CacheUtilities;
+import net.cycastic.portfoliotoolkit.domain.model.ProjectDataKey;
+import net.cycastic.portfoliotoolkit.domain.repository.ProjectDataKeyRepository;
+import net.cycastic.portfoliotoolkit.service.DecryptionProvider;
+import net.cycastic.portfoliotoolkit.service.EncryptionProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Envelope encryption for project owned secrets. Each project has a random data key wrapped by the configured
+ * {@link EncryptionProvider}, so the key management service is only involved when a key is loaded into the cache.
+ * Fields are then encrypted locally with AES-GCM, bound to the project through the associated data.
+ * <p>
+ * Cipher texts produced by the {@link DecryptionProvider} directly are still accepted.
+ */
+@Service
+public class ProjectEncryptionService {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final String CIPHER_PREFIX = "pdk-aes256-gcm96$";
+    private static final int NONCE_LENGTH = 12; // 96-bit
+    private static final int KEY_LENGTH = 32; // 256-bit
+
+    private static class DataKey {
+        private final byte[] key;
+        private volatile boolean destroyed;
+
+        private DataKey(byte[] key){
+            this.key = key;
+        }
+
+        private void destroy(){
+            destroyed = true;
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    private final ProjectDataKeyRepository projectDataKeyRepository;
+    private final EncryptionProvider encryptionProvider;
+    private final DecryptionProvider decryptionProvider;
+    private final TransactionTemplate newTransaction;
+    private final Cache<Integer, DataKey> cache;
+
+    @Autowired
+    public ProjectEncryptionService(ProjectDataKeyRepository projectDataKeyRepository,
+                                    EncryptionProvider encryptionProvider,
+                                    DecryptionProvider decryptionProvider,
+                                    PlatformTransactionManager transactionManager,
+                                    CacheConfigurations cacheConfigurations){
+        this.projectDataKeyRepository = projectDataKeyRepository;
+        this.encryptionProvider = encryptionProvider;
+        this.decryptionProvider = decryptionProvider;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheConfigurations.getDataKeyMaximumSize())
+                .expireAfterWrite(Duration.ofSeconds(cacheConfigurations.getDataKeyTtlSeconds()))
+                .<Integer, DataKey>removalListener((k, v, cause) -> {
+                    if (v != null){
+                        v.destroy();
+                    }
+                })
+                .build();
+    }
+
+    private byte[] unwrap(ProjectDataKey dataKey){
+        return decryptionProvider.decrypt(Base64.getDecoder().decode(dataKey.getWrappedKey()));
+    }
+
+    /**
+     * Returns the data key of the project, creating it if needed. A new key is committed in its own transaction
+     * before it is returned, and so before it is cached, so that a caller rolling back cannot leave a cached key
+     * behind that was never stored.
+     */
+    private DataKey load(int projectId){
+        var existing = projectDataKeyRepository.findById(projectId);
+        if (existing.isPresent()){
+            return new DataKey(unwrap(existing.get()));
+        }
+
+        var key = new byte[KEY_LENGTH];
+        RANDOM.nextBytes(key);
+        var dataKey = ProjectDataKey.builder()
+                .projectId(projectId)
+                .wrappedKey(Base64.getEncoder().encodeToString(encryptionProvider.encrypt(key)))
+                .createdAt(OffsetDateTime.now())
+                .build();
+        try {
+            newTransaction.executeWithoutResult(status -> projectDataKeyRepository.saveAndFlush(dataKey));
+            return new DataKey(key);
+        } catch (DataIntegrityViolationException e){
+            // Lost the race against another instance creating the same key, whose row the caller's snapshot may miss
+            Arrays.fill(key, (byte) 0);
+            var stored = newTransaction.execute(status -> projectDataKeyRepository.findById(projectId));
+            return new DataKey(unwrap(Objects.requireNonNull(stored).orElseThrow(() -> e)));
+        }
+    }
+
+    private SecretKeySpec getKey(int projectId){
+        while (true){
+            var dataKey = CacheUtilities.getOrLoad(cache, projectId, this::load, DataKey::destroy);
+            var spec = new SecretKeySpec(dataKey.key, "AES");
+            // An eviction may have zeroed the key while it was being copied
+            if (!dataKey.destroyed){
+                return spec;
+            }
+        }
+    }
+
+    private static byte[] getAssociatedData(int projectId){
+        return ByteBuffer.allocate(Integer.BYTES).putInt(projectId).array();
+    }
+
+    @SneakyThrows
+    private String encrypt(SecretKeySpec key, byte[] associatedData, String plainText){
+        var iv = new byte[NONCE_LENGTH];
+        RANDOM.nextBytes(iv);
+        var cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+        cipher.updateAAD(associatedData);
+        var encryptedData = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+
+        return CIPHER_PREFIX + Base64.getEncoder().encodeToString(iv) + '$' +
+                Base64.getEncoder().encodeToString(encryptedData);
+    }
+
+    @SneakyThrows
+    private String decrypt(SecretKeySpec key, byte[] associatedData, String cipherText){
+        var separator = cipherText.indexOf('$', CIPHER_PREFIX.length());
+        if (separator < 0){
+            throw new IllegalArgumentException("Malformed cipher text");
+        }
+        var iv = Base64.getDecoder().decode(cipherText.substring(CIPHER_PREFIX.length(), separator));
+        var encryptedData = Base64.getDecoder().decode(cipherText.substring(separator + 1));
+        var cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, iv));
+        cipher.updateAAD(associatedData);
+        return new String(cipher.doFinal(encryptedData), StandardCharsets.UTF_8);
+    }
+
+    public @NotNull String encrypt(int projectId, @NotNull String plainText){
+        return encrypt(getKey(projectId), getAssociatedData(projectId), plainText);
+    }
+
+    public @NotNull List<String> encryptAll(int projectId, @NotNull List<String> plainTexts){
+        var key = getKey(projectId);
+        var associatedData = getAssociatedData(projectId);
+        return plainTexts.stream()
+                .map(p -> encrypt(key, associatedData, p))
+                .toList();
+    }
+
+    public @NotNull String decrypt(int projectId, @NotNull String cipherText){
+        return decryptAll(projectId, List.of(cipherText)).getFirst();
+    }
+
+    public @NotNull List<String> decryptAll(int projectId, @NotNull List<String> cipherTexts){
+        var result = new String[cipherTexts.size()];
+        var legacyIndices = new ArrayList<Integer>();
+        SecretKeySpec key = null;
+        var associatedData = getAssociatedData(projectId);
+        for (int i = 0; i < cipherTexts.size(); i++){
+            var cipherText = cipherTexts.get(i);
+            if (!cipherText.startsWith(CIPHER_PREFIX)){
+                legacyIndices.add(i);
+                continue;
+            }
+            if (key == null){
+                key = getKey(projectId);
+            }
+            result[i] = decrypt(key, associatedData, cipherText);
+        }
+
+        if (!legacyIndices.isEmpty()){
+            var decrypted = decryptionProvider.decryptBatch(legacyIndices.stream()
+                    .map(i -> cipherTexts.get(i).getBytes(StandardCharsets.UTF_8))
+                    .toList());
+            for (int i = 0; i < legacyIndices.size(); i++){
+                result[legacyIndices.get(i)] = new String(decrypted.get(i), StandardCharsets.UTF_8);
+            }
+        }
+        return Arrays.asList(result);
+    }
+}
@@ -0,0 +1,11 @@
+package net.cycastic.portfoliotoolkit.application.project.service;
+
+import org.springframework.lang.Nullable;
+
+import java.time.OffsetDateTime;
+
+public record ProjectMetadata(int id, int ownerId, @Nullable String corsSettings, @Nullable OffsetDateTime removedAt) {
+    public boolean isOwnedBy(int userId){
+        return ownerId == userId;
+    }
+}
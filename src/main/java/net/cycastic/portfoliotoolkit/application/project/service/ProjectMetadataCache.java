@@ -0,0 +1,73 @@
+package net.cycastic.portfoliotoolkit.application.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.validation.constraints.NotNull;
+import net.cycastic.portfoliotoolkit.configuration.CacheConfigurations;
+import net.cycastic.portfoliotoolkit.configuration.CacheUtilities;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import net.cycastic.portfoliotoolkit.domain.model.Project;
+import net.cycastic.portfoliotoolkit.domain.repository.ProjectRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class ProjectMetadataCache {
+    private final ProjectRepository projectRepository;
+    private final Cache<Integer, Optional<ProjectMetadata>> cache;
+    // Bumped on every invalidation, so a load that read the project before a membership change is not published
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public ProjectMetadataCache(ProjectRepository projectRepository, CacheConfigurations cacheConfigurations){
+        this.projectRepository = projectRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheConfigurations.getProjectMaximumSize())
+                .expireAfterWrite(Duration.ofSeconds(cacheConfigurations.getProjectTtlSeconds()))
+                .build();
+    }
+
+    private Optional<ProjectMetadata> load(int projectId){
+        return projectRepository.findProjectInfoById(projectId)
+                .map(p -> new ProjectMetadata(p.getId(), p.getOwnerId(), p.getCorsSettings(), p.getRemovedAt()));
+    }
+
+    public Optional<ProjectMetadata> find(int projectId){
+        return CacheUtilities.getOrLoad(cache, generation, projectId, this::load);
+    }
+
+    public @NotNull ProjectMetadata get(int projectId){
+        return find(projectId)
+                .orElseThrow(() -> new RequestException(404, "Project not found"));
+    }
+
+    /**
+     * Returns a lazy reference to the project after checking that it exists, so that it can be passed to
+     * repository queries without loading the entity itself.
+     */
+    public @NotNull Project getReference(int projectId){
+        get(projectId);
+        return projectRepository.getReferenceById(projectId);
+    }
+
+    public void invalidate(int projectId){
+        CacheUtilities.invalidate(cache, generation, projectId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()){
+            return;
+        }
+
+        // A concurrent reader may repopulate the entry with the old row before the transaction commits
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                CacheUtilities.invalidate(cache, generation, projectId);
+            }
+        });
+    }
+}
@@ -0,0 +1,15 @@
+package net.cycastic.portfoliotoolkit.application.storage.inline;
+
+import an.awesome.pipelinr.Command;
+import lombok.Data;
+import net.cycastic.portfoliotoolkit.application.storage.serve.ServeFileCommandResponse;
+import org.springframework.lang.Nullable;
+
+@Data
+public class ServeInlineObjectCommand implements Command<ServeFileCommandResponse> {
+    private String bucket;
+    private String key;
+    private String fileName;
+    private @Nullable String contentType;
+    private long notValidAfter;
+}
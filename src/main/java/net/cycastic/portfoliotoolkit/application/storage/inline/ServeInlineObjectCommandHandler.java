@@ -0,0 +1,39 @@
+package net.cycastic.portfoliotoolkit.application.storage.inline;
+
+import an.awesome.pipelinr.Command;
+import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.storage.serve.ServeFileCommandResponse;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
+import net.cycastic.portfoliotoolkit.service.impl.InlineObjectStore;
+import net.cycastic.portfoliotoolkit.service.impl.UriPresigner;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.time.Instant;
+
+@Component
+@RequiredArgsConstructor
+public class ServeInlineObjectCommandHandler implements Command.Handler<ServeInlineObjectCommand, ServeFileCommandResponse> {
+    private final UriPresigner uriPresigner;
+    private final LoggedUserAccessor loggedUserAccessor;
+    private final InlineObjectStore inlineObjectStore;
+
+    @Override
+    public ServeFileCommandResponse handle(ServeInlineObjectCommand command) {
+        var url = loggedUserAccessor.getRequestPath();
+        if (!uriPresigner.verifyUri(URI.create(url))){
+            throw new RequestException(401, "Signature verification failed");
+        }
+        if (command.getFileName() == null || Instant.now().isAfter(Instant.ofEpochSecond(command.getNotValidAfter()))){
+            throw new RequestException(401, "Download URL has expired");
+        }
+
+        var content = inlineObjectStore.find(command.getBucket(), command.getKey())
+                .orElseThrow(() -> new RequestException(404, "Attachment not found"));
+        return ServeFileCommandResponse.stream(() -> new ByteArrayInputStream(content),
+                command.getFileName(),
+                command.getContentType());
+    }
+}
@@ -0,0 +1,59 @@
+package net.cycastic.portfoliotoolkit.application.storage.inline;
+
+import an.awesome.pipelinr.Command;
+import jakarta.validation.constraints.Null;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import net.cycastic.portfoliotoolkit.domain.CryptographicUtilities;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentListingRepository;
+import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
+import net.cycastic.portfoliotoolkit.service.impl.InlineObjectStore;
+import net.cycastic.portfoliotoolkit.service.impl.SizeLimitedInputStream;
+import net.cycastic.portfoliotoolkit.service.impl.UriPresigner;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Instant;
+
+@Component
+@RequiredArgsConstructor
+public class UploadInlineObjectCommandHandler implements Command.Handler<UploadInlineObjectCommand, @Null Object> {
+    private final UriPresigner uriPresigner;
+    private final LoggedUserAccessor loggedUserAccessor;
+    private final InlineObjectStore inlineObjectStore;
+    private final AttachmentListingRepository attachmentListingRepository;
+
+    @Override
+    @SneakyThrows
+    public @Null Object handle(UploadInlineObjectCommand command) {
+        var url = loggedUserAccessor.getRequestPath();
+        if (!uriPresigner.verifyUri(URI.create(url))){
+            throw new RequestException(401, "Signature verification failed");
+        }
+        if (Instant.now().isAfter(Instant.ofEpochSecond(command.getNotValidAfter()))){
+            throw new RequestException(401, "Upload URL has expired");
+        }
+        if (command.getLength() <= 0 || !inlineObjectStore.accepts(command.getLength())){
+            throw new RequestException(400, "Invalid content length");
+        }
+        // Replaying the URL after completion would only leave an orphaned blob behind
+        if (!attachmentListingRepository.existsByBucketNameAndObjectKeyAndUploadCompleted(command.getBucket(), command.getKey(), false)){
+            throw new RequestException(409, "Upload is already completed");
+        }
+
+        byte[] content;
+        try (var stream = new SizeLimitedInputStream(command.getContent(), command.getLength(), "Content is longer than declared")){
+            content = stream.readAllBytes();
+        }
+        if (content.length != command.getLength()){
+            throw new RequestException(400, "Content is shorter than declared");
+        }
+        if (command.getSha256() != null && !command.getSha256().equals(CryptographicUtilities.sha256Hex(content))){
+            throw new RequestException(400, "Content does not match the declared SHA-256");
+        }
+
+        inlineObjectStore.store(command.getBucket(), command.getKey(), content);
+        return null;
+    }
+}
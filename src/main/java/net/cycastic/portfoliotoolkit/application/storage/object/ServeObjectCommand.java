@@ -0,0 +1,16 @@
+package net.cycastic.portfoliotoolkit.application.storage.object;
+
+import an.awesome.pipelinr.Command;
+import lombok.Data;
+import net.cycastic.portfoliotoolkit.application.storage.serve.ServeFileCommandResponse;
+import org.springframework.lang.Nullable;
+
+@Data
+public class ServeObjectCommand implements Command<ServeFileCommandResponse> {
+    private String bucket;
+    private String key;
+    private String fileName;
+    private @Nullable String contentType;
+    private long notValidAfter;
+    private @Nullable String range;
+}
@@ -0,0 +1,38 @@
+package net.cycastic.portfoliotoolkit.application.storage.object;
+
+import an.awesome.pipelinr.Command;
+import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.storage.serve.ServeFileCommandResponse;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
+import net.cycastic.portfoliotoolkit.service.StorageProvider;
+import net.cycastic.portfoliotoolkit.service.impl.UriPresigner;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Instant;
+
+@Component
+@RequiredArgsConstructor
+public class ServeObjectCommandHandler implements Command.Handler<ServeObjectCommand, ServeFileCommandResponse> {
+    private final UriPresigner uriPresigner;
+    private final LoggedUserAccessor loggedUserAccessor;
+    private final StorageProvider storageProvider;
+
+    @Override
+    public ServeFileCommandResponse handle(ServeObjectCommand command) {
+        var url = loggedUserAccessor.getRequestPath();
+        if (!uriPresigner.verifyUri(URI.create(url))){
+            throw new RequestException(401, "Signature verification failed");
+        }
+        if (command.getFileName() == null || Instant.now().isAfter(Instant.ofEpochSecond(command.getNotValidAfter()))){
+            throw new RequestException(401, "Download URL has expired");
+        }
+
+        return ServeFileCommandResponse.stream(storageProvider.getBucket(command.getBucket()),
+                command.getKey(),
+                command.getRange(),
+                command.getFileName(),
+                command.getContentType());
+    }
+}
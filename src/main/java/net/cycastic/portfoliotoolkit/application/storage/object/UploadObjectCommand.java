@@ -0,0 +1,18 @@
+package net.cycastic.portfoliotoolkit.application.storage.object;
+
+import an.awesome.pipelinr.Command;
+import jakarta.validation.constraints.Null;
+import lombok.Data;
+import org.springframework.lang.Nullable;
+
+import java.io.InputStream;
+
+@Data
+public class UploadObjectCommand implements Command<@Null Object> {
+    private String bucket;
+    private String key;
+    private long length;
+    private @Nullable String sha256;
+    private long notValidAfter;
+    private InputStream content;
+}
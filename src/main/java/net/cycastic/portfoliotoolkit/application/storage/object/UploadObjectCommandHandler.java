@@ -0,0 +1,44 @@
+package net.cycastic.portfoliotoolkit.application.storage.object;
+
+import an.awesome.pipelinr.Command;
+import jakarta.validation.constraints.Null;
+import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentListingRepository;
+import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
+import net.cycastic.portfoliotoolkit.service.impl.EncryptedStorageProvider;
+import net.cycastic.portfoliotoolkit.service.impl.UriPresigner;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Instant;
+
+@Component
+@RequiredArgsConstructor
+public class UploadObjectCommandHandler implements Command.Handler<UploadObjectCommand, @Null Object> {
+    private final UriPresigner uriPresigner;
+    private final LoggedUserAccessor loggedUserAccessor;
+    private final EncryptedStorageProvider encryptedStorageProvider;
+    private final AttachmentListingRepository attachmentListingRepository;
+
+    @Override
+    public @Null Object handle(UploadObjectCommand command) {
+        var url = loggedUserAccessor.getRequestPath();
+        if (!uriPresigner.verifyUri(URI.create(url))){
+            throw new RequestException(401, "Signature verification failed");
+        }
+        if (Instant.now().isAfter(Instant.ofEpochSecond(command.getNotValidAfter()))){
+            throw new RequestException(401, "Upload URL has expired");
+        }
+        if (command.getLength() <= 0){
+            throw new RequestException(400, "Invalid content length");
+        }
+        // Replaying the URL after completion would overwrite the object behind the recorded size and hash
+        if (!attachmentListingRepository.existsByBucketNameAndObjectKeyAndUploadCompleted(command.getBucket(), command.getKey(), false)){
+            throw new RequestException(409, "Upload is already completed");
+        }
+
+        encryptedStorageProvider.upload(command.getBucket(), command.getKey(), command.getContent(), command.getLength(), command.getSha256());
+        return null;
+    }
+}
@@ -2,6 +2,7 @@ package net.cycastic.portfoliotoolkit.application.storage.serve;
 
 import an.awesome.pipelinr.Command;
 import lombok.Data;
+import org.springframework.lang.Nullable;
 
 import java.util.UUID;
 
@@ -11,4 +12,5 @@ public class ServeFileCommand implements Command<ServeFileCommandResponse> {
     private int userId;
     private UUID shareToken;
     private String path;
+    private @Nullable String range;
 }
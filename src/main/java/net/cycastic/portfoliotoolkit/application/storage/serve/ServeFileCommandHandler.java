@@ -2,6 +2,7 @@ package net.cycastic.portfoliotoolkit.application.storage.serve;
 
 import an.awesome.pipelinr.Command;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.configuration.StorageConfigurations;
 import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
 import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentListingRepository;
 import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
@@ -12,6 +13,7 @@ import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.net.URI;
+import java.time.OffsetDateTime;
 
 @Component
 @RequiredArgsConstructor
@@ -20,6 +22,7 @@ public class ServeFileCommandHandler implements Command.Handler<ServeFileCommand
     private final StorageProvider storageProvider;
     private final UriPresigner uriPresigner;
     private final LoggedUserAccessor loggedUserAccessor;
+    private final StorageConfigurations storageConfigurations;
 
     @Override
     public ServeFileCommandResponse handle(ServeFileCommand command) {
@@ -37,9 +40,20 @@ public class ServeFileCommandHandler implements Command.Handler<ServeFileCommand
         final var bucketName = listing.getBucketName();
         final var objectKey = listing.getObjectKey();
         final var store = storageProvider;
+        final var fileName = new File(command.getPath()).getName();
 
-        return new ServeFileCommandResponse(() -> store.getBucket(bucketName).openDownloadStream(objectKey),
-                new File(command.getPath()).getName(),
+        if (storageConfigurations.getServeMode() == StorageConfigurations.ServeMode.REDIRECT){
+            var objectUrl = store.getBucket(bucketName).generatePresignedDownloadPath(objectKey,
+                    fileName,
+                    listing.getMimeType(),
+                    OffsetDateTime.now().plusSeconds(storageConfigurations.getRedirectUrlValidSeconds()));
+            return ServeFileCommandResponse.redirect(objectUrl, fileName, listing.getMimeType());
+        }
+
+        return ServeFileCommandResponse.stream(store.getBucket(bucketName),
+                objectKey,
+                command.getRange(),
+                fileName,
                 listing.getMimeType());
     }
 }
@@ -1,8 +1,63 @@
 package net.cycastic.portfoliotoolkit.application.storage.serve;
 
 import jakarta.validation.constraints.NotNull;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import net.cycastic.portfoliotoolkit.service.StorageProvider;
 import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.HttpRange;
 import org.springframework.lang.Nullable;
 
-public record ServeFileCommandResponse(InputStreamSource streamSource, @NotNull String fileName, @Nullable String mimeType) {
+/**
+ * Either a stream to proxy or, when the object store can serve the file itself, a URL to redirect to. Streams of a
+ * single requested range carry its bounds.
+ */
+public record ServeFileCommandResponse(@Nullable InputStreamSource streamSource, @Nullable String redirectUrl, @NotNull String fileName, @Nullable String mimeType, @Nullable ByteRange range) {
+    /**
+     * Inclusive bounds of the served bytes, out of the object's {@code total}.
+     */
+    public record ByteRange(long first, long last, long total) {}
+
+    public static ServeFileCommandResponse stream(InputStreamSource streamSource, String fileName, @Nullable String mimeType){
+        return new ServeFileCommandResponse(streamSource, null, fileName, mimeType, null);
+    }
+
+    /**
+     * Streams the object, or only the part selected by the {@code Range} header when it holds a single range.
+     * Multiple ranges are answered with the whole object.
+     */
+    public static ServeFileCommandResponse stream(StorageProvider.BucketProvider bucket, String objectKey, @Nullable String range, String fileName, @Nullable String mimeType){
+        if (range == null){
+            return stream(() -> bucket.openDownloadStream(objectKey), fileName, mimeType);
+        }
+
+        HttpRange httpRange;
+        try {
+            var ranges = HttpRange.parseRanges(range);
+            if (ranges.size() != 1){
+                return stream(() -> bucket.openDownloadStream(objectKey), fileName, mimeType);
+            }
+            httpRange = ranges.getFirst();
+        } catch (IllegalArgumentException e){
+            throw new RequestException(416, "Invalid range");
+        }
+
+        var total = bucket.getObjectSize(objectKey);
+        long first;
+        long last;
+        try {
+            first = httpRange.getRangeStart(total);
+            last = httpRange.getRangeEnd(total);
+        } catch (IllegalArgumentException e){
+            throw new RequestException(416, "Range not satisfiable");
+        }
+        return new ServeFileCommandResponse(() -> bucket.openDownloadStream(objectKey, first, last - first + 1),
+                null,
+                fileName,
+                mimeType,
+                new ByteRange(first, last, total));
+    }
+
+    public static ServeFileCommandResponse redirect(String redirectUrl, String fileName, @Nullable String mimeType){
+        return new ServeFileCommandResponse(null, redirectUrl, fileName, mimeType, null);
+    }
 }
@@ -1,14 +1,21 @@
 package net.cycastic.portfoliotoolkit.application.validation;
 
 import an.awesome.pipelinr.Command;
-import an.awesome.pipelinr.repack.com.google.common.reflect.TypeToken;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.ClassUtils;
 
 public interface CommandValidator<C extends Command<R>, R> {
     void validate(C command);
 
-    default boolean matches(C command) {
-        var typeToken = new TypeToken<C>(getClass()){};
+    /**
+     * Decides whether this validator applies to a command class. It is called once per command class by
+     * {@link ValidationMiddleware}, so implementations may use reflection freely.
+     */
+    default boolean supports(Class<?> commandType) {
+        var validatedType = ResolvableType.forClass(ClassUtils.getUserClass(this))
+                .as(CommandValidator.class)
+                .resolveGeneric(0);
 
-        return typeToken.isSupertypeOf(command.getClass());
+        return validatedType != null && validatedType.isAssignableFrom(commandType);
     }
 }
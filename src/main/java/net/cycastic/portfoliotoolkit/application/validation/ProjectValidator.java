@@ -2,16 +2,15 @@ package net.cycastic.portfoliotoolkit.application.validation;
 
 import an.awesome.pipelinr.Command;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
 import net.cycastic.portfoliotoolkit.domain.exception.ForbiddenException;
-import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
-import net.cycastic.portfoliotoolkit.domain.repository.ProjectRepository;
 import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
 import org.springframework.stereotype.Component;
 
 @Component
 @RequiredArgsConstructor
 public class ProjectValidator implements CommandValidator{
-    private final ProjectRepository projectRepository;
+    private final ProjectMetadataCache projectMetadataCache;
     private final LoggedUserAccessor loggedUserAccessor;
 
     @Override
@@ -21,15 +20,14 @@ public class ProjectValidator implements CommandValidator{
             return;
         }
 
-        var project = projectRepository.findById(projectIdOpt.get())
-                .orElseThrow(() -> new RequestException(404, "Project not found"));
-        if (!loggedUserAccessor.isAdmin() && !project.getUser().getId().equals(loggedUserAccessor.getUserId())){
+        var project = projectMetadataCache.get(projectIdOpt.get());
+        if (!loggedUserAccessor.isAdmin() && !project.isOwnedBy(loggedUserAccessor.getUserId())){
             throw new ForbiddenException();
         }
     }
 
     @Override
-    public boolean matches(Command command) {
+    public boolean supports(Class commandType) {
         return true;
     }
 }
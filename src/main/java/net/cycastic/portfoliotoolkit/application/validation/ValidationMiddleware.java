@@ -3,22 +3,45 @@ package net.cycastic.portfoliotoolkit.application.validation;
 import an.awesome.pipelinr.Command;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 @RequiredArgsConstructor
-public class ValidationMiddleware implements Command.Middleware {
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ValidationMiddleware implements Command.Middleware, SmartInitializingSingleton {
     private final ObjectProvider<CommandValidator> validators;
+    private final ClassValue<CommandValidator[]> validatorsByCommand = new ClassValue<>() {
+        @Override
+        protected CommandValidator[] computeValue(Class<?> type) {
+            return getValidators().stream()
+                    .filter(v -> v.supports(type))
+                    .toArray(CommandValidator[]::new);
+        }
+    };
+    private volatile List<CommandValidator> validatorList;
+
+    private List<CommandValidator> getValidators(){
+        var current = validatorList;
+        if (current == null){
+            // Racing initializers produce the same list, so no locking is needed
+            current = validators.stream().toList();
+            validatorList = current;
+        }
+        return current;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        getValidators();
+    }
 
     @Override
     public <R, C extends Command<R>> R invoke(C command, Next<R> next) {
-        var validValidators = validators.stream().filter(v -> v.matches(command));
-        try (validValidators){
-            var it = validValidators.iterator();
-            while (it.hasNext()){
-                var validator = it.next();
-                validator.validate(command);
-            }
+        for (var validator : validatorsByCommand.get(command.getClass())){
+            validator.validate(command);
         }
         return next.invoke();
     }
@@ -3,6 +3,7 @@ package net.cycastic.portfoliotoolkit.command;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
+import net.cycastic.portfoliotoolkit.application.listing.service.StorageUsageService;
 import net.cycastic.portfoliotoolkit.domain.model.User;
 import net.cycastic.portfoliotoolkit.domain.repository.UserRepository;
 import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentListingRepository;
@@ -32,6 +33,7 @@ public class CalculateAccumulatedStorage implements Callable<Integer> {
     private final UserRepository userRepository;
     private final StorageProvider storageProvider;
     private final AttachmentListingRepository attachmentListingRepository;
+    private final StorageUsageService storageUsageService;
 
     @SneakyThrows
     private static Long getLong(Future<Long> future){
@@ -43,8 +45,8 @@ public class CalculateAccumulatedStorage implements Callable<Integer> {
         var total = 0L;
         for (var i = 0;; i++){
 
-            var page = attachmentListingRepository.getObjectKeysByUser(user,
-                    PageRequest.of(i, BATCH_SIZE, Sort.by("id")));
+            // Shared objects are charged once per user, like at upload completion
+            var page = attachmentListingRepository.getObjectKeysByUser(user, PageRequest.of(i, BATCH_SIZE));
             var contents = page.getContent();
             if (contents.isEmpty()){
                 break;
@@ -62,8 +64,7 @@ public class CalculateAccumulatedStorage implements Callable<Integer> {
             total += pageTotal;
         }
 
-        user.setAccumulatedAttachmentStorageUsage(total);
-        userRepository.save(user);
+        storageUsageService.reset(user, total, attachmentListingRepository.countCompletedByUser(user));
     }
 
     @Override
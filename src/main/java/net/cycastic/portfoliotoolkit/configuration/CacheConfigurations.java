@@ -0,0 +1,24 @@
+package net.cycastic.portfoliotoolkit.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "application.cache")
+public class CacheConfigurations {
+    private long projectTtlSeconds = 30;
+    private long projectMaximumSize = 4096;
+    private long corsTtlSeconds = 600;
+    private long corsMaximumSize = 4096;
+    private long dataKeyTtlSeconds = 300;
+    private long dataKeyMaximumSize = 1024;
+    private long smtpSenderIdleSeconds = 300;
+    private long smtpSenderMaximumSize = 256;
+    private long emailImageMaximumBytes = 32 * 1024 * 1024;
+    private long presignedDownloadWindowSeconds = 900;
+    private long presignedDownloadMaximumSize = 16384;
+    private long inlineObjectMaximumBytes = 16 * 1024 * 1024;
+    private long inlineObjectTtlSeconds = 60;
+}
@@ -0,0 +1,77 @@
+package net.cycastic.portfoliotoolkit.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+public class CacheUtilities {
+    private CacheUtilities(){}
+
+    public static <K, V> V getOrLoad(Cache<K, V> cache, K key, Function<? super K, ? extends V> loader){
+        return getOrLoad(cache, key, loader, v -> {});
+    }
+
+    /**
+     * Caffeine computes a missing entry while holding a {@link java.util.concurrent.ConcurrentHashMap} bin lock,
+     * which pins the carrier of a virtual thread for as long as the loader blocks on the database or Vault.
+     * This loads the value outside of the map instead and publishes it with {@code putIfAbsent}. Concurrent misses
+     * may load the same key more than once; the losing values are handed to {@code discard}.
+     */
+    public static <K, V> V getOrLoad(Cache<K, V> cache, K key, Function<? super K, ? extends V> loader, Consumer<? super V> discard){
+        var cached = cache.getIfPresent(key);
+        if (cached != null){
+            return cached;
+        }
+
+        V loaded = loader.apply(key);
+        var existing = cache.asMap().putIfAbsent(key, loaded);
+        if (existing == null){
+            return loaded;
+        }
+
+        discard.accept(loaded);
+        return existing;
+    }
+
+    /**
+     * Same as {@link #getOrLoad(Cache, Object, Function)}, but for caches whose entries must not outlive an
+     * {@link #invalidate(Cache, AtomicLong, Object)}. A load that was already running when the cache was invalidated
+     * may still publish the value it read before the change, so the generation is sampled before loading and the
+     * published entry is withdrawn again if an invalidation happened in between. The counter is shared by all keys
+     * of the cache; an invalidation only costs concurrent loads of other keys their cache entry, not their result.
+     */
+    public static <K, V> V getOrLoad(Cache<K, V> cache, AtomicLong generation, K key, Function<? super K, ? extends V> loader){
+        return getOrLoad(cache, generation, key, loader, v -> {});
+    }
+
+    /**
+     * Same as {@link #getOrLoad(Cache, AtomicLong, Object, Function)}, losing values of concurrent misses are handed
+     * to {@code discard}. A withdrawn entry goes through the cache's removal listener instead.
+     */
+    public static <K, V> V getOrLoad(Cache<K, V> cache, AtomicLong generation, K key, Function<? super K, ? extends V> loader, Consumer<? super V> discard){
+        var cached = cache.getIfPresent(key);
+        if (cached != null){
+            return cached;
+        }
+
+        var observed = generation.get();
+        V loaded = loader.apply(key);
+        var existing = cache.asMap().putIfAbsent(key, loaded);
+        if (existing != null){
+            discard.accept(loaded);
+            return existing;
+        }
+        if (generation.get() != observed){
+            cache.asMap().remove(key, loaded);
+        }
+        return loaded;
+    }
+
+    public static <K, V> void invalidate(Cache<K, V> cache, AtomicLong generation, K key){
+        // Bump before removing so that a load publishing after the removal is guaranteed to see the new generation
+        generation.incrementAndGet();
+        cache.invalidate(key);
+    }
+}
@@ -9,4 +9,6 @@ import org.springframework.context.annotation.Configuration;
 @ConfigurationProperties(prefix = "application.cleaner")
 public class CleanerConfigurations {
     private int incompleteUploadTtlSeconds;
+    private int unreferencedObjectTtlSeconds = 3600;
+    private int sentEmailRetentionSeconds = 7 * 24 * 3600;
 }
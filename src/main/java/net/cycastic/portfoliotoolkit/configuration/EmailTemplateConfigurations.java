@@ -11,4 +11,5 @@ import org.springframework.lang.Nullable;
 @ConfigurationProperties(prefix = "application.email.template")
 public class EmailTemplateConfigurations {
     private @Nullable Long maxTemplateFileSize;
+    private long templateCacheMaximumSize = 256;
 }
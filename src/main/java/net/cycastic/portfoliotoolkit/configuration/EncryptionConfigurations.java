@@ -1,11 +1,13 @@
 package net.cycastic.portfoliotoolkit.configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import net.cycastic.portfoliotoolkit.configuration.auth.JwtConfiguration;
 import net.cycastic.portfoliotoolkit.service.DecryptionProvider;
 import net.cycastic.portfoliotoolkit.service.EncryptionProvider;
 import net.cycastic.portfoliotoolkit.service.Presigner;
 import net.cycastic.portfoliotoolkit.service.auth.AsymmetricJwtVerifier;
 import net.cycastic.portfoliotoolkit.service.auth.JwtIssuer;
+import net.cycastic.portfoliotoolkit.service.auth.JwtKeyRing;
 import net.cycastic.portfoliotoolkit.service.auth.JwtVerifier;
 import net.cycastic.portfoliotoolkit.service.impl.*;
 import net.cycastic.portfoliotoolkit.service.impl.auth.StandardJwtService;
@@ -15,10 +17,13 @@ import org.springframework.data.util.Lazy;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 @Component
 @org.springframework.context.annotation.Lazy
 public class EncryptionConfigurations {
+    private final ReentrantLock lock = new ReentrantLock();
     private final Lazy<HashicorpVaultEncryptionProvider> hashicorpVaultEncryptionProvider;
     private final Lazy<SymmetricEncryptionProvider> symmetricEncryptionProvider;
     private final Lazy<EncryptionProvider> encryptionProvider;
@@ -32,7 +37,8 @@ public class EncryptionConfigurations {
     public EncryptionConfigurations(HashicorpVaultConfiguration hashicorpVaultConfiguration,
                                     SymmetricEncryptionConfiguration symmetricEncryptionConfiguration,
                                     SymmetricPresignerConfiguration symmetricPresignerConfiguration,
-                                    JwtConfiguration jwtConfiguration){
+                                    JwtConfiguration jwtConfiguration,
+                                    MeterRegistry meterRegistry){
         var vaultEnabled = false;
         Lazy<HashicorpVaultEncryptionProvider> hashicorpVaultEncryptionProvider = null;
         Lazy<SymmetricEncryptionProvider> symmetricEncryptionProvider = null;
@@ -44,20 +50,20 @@ public class EncryptionConfigurations {
         var presigners = new ArrayList<Lazy<?>>();
         if (hashicorpVaultConfiguration.isValid()){
             vaultEnabled = true;
-            hashicorpVaultEncryptionProvider = Lazy.of(() -> new HashicorpVaultEncryptionProvider(hashicorpVaultConfiguration));
+            hashicorpVaultEncryptionProvider = Lazy.of(() -> new HashicorpVaultEncryptionProvider(hashicorpVaultConfiguration, meterRegistry));
             encryptionProvider = Lazy.of(hashicorpVaultEncryptionProvider);
             decryptionProvider = Lazy.of(hashicorpVaultEncryptionProvider);
 
-            hashicorpVaultPresigner = Lazy.of(() -> new HashicorpVaultPresigner(hashicorpVaultConfiguration));
+            hashicorpVaultPresigner = Lazy.of(() -> new HashicorpVaultPresigner(hashicorpVaultConfiguration, meterRegistry));
             presigners.add(hashicorpVaultPresigner);
             if (hashicorpVaultConfiguration.getSigningPrivateKeyWrapped() != null &&
                     hashicorpVaultConfiguration.getSigningPublicKey() != null){
                 jwtService = Lazy.of(() -> {
                     var privateKeyEncrypted = hashicorpVaultConfiguration.getSigningPrivateKeyWrapped();
-                    var privateKeyBase64 = new HashicorpVaultEncryptionProvider(hashicorpVaultConfiguration).decrypt(privateKeyEncrypted);
+                    var privateKeyBase64 = new HashicorpVaultEncryptionProvider(hashicorpVaultConfiguration, meterRegistry).decrypt(privateKeyEncrypted);
                     var privateKey = StandardJwtService.decodePrivateKey(privateKeyBase64);
                     var publicKey = StandardJwtService.decodePublicKey(hashicorpVaultConfiguration.getSigningPublicKey());
-                    return new StandardJwtService(jwtConfiguration, privateKey, publicKey);
+                    return new StandardJwtService(jwtConfiguration, privateKey, publicKey, meterRegistry);
                 });
             }
         }
@@ -88,7 +94,7 @@ public class EncryptionConfigurations {
                 : symmetricEncryptionProvider;
 
         this.jwtService = jwtService == null
-                ? Lazy.of(() -> new StandardJwtService(jwtConfiguration))
+                ? Lazy.of(() -> new StandardJwtService(jwtConfiguration, meterRegistry))
                 : jwtService;
 
         this.uriPresigner = Lazy.of(() -> new UriPresigner(presigners.stream()
@@ -102,53 +108,71 @@ public class EncryptionConfigurations {
                 : symmetricPresigner;
     }
 
+    /**
+     * Vault backed providers contact the server while being created. A monitor would pin the carrier thread for
+     * the whole round trip when beans are resolved from a virtual thread, so creation is guarded by a lock instead.
+     */
+    private <T> T get(Supplier<T> supplier){
+        lock.lock();
+        try {
+            return supplier.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Bean
+    public EncryptionProvider encryptionProvider(){
+        return get(encryptionProvider);
+    }
+
     @Bean
-    public synchronized EncryptionProvider encryptionProvider(){
-        return encryptionProvider.get();
+    public DecryptionProvider decryptionProvider(){
+        return get(decryptionProvider);
     }
 
     @Bean
-    public synchronized DecryptionProvider decryptionProvider(){
-        return decryptionProvider.get();
+    public HashicorpVaultEncryptionProvider hashicorpVaultEncryptionProvider(){
+        return get(hashicorpVaultEncryptionProvider);
     }
 
     @Bean
-    public synchronized HashicorpVaultEncryptionProvider hashicorpVaultEncryptionProvider(){
-        return hashicorpVaultEncryptionProvider.get();
+    public SymmetricEncryptionProvider symmetricEncryptionProvider(){
+        return get(symmetricEncryptionProvider);
     }
 
     @Bean
-    public synchronized SymmetricEncryptionProvider symmetricEncryptionProvider(){
-        return symmetricEncryptionProvider.get();
+    public JwtIssuer jwtIssuer(){
+        return get(jwtService);
     }
 
     @Bean
-    public synchronized JwtIssuer jwtIssuer(){
-        return jwtService.get();
+    public JwtVerifier jwtVerifier(){
+        return get(jwtService);
     }
 
     @Bean
-    public synchronized JwtVerifier jwtVerifier(){
-        return jwtService.get();
+    public AsymmetricJwtVerifier asymmetricJwtVerifier(){
+        return get(jwtService);
     }
 
     @Bean
-    public synchronized AsymmetricJwtVerifier asymmetricJwtVerifier(){
-        return jwtService.get();
+    public JwtKeyRing jwtKeyRing(){
+        return get(() -> jwtService.get().getKeyRing());
     }
 
     @Bean
-    public synchronized UriPresigner uriPresigner(){
-        return uriPresigner.get();
+    public UriPresigner uriPresigner(){
+        return get(uriPresigner);
     }
 
     @Bean
-    public synchronized HashicorpVaultPresigner hashicorpVaultPresigner(){
-        return hashicorpVaultPresigner.get();
+    public HashicorpVaultPresigner hashicorpVaultPresigner(){
+        return get(hashicorpVaultPresigner);
     }
 
     @Bean
-    public synchronized SymmetricPresigner symmetricPresigner(){
-        return symmetricPresigner.get();
+    public SymmetricPresigner symmetricPresigner(){
+        return get(symmetricPresigner);
     }
 }
@@ -16,6 +16,8 @@ public class HashicorpVaultConfiguration {
     private String signingPrivateKeyWrapped;
     private String signingPublicKey;
     private int apiVersion = 1;
+    private boolean presignLocalHmac;
+    private long presignKeyRefreshSeconds = 900;
 
     public boolean isValid(){
         return (apiAddress != null && !apiAddress.isEmpty()) &&
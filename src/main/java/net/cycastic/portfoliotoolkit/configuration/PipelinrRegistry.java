@@ -0,0 +1,156 @@
+package net.cycastic.portfoliotoolkit.configuration;
+
+import an.awesome.pipelinr.*;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resolves Pipelinr handlers and middlewares once, after all singletons are created, instead of scanning the
+ * application context and matching generic types on every send. Pipelinr only ever sees a single routing handler,
+ * which finds the real handler through a per-command-class lookup.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class PipelinrRegistry implements SmartInitializingSingleton {
+    private record Snapshot(Map<Class<?>, Command.Handler> handlers,
+                            List<Command.Handler> unresolvedHandlers,
+                            List<Command.Middleware> commandMiddlewares,
+                            List<Notification.Handler> notificationHandlers,
+                            List<Notification.Middleware> notificationMiddlewares) {}
+
+    private class Router implements Command.Handler {
+        @Override
+        public Object handle(Command command) {
+            return Objects.requireNonNull(find(command)).handle(command);
+        }
+
+        @Override
+        public boolean matches(Command command) {
+            return find(command) != null;
+        }
+    }
+
+    private final ListableBeanFactory beanFactory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Command.Handler router = new Router();
+    private final ClassValue<Optional<Command.Handler>> handlersByCommand = new ClassValue<>() {
+        @Override
+        protected Optional<Command.Handler> computeValue(Class<?> type) {
+            return resolve(type);
+        }
+    };
+    private volatile Snapshot snapshot;
+
+    public PipelinrRegistry(ListableBeanFactory beanFactory){
+        this.beanFactory = beanFactory;
+    }
+
+    private static @Nullable Class<?> getCommandType(Command.Handler handler){
+        return ResolvableType.forClass(ClassUtils.getUserClass(handler))
+                .as(Command.Handler.class)
+                .resolveGeneric(0);
+    }
+
+    private <T> List<T> getOrdered(Class<T> type){
+        // The first middleware wraps all the others
+        var beans = new ArrayList<>(beanFactory.getBeansOfType(type).values());
+        AnnotationAwareOrderComparator.sort(beans);
+        return List.copyOf(beans);
+    }
+
+    private Snapshot createSnapshot(){
+        var handlers = new HashMap<Class<?>, Command.Handler>();
+        var unresolvedHandlers = new ArrayList<Command.Handler>();
+        for (var handler : beanFactory.getBeansOfType(Command.Handler.class).values()){
+            var commandType = getCommandType(handler);
+            if (commandType == null || commandType == Command.class){
+                unresolvedHandlers.add(handler);
+                continue;
+            }
+
+            var previous = handlers.put(commandType, handler);
+            if (previous != null){
+                throw new IllegalStateException(String.format("Command %s has multiple handlers: %s, %s",
+                        commandType.getName(), ClassUtils.getUserClass(previous).getName(), ClassUtils.getUserClass(handler).getName()));
+            }
+        }
+
+        return new Snapshot(Map.copyOf(handlers),
+                List.copyOf(unresolvedHandlers),
+                getOrdered(Command.Middleware.class),
+                List.copyOf(beanFactory.getBeansOfType(Notification.Handler.class).values()),
+                List.copyOf(beanFactory.getBeansOfType(Notification.Middleware.class).values()));
+    }
+
+    private Snapshot getSnapshot(){
+        var current = snapshot;
+        if (current != null){
+            return current;
+        }
+
+        lock.lock();
+        try {
+            if (snapshot == null){
+                snapshot = createSnapshot();
+            }
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Optional<Command.Handler> resolve(Class<?> commandType){
+        var handlers = getSnapshot().handlers();
+        var exact = handlers.get(commandType);
+        if (exact != null){
+            return Optional.of(exact);
+        }
+
+        Command.Handler match = null;
+        for (var entry : handlers.entrySet()){
+            if (!entry.getKey().isAssignableFrom(commandType)){
+                continue;
+            }
+            if (match != null){
+                throw new IllegalStateException("Command " + commandType.getName() + " has multiple handlers");
+            }
+            match = entry.getValue();
+        }
+        return Optional.ofNullable(match);
+    }
+
+    private @Nullable Command.Handler find(Command command){
+        var handler = handlersByCommand.get(command.getClass());
+        if (handler.isPresent()){
+            return handler.get();
+        }
+
+        // Handlers whose command type cannot be resolved statically fall back to their own matching
+        for (var candidate : getSnapshot().unresolvedHandlers()){
+            if (candidate.matches(command)){
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    public Pipelinr createPipelinr(){
+        var handlers = List.of(router);
+        return new Pipelinr()
+                .with(handlers::stream)
+                .with(() -> getSnapshot().notificationHandlers().stream())
+                .with(() -> getSnapshot().notificationMiddlewares().stream())
+                .with(() -> getSnapshot().commandMiddlewares().stream());
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        getSnapshot();
+    }
+}
@@ -0,0 +1,28 @@
+package net.cycastic.portfoliotoolkit.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "application.storage")
+public class StorageConfigurations {
+    public enum ServeMode {
+        /**
+         * Streams the object through the application.
+         */
+        PROXY,
+        /**
+         * Redirects to a short-lived presigned URL of the object store.
+         */
+        REDIRECT,
+    }
+
+    private ServeMode serveMode = ServeMode.PROXY;
+    private long redirectUrlValidSeconds = 300;
+    /**
+     * Attachments up to this size are kept in the database rather than the object store. 0 disables it.
+     */
+    private long inlineThresholdBytes = 0;
+}
@@ -0,0 +1,12 @@
+package net.cycastic.portfoliotoolkit.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Master key of attachment encryption at rest. Objects are stored in plaintext while no key is configured.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "application.storage.encryption")
+public class StorageEncryptionConfiguration extends ExtendibleKeyConfiguration {
+}
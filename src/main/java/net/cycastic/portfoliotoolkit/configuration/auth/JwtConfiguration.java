@@ -5,6 +5,9 @@ import net.cycastic.portfoliotoolkit.configuration.BaseJwtConfiguration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @Configuration
 @EqualsAndHashCode(callSuper = true)
@@ -12,4 +15,13 @@ import org.springframework.context.annotation.Configuration;
 public class JwtConfiguration extends BaseJwtConfiguration {
     private String publicKey;
     private String privateKey;
+    private List<String> verificationPublicKeys = new ArrayList<>();
+
+    /**
+     * Rotates the signing key on this interval, off when not positive. Rotated keys only live in the memory of the
+     * instance that generated them, so this only works with a single instance, and tokens signed since the first
+     * rotation stop verifying on restart.
+     */
+    private long rotationIntervalMillis;
+    private long jwksMaxAgeSeconds = 3600;
 }
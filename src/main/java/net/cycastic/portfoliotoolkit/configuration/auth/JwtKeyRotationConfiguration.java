@@ -0,0 +1,36 @@
+package net.cycastic.portfoliotoolkit.configuration.auth;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.service.auth.JwtKeyRing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.time.Duration;
+
+@Configuration
+@EnableScheduling
+@RequiredArgsConstructor
+public class JwtKeyRotationConfiguration implements SchedulingConfigurer {
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyRotationConfiguration.class);
+
+    private final JwtConfiguration jwtConfiguration;
+    private final ObjectProvider<JwtKeyRing> jwtKeyRing;
+
+    @Override
+    public void configureTasks(@NonNull ScheduledTaskRegistrar taskRegistrar) {
+        var interval = jwtConfiguration.getRotationIntervalMillis();
+        if (interval <= 0){
+            return;
+        }
+
+        logger.warn("JWT signing key rotation is enabled. Rotated keys are not shared, run a single instance only");
+        var duration = Duration.ofMillis(interval);
+        taskRegistrar.addFixedDelayTask(() -> jwtKeyRing.getObject().rotate(), duration);
+    }
+}
@@ -0,0 +1,104 @@
+package net.cycastic.portfoliotoolkit.configuration.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.NonNull;
+import net.cycastic.portfoliotoolkit.application.project.service.ProjectMetadataCache;
+import net.cycastic.portfoliotoolkit.configuration.CacheConfigurations;
+import net.cycastic.portfoliotoolkit.configuration.CacheUtilities;
+import net.cycastic.portfoliotoolkit.configuration.CrossOriginConfiguration;
+import net.cycastic.portfoliotoolkit.domain.ApplicationConstants;
+import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.cors.CorsConfiguration;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves the CORS policy of the project named by the request header from precompiled configurations, so that
+ * preflight requests are answered from memory instead of loading the project on every call.
+ */
+@Component
+public class ProjectCorsConfigurationCache {
+    private final ProjectMetadataCache projectMetadataCache;
+    private final CorsConfiguration defaultConfiguration;
+    private final Cache<Integer, CorsConfiguration> cache;
+    // Lets a compile that started before an origin update tell that its result is already stale
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public ProjectCorsConfigurationCache(ProjectMetadataCache projectMetadataCache,
+                                          CrossOriginConfiguration crossOriginConfiguration,
+                                          CacheConfigurations cacheConfigurations){
+        this.projectMetadataCache = projectMetadataCache;
+        this.defaultConfiguration = getDefaultCorsConfiguration(crossOriginConfiguration.getAllowOrigins());
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheConfigurations.getCorsMaximumSize())
+                .expireAfterWrite(Duration.ofSeconds(cacheConfigurations.getCorsTtlSeconds()))
+                .build();
+    }
+
+    private static CorsConfiguration getDefaultCorsConfiguration(String[] allowedOrigins){
+        var config = new CorsConfiguration();
+        config.addAllowedMethod("*");
+        config.addAllowedHeader("*");
+        if (allowedOrigins != null){
+            for (var origin : allowedOrigins) {
+                config.addAllowedOrigin(origin);
+            }
+        }
+        return config;
+    }
+
+    private CorsConfiguration compile(int projectId){
+        // Unknown projects resolve to the default configuration, which is cached like any other entry
+        var project = projectMetadataCache.find(projectId);
+        if (project.isEmpty() || project.get().corsSettings() == null){
+            return defaultConfiguration;
+        }
+
+        var config = new CorsConfiguration(defaultConfiguration);
+        for (var origin : project.get().corsSettings().split(";")){
+            origin = origin.trim();
+            if (!origin.isEmpty()){
+                config.addAllowedOrigin(origin);
+            }
+        }
+        return config;
+    }
+
+    public CorsConfiguration resolve(@NonNull HttpServletRequest request) {
+        if (!request.getRequestURI().startsWith("/api")){
+            return defaultConfiguration;
+        }
+        var header = request.getHeader(ApplicationConstants.PROJECT_ID_HEADER);
+        if (header == null){
+            return defaultConfiguration;
+        }
+        var projectId = ApplicationUtilities.tryParseInt(header);
+        if (projectId.isEmpty()){
+            return defaultConfiguration;
+        }
+
+        return CacheUtilities.getOrLoad(cache, generation, projectId.get(), this::compile);
+    }
+
+    public void invalidate(int projectId){
+        CacheUtilities.invalidate(cache, generation, projectId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()){
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                CacheUtilities.invalidate(cache, generation, projectId);
+            }
+        });
+    }
+}
@@ -1,14 +1,7 @@
 package net.cycastic.portfoliotoolkit.configuration.auth;
 
-import an.awesome.pipelinr.Pipelinr;
 import lombok.RequiredArgsConstructor;
-import net.cycastic.portfoliotoolkit.application.project.get.GetProjectCommand;
-import net.cycastic.portfoliotoolkit.configuration.CrossOriginConfiguration;
 import net.cycastic.portfoliotoolkit.controller.filter.JwtAuthenticationFilter;
-import net.cycastic.portfoliotoolkit.controller.filter.PerfFilter;
-import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
-import net.cycastic.portfoliotoolkit.domain.dto.ProjectDto;
-import net.cycastic.portfoliotoolkit.service.LoggedUserAccessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
@@ -22,7 +15,6 @@ import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
-import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 
 @Configuration
@@ -31,7 +23,6 @@ import org.springframework.web.cors.CorsConfigurationSource;
 public class SecurityConfiguration {
     private static final Logger logger = LoggerFactory.getLogger(SecurityConfiguration.class);
     private final JwtAuthenticationFilter jwtAuthFilter;
-    private final PerfFilter perfFilter;
     private final AuthenticationProvider authenticationProvider;
 
     @Bean
@@ -73,52 +64,12 @@ public class SecurityConfiguration {
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 .and()
                 .authenticationProvider(authenticationProvider)
-                .addFilterBefore(perfFilter, UsernamePasswordAuthenticationFilter.class)
-                .addFilterBefore(jwtAuthFilter, PerfFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
         return http.build();
     }
 
-    private static CorsConfiguration getDefaultCorsConfiguration(){
-        var config = new CorsConfiguration();
-        config.addAllowedMethod("*");
-        config.addAllowedHeader("*");
-        return config;
-    }
-
     @Bean
-    public CorsConfigurationSource corsConfigurationSource(LoggedUserAccessor loggedUserAccessor,
-                                                           Pipelinr pipelinr,
-                                                           CrossOriginConfiguration crossOriginConfiguration) {
-        var allowedOrigins = crossOriginConfiguration.getAllowOrigins();
-        return request -> {
-            var config = getDefaultCorsConfiguration();
-            if (allowedOrigins != null){
-                for (var origin : allowedOrigins) {
-                    config.addAllowedOrigin(origin);
-                }
-            }
-            if (!request.getRequestURI().startsWith("/api")){
-                return config;
-            }
-            var opt = loggedUserAccessor.tryGetProjectId();
-            if (opt.isEmpty()){
-                return config;
-            }
-
-            ProjectDto project;
-            try {
-                project = pipelinr.send(new GetProjectCommand(opt.get()));
-            } catch (RequestException e){
-                return config;
-            }
-
-            if (project.getCorsSettings() != null){
-                for (var origin : project.getCorsSettings().split(";")){
-                    config.addAllowedOrigin(origin);
-                }
-            }
-
-            return config;
-        };
+    public CorsConfigurationSource corsConfigurationSource(ProjectCorsConfigurationCache projectCorsConfigurationCache) {
+        return projectCorsConfigurationCache::resolve;
     }
 }
@@ -0,0 +1,19 @@
+package net.cycastic.portfoliotoolkit.configuration.mail;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "application.email.queue")
+public class EmailQueueConfigurations {
+    private boolean dispatcherEnabled = true;
+    private long pollIntervalMillis = 1000;
+    private int batchSize = 50;
+    private int maxAttempts = 8;
+    private long retryBaseDelaySeconds = 30;
+    private long retryMaxDelaySeconds = 3600;
+    private long leaseSeconds = 300;
+    private double sendRatePerSecond;
+}
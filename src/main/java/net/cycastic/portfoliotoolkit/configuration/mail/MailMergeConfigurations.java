@@ -0,0 +1,28 @@
+package net.cycastic.portfoliotoolkit.configuration.mail;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "application.email.merge")
+public class MailMergeConfigurations {
+    private int maxConcurrentJobs = 2;
+
+    /**
+     * Threads shared by all jobs for rendering. Defaults to the number of available processors.
+     */
+    private int renderThreads;
+
+    /**
+     * Recipients rendered and enqueued per transaction. Bounds the memory a running job holds.
+     */
+    private int chunkSize = 200;
+
+    /**
+     * How long a running job may go without a heartbeat before another worker takes it over. Also how often
+     * abandoned jobs are looked for.
+     */
+    private int leaseSeconds = 300;
+}
@@ -1,6 +1,7 @@
 package net.cycastic.portfoliotoolkit.configuration.mail;
 
 import lombok.Data;
+import org.springframework.lang.Nullable;
 
 @Data
 public class MailSettings {
@@ -11,4 +12,15 @@ public class MailSettings {
     private String password;
     private boolean auth;
     private boolean starttls;
+
+    /**
+     * Connect, read and write timeout in milliseconds. The JavaMail defaults (infinite) are used when unset.
+     */
+    @Nullable
+    private Integer timeout;
+
+    /**
+     * Keeps the SMTP connection open between sends instead of reconnecting and authenticating every time.
+     */
+    private boolean reuseConnection;
 }
@@ -3,21 +3,27 @@ package net.cycastic.portfoliotoolkit.controller;
 import an.awesome.pipelinr.Pipelinr;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
+import net.cycastic.portfoliotoolkit.application.email.merge.create.CreateMailMergeJobCommand;
+import net.cycastic.portfoliotoolkit.application.email.merge.get.GetMailMergeJobCommand;
 import net.cycastic.portfoliotoolkit.application.email.preview.PreviewEmailCommand;
+import net.cycastic.portfoliotoolkit.application.email.send.SendTemplatedEmailCommand;
 import net.cycastic.portfoliotoolkit.application.email.smtp.delete.DeleteSmtpCredentialCommand;
 import net.cycastic.portfoliotoolkit.application.email.smtp.get.GetSmtpCredentialCommand;
 import net.cycastic.portfoliotoolkit.application.email.smtp.query.QuerySmtpCredentialsCommand;
 import net.cycastic.portfoliotoolkit.application.email.smtp.save.SaveSmtpCredentialCommand;
+import net.cycastic.portfoliotoolkit.application.email.template.CreateMailTemplateFromUploadCommand;
+import net.cycastic.portfoliotoolkit.domain.dto.AttachmentPresignedDto;
 import net.cycastic.portfoliotoolkit.controller.annotation.RequireProjectId;
 import net.cycastic.portfoliotoolkit.domain.dto.BaseSmtpCredentialDto;
 import net.cycastic.portfoliotoolkit.domain.dto.DecryptedSmtpCredentialDto;
 import net.cycastic.portfoliotoolkit.domain.dto.IdDto;
+import net.cycastic.portfoliotoolkit.domain.dto.MailMergeJobDto;
 import net.cycastic.portfoliotoolkit.domain.dto.paging.PageResponseDto;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequireProjectId
@@ -46,16 +52,36 @@ public class EmailsController {
         pipelinr.send(command);
     }
 
+    @PostMapping("send")
+    public IdDto send(@RequestBody SendTemplatedEmailCommand command){
+        return pipelinr.send(command);
+    }
+
+    @PostMapping("template")
+    public AttachmentPresignedDto createTemplate(@RequestBody CreateMailTemplateFromUploadCommand command){
+        return pipelinr.send(command);
+    }
+
+    @PostMapping("merge")
+    public IdDto createMailMerge(@RequestBody CreateMailMergeJobCommand command){
+        return pipelinr.send(command);
+    }
+
+    @GetMapping("merge")
+    public MailMergeJobDto getMailMerge(GetMailMergeJobCommand command){
+        return pipelinr.send(command);
+    }
+
     @PostMapping("preview")
     @SneakyThrows
-    public ResponseEntity<InputStreamResource> preview(@RequestBody PreviewEmailCommand command){
-        var streamSource = pipelinr.send(command);
+    public ResponseEntity<StreamingResponseBody> preview(@RequestBody PreviewEmailCommand command){
+        var body = pipelinr.send(command);
         var headers = new HttpHeaders();
         headers.setContentType(MediaType.TEXT_HTML);
         headers.setContentDispositionFormData("attachment", "preview.html");
 
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(new InputStreamResource(streamSource));
+                .body(body);
     }
 }
@@ -4,17 +4,23 @@ import an.awesome.pipelinr.Pipelinr;
 import lombok.RequiredArgsConstructor;
 import net.cycastic.portfoliotoolkit.application.oidc.configs.GetOidcConfigurationCommand;
 import net.cycastic.portfoliotoolkit.application.oidc.jwks.GetJwksCommand;
+import net.cycastic.portfoliotoolkit.configuration.auth.JwtConfiguration;
 import net.cycastic.portfoliotoolkit.domain.dto.JwksDto;
 import net.cycastic.portfoliotoolkit.domain.dto.OidcConfigurationDto;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping(".well-known")
 public class OidcController {
     private final Pipelinr pipelinr;
+    private final JwtConfiguration jwtConfiguration;
 
     @GetMapping("openid-configuration")
     public OidcConfigurationDto getOidcConfiguration(){
@@ -22,7 +28,16 @@ public class OidcController {
     }
 
     @GetMapping("jwks.json")
-    public JwksDto getJwks(){
-        return pipelinr.send(GetJwksCommand.INSTANCE);
+    public ResponseEntity<JwksDto> getJwks(){
+        // Upcoming signing keys are published a full rotation ahead, so clients may cache for up to half of it
+        var maxAge = jwtConfiguration.getJwksMaxAgeSeconds();
+        if (jwtConfiguration.getRotationIntervalMillis() > 0){
+            maxAge = Math.min(maxAge, jwtConfiguration.getRotationIntervalMillis() / 2_000);
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(maxAge))
+                        .cachePublic()
+                        .staleWhileRevalidate(Duration.ofSeconds(maxAge)))
+                .body(pipelinr.send(GetJwksCommand.INSTANCE));
     }
 }
@@ -2,17 +2,22 @@ package net.cycastic.portfoliotoolkit.controller;
 
 import an.awesome.pipelinr.Pipelinr;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
+import net.cycastic.portfoliotoolkit.application.storage.inline.ServeInlineObjectCommand;
+import net.cycastic.portfoliotoolkit.application.storage.inline.UploadInlineObjectCommand;
+import net.cycastic.portfoliotoolkit.application.storage.object.ServeObjectCommand;
+import net.cycastic.portfoliotoolkit.application.storage.object.UploadObjectCommand;
 import net.cycastic.portfoliotoolkit.application.storage.serve.ServeFileCommand;
+import net.cycastic.portfoliotoolkit.application.storage.serve.ServeFileCommandResponse;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.net.URI;
 import java.time.Duration;
 
 @RestController
@@ -21,18 +26,62 @@ import java.time.Duration;
 public class StorageController {
     private final Pipelinr pipelinr;
 
-    @GetMapping
-    @SneakyThrows
-    public ResponseEntity<InputStreamResource> serveFile(ServeFileCommand command){
-        var response = pipelinr.send(command);
+    private static ResponseEntity<InputStreamResource> toResponseEntity(ServeFileCommandResponse response){
+        if (response.redirectUrl() != null){
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create(response.redirectUrl()))
+                    .build();
+        }
+
         var mimeType = response.mimeType() == null ? "application/octet-stream" : response.mimeType();
         var streamSource = response.streamSource();
         var headers = new HttpHeaders();
         headers.setContentType(MediaType.parseMediaType(mimeType));
         headers.setContentDispositionFormData("attachment", response.fileName());
         headers.setCacheControl(CacheControl.maxAge(Duration.ofHours(1)));
-        return ResponseEntity.ok()
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        var range = response.range();
+        if (range == null){
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(new InputStreamResource(streamSource));
+        }
+
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + range.first() + "-" + range.last() + "/" + range.total());
+        headers.setContentLength(range.last() - range.first() + 1);
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
                 .headers(headers)
                 .body(new InputStreamResource(streamSource));
     }
+
+    @GetMapping
+    public ResponseEntity<InputStreamResource> serveFile(ServeFileCommand command,
+                                                         @RequestHeader(value = HttpHeaders.RANGE, required = false) String range){
+        command.setRange(range);
+        return toResponseEntity(pipelinr.send(command));
+    }
+
+    @GetMapping("inline")
+    public ResponseEntity<InputStreamResource> serveInlineObject(ServeInlineObjectCommand command){
+        return toResponseEntity(pipelinr.send(command));
+    }
+
+    @PutMapping("inline")
+    public void uploadInlineObject(UploadInlineObjectCommand command, InputStream content){
+        command.setContent(content);
+        pipelinr.send(command);
+    }
+
+    @GetMapping("object")
+    public ResponseEntity<InputStreamResource> serveObject(ServeObjectCommand command,
+                                                           @RequestHeader(value = HttpHeaders.RANGE, required = false) String range){
+        command.setRange(range);
+        return toResponseEntity(pipelinr.send(command));
+    }
+
+    @PutMapping("object")
+    public void uploadObject(UploadObjectCommand command, InputStream content){
+        command.setContent(content);
+        pipelinr.send(command);
+    }
 }
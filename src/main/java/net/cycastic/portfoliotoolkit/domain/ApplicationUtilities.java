@@ -22,6 +22,7 @@ public class ApplicationUtilities {
     );
 
     private static final SecureRandom RANDOM = new SecureRandom();
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
     public static String getMimeType(String fileName) {
         return URLConnection.guessContentTypeFromName(fileName);
     }
@@ -42,18 +43,57 @@ public class ApplicationUtilities {
         };
     }
 
+    private static boolean isUnreservedURIComponentChar(char c){
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.' || c == '!' || c == '~' || c == '*' || c == '\'' || c == '(' || c == ')';
+    }
+
+    private static void appendPercentEncoded(StringBuilder sb, int b){
+        sb.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+    }
+
+    /**
+     * Percent-encodes a value like JavaScript's {@code encodeURIComponent}, in a single pass. Values that need no
+     * encoding are returned as is. Unpaired surrogates are encoded as {@code ?}, as {@link URLEncoder} does.
+     */
     public static String encodeURIComponent(Object obj)
     {
-        String result;
-        result = URLEncoder.encode(obj instanceof String s ? s : obj.toString(), StandardCharsets.UTF_8)
-                .replaceAll("\\+", "%20")
-                .replaceAll("%21", "!")
-                .replaceAll("%27", "'")
-                .replaceAll("%28", "(")
-                .replaceAll("%29", ")")
-                .replaceAll("%7E", "~");
-
-        return result;
+        var s = obj instanceof String str ? str : obj.toString();
+        var length = s.length();
+        var i = 0;
+        while (i < length && isUnreservedURIComponentChar(s.charAt(i))){
+            i++;
+        }
+        if (i == length){
+            return s;
+        }
+
+        var sb = new StringBuilder(length + 16);
+        sb.append(s, 0, i);
+        for (; i < length; i++){
+            var c = s.charAt(i);
+            if (isUnreservedURIComponentChar(c)){
+                sb.append(c);
+            } else if (c < 0x80){
+                appendPercentEncoded(sb, c);
+            } else if (c < 0x800){
+                appendPercentEncoded(sb, 0xC0 | (c >> 6));
+                appendPercentEncoded(sb, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))){
+                var codePoint = Character.toCodePoint(c, s.charAt(++i));
+                appendPercentEncoded(sb, 0xF0 | (codePoint >> 18));
+                appendPercentEncoded(sb, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendPercentEncoded(sb, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendPercentEncoded(sb, 0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)){
+                appendPercentEncoded(sb, '?');
+            } else {
+                appendPercentEncoded(sb, 0xE0 | (c >> 12));
+                appendPercentEncoded(sb, 0x80 | ((c >> 6) & 0x3F));
+                appendPercentEncoded(sb, 0x80 | (c & 0x3F));
+            }
+        }
+        return sb.toString();
     }
 
     // https://stackoverflow.com/a/611117
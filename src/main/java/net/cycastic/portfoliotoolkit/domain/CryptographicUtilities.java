@@ -1,11 +1,15 @@
 package net.cycastic.portfoliotoolkit.domain;
 
 import jakarta.validation.constraints.NotNull;
+import lombok.SneakyThrows;
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.generators.HKDFBytesGenerator;
 import org.bouncycastle.crypto.params.HKDFParameters;
 import org.springframework.lang.Nullable;
 
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
 public class CryptographicUtilities {
     public static byte[] deriveKey(int outputKeyLength, @NotNull byte[] ikm, @Nullable byte[] salt){
         var okm = new byte[outputKeyLength];
@@ -14,4 +18,10 @@ public class CryptographicUtilities {
         hkdf.generateBytes(okm, 0, okm.length);
         return okm;
     }
+
+    @SneakyThrows
+    public static String sha256Hex(@NotNull byte[] content){
+        var digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(content));
+    }
 }
@@ -0,0 +1,43 @@
+package net.cycastic.portfoliotoolkit.domain.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import net.cycastic.portfoliotoolkit.domain.model.MailMergeJob;
+import net.cycastic.portfoliotoolkit.domain.model.MailMergeJobStatus;
+import net.cycastic.portfoliotoolkit.domain.model.MailMergeSourceType;
+
+import java.time.OffsetDateTime;
+
+@Data
+@NoArgsConstructor
+public class MailMergeJobDto {
+    private long id;
+    private Integer credentialId;
+    private String templatePath;
+    private String subject;
+    private MailMergeSourceType sourceType;
+    private String sourcePath;
+    private MailMergeJobStatus status;
+    private int queuedCount;
+    private int failedCount;
+    private OffsetDateTime createdAt;
+    private OffsetDateTime startedAt;
+    private OffsetDateTime completedAt;
+    private String lastError;
+
+    public MailMergeJobDto(MailMergeJob job){
+        id = job.getId();
+        credentialId = job.getCredentialId();
+        templatePath = job.getTemplatePath();
+        subject = job.getSubject();
+        sourceType = job.getSourceType();
+        sourcePath = job.getSourcePath();
+        status = job.getStatus();
+        queuedCount = job.getQueuedCount();
+        failedCount = job.getFailedCount();
+        createdAt = job.getCreatedAt();
+        startedAt = job.getStartedAt();
+        completedAt = job.getCompletedAt();
+        lastError = job.getLastError();
+    }
+}
@@ -1,5 +1,6 @@
 package net.cycastic.portfoliotoolkit.domain.dto.listing;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -16,9 +17,11 @@ public class AttachmentDto extends ListingDto{
     private String bucketRegion;
     private String objectKey;
     private String mimeType;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String downloadUrl;
 
     public static AttachmentDto fromDomain(AttachmentListing domain, Listing originalListing){
-        var dto = new AttachmentDto(domain.getBucketName(), domain.getBucketRegion(), domain.getObjectKey(), domain.getMimeType());
+        var dto = new AttachmentDto(domain.getBucketName(), domain.getBucketRegion(), domain.getObjectKey(), domain.getMimeType(), null);
         dto.fromListing(originalListing);
 
         return dto;
@@ -9,4 +9,10 @@ public class AttachmentUploadDto {
     private String path;
     private String mimeType;
     private long contentLength;
+
+    /**
+     * Optional hex SHA-256 of the content. The upload URL then only accepts matching content, and identical uploads
+     * end up sharing a single stored object.
+     */
+    private String sha256;
 }
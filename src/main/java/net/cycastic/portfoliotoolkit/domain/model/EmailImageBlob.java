@@ -0,0 +1,33 @@
+package net.cycastic.portfoliotoolkit.domain.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Inline image content shared by every queued message that embeds it, keyed by the SHA-256 of the content.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "email_image_blobs")
+public class EmailImageBlob {
+    @Id
+    @Column(columnDefinition = "CHAR(64)")
+    private String hash;
+
+    @NotNull
+    private String mimeType;
+
+    @NotNull
+    @ToString.Exclude
+    @Column(columnDefinition = "MEDIUMBLOB")
+    private byte[] content;
+
+    @NotNull
+    private OffsetDateTime createdAt;
+}
@@ -24,6 +24,7 @@ public class EmailTemplate{
     @JoinColumn(name = "id", referencedColumnName = "id")
     private AttachmentListing attachmentListing;
 
+    @Column(columnDefinition = "TEXT")
     private String parameterString;
 
     @SneakyThrows
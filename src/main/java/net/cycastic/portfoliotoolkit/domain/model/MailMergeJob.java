@@ -0,0 +1,78 @@
+package net.cycastic.portfoliotoolkit.domain.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "mail_merge_jobs")
+public class MailMergeJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    private int projectId;
+
+    @NotNull
+    private int createdBy;
+
+    /**
+     * Cleared when the credential is deleted, which fails the job if it was not done yet.
+     */
+    private Integer credentialId;
+
+    @NotNull
+    @Column(columnDefinition = "VARCHAR(512)")
+    private String templatePath;
+
+    @NotNull
+    @Column(length = 998)
+    private String subject;
+
+    @NotNull
+    @Enumerated(EnumType.ORDINAL)
+    private MailMergeSourceType sourceType;
+
+    @NotNull
+    @Column(columnDefinition = "VARCHAR(512)")
+    private String sourcePath;
+
+    @NotNull
+    private String backendOrigin;
+
+    @NotNull
+    @Enumerated(EnumType.ORDINAL)
+    private MailMergeJobStatus status;
+
+    private int queuedCount;
+
+    private int failedCount;
+
+    @NotNull
+    private OffsetDateTime createdAt;
+
+    private OffsetDateTime startedAt;
+
+    /**
+     * Refreshed with every chunk, a running job whose heartbeat is older than the lease is taken over.
+     */
+    private OffsetDateTime heartbeatAt;
+
+    /**
+     * Set by every claim, progress is only recorded by the worker holding the current token.
+     */
+    private UUID leaseToken;
+
+    private OffsetDateTime completedAt;
+
+    @Column(length = 1024)
+    private String lastError;
+}
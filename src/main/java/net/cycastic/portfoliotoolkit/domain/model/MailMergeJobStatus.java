@@ -0,0 +1,8 @@
+package net.cycastic.portfoliotoolkit.domain.model;
+
+public enum MailMergeJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+}
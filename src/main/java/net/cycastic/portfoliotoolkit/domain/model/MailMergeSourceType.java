@@ -0,0 +1,7 @@
+package net.cycastic.portfoliotoolkit.domain.model;
+
+public enum MailMergeSourceType {
+    CSV,
+    NDJSON,
+    LISTING_PREFIX,
+}
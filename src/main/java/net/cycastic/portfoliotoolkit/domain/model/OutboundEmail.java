@@ -0,0 +1,65 @@
+package net.cycastic.portfoliotoolkit.domain.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "outbound_emails", indexes = { @Index(name = "outbound_emails_status_next_attempt_at_index", columnList = "status,next_attempt_at") })
+public class OutboundEmail {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(length = 64)
+    private String senderKey;
+
+    @NotNull
+    private String fromAddress;
+
+    private String fromName;
+
+    @NotNull
+    private String toAddress;
+
+    private String ccAddress;
+
+    @NotNull
+    @Column(length = 998)
+    private String subject;
+
+    @NotNull
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String htmlBody;
+
+    @NotNull
+    private OutboundEmailStatus status;
+
+    private int attempts;
+
+    @NotNull
+    private OffsetDateTime nextAttemptAt;
+
+    @NotNull
+    private OffsetDateTime createdAt;
+
+    private OffsetDateTime sentAt;
+
+    @Column(length = 1024)
+    private String lastError;
+
+    @Builder.Default
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "email", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<OutboundEmailImage> images = new ArrayList<>();
+}
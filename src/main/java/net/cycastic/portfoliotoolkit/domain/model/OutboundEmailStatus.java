@@ -0,0 +1,8 @@
+package net.cycastic.portfoliotoolkit.domain.model;
+
+public enum OutboundEmailStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED,
+}
@@ -0,0 +1,28 @@
+package net.cycastic.portfoliotoolkit.domain.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "project_data_keys")
+public class ProjectDataKey {
+    @Id
+    private Integer projectId;
+
+    @NotNull
+    @Column(length = 1024)
+    private String wrappedKey;
+
+    @NotNull
+    private OffsetDateTime createdAt;
+}
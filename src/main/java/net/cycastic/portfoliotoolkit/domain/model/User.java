@@ -56,9 +56,6 @@ public class User implements UserDetails {
     @Version
     private long version;
 
-    @Getter
-    private long accumulatedAttachmentStorageUsage;
-
     @Column(nullable = false)
     private UserStatus status;
 
@@ -90,8 +87,4 @@ public class User implements UserDetails {
     public String getUsername() {
         return email;
     }
-
-    public void setAccumulatedAttachmentStorageUsage(long accumulatedAttachmentStorageUsage){
-        this.accumulatedAttachmentStorageUsage = accumulatedAttachmentStorageUsage < 0 ? 0 : accumulatedAttachmentStorageUsage;
-    }
 }
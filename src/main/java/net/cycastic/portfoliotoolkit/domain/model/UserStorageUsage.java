@@ -0,0 +1,27 @@
+package net.cycastic.portfoliotoolkit.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Attachment storage a user is charged for, kept apart from {@link User} so that uploads do not contend on the
+ * versioned user row. Only ever changed through the atomic updates of
+ * {@link net.cycastic.portfoliotoolkit.domain.repository.UserStorageUsageRepository}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "user_storage_usage")
+public class UserStorageUsage {
+    @Id
+    private Integer userId;
+
+    private long usedBytes;
+
+    private int attachmentCount;
+}
@@ -0,0 +1,50 @@
+package net.cycastic.portfoliotoolkit.domain.model.listing;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+
+/**
+ * Content of an attachment object small enough to be kept in the database instead of the object store. Rows are
+ * addressed like objects, by bucket and object key.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(AttachmentBlob.Key.class)
+@Table(name = "attachment_blobs")
+public class AttachmentBlob {
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String bucketName;
+        private String objectKey;
+    }
+
+    @Id
+    @Column(columnDefinition = "VARCHAR(32)")
+    private String bucketName;
+
+    @Id
+    private String objectKey;
+
+    @NotNull
+    @ToString.Exclude
+    @Column(columnDefinition = "MEDIUMBLOB")
+    private byte[] content;
+
+    /**
+     * Whether {@link #content} was encrypted with the storage encryption key, rows written before it was configured
+     * stay plaintext.
+     */
+    private boolean encrypted;
+
+    @NotNull
+    private OffsetDateTime createdAt;
+}
@@ -0,0 +1,43 @@
+package net.cycastic.portfoliotoolkit.domain.model.listing;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+
+/**
+ * A content-addressed attachment object, shared by every completed attachment listing whose upload had the same
+ * SHA-256. Unreferenced objects are kept for a while so that a re-upload of the same content does not copy it again.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(AttachmentObject.Key.class)
+@Table(name = "attachment_objects")
+public class AttachmentObject {
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String bucketName;
+        private String objectKey;
+    }
+
+    @Id
+    @Column(columnDefinition = "VARCHAR(32)")
+    private String bucketName;
+
+    @Id
+    private String objectKey;
+
+    private long size;
+
+    private int refCount;
+
+    @NotNull
+    private OffsetDateTime updatedAt;
+}
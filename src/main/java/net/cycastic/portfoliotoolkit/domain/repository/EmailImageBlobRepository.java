@@ -0,0 +1,35 @@
+package net.cycastic.portfoliotoolkit.domain.repository;
+
+import net.cycastic.portfoliotoolkit.domain.model.EmailImageBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+
+public interface EmailImageBlobRepository extends JpaRepository<EmailImageBlob, String> {
+    /**
+     * Inserts the blob, or refreshes {@code created_at} of the existing one so that the orphan sweep leaves it alone
+     * while the messages about to reference it are enqueued.
+     */
+    @Modifying
+    @Query(value = """
+                   INSERT INTO email_image_blobs (hash, mime_type, content, created_at)
+                   VALUES (:hash, :mimeType, :content, :createdAt)
+                   ON DUPLICATE KEY UPDATE created_at = :createdAt
+                   """, nativeQuery = true)
+    void insertIfAbsent(@Param("hash") String hash,
+                        @Param("mimeType") String mimeType,
+                        @Param("content") byte[] content,
+                        @Param("createdAt") OffsetDateTime createdAt);
+
+    @Modifying
+    @Query(value = """
+                   DELETE FROM email_image_blobs
+                   WHERE created_at < :threshold
+                      AND NOT EXISTS (SELECT 1 FROM outbound_email_images i WHERE i.image_hash = email_image_blobs.hash)
+                   LIMIT :limit
+                   """, nativeQuery = true)
+    int deleteUnreferenced(@Param("threshold") OffsetDateTime threshold, @Param("limit") int limit);
+}
@@ -0,0 +1,85 @@
+package net.cycastic.portfoliotoolkit.domain.repository;
+
+import jakarta.transaction.Transactional;
+import net.cycastic.portfoliotoolkit.domain.model.MailMergeJob;
+import net.cycastic.portfoliotoolkit.domain.model.MailMergeJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface MailMergeJobRepository extends JpaRepository<MailMergeJob, Long> {
+    /**
+     * Moves a job from {@code PENDING} to {@code RUNNING}, or takes over a running job whose worker stopped sending
+     * heartbeats before {@code expiredBefore}, under a new {@code leaseToken}. Returns 0 when another worker holds it.
+     */
+    @Modifying
+    @Query("""
+           UPDATE MailMergeJob j SET j.status = :running, j.startedAt = COALESCE(j.startedAt, :now), j.heartbeatAt = :now,
+               j.leaseToken = :leaseToken
+           WHERE j.id = :id AND (j.status = :pending OR (j.status = :running AND j.heartbeatAt < :expiredBefore))
+           """)
+    int claim(@Param("id") long id,
+              @Param("pending") MailMergeJobStatus pending,
+              @Param("running") MailMergeJobStatus running,
+              @Param("now") OffsetDateTime now,
+              @Param("expiredBefore") OffsetDateTime expiredBefore,
+              @Param("leaseToken") UUID leaseToken);
+
+    /**
+     * Returns 0 when the job was taken over by another worker or failed since {@code leaseToken} was claimed.
+     */
+    @Modifying
+    @Query("""
+           UPDATE MailMergeJob j SET j.queuedCount = j.queuedCount + :queued, j.failedCount = j.failedCount + :failed,
+               j.lastError = COALESCE(:lastError, j.lastError), j.heartbeatAt = :now
+           WHERE j.id = :id AND j.leaseToken = :leaseToken
+           """)
+    int addProgress(@Param("id") long id,
+                    @Param("leaseToken") UUID leaseToken,
+                    @Param("queued") int queued,
+                    @Param("failed") int failed,
+                    @Param("lastError") String lastError,
+                    @Param("now") OffsetDateTime now);
+
+    @Modifying
+    @Query("""
+           UPDATE MailMergeJob j SET j.status = :status, j.completedAt = :completedAt, j.lastError = COALESCE(:lastError, j.lastError)
+           WHERE j.id = :id AND j.leaseToken = :leaseToken
+           """)
+    int complete(@Param("id") long id,
+                 @Param("leaseToken") UUID leaseToken,
+                 @Param("status") MailMergeJobStatus status,
+                 @Param("completedAt") OffsetDateTime completedAt,
+                 @Param("lastError") String lastError);
+
+    /**
+     * Fails the unfinished jobs sending with a credential, clearing their lease so that a running worker stops at its
+     * next chunk.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+           UPDATE MailMergeJob j SET j.status = :failed, j.completedAt = :now, j.lastError = :lastError, j.leaseToken = NULL
+           WHERE j.credentialId = :credentialId AND j.status IN (:pending, :running)
+           """)
+    int failByCredential(@Param("credentialId") int credentialId,
+                         @Param("pending") MailMergeJobStatus pending,
+                         @Param("running") MailMergeJobStatus running,
+                         @Param("failed") MailMergeJobStatus failed,
+                         @Param("now") OffsetDateTime now,
+                         @Param("lastError") String lastError);
+
+    @Query("""
+           SELECT j.id FROM MailMergeJob j
+           WHERE j.status = :pending OR (j.status = :running AND j.heartbeatAt < :expiredBefore)
+           ORDER BY j.id
+           """)
+    List<Long> findClaimableIds(@Param("pending") MailMergeJobStatus pending,
+                                @Param("running") MailMergeJobStatus running,
+                                @Param("expiredBefore") OffsetDateTime expiredBefore);
+}
@@ -0,0 +1,99 @@
+package net.cycastic.portfoliotoolkit.domain.repository;
+
+import net.cycastic.portfoliotoolkit.domain.model.OutboundEmail;
+import net.cycastic.portfoliotoolkit.domain.model.OutboundEmailStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboundEmailRepository extends JpaRepository<OutboundEmail, Long> {
+    @Query(value = """
+                   SELECT id FROM outbound_emails
+                   WHERE status IN :statuses AND next_attempt_at <= :now
+                   ORDER BY next_attempt_at
+                   LIMIT :limit
+                   FOR UPDATE SKIP LOCKED
+                   """, nativeQuery = true)
+    List<Long> findDueIdsForUpdate(@Param("statuses") Collection<Integer> statuses,
+                                   @Param("now") OffsetDateTime now,
+                                   @Param("limit") int limit);
+
+    /**
+     * Locks due messages, skipping the ones claimed by another dispatcher. Messages left in {@code SENDING} by a
+     * dispatcher that died become due again once their lease runs out.
+     */
+    default List<Long> findDueIdsForUpdate(OffsetDateTime now, int limit){
+        // The column holds ordinals, bound from the enum so that the query follows it
+        return findDueIdsForUpdate(List.of(OutboundEmailStatus.PENDING.ordinal(), OutboundEmailStatus.SENDING.ordinal()), now, limit);
+    }
+
+    /**
+     * Counts the lease as an attempt, so that a message whose sending keeps killing the dispatcher runs out of
+     * attempts like any other failing message.
+     */
+    @Modifying
+    @Query("""
+           UPDATE OutboundEmail e SET e.status = :status, e.nextAttemptAt = :leaseUntil, e.attempts = e.attempts + 1
+           WHERE e.id IN :ids AND e.attempts < :maxAttempts
+           """)
+    int lease(@Param("ids") Collection<Long> ids,
+              @Param("status") OutboundEmailStatus status,
+              @Param("leaseUntil") OffsetDateTime leaseUntil,
+              @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Gives up on messages among {@code ids} that were leased {@code maxAttempts} times without an outcome.
+     */
+    @Modifying
+    @Query("""
+           UPDATE OutboundEmail e SET e.status = :status, e.nextAttemptAt = :now,
+               e.lastError = COALESCE(e.lastError, 'Dispatcher stopped while sending')
+           WHERE e.id IN :ids AND e.attempts >= :maxAttempts
+           """)
+    int failExhausted(@Param("ids") Collection<Long> ids,
+                      @Param("status") OutboundEmailStatus status,
+                      @Param("now") OffsetDateTime now,
+                      @Param("maxAttempts") int maxAttempts);
+
+    @Query("SELECT DISTINCT e FROM OutboundEmail e LEFT JOIN FETCH e.images i LEFT JOIN FETCH i.blob WHERE e.id IN :ids")
+    List<OutboundEmail> findWithImagesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE OutboundEmail e SET e.status = :status, e.sentAt = :sentAt, e.lastError = NULL WHERE e.id = :id")
+    void markSent(@Param("id") long id,
+                  @Param("status") OutboundEmailStatus status,
+                  @Param("sentAt") OffsetDateTime sentAt);
+
+    @Modifying
+    @Query("""
+           UPDATE OutboundEmail e
+           SET e.status = :status, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, e.lastError = :lastError
+           WHERE e.id = :id
+           """)
+    void markAttemptFailed(@Param("id") long id,
+                           @Param("status") OutboundEmailStatus status,
+                           @Param("attempts") int attempts,
+                           @Param("nextAttemptAt") OffsetDateTime nextAttemptAt,
+                           @Param("lastError") String lastError);
+
+    long countByStatusIn(Collection<OutboundEmailStatus> statuses);
+
+    /**
+     * Deletes up to {@code limit} messages of {@code status} created before {@code threshold}, their image rows go
+     * with them.
+     */
+    @Modifying
+    @Query(value = """
+                   DELETE FROM outbound_emails
+                   WHERE status = :status AND created_at < :threshold
+                   LIMIT :limit
+                   """, nativeQuery = true)
+    int deleteByStatusBefore(@Param("status") int status,
+                             @Param("threshold") OffsetDateTime threshold,
+                             @Param("limit") int limit);
+}
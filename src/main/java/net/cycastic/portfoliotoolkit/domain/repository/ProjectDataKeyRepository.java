@@ -0,0 +1,7 @@
+package net.cycastic.portfoliotoolkit.domain.repository;
+
+import net.cycastic.portfoliotoolkit.domain.model.ProjectDataKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ProjectDataKeyRepository extends JpaRepository<ProjectDataKey, Integer> {
+}
@@ -7,8 +7,19 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
 
 public interface ProjectRepository extends JpaRepository<Project, Integer> {
+    interface ProjectInfo {
+        int getId();
+        int getOwnerId();
+        String getCorsSettings();
+        OffsetDateTime getRemovedAt();
+    }
+
     Page<Project> findProjectsByUser(@NotNull User user, Pageable pageable);
 
     @Query(
@@ -19,4 +30,11 @@ public interface ProjectRepository extends JpaRepository<Project, Integer> {
     Page<Project> findSoftDeletedProjects(Pageable pageable);
 
     int countByUser(@NotNull User user);
+
+    @Query("""
+           SELECT p.id AS id, p.user.id AS ownerId, p.corsSettings AS corsSettings, p.removedAt AS removedAt
+           FROM Project p
+           WHERE p.id = :id
+           """)
+    Optional<ProjectInfo> findProjectInfoById(@Param("id") int id);
 }
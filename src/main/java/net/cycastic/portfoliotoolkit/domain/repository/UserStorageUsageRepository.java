@@ -0,0 +1,56 @@
+package net.cycastic.portfoliotoolkit.domain.repository;
+
+import net.cycastic.portfoliotoolkit.domain.model.UserStorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.lang.Nullable;
+
+public interface UserStorageUsageRepository extends JpaRepository<UserStorageUsage, Integer> {
+    /**
+     * Creates an empty usage row. An existing row is left as is but, unlike with {@code INSERT IGNORE}, exclusively
+     * locked, so the charge that follows cannot deadlock with a concurrent one.
+     */
+    @Modifying
+    @Query(value = """
+                   INSERT INTO user_storage_usage (user_id, used_bytes, attachment_count)
+                   VALUES (:userId, 0, 0)
+                   ON DUPLICATE KEY UPDATE user_id = user_id
+                   """, nativeQuery = true)
+    int insertIfAbsent(@Param("userId") int userId);
+
+    /**
+     * Adds one attachment of {@code bytes} to the user's usage, unless that would exceed either limit. Returns 0 when
+     * nothing was charged, either because of the limits or because the user has no usage row yet.
+     */
+    @Modifying
+    @Query("""
+           UPDATE UserStorageUsage u SET u.usedBytes = u.usedBytes + :bytes, u.attachmentCount = u.attachmentCount + 1
+           WHERE u.userId = :userId
+              AND (:byteLimit IS NULL OR u.usedBytes + :bytes <= :byteLimit)
+              AND (:countLimit IS NULL OR u.attachmentCount < :countLimit)
+           """)
+    int charge(@Param("userId") int userId,
+               @Param("bytes") long bytes,
+               @Nullable @Param("byteLimit") Long byteLimit,
+               @Nullable @Param("countLimit") Integer countLimit);
+
+    @Modifying
+    @Query(value = """
+                   UPDATE user_storage_usage
+                   SET used_bytes = GREATEST(used_bytes - :bytes, 0), attachment_count = GREATEST(attachment_count - 1, 0)
+                   WHERE user_id = :userId
+                   """, nativeQuery = true)
+    int release(@Param("userId") int userId, @Param("bytes") long bytes);
+
+    @Modifying
+    @Query(value = """
+                   INSERT INTO user_storage_usage (user_id, used_bytes, attachment_count)
+                   VALUES (:userId, :usedBytes, :attachmentCount)
+                   ON DUPLICATE KEY UPDATE used_bytes = :usedBytes, attachment_count = :attachmentCount
+                   """, nativeQuery = true)
+    void upsert(@Param("userId") int userId,
+                @Param("usedBytes") long usedBytes,
+                @Param("attachmentCount") int attachmentCount);
+}
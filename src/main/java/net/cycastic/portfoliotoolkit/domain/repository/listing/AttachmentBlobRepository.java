@@ -0,0 +1,82 @@
+package net.cycastic.portfoliotoolkit.domain.repository.listing;
+
+import jakarta.transaction.Transactional;
+import net.cycastic.portfoliotoolkit.domain.model.listing.AttachmentBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Writes are transactional on their own since objects are also deleted from deferred, transaction-less tasks.
+ */
+public interface AttachmentBlobRepository extends JpaRepository<AttachmentBlob, AttachmentBlob.Key> {
+    interface ContentInfo {
+        byte[] getContent();
+        boolean isEncrypted();
+    }
+
+    interface ContentLengthInfo {
+        long getLength();
+        boolean isEncrypted();
+    }
+
+    @Query("""
+           SELECT b.content AS content, b.encrypted AS encrypted FROM AttachmentBlob b
+           WHERE b.bucketName = :bucketName AND b.objectKey = :objectKey
+           """)
+    Optional<ContentInfo> findContent(@Param("bucketName") String bucketName, @Param("objectKey") String objectKey);
+
+    @Query(value = """
+                   SELECT LENGTH(content) AS length, encrypted AS encrypted FROM attachment_blobs
+                   WHERE bucket_name = :bucketName AND object_key = :objectKey
+                   """, nativeQuery = true)
+    Optional<ContentLengthInfo> findContentLength(@Param("bucketName") String bucketName, @Param("objectKey") String objectKey);
+
+    @Query("SELECT b.objectKey FROM AttachmentBlob b WHERE b.bucketName = :bucketName AND b.objectKey IN :objectKeys")
+    List<String> findObjectKeys(@Param("bucketName") String bucketName, @Param("objectKeys") Collection<String> objectKeys);
+
+    @Query(value = "SELECT EXISTS(SELECT 1 FROM attachment_blobs)", nativeQuery = true)
+    long existsAny();
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+                   REPLACE INTO attachment_blobs (bucket_name, object_key, content, encrypted, created_at)
+                   VALUES (:bucketName, :objectKey, :content, :encrypted, :createdAt)
+                   """, nativeQuery = true)
+    void upsert(@Param("bucketName") String bucketName,
+                @Param("objectKey") String objectKey,
+                @Param("content") byte[] content,
+                @Param("encrypted") boolean encrypted,
+                @Param("createdAt") OffsetDateTime createdAt);
+
+    /**
+     * Deletes up to {@code limit} blobs created before {@code threshold} that neither an attachment listing nor a
+     * content-addressed object points at, such as uploads that were abandoned or replayed.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+                   DELETE FROM attachment_blobs
+                   WHERE created_at < :threshold
+                      AND NOT EXISTS (SELECT 1 FROM attachment_listings a
+                                      WHERE a.bucket_name = attachment_blobs.bucket_name
+                                         AND a.object_key = attachment_blobs.object_key)
+                      AND NOT EXISTS (SELECT 1 FROM attachment_objects o
+                                      WHERE o.bucket_name = attachment_blobs.bucket_name
+                                         AND o.object_key = attachment_blobs.object_key)
+                   LIMIT :limit
+                   """, nativeQuery = true)
+    int deleteUnreferenced(@Param("threshold") OffsetDateTime threshold, @Param("limit") int limit);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AttachmentBlob b WHERE b.bucketName = :bucketName AND b.objectKey = :objectKey")
+    int deleteObject(@Param("bucketName") String bucketName, @Param("objectKey") String objectKey);
+}
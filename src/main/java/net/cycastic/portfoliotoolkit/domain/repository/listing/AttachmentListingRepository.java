@@ -14,36 +14,82 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 public interface AttachmentListingRepository extends JpaRepository<AttachmentListing, Integer> {
     interface ObjectInfo {
-        int getId();
         String getKey();
         String getBucket();
     }
 
+    interface ShareTokenInfo {
+        String getPath();
+        UUID getShareToken();
+    }
+
     void removeByUploadCompletedAndListing_CreatedAtLessThan(boolean uploadCompleted, @NotNull OffsetDateTime listingCreatedAt);
 
     Optional<AttachmentListing> findByListing_ProjectAndListing_ListingPath(@NotNull Project listingProject, @NotNull String listingListingPath);
 
     Optional<AttachmentListing> findByListing_Project_IdAndListing_ListingPath(@NotNull Integer listingProjectId, @NotNull String listingListingPath);
 
+    @Query("""
+           SELECT a.listing.listingPath AS path, a.shareToken AS shareToken FROM AttachmentListing a
+           WHERE a.listing.project.id = :projectId AND a.listing.listingPath IN :paths
+           """)
+    List<ShareTokenInfo> findShareTokensByPaths(@Param("projectId") int projectId, @Param("paths") Collection<String> paths);
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT l.attachmentListing FROM Listing l WHERE l = :listing")
     Optional<AttachmentListing> findAttachmentListingForUpdate(@Param("listing") Listing listing);
 
     AttachmentListing findByListing(@NotNull Listing listing);
 
+    boolean existsByBucketNameAndObjectKeyAndUploadCompleted(@NotNull String bucketName, @NotNull String objectKey, boolean uploadCompleted);
+
+    /**
+     * Objects referenced by the user's completed attachments, each listed once however many attachments share it.
+     */
     @Query(value = """
-                   SELECT l.id AS id, l.objectKey AS key, l.bucketName AS bucket
+                   SELECT DISTINCT l.bucketName AS bucket, l.objectKey AS key
                    FROM AttachmentListing l
                    WHERE l.listing.project.user = :user AND l.uploadCompleted
+                   ORDER BY l.bucketName, l.objectKey
                    """,
             countQuery = """
-                         SELECT COUNT(l.objectKey) FROM AttachmentListing l WHERE l.listing.project.user = :user
+                         SELECT COUNT(DISTINCT CONCAT(l.bucketName, '/', l.objectKey)) FROM AttachmentListing l
+                         WHERE l.listing.project.user = :user AND l.uploadCompleted
                          """
     )
     Page<ObjectInfo> getObjectKeysByUser(@Param("user")User user, Pageable pageable);
+
+    @Query("""
+           SELECT COUNT(a) FROM AttachmentListing a
+           WHERE a.listing.project.user = :user AND a.uploadCompleted
+           """)
+    int countCompletedByUser(@Param("user") User user);
+
+    @Query("""
+           SELECT COUNT(a) > 0 FROM AttachmentListing a
+           WHERE a.listing.project.user = :user
+              AND a.bucketName = :bucketName
+              AND a.objectKey = :objectKey
+              AND a.uploadCompleted
+           """)
+    boolean existsCompletedByUserAndObject(@Param("user") User user,
+                                           @Param("bucketName") String bucketName,
+                                           @Param("objectKey") String objectKey);
+
+    @Query(value = """
+                   SELECT a FROM AttachmentListing a
+                   WHERE a.listing.project.id = :projectId
+                      AND a.listing.listingPath LIKE CONCAT(:prefix, '%')
+                      AND a.listing.removedAt IS NULL
+                      AND a.uploadCompleted
+                   ORDER BY a.listing.listingPath
+                   """)
+    Page<AttachmentListing> findCompletedByPathPrefix(@Param("projectId") int projectId, @Param("prefix") String prefix, Pageable pageable);
 }
@@ -0,0 +1,66 @@
+package net.cycastic.portfoliotoolkit.domain.repository.listing;
+
+import jakarta.persistence.LockModeType;
+import net.cycastic.portfoliotoolkit.domain.model.listing.AttachmentObject;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface AttachmentObjectRepository extends JpaRepository<AttachmentObject, AttachmentObject.Key> {
+    /**
+     * Inserts the object with a single reference, or adds a reference if it is already tracked. Returns 1 when the
+     * row was inserted and 2 when it was updated. Either way the row stays exclusively locked until the transaction
+     * ends, unlike {@code INSERT IGNORE}, whose shared lock on a duplicate deadlocks a following update.
+     */
+    @Modifying
+    @Query(value = """
+                   INSERT INTO attachment_objects (bucket_name, object_key, size, ref_count, updated_at)
+                   VALUES (:bucketName, :objectKey, :size, 1, :updatedAt)
+                   ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, updated_at = :updatedAt
+                   """, nativeQuery = true)
+    int addReference(@Param("bucketName") String bucketName,
+                       @Param("objectKey") String objectKey,
+                       @Param("size") long size,
+                       @Param("updatedAt") OffsetDateTime updatedAt);
+
+    @Modifying
+    @Query("""
+           UPDATE AttachmentObject o SET o.refCount = o.refCount - 1, o.updatedAt = :updatedAt
+           WHERE o.bucketName = :bucketName AND o.objectKey = :objectKey AND o.refCount > 0
+           """)
+    int decrementRefCount(@Param("bucketName") String bucketName,
+                          @Param("objectKey") String objectKey,
+                          @Param("updatedAt") OffsetDateTime updatedAt);
+
+    @Query("SELECT o.size FROM AttachmentObject o WHERE o.bucketName = :bucketName AND o.objectKey = :objectKey")
+    Optional<Long> findSize(@Param("bucketName") String bucketName, @Param("objectKey") String objectKey);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM AttachmentObject o WHERE o.refCount = 0 AND o.updatedAt < :threshold")
+    List<AttachmentObject> findUnreferencedForUpdate(@Param("threshold") OffsetDateTime threshold, Pageable pageable);
+
+    @Modifying
+    @Query("""
+           DELETE FROM AttachmentObject o
+           WHERE o.bucketName = :bucketName AND o.objectKey = :objectKey AND o.refCount = 0
+           """)
+    int deleteUnreferenced(@Param("bucketName") String bucketName, @Param("objectKey") String objectKey);
+
+    /**
+     * Counts the rows tracking the object with a locking read. When there are none, the gap stays locked until the
+     * transaction ends, so a concurrent {@link #addReference} cannot start tracking the object again meanwhile.
+     */
+    @Query(value = """
+                   SELECT COUNT(*) FROM attachment_objects
+                   WHERE bucket_name = :bucketName AND object_key = :objectKey
+                   FOR UPDATE
+                   """, nativeQuery = true)
+    long countForUpdate(@Param("bucketName") String bucketName, @Param("objectKey") String objectKey);
+}
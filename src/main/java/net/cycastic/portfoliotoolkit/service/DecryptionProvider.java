@@ -2,7 +2,15 @@ package net.cycastic.portfoliotoolkit.service;
 
 import jakarta.validation.constraints.NotNull;
 
+import java.util.List;
+
 public interface DecryptionProvider {
     byte @NotNull [] decrypt(byte @NotNull [] encryptedData);
     @NotNull String decrypt(@NotNull String cipherText);
+
+    default @NotNull List<byte[]> decryptBatch(@NotNull List<byte[]> encryptedData){
+        return encryptedData.stream()
+                .map(this::decrypt)
+                .toList();
+    }
 }
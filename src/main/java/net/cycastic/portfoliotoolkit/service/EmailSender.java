@@ -2,8 +2,24 @@ package net.cycastic.portfoliotoolkit.service;
 
 import org.springframework.lang.Nullable;
 
+import java.util.List;
 import java.util.Map;
 
 public interface EmailSender {
+    record Message(String fromAddress,
+                   @Nullable String fromName,
+                   String to,
+                   @Nullable String cc,
+                   String subject,
+                   String htmlBody,
+                   @Nullable Map<String, EmailImage> imageStreamSource){}
+
     void sendHtml(String fromAddress, String fromName, String to, String cc, String subject, String htmlBody, @Nullable Map<String, EmailImage> imageStreamSource);
+
+    /**
+     * Sends all messages over a single connection.
+     *
+     * @return the failure of every message that could not be sent, keyed by its index
+     */
+    Map<Integer, Exception> sendBatch(List<Message> messages);
 }
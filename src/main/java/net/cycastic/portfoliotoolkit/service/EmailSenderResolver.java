@@ -0,0 +1,7 @@
+package net.cycastic.portfoliotoolkit.service;
+
+import org.springframework.lang.Nullable;
+
+public interface EmailSenderResolver {
+    @Nullable EmailSender resolve(String senderKey);
+}
@@ -6,10 +6,14 @@ import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
 import net.cycastic.portfoliotoolkit.domain.model.EmailParameter;
 import net.cycastic.portfoliotoolkit.domain.model.EmailParameterType;
 
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.lang.Nullable;
+
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 public interface EmailTemplateEngine {
     @Getter
@@ -18,7 +22,29 @@ public interface EmailTemplateEngine {
         private Map<String, EmailImage> imageStreamSource;
     }
 
-    private static HashMap<String, Object> buildParameterMap(EmailParameter[] emailParameters){
+    /**
+     * A parsed template that can be rendered any number of times, from any thread.
+     */
+    interface CompiledTemplate {
+        /**
+         * @param signingScope scope used to sign {@code <@loadImage>} URLs, or {@code null} to use the current request
+         */
+        RenderResult render(OutputStream renderStream, Map<String, Object> emailParameters, @Nullable StoragePresigner.Scope signingScope);
+
+        default RenderResult render(OutputStream renderStream, Map<String, Object> emailParameters){
+            return render(renderStream, emailParameters, null);
+        }
+
+        default RenderResult render(OutputStream renderStream, EmailParameter[] emailParameters){
+            return render(renderStream, buildParameterMap(emailParameters));
+        }
+    }
+
+    record StorageTemplateKey(String bucketName, String objectKey, long version){}
+
+    record ResourceTemplateKey(String resourcePath){}
+
+    static HashMap<String, Object> buildParameterMap(EmailParameter[] emailParameters){
         HashMap<String, Object> map = HashMap.newHashMap(emailParameters.length);
         for (var parameter: emailParameters){
             if (map.containsKey(parameter.getName())){
@@ -40,9 +66,25 @@ public interface EmailTemplateEngine {
         return map;
     }
 
-    RenderResult render(InputStream templateStream,
-                OutputStream renderStream,
-                Map<String, Object> emailParameters);
+    CompiledTemplate compile(InputStream templateStream);
+
+    /**
+     * Returns the cached template for the given key, compiling it from the source on a miss. Keys must change
+     * whenever the template content does.
+     */
+    CompiledTemplate getTemplate(Object key, InputStreamSource templateSource);
+
+    default CompiledTemplate getResourceTemplate(String resourcePath){
+        return getTemplate(new ResourceTemplateKey(resourcePath),
+                () -> Objects.requireNonNull(EmailTemplateEngine.class.getClassLoader().getResourceAsStream(resourcePath),
+                        () -> "Template resource not found: " + resourcePath));
+    }
+
+    default RenderResult render(InputStream templateStream,
+                                OutputStream renderStream,
+                                Map<String, Object> emailParameters){
+        return compile(templateStream).render(renderStream, emailParameters);
+    }
 
     default RenderResult render(InputStream templateStream, OutputStream renderStream, EmailParameter[] emailParameters){
         var map = buildParameterMap(emailParameters);
@@ -2,7 +2,15 @@ package net.cycastic.portfoliotoolkit.service;
 
 import jakarta.validation.constraints.NotNull;
 
+import java.util.List;
+
 public interface EncryptionProvider {
     byte @NotNull [] encrypt(byte @NotNull [] unencryptedData);
     @NotNull String encrypt(@NotNull String plainText);
+
+    default @NotNull List<byte[]> encryptBatch(@NotNull List<byte[]> unencryptedData){
+        return unencryptedData.stream()
+                .map(this::encrypt)
+                .toList();
+    }
 }
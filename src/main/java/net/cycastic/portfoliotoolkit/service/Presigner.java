@@ -1,8 +1,23 @@
 package net.cycastic.portfoliotoolkit.service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface Presigner {
     String getSignature(String data, String algorithm);
 
+    /**
+     * Signs every entry of {@code data}, in order. Implementations override this when signing a batch is cheaper
+     * than signing its entries one by one.
+     */
+    default List<String> getSignatures(List<String> data, String algorithm){
+        var signatures = new ArrayList<String>(data.size());
+        for (var entry : data){
+            signatures.add(getSignature(entry, algorithm));
+        }
+        return signatures;
+    }
+
     boolean verifySignature(String data, String signature, String algorithm);
 
     String getDefaultAlgorithm();
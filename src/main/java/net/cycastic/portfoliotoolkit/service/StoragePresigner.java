@@ -1,5 +1,24 @@
 package net.cycastic.portfoliotoolkit.service;
 
+import java.util.List;
+
 public interface StoragePresigner {
-    String sign(String listingPath);
+    /**
+     * The project, user and origin that signed URLs are issued for. Captured up front when rendering happens
+     * outside the request that asked for it.
+     */
+    record Scope(int projectId, int userId, String backendOrigin){}
+
+    Scope getCurrentScope();
+
+    String sign(Scope scope, String listingPath);
+
+    /**
+     * Signs several listings of the same scope at once, in order, looking them up with a single query.
+     */
+    List<String> sign(Scope scope, List<String> listingPaths);
+
+    default String sign(String listingPath){
+        return sign(getCurrentScope(), listingPath);
+    }
 }
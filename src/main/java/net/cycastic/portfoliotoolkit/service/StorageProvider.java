@@ -2,15 +2,42 @@ package net.cycastic.portfoliotoolkit.service;
 
 import jakarta.validation.constraints.NotNull;
 import lombok.SneakyThrows;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.lang.Nullable;
 
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 public interface StorageProvider {
     interface BucketProvider {
-        @NotNull String generatePresignedUploadPath(@NotNull String fileKey, @NotNull String fileName, @NotNull OffsetDateTime expiration, long objectLength);
-        @NotNull String generatePresignedDownloadPath(@NotNull String fileKey, @NotNull String fileName, @NotNull OffsetDateTime expiration);
+        record DownloadObject(@NotNull String fileKey, @NotNull String fileName){}
+
+        /**
+         * @param sha256 Hex SHA-256 of the object, if the storage kept one for it
+         */
+        record ObjectMetadata(long size, @Nullable String sha256){}
+
+        /**
+         * @param sha256 Hex SHA-256 the uploaded content must match, or null to accept any content
+         */
+        @NotNull String generatePresignedUploadPath(@NotNull String fileKey, @NotNull String fileName, @NotNull OffsetDateTime expiration, long objectLength, @Nullable String sha256);
+        default @NotNull String generatePresignedUploadPath(@NotNull String fileKey, @NotNull String fileName, @NotNull OffsetDateTime expiration, long objectLength){
+            return generatePresignedUploadPath(fileKey, fileName, expiration, objectLength, null);
+        }
+        @NotNull String generatePresignedDownloadPath(@NotNull String fileKey, @NotNull String fileName, @Nullable String contentType, @NotNull OffsetDateTime expiration);
+        default @NotNull String generatePresignedDownloadPath(@NotNull String fileKey, @NotNull String fileName, @NotNull OffsetDateTime expiration){
+            return generatePresignedDownloadPath(fileKey, fileName, null, expiration);
+        }
+        default @NotNull List<String> generatePresignedDownloadPaths(@NotNull List<DownloadObject> objects, @NotNull OffsetDateTime expiration){
+            var urls = new ArrayList<String>(objects.size());
+            for (var object : objects){
+                urls.add(generatePresignedDownloadPath(object.fileKey(), object.fileName(), expiration));
+            }
+            return urls;
+        }
         @SneakyThrows
         default void downloadFile(@NotNull String fileKey, OutputStream stream){
             try (var responseStream = openDownloadStream(fileKey)){
@@ -18,8 +45,24 @@ public interface StorageProvider {
             }
         }
         InputStream openDownloadStream(@NotNull String fileKey);
+
+        /**
+         * Opens {@code length} bytes of the object from {@code offset}. The range must lie within the object.
+         */
+        @SneakyThrows
+        default InputStream openDownloadStream(@NotNull String fileKey, long offset, long length){
+            var stream = openDownloadStream(fileKey);
+            stream.skipNBytes(offset);
+            return BoundedInputStream.builder()
+                    .setInputStream(stream)
+                    .setMaxCount(length)
+                    .get();
+        }
         boolean exists(@NotNull String fileKey);
         long getObjectSize(@NotNull String fileKey);
+        default @NotNull ObjectMetadata getObjectMetadata(@NotNull String fileKey){
+            return new ObjectMetadata(getObjectSize(fileKey), null);
+        }
         void deleteFile(@NotNull String fileKey);
         void copyFile(@NotNull String sourceFileKey, @NotNull String destinationFileKey);
     }
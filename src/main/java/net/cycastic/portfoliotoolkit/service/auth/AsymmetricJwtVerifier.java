@@ -1,7 +1,7 @@
 package net.cycastic.portfoliotoolkit.service.auth;
 
-import net.cycastic.portfoliotoolkit.domain.dto.JwkDto;
+import net.cycastic.portfoliotoolkit.domain.dto.JwksDto;
 
 public interface AsymmetricJwtVerifier extends JwtVerifier {
-    JwkDto getJwk();
+    JwksDto getJwks();
 }
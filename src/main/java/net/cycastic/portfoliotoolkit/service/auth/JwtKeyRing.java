@@ -0,0 +1,23 @@
+package net.cycastic.portfoliotoolkit.service.auth;
+
+import jakarta.validation.constraints.Null;
+import lombok.NonNull;
+import net.cycastic.portfoliotoolkit.domain.dto.JwkDto;
+import net.cycastic.portfoliotoolkit.domain.dto.JwksDto;
+
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+
+public interface JwtKeyRing {
+    /**
+     * Resolves to the originally configured key, which signed every token issued before key IDs were stamped.
+     */
+    String LEGACY_KID = "legacy";
+
+    record JwtKey(String kid, ECPublicKey publicKey, @Null ECPrivateKey privateKey, JwkDto jwk){}
+
+    @NonNull JwtKey getSigningKey();
+    @Null JwtKey getKey(@NonNull String kid);
+    @NonNull JwksDto getJwks();
+    void rotate();
+}
@@ -4,6 +4,7 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import net.cycastic.portfoliotoolkit.configuration.CleanerConfigurations;
 import net.cycastic.portfoliotoolkit.domain.model.ListingType;
+import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentBlobRepository;
 import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentListingRepository;
 import net.cycastic.portfoliotoolkit.domain.repository.listing.ListingRepository;
 import net.cycastic.portfoliotoolkit.service.BackgroundCleaner;
@@ -16,9 +17,12 @@ import java.time.OffsetDateTime;
 @Component
 @RequiredArgsConstructor
 public class IncompleteUploadCleanup implements BackgroundCleaner {
+    private static final int BLOB_BATCH_SIZE = 1000;
+
     private final CleanerConfigurations cleanerConfigurations;
     private final AttachmentListingRepository attachmentListingRepository;
     private final ListingRepository listingRepository;
+    private final AttachmentBlobRepository attachmentBlobRepository;
 
     @Override
     @Transactional
@@ -26,5 +30,11 @@ public class IncompleteUploadCleanup implements BackgroundCleaner {
         var threshold = OffsetDateTime.now().minusSeconds(cleanerConfigurations.getIncompleteUploadTtlSeconds());
         attachmentListingRepository.removeByUploadCompletedAndListing_CreatedAtLessThan(false, threshold);
         listingRepository.removeByTypeAndAttachmentListing(ListingType.ATTACHMENT, null);
+        listingRepository.flush();
+        // Inline blobs of the uploads removed above, as well as those left behind by replayed upload URLs
+        int deleted;
+        do {
+            deleted = attachmentBlobRepository.deleteUnreferenced(threshold, BLOB_BATCH_SIZE);
+        } while (deleted == BLOB_BATCH_SIZE);
     }
 }
@@ -0,0 +1,44 @@
+package net.cycastic.portfoliotoolkit.service.cleaners;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.application.email.service.EmailQueueService;
+import net.cycastic.portfoliotoolkit.configuration.CleanerConfigurations;
+import net.cycastic.portfoliotoolkit.domain.model.OutboundEmailStatus;
+import net.cycastic.portfoliotoolkit.domain.repository.EmailImageBlobRepository;
+import net.cycastic.portfoliotoolkit.domain.repository.OutboundEmailRepository;
+import net.cycastic.portfoliotoolkit.service.BackgroundCleaner;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Deletes sent messages once they are past their retention, then the image blobs no message references anymore.
+ * Failed messages are kept for inspection.
+ */
+@Lazy
+@Component
+@RequiredArgsConstructor
+public class SentEmailCleanup implements BackgroundCleaner {
+    private static final int BATCH_SIZE = 1000;
+
+    private final CleanerConfigurations cleanerConfigurations;
+    private final OutboundEmailRepository outboundEmailRepository;
+    private final EmailImageBlobRepository emailImageBlobRepository;
+
+    @Override
+    @Transactional
+    public void clean() {
+        var threshold = OffsetDateTime.now().minusSeconds(cleanerConfigurations.getSentEmailRetentionSeconds());
+        int deleted;
+        do {
+            deleted = outboundEmailRepository.deleteByStatusBefore(OutboundEmailStatus.SENT.ordinal(), threshold, BATCH_SIZE);
+        } while (deleted == BATCH_SIZE);
+
+        var blobThreshold = OffsetDateTime.now().minus(EmailQueueService.IMAGE_BLOB_GRACE_PERIOD);
+        do {
+            deleted = emailImageBlobRepository.deleteUnreferenced(blobThreshold, BATCH_SIZE);
+        } while (deleted == BATCH_SIZE);
+    }
+}
@@ -0,0 +1,62 @@
+package net.cycastic.portfoliotoolkit.service.cleaners;
+
+import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.configuration.CleanerConfigurations;
+import net.cycastic.portfoliotoolkit.domain.model.listing.AttachmentObject;
+import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentObjectRepository;
+import net.cycastic.portfoliotoolkit.service.BackgroundCleaner;
+import net.cycastic.portfoliotoolkit.service.StorageProvider;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deletes content-addressed objects no attachment has pointed at for a while. Rows are deleted and committed first, so
+ * a failed batch never leaves a row behind whose object is gone. Each object is then only removed while no row tracks
+ * it again, since a concurrent upload of the same content may have stored it anew.
+ */
+@Lazy
+@Component
+@RequiredArgsConstructor
+public class UnreferencedObjectCleanup implements BackgroundCleaner {
+    private static final int BATCH_SIZE = 100;
+
+    private final CleanerConfigurations cleanerConfigurations;
+    private final AttachmentObjectRepository attachmentObjectRepository;
+    private final StorageProvider storageProvider;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void clean() {
+        var threshold = OffsetDateTime.now().minusSeconds(cleanerConfigurations.getUnreferencedObjectTtlSeconds());
+        int found;
+        do {
+            var deleted = new ArrayList<AttachmentObject>();
+            found = transactionTemplate.execute(status -> {
+                var objects = attachmentObjectRepository.findUnreferencedForUpdate(threshold, PageRequest.of(0, BATCH_SIZE));
+                for (var object : objects){
+                    if (attachmentObjectRepository.deleteUnreferenced(object.getBucketName(), object.getObjectKey()) == 1){
+                        deleted.add(object);
+                    }
+                }
+                return objects.size();
+            });
+            deleteFiles(deleted);
+        } while (found == BATCH_SIZE);
+    }
+
+    private void deleteFiles(List<AttachmentObject> objects){
+        for (var object : objects){
+            transactionTemplate.executeWithoutResult(status -> {
+                if (attachmentObjectRepository.countForUpdate(object.getBucketName(), object.getObjectKey()) == 0){
+                    storageProvider.getBucket(object.getBucketName()).deleteFile(object.getObjectKey());
+                }
+            });
+        }
+    }
+}
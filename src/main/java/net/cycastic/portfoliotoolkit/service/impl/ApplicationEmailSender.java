@@ -3,13 +3,18 @@ package net.cycastic.portfoliotoolkit.service.impl;
 import net.cycastic.portfoliotoolkit.configuration.mail.ApplicationEmailConfigurations;
 import net.cycastic.portfoliotoolkit.service.DecryptionProvider;
 import net.cycastic.portfoliotoolkit.service.EmailImage;
+import net.cycastic.portfoliotoolkit.service.EmailSender;
+import net.cycastic.portfoliotoolkit.service.EmailSenderResolver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.Nullable;
 
 import java.util.Map;
 
-public class ApplicationEmailSender extends EmailSenderImpl {
+public class ApplicationEmailSender extends EmailSenderImpl implements EmailSenderResolver {
+    public static final String SENDER_KEY = "application";
+    private static final String SENDER_NAME = "PortfolioToolkit";
+
     @Configuration
     public static class SenderConfiguration {
         @Bean
@@ -35,6 +40,15 @@ public class ApplicationEmailSender extends EmailSenderImpl {
     }
 
     public void sendHtml(String to, String cc, String subject, String htmlBody, @Nullable Map<String, EmailImage> imageStreamSource){
-        sendHtml(senderAddress, "PortfolioToolkit", to, cc, subject, htmlBody, imageStreamSource);
+        sendHtml(senderAddress, SENDER_NAME, to, cc, subject, htmlBody, imageStreamSource);
+    }
+
+    public Message createMessage(String to, @Nullable String cc, String subject, String htmlBody, @Nullable Map<String, EmailImage> imageStreamSource){
+        return new Message(senderAddress, SENDER_NAME, to, cc, subject, htmlBody, imageStreamSource);
+    }
+
+    @Override
+    public @Nullable EmailSender resolve(String senderKey) {
+        return SENDER_KEY.equals(senderKey) ? this : null;
     }
 }
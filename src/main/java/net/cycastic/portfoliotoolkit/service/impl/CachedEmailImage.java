@@ -0,0 +1,73 @@
+package net.cycastic.portfoliotoolkit.service.impl;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Part;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.PreencodedMimeBodyPart;
+import jakarta.mail.util.ByteArrayDataSource;
+import lombok.Getter;
+import net.cycastic.portfoliotoolkit.service.EmailImage;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+
+import java.util.Base64;
+
+/**
+ * An inline image held in memory and identified by the SHA-256 of its content. The content id is derived from the
+ * hash, so the same image gets the same {@code cid} in every render, and the base64 body is encoded once and shared
+ * by every message that embeds it.
+ */
+@Getter
+public class CachedEmailImage implements EmailImage {
+    private static final Base64.Encoder MIME_ENCODER = Base64.getMimeEncoder();
+
+    private final String hash;
+    private final String fileName;
+    private final String mimeType;
+    private final byte[] content;
+    private final String contentId;
+    private volatile byte[] encodedContent;
+
+    CachedEmailImage(String hash, String contentId, String mimeType, byte[] content){
+        this.hash = hash;
+        this.fileName = contentId;
+        this.mimeType = mimeType;
+        this.content = content;
+        this.contentId = contentId;
+    }
+
+    @Override
+    public InputStreamSource getImageSource() {
+        return new ByteArrayResource(content);
+    }
+
+    private byte[] getEncodedContent(){
+        var encoded = encodedContent;
+        if (encoded == null){
+            // Benign race: concurrent callers produce identical arrays
+            encoded = MIME_ENCODER.encode(content);
+            encodedContent = encoded;
+        }
+        return encoded;
+    }
+
+    /**
+     * Creates an inline body part backed by the shared, already encoded content. A part belongs to a single
+     * message, so a new one is needed per message, but it costs no further reads or encoding.
+     */
+    public MimeBodyPart createBodyPart(String contentId) throws MessagingException {
+        var part = new PreencodedMimeBodyPart("base64");
+        part.setDisposition(Part.INLINE);
+        part.setContentID("<" + contentId + ">");
+        part.setDataHandler(new DataHandler(new ByteArrayDataSource(getEncodedContent(), mimeType)));
+        return part;
+    }
+
+    /**
+     * Approximate retained size, counting the base64 copy that is created on first use.
+     */
+    long getWeight(){
+        return content.length + (content.length + 2L) / 3 * 4;
+    }
+}
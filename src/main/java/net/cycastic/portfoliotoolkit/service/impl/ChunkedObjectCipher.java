@@ -0,0 +1,321 @@
+package net.cycastic.portfoliotoolkit.service.impl;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.SneakyThrows;
+import net.cycastic.portfoliotoolkit.configuration.StorageEncryptionConfiguration;
+import net.cycastic.portfoliotoolkit.domain.CryptographicUtilities;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Streaming AES-256-GCM for stored objects. Content is cut into {@link #CHUNK_SIZE} chunks that are authenticated
+ * separately, so objects of any size go through in constant memory and a range read only decrypts the chunks it
+ * overlaps. Every object has its own key, derived from the master key and a random salt. A chunk's nonce is the
+ * object's random prefix, the chunk index and a flag set on the last chunk, so reordered or truncated content fails
+ * authentication.
+ * <p>
+ * Layout: {@link Header}, then each chunk's ciphertext followed by its tag. Empty content still has one, empty, chunk.
+ */
+public class ChunkedObjectCipher {
+    public static final int CHUNK_SIZE = 64 * 1024;
+    private static final byte VERSION = 1;
+    private static final int KEY_LENGTH = 32; // 256-bit
+    private static final int SALT_LENGTH = 16;
+    private static final int NONCE_PREFIX_LENGTH = 7;
+    private static final int NONCE_LENGTH = 12; // 96-bit
+    private static final int TAG_LENGTH = 16;
+    private static final int ENCRYPTED_CHUNK_SIZE = CHUNK_SIZE + TAG_LENGTH;
+    public static final int HEADER_LENGTH = 1 + SALT_LENGTH + NONCE_PREFIX_LENGTH;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final byte[] masterKey;
+
+    /**
+     * Ciphers waiting to be reused, each stream holds one for its whole lifetime. Pooled rather than kept in a
+     * {@link ThreadLocal} since uploads and downloads run on short-lived virtual threads.
+     */
+    private final ArrayBlockingQueue<Cipher> ciphers = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 2);
+
+    public record Header(byte @NotNull [] salt, byte @NotNull [] noncePrefix) {
+        public static Header generate(){
+            var salt = new byte[SALT_LENGTH];
+            var noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+            RANDOM.nextBytes(salt);
+            RANDOM.nextBytes(noncePrefix);
+            return new Header(salt, noncePrefix);
+        }
+
+        public static Header decode(byte @NotNull [] encoded){
+            if (encoded.length != HEADER_LENGTH || encoded[0] != VERSION){
+                throw new IllegalArgumentException("Unsupported encrypted object header");
+            }
+            return new Header(Arrays.copyOfRange(encoded, 1, 1 + SALT_LENGTH),
+                    Arrays.copyOfRange(encoded, 1 + SALT_LENGTH, HEADER_LENGTH));
+        }
+
+        public byte[] encode(){
+            var encoded = new byte[HEADER_LENGTH];
+            encoded[0] = VERSION;
+            System.arraycopy(salt, 0, encoded, 1, SALT_LENGTH);
+            System.arraycopy(noncePrefix, 0, encoded, 1 + SALT_LENGTH, NONCE_PREFIX_LENGTH);
+            return encoded;
+        }
+    }
+
+    /**
+     * Inclusive bounds of the encrypted bytes holding a plaintext range, header excluded.
+     */
+    public record EncryptedRange(long start, long end) {}
+
+    public ChunkedObjectCipher(StorageEncryptionConfiguration configuration){
+        masterKey = CryptographicUtilities.deriveKey(KEY_LENGTH, configuration.getIkm(), configuration.getSalt());
+    }
+
+    private static long getChunkCount(long plaintextLength){
+        return Math.max(1, Math.ceilDiv(plaintextLength, CHUNK_SIZE));
+    }
+
+    public static long getEncryptedLength(long plaintextLength){
+        return HEADER_LENGTH + plaintextLength + getChunkCount(plaintextLength) * TAG_LENGTH;
+    }
+
+    public static long getPlaintextLength(long encryptedLength){
+        var body = encryptedLength - HEADER_LENGTH;
+        var plaintextLength = body - Math.max(1, Math.ceilDiv(body, ENCRYPTED_CHUNK_SIZE)) * TAG_LENGTH;
+        if (plaintextLength < 0){
+            throw new IllegalArgumentException("Encrypted object is truncated");
+        }
+        return plaintextLength;
+    }
+
+    public static EncryptedRange getEncryptedRange(long offset, long length, long encryptedLength){
+        var firstChunk = offset / CHUNK_SIZE;
+        var lastChunk = (offset + length - 1) / CHUNK_SIZE;
+        return new EncryptedRange(HEADER_LENGTH + firstChunk * ENCRYPTED_CHUNK_SIZE,
+                Math.min(encryptedLength, HEADER_LENGTH + (lastChunk + 1) * ENCRYPTED_CHUNK_SIZE) - 1);
+    }
+
+    @SneakyThrows
+    private Cipher borrow(){
+        var cipher = ciphers.poll();
+        return cipher != null ? cipher : Cipher.getInstance("AES/GCM/NoPadding");
+    }
+
+    private SecretKeySpec getObjectKey(Header header){
+        return new SecretKeySpec(CryptographicUtilities.deriveKey(KEY_LENGTH, masterKey, header.salt()), "AES");
+    }
+
+    private static GCMParameterSpec getNonce(Header header, long chunkIndex, boolean last){
+        var nonce = new byte[NONCE_LENGTH];
+        System.arraycopy(header.noncePrefix(), 0, nonce, 0, NONCE_PREFIX_LENGTH);
+        nonce[7] = (byte) (chunkIndex >>> 24);
+        nonce[8] = (byte) (chunkIndex >>> 16);
+        nonce[9] = (byte) (chunkIndex >>> 8);
+        nonce[10] = (byte) chunkIndex;
+        nonce[11] = (byte) (last ? 1 : 0);
+        return new GCMParameterSpec(TAG_LENGTH * 8, nonce);
+    }
+
+    /**
+     * Chunk by chunk transformation, pulled by whoever reads the stream.
+     */
+    private abstract class ChunkedInputStream extends InputStream {
+        protected final InputStream source;
+        protected final Header header;
+        protected final SecretKeySpec key;
+        protected final Cipher cipher = borrow();
+        protected final byte[] output = new byte[ENCRYPTED_CHUNK_SIZE];
+        protected int outputPosition;
+        protected int outputLimit;
+        private boolean closed;
+
+        protected ChunkedInputStream(InputStream source, Header header){
+            this.source = source;
+            this.header = header;
+            this.key = getObjectKey(header);
+        }
+
+        /**
+         * Refills {@link #output}, returns false once there is nothing left.
+         */
+        protected abstract boolean nextChunk() throws IOException;
+
+        private boolean fill() throws IOException {
+            while (outputPosition == outputLimit){
+                if (!nextChunk()){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()){
+                return -1;
+            }
+            return output[outputPosition++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte @NotNull [] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0){
+                return 0;
+            }
+            if (!fill()){
+                return -1;
+            }
+
+            var read = Math.min(len, outputLimit - outputPosition);
+            System.arraycopy(output, outputPosition, b, off, read);
+            outputPosition += read;
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return outputLimit - outputPosition;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed){
+                return;
+            }
+
+            closed = true;
+            ciphers.offer(cipher);
+            source.close();
+        }
+    }
+
+    private class EncryptingInputStream extends ChunkedInputStream {
+        // One byte more than a chunk, to tell whether the chunk is the last one
+        private final byte[] input = new byte[CHUNK_SIZE + 1];
+        private int buffered;
+        private long chunkIndex;
+        private boolean headerWritten;
+        private boolean finished;
+
+        private EncryptingInputStream(InputStream source, Header header){
+            super(source, header);
+        }
+
+        @Override
+        protected boolean nextChunk() throws IOException {
+            if (!headerWritten){
+                headerWritten = true;
+                System.arraycopy(header.encode(), 0, output, 0, HEADER_LENGTH);
+                outputPosition = 0;
+                outputLimit = HEADER_LENGTH;
+                return true;
+            }
+            if (finished){
+                return false;
+            }
+
+            buffered += source.readNBytes(input, buffered, input.length - buffered);
+            var last = buffered <= CHUNK_SIZE;
+            var length = last ? buffered : CHUNK_SIZE;
+            try {
+                cipher.init(Cipher.ENCRYPT_MODE, key, getNonce(header, chunkIndex++, last));
+                outputLimit = cipher.doFinal(input, 0, length, output, 0);
+            } catch (GeneralSecurityException e){
+                throw new IOException("Failed to encrypt object", e);
+            }
+            outputPosition = 0;
+            if (last){
+                finished = true;
+            } else {
+                input[0] = input[CHUNK_SIZE];
+                buffered = 1;
+            }
+            return true;
+        }
+    }
+
+    private class DecryptingInputStream extends ChunkedInputStream {
+        private final byte[] input = new byte[ENCRYPTED_CHUNK_SIZE];
+        private final long lastChunk;
+        private final int lastChunkLength;
+        private final long endChunk;
+        private long chunkIndex;
+        private int skip;
+        private long remaining;
+
+        /**
+         * @param wholeObject Whether the source holds every chunk, in which case all of them are authenticated to
+         *                    detect truncation, including the empty last chunk of empty content
+         */
+        private DecryptingInputStream(InputStream source, Header header, long encryptedLength, long offset, long length, boolean wholeObject){
+            super(source, header);
+            var body = encryptedLength - HEADER_LENGTH;
+            this.lastChunk = Math.max(1, Math.ceilDiv(body, ENCRYPTED_CHUNK_SIZE)) - 1;
+            this.lastChunkLength = (int) (body - lastChunk * ENCRYPTED_CHUNK_SIZE);
+            this.endChunk = wholeObject ? lastChunk : (offset + length - 1) / CHUNK_SIZE;
+            this.chunkIndex = offset / CHUNK_SIZE;
+            this.skip = (int) (offset % CHUNK_SIZE);
+            this.remaining = length;
+        }
+
+        @Override
+        protected boolean nextChunk() throws IOException {
+            if (chunkIndex > endChunk){
+                return false;
+            }
+
+            var last = chunkIndex == lastChunk;
+            var length = last ? lastChunkLength : ENCRYPTED_CHUNK_SIZE;
+            if (source.readNBytes(input, 0, length) != length){
+                throw new IOException("Encrypted object is truncated");
+            }
+            int decrypted;
+            try {
+                cipher.init(Cipher.DECRYPT_MODE, key, getNonce(header, chunkIndex++, last));
+                decrypted = cipher.doFinal(input, 0, length, output, 0);
+            } catch (GeneralSecurityException e){
+                throw new IOException("Encrypted object is corrupted", e);
+            }
+            outputPosition = Math.min(skip, decrypted);
+            outputLimit = (int) Math.min(decrypted, outputPosition + remaining);
+            remaining -= outputLimit - outputPosition;
+            skip = 0;
+            return true;
+        }
+    }
+
+    /**
+     * Encrypts {@code plaintext} as it is read, header included.
+     */
+    public InputStream encrypt(@NotNull InputStream plaintext, @NotNull Header header){
+        return new EncryptingInputStream(plaintext, header);
+    }
+
+    /**
+     * Decrypts a whole object, starting with its header.
+     */
+    public InputStream decrypt(@NotNull InputStream encrypted, long encryptedLength) throws IOException {
+        if (encryptedLength < HEADER_LENGTH + TAG_LENGTH){
+            throw new IOException("Encrypted object is truncated");
+        }
+        var header = Header.decode(encrypted.readNBytes(HEADER_LENGTH));
+        return new DecryptingInputStream(encrypted, header, encryptedLength, 0, getPlaintextLength(encryptedLength), true);
+    }
+
+    /**
+     * Decrypts {@code length} bytes from {@code offset}, reading the chunks of {@link #getEncryptedRange}.
+     */
+    public InputStream decrypt(@NotNull InputStream chunks, @NotNull Header header, long encryptedLength, long offset, long length){
+        return new DecryptingInputStream(chunks, header, encryptedLength, offset, length, false);
+    }
+}
@@ -0,0 +1,82 @@
+package net.cycastic.portfoliotoolkit.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.SneakyThrows;
+import net.cycastic.portfoliotoolkit.configuration.CacheConfigurations;
+import net.cycastic.portfoliotoolkit.domain.CryptographicUtilities;
+import net.cycastic.portfoliotoolkit.service.EmailImage;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.FileNotFoundException;
+import java.util.Locale;
+
+/**
+ * Interns inline email images by content hash so that identical images are read, hashed and base64 encoded once
+ * and then shared by every message that embeds them.
+ */
+@Service
+public class EmailImageCache {
+    private final Cache<String, CachedEmailImage> images;
+    private final Cache<String, CachedEmailImage> resources;
+
+    @Autowired
+    public EmailImageCache(CacheConfigurations cacheConfigurations){
+        images = Caffeine.newBuilder()
+                .maximumWeight(cacheConfigurations.getEmailImageMaximumBytes())
+                .<String, CachedEmailImage>weigher((hash, image) -> (int) Math.min(Integer.MAX_VALUE, image.getWeight()))
+                .build();
+        resources = Caffeine.newBuilder()
+                .maximumSize(64)
+                .build();
+    }
+
+    private static String createContentId(String hash, String fileName){
+        var extension = FilenameUtils.getExtension(fileName).toLowerCase(Locale.ROOT);
+        return extension.isEmpty() ? hash : hash + "." + extension;
+    }
+
+    /**
+     * Returns the shared image for content whose hash is already known, e.g. when it was loaded from storage by hash.
+     */
+    public CachedEmailImage intern(String hash, String fileName, String mimeType, byte[] content){
+        return images.get(hash, h -> new CachedEmailImage(h, createContentId(h, fileName), mimeType, content));
+    }
+
+    public CachedEmailImage intern(String fileName, String mimeType, byte[] content){
+        return intern(CryptographicUtilities.sha256Hex(content), fileName, mimeType, content);
+    }
+
+    @SneakyThrows
+    public CachedEmailImage intern(EmailImage image){
+        if (image instanceof CachedEmailImage cached){
+            return cached;
+        }
+
+        byte[] content;
+        try (var stream = image.getImageSource().getInputStream()){
+            content = stream.readAllBytes();
+        }
+        return intern(image.getFileName(), image.getMimeType(), content);
+    }
+
+    /**
+     * Loads a classpath image once and keeps it for the lifetime of the application.
+     */
+    public CachedEmailImage getResource(String resourcePath, String mimeType){
+        return resources.get(resourcePath, path -> loadResource(path, mimeType));
+    }
+
+    @SneakyThrows
+    private CachedEmailImage loadResource(String resourcePath, String mimeType){
+        try (var stream = EmailImageCache.class.getClassLoader().getResourceAsStream(resourcePath)){
+            if (stream == null){
+                throw new FileNotFoundException("Image resource not found: " + resourcePath);
+            }
+
+            return intern(FilenameUtils.getName(resourcePath), mimeType, stream.readAllBytes());
+        }
+    }
+}
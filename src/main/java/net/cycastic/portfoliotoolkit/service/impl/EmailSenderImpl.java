@@ -1,25 +1,40 @@
 package net.cycastic.portfoliotoolkit.service.impl;
 
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
 import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
 import lombok.SneakyThrows;
 import net.cycastic.portfoliotoolkit.configuration.mail.MailSettings;
 import net.cycastic.portfoliotoolkit.service.EmailImage;
 import net.cycastic.portfoliotoolkit.service.EmailSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.lang.Nullable;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.javamail.MimeMessageHelper;
 
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class EmailSenderImpl implements EmailSender {
-    private final JavaMailSender sender;
+public class EmailSenderImpl implements EmailSender, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(EmailSenderImpl.class);
+
+    private final JavaMailSenderImpl sender;
+    private final boolean reuseConnection;
+    private final ReentrantLock transportLock = new ReentrantLock();
+    private @Nullable Transport transport;
+    private boolean closed;
 
     public EmailSenderImpl(MailSettings mailSettings){
         sender = createSender(mailSettings);
+        reuseConnection = mailSettings.isReuseConnection();
     }
 
-    private static JavaMailSender createSender(MailSettings mailSettings) {
+    private static JavaMailSenderImpl createSender(MailSettings mailSettings) {
         var sender = new JavaMailSenderImpl();
         sender.setHost(mailSettings.getHost());
         sender.setPort(mailSettings.getPort());
@@ -31,30 +46,170 @@ public class EmailSenderImpl implements EmailSender {
         props.put("mail.smtp.starttls.enable", String.valueOf(mailSettings.isStarttls()));
         props.put("mail.mime.charset", "UTF-8");
         props.put("mail.smtp.allowutf8", "true");
+        if (mailSettings.getTimeout() != null){
+            var timeout = String.valueOf(mailSettings.getTimeout());
+            props.put("mail.smtp.connectiontimeout", timeout);
+            props.put("mail.smtp.timeout", timeout);
+            props.put("mail.smtp.writetimeout", timeout);
+        }
 
         return sender;
     }
 
-    @Override
     @SneakyThrows
-    public void sendHtml(String fromAddress, String fromName, String to, String cc, String subject, String htmlBody, @Nullable Map<String, EmailImage> imageStreamSource) {
-        var message = sender.createMimeMessage();
-        var helper = new MimeMessageHelper(message, true, "UTF-8");
+    private MimeMessage createMessage(Message message){
+        var mimeMessage = sender.createMimeMessage();
+        var helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
 
-        helper.setFrom(new InternetAddress(fromAddress, fromName));
-        helper.setTo(to);
-        if (cc != null){
-            helper.setCc(cc);
+        helper.setFrom(new InternetAddress(message.fromAddress(), message.fromName()));
+        helper.setTo(message.to());
+        if (message.cc() != null){
+            helper.setCc(message.cc());
         }
-        helper.setSubject(subject);
-        helper.setText(htmlBody, true);
+        helper.setSubject(message.subject());
+        helper.setText(message.htmlBody(), true);
+
+        if (message.imageStreamSource() != null){
+            for (var entry : message.imageStreamSource().entrySet()){
+                if (entry.getValue() instanceof CachedEmailImage cachedImage){
+                    helper.getMimeMultipart().addBodyPart(cachedImage.createBodyPart(entry.getKey()));
+                    continue;
+                }
 
-        if (imageStreamSource != null){
-            for (var entry : imageStreamSource.entrySet()){
                 helper.addInline(entry.getKey(), entry.getValue().getImageSource(), entry.getValue().getMimeType());
             }
         }
 
-        sender.send(message);
+        return mimeMessage;
+    }
+
+    private Transport getConnectedTransport() throws MessagingException {
+        if (transport != null){
+            if (transport.isConnected()){
+                return transport;
+            }
+
+            closeTransport();
+        }
+
+        var newTransport = sender.getSession().getTransport(sender.getProtocol());
+        try {
+            newTransport.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+        } catch (jakarta.mail.AuthenticationFailedException e){
+            throw new MailAuthenticationException(e);
+        }
+        transport = newTransport;
+        return newTransport;
+    }
+
+    private void closeTransport(){
+        if (transport == null){
+            return;
+        }
+
+        try {
+            transport.close();
+        } catch (MessagingException e){
+            logger.debug("Failed to close SMTP transport", e);
+        }
+        transport = null;
+    }
+
+    /**
+     * Mirrors {@link JavaMailSenderImpl#send(MimeMessage...)}, but keeps the connection open for the next call.
+     */
+    private void sendOverSharedTransport(MimeMessage... messages){
+        transportLock.lock();
+        try {
+            var connectedTransport = getConnectedTransport();
+            Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+            for (var message : messages){
+                try {
+                    if (message.getSentDate() == null){
+                        message.setSentDate(new Date());
+                    }
+                    message.saveChanges();
+                    connectedTransport.sendMessage(message, message.getAllRecipients());
+                } catch (MessagingException e){
+                    failedMessages.put(message, e);
+                }
+            }
+            // A caller may still hold the sender after it was closed, nothing would close a connection opened then
+            if (closed || (!failedMessages.isEmpty() && !connectedTransport.isConnected())){
+                closeTransport();
+            }
+            if (!failedMessages.isEmpty()){
+                throw new MailSendException(failedMessages);
+            }
+        } catch (MessagingException e){
+            closeTransport();
+            throw new MailSendException("Mail server connection failed", e);
+        } finally {
+            transportLock.unlock();
+        }
+    }
+
+    private void send(MimeMessage... messages){
+        if (reuseConnection){
+            sendOverSharedTransport(messages);
+        } else {
+            sender.send(messages);
+        }
+    }
+
+    @Override
+    public void sendHtml(String fromAddress, String fromName, String to, String cc, String subject, String htmlBody, @Nullable Map<String, EmailImage> imageStreamSource) {
+        send(createMessage(new Message(fromAddress, fromName, to, cc, subject, htmlBody, imageStreamSource)));
+    }
+
+    @Override
+    public Map<Integer, Exception> sendBatch(List<Message> messages) {
+        var mimeMessages = new MimeMessage[messages.size()];
+        var failures = new HashMap<Integer, Exception>();
+        var indices = new IdentityHashMap<MimeMessage, Integer>();
+        for (int i = 0; i < mimeMessages.length; i++){
+            try {
+                mimeMessages[i] = createMessage(messages.get(i));
+                indices.put(mimeMessages[i], i);
+            } catch (Exception e){
+                failures.put(i, e);
+            }
+        }
+        if (indices.isEmpty()){
+            return failures;
+        }
+
+        try {
+            send(indices.keySet().toArray(MimeMessage[]::new));
+        } catch (MailSendException e){
+            if (e.getFailedMessages().isEmpty()){
+                indices.values().forEach(i -> failures.put(i, e));
+            }
+            for (var entry : e.getFailedMessages().entrySet()){
+                var index = indices.get(entry.getKey());
+                if (index != null){
+                    failures.put(index, entry.getValue());
+                }
+            }
+        } catch (MailException e){
+            // Connection or authentication failure, nothing was sent
+            indices.values().forEach(i -> failures.put(i, e));
+        }
+        return failures;
+    }
+
+    /**
+     * Closes the shared connection, waiting for a send in progress. The sender stays usable, but no longer keeps a
+     * connection open between sends.
+     */
+    @Override
+    public void close() {
+        transportLock.lock();
+        try {
+            closed = true;
+            closeTransport();
+        } finally {
+            transportLock.unlock();
+        }
     }
 }
@@ -0,0 +1,183 @@
+package net.cycastic.portfoliotoolkit.service.impl;
+
+import lombok.SneakyThrows;
+import net.cycastic.portfoliotoolkit.configuration.StorageEncryptionConfiguration;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import net.cycastic.portfoliotoolkit.service.StorageProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encrypts objects at rest with {@link ChunkedObjectCipher} once {@code application.storage.encryption} has a key.
+ * Clients cannot upload to or download from the bucket directly anymore, so presigned URLs point at
+ * {@code /api/storage/object}, which encrypts and decrypts on the fly. Objects stored before encryption was enabled
+ * carry no header metadata and are still read as plaintext.
+ */
+@Lazy
+@Component
+public class EncryptedStorageProvider implements StorageProvider {
+    public static final String OBJECT_PATH = "/api/storage/object";
+    private static final String HEADER_METADATA = "encryption-header";
+    private static final String SHA256_METADATA = "sha256";
+
+    private final ConcurrentHashMap<String, EncryptedBucketProvider> cachedProviders = new ConcurrentHashMap<>();
+    private final S3StorageProvider s3StorageProvider;
+    private final ObjectUrlSigner objectUrlSigner;
+    private final @Nullable ChunkedObjectCipher cipher;
+
+    @Autowired
+    public EncryptedStorageProvider(S3StorageProvider s3StorageProvider,
+                                    ObjectUrlSigner objectUrlSigner,
+                                    StorageEncryptionConfiguration storageEncryptionConfiguration){
+        this.s3StorageProvider = s3StorageProvider;
+        this.objectUrlSigner = objectUrlSigner;
+        this.cipher = storageEncryptionConfiguration.isValid() ? new ChunkedObjectCipher(storageEncryptionConfiguration) : null;
+    }
+
+    private static @Nullable ChunkedObjectCipher.Header getHeader(HeadObjectResponse response){
+        var header = response.metadata().get(HEADER_METADATA);
+        return header == null ? null : ChunkedObjectCipher.Header.decode(Base64.getDecoder().decode(header));
+    }
+
+    private class EncryptedBucketProvider implements BucketProvider {
+        private final String bucketName;
+        private final S3StorageProvider.S3BucketProvider delegate;
+        private final ChunkedObjectCipher cipher;
+
+        private EncryptedBucketProvider(String bucketName, S3StorageProvider.S3BucketProvider delegate, ChunkedObjectCipher cipher){
+            this.bucketName = bucketName;
+            this.delegate = delegate;
+            this.cipher = cipher;
+        }
+
+        @Override
+        public String generatePresignedUploadPath(String fileKey, String fileName, OffsetDateTime expiration, long objectLength, @Nullable String sha256) {
+            return objectUrlSigner.signUpload(OBJECT_PATH, bucketName, fileKey, expiration, objectLength, sha256);
+        }
+
+        @Override
+        public String generatePresignedDownloadPath(String fileKey, String fileName, @Nullable String contentType, OffsetDateTime expiration) {
+            return objectUrlSigner.signDownload(OBJECT_PATH, bucketName, fileKey, fileName, contentType, expiration);
+        }
+
+        @Override
+        public List<String> generatePresignedDownloadPaths(List<DownloadObject> objects, OffsetDateTime expiration) {
+            return objectUrlSigner.signDownloads(OBJECT_PATH, bucketName, objects, expiration);
+        }
+
+        @Override
+        @SneakyThrows
+        public InputStream openDownloadStream(String fileKey) {
+            var stream = delegate.getObject(fileKey, null);
+            if (!stream.response().metadata().containsKey(HEADER_METADATA)){
+                return stream;
+            }
+            return cipher.decrypt(stream, stream.response().contentLength());
+        }
+
+        @Override
+        public InputStream openDownloadStream(String fileKey, long offset, long length) {
+            var response = delegate.headObject(fileKey);
+            var header = getHeader(response);
+            if (header == null){
+                return delegate.openDownloadStream(fileKey, offset, length);
+            }
+            if (length == 0){
+                return InputStream.nullInputStream();
+            }
+
+            var encryptedLength = response.contentLength();
+            var range = ChunkedObjectCipher.getEncryptedRange(offset, length, encryptedLength);
+            var chunks = delegate.getObject(fileKey, "bytes=" + range.start() + "-" + range.end());
+            return cipher.decrypt(chunks, header, encryptedLength, offset, length);
+        }
+
+        @Override
+        public boolean exists(String fileKey) {
+            return delegate.exists(fileKey);
+        }
+
+        @Override
+        public long getObjectSize(String fileKey) {
+            return getObjectMetadata(fileKey).size();
+        }
+
+        @Override
+        public ObjectMetadata getObjectMetadata(String fileKey) {
+            var response = delegate.headObject(fileKey);
+            if (!response.metadata().containsKey(HEADER_METADATA)){
+                return new ObjectMetadata(response.contentLength(), S3StorageProvider.S3BucketProvider.toHex(response.checksumSHA256()));
+            }
+            return new ObjectMetadata(ChunkedObjectCipher.getPlaintextLength(response.contentLength()),
+                    response.metadata().get(SHA256_METADATA));
+        }
+
+        @Override
+        public void deleteFile(String fileKey) {
+            delegate.deleteFile(fileKey);
+        }
+
+        @Override
+        public void copyFile(String sourceFileKey, String destinationFileKey) {
+            // Keys are not bound to the ciphertext and the metadata is copied along, so the copy stays readable
+            delegate.copyFile(sourceFileKey, destinationFileKey);
+        }
+
+        private void upload(String fileKey, InputStream content, long length, @Nullable String sha256){
+            var header = ChunkedObjectCipher.Header.generate();
+            var metadata = new HashMap<String, String>();
+            metadata.put(HEADER_METADATA, Base64.getEncoder().encodeToString(header.encode()));
+            if (sha256 != null){
+                metadata.put(SHA256_METADATA, sha256);
+            }
+
+            var verified = new VerifiedContentStream(content, length, sha256);
+            try (var encrypted = cipher.encrypt(verified, header)){
+                delegate.putObject(fileKey, encrypted, ChunkedObjectCipher.getEncryptedLength(length), metadata);
+            } catch (RuntimeException e){
+                // The last chunk is held back when the content does not match, which fails the upload
+                if (verified.getFailure() != null){
+                    throw verified.getFailure();
+                }
+                throw e;
+            } catch (IOException e){
+                throw new RequestException(500, e, "Failed to upload object");
+            }
+        }
+    }
+
+    public boolean isEnabled(){
+        return cipher != null;
+    }
+
+    /**
+     * Encrypts {@code length} bytes of {@code content} into the bucket. The upload fails without leaving an object
+     * behind when the content is longer or shorter than declared, or does not match {@code sha256}.
+     */
+    public void upload(String bucketName, String fileKey, InputStream content, long length, @Nullable String sha256){
+        if (cipher == null){
+            throw new RequestException(404, "Storage encryption is not enabled");
+        }
+        ((EncryptedBucketProvider) getBucket(bucketName)).upload(fileKey, content, length, sha256);
+    }
+
+    @Override
+    public BucketProvider getBucket(String bucketName) {
+        if (cipher == null){
+            return s3StorageProvider.getBucket(bucketName);
+        }
+        return cachedProviders.computeIfAbsent(bucketName,
+                k -> new EncryptedBucketProvider(k, s3StorageProvider.getBucket(k), cipher));
+    }
+}
@@ -1,37 +1,201 @@
 package net.cycastic.portfoliotoolkit.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import freemarker.ext.beans.BeansWrapper;
 import freemarker.ext.beans.BeansWrapperBuilder;
+import freemarker.core.Environment;
 import freemarker.template.*;
-import lombok.RequiredArgsConstructor;
+import jakarta.validation.constraints.NotNull;
 import lombok.SneakyThrows;
+import net.cycastic.portfoliotoolkit.configuration.CacheUtilities;
+import net.cycastic.portfoliotoolkit.configuration.EmailTemplateConfigurations;
 import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
 import net.cycastic.portfoliotoolkit.service.EmailImage;
 import net.cycastic.portfoliotoolkit.service.EmailTemplateEngine;
 import net.cycastic.portfoliotoolkit.service.StoragePresigner;
-import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 import org.apache.commons.text.StringEscapeUtils;
 
 @Service
-@RequiredArgsConstructor
 public class FreemarkerEmailTemplateEngine implements EmailTemplateEngine {
+    private static final String SIGNING_SCOPE_ATTRIBUTE = "signingScope";
+    private static final String PENDING_IMAGES_ATTRIBUTE = "pendingImages";
+
     private final StoragePresigner storagePresigner;
+    private final EmailImageCache emailImageCache;
+    private final Configuration configuration;
+    private final Cache<Object, FreemarkerTemplate> templateCache;
+
+    @Autowired
+    public FreemarkerEmailTemplateEngine(StoragePresigner storagePresigner, EmailImageCache emailImageCache, EmailTemplateConfigurations emailTemplateConfigurations){
+        this.storagePresigner = storagePresigner;
+        this.emailImageCache = emailImageCache;
+        this.configuration = getBaseConfiguration();
+        this.templateCache = Caffeine.newBuilder()
+                .maximumSize(emailTemplateConfigurations.getTemplateCacheMaximumSize())
+                .build();
+    }
+
+    /**
+     * Images whose URLs are signed in a single batch once the template has been processed. Output streams straight
+     * through until the first image, only what follows it is buffered, with each image remembering where its tag goes.
+     */
+    private static class PendingImages extends Writer {
+        private final Writer target;
+        private @Nullable StringBuilder buffer;
+        private final List<String> paths = new ArrayList<>();
+        private final List<Integer> offsets = new ArrayList<>();
+        private final List<String> attributes = new ArrayList<>();
+
+        private PendingImages(Writer target){
+            this.target = target;
+        }
+
+        private boolean add(Environment environment, String path, String imageAttributes){
+            // Output captured by a nested block cannot be patched afterwards
+            if (environment.getOut() != this){
+                return false;
+            }
+            if (buffer == null){
+                buffer = new StringBuilder();
+            }
+
+            paths.add(path);
+            offsets.add(buffer.length());
+            attributes.add(imageAttributes);
+            return true;
+        }
+
+        private void complete(List<String> urls) throws IOException {
+            if (buffer == null){
+                return;
+            }
+
+            var written = 0;
+            for (var i = 0; i < urls.size(); i++){
+                int offset = offsets.get(i);
+                target.append(buffer, written, offset);
+                writeImage(target, urls.get(i), attributes.get(i));
+                written = offset;
+            }
+            target.append(buffer, written, buffer.length());
+        }
+
+        @Override
+        public void write(char @NotNull [] cbuf, int off, int len) throws IOException {
+            if (buffer == null){
+                target.write(cbuf, off, len);
+            } else {
+                buffer.append(cbuf, off, len);
+            }
+        }
+
+        @Override
+        public void write(@NotNull String str, int off, int len) throws IOException {
+            if (buffer == null){
+                target.write(str, off, len);
+            } else {
+                buffer.append(str, off, off + len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (buffer == null){
+                target.flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            // The render stream belongs to the caller
+        }
+    }
+
+    private class FreemarkerTemplate implements CompiledTemplate {
+        private final Template template;
+
+        private FreemarkerTemplate(Template template){
+            this.template = template;
+        }
+
+        @Override
+        @SneakyThrows
+        public RenderResult render(OutputStream renderStream, Map<String, Object> emailParameters, @Nullable StoragePresigner.Scope signingScope) {
+            var writer = new OutputStreamWriter(renderStream, StandardCharsets.UTF_8);
+            HashMap<String, EmailImage> images;
+            {
+                var newParams = new HashMap<String, Object>();
+                images = new HashMap<>();
+                for (var entry : emailParameters.entrySet()){
+                    if (entry.getValue() instanceof EmailImage emailImage){
+                        // Content ids are derived from the image hash, so repeated renders share the same parts
+                        var image = emailImageCache.intern(emailImage);
+                        newParams.put(entry.getKey(), "cid:" + image.getContentId());
+                        images.put(image.getContentId(), image);
+                        continue;
+                    }
+
+                    newParams.put(entry.getKey(), entry.getValue());
+                }
+
+                emailParameters = newParams;
+            }
+            var pendingImages = new PendingImages(writer);
+            var environment = template.createProcessingEnvironment(emailParameters, pendingImages);
+            if (signingScope != null){
+                environment.setCustomAttribute(SIGNING_SCOPE_ATTRIBUTE, signingScope);
+            }
+            environment.setCustomAttribute(PENDING_IMAGES_ATTRIBUTE, pendingImages);
+            environment.process();
+
+            pendingImages.complete(getPresignedUrls(signingScope, pendingImages.paths));
+            writer.flush();
+            return new RenderResult(images);
+        }
+    }
 
-    private static Configuration getBaseConfiguration(){
+    private Configuration getBaseConfiguration(){
         var cfg = new Configuration(Configuration.VERSION_2_3_31);
         cfg.setAPIBuiltinEnabled(false);
         var bwb = new BeansWrapperBuilder(Configuration.VERSION_2_3_31);
         bwb.setExposureLevel(BeansWrapper.EXPOSE_NOTHING);
         bwb.setUseModelCache(false);
         cfg.setObjectWrapper(bwb.build());
+        cfg.setSharedVariable("loadImage", (TemplateDirectiveModel) (environment, params, templateModels, templateDirectiveBody) -> {
+            var path = getStringParam(params, "path", true);
+            var alt = getStringParam(params, "alt", false);
+            var css = getStringParam(params, "class", false);
+            var style = getStringParam(params, "style", false);
+            var attributes = new StringBuilder();
+            if (alt != null) {
+                attributes.append(" alt=\"").append(escapeHtml(alt)).append("\"");
+            }
+            if (css != null) {
+                attributes.append(" class=\"").append(escapeHtml(css)).append("\"");
+            }
+            if (style != null) {
+                attributes.append(" style=\"").append(escapeHtml(style)).append("\"");
+            }
+
+            var pendingImages = (PendingImages) environment.getCustomAttribute(PENDING_IMAGES_ATTRIBUTE);
+            if (pendingImages == null || !pendingImages.add(environment, path, attributes.toString())){
+                var url = getPresignedUrl((StoragePresigner.Scope) environment.getCustomAttribute(SIGNING_SCOPE_ATTRIBUTE), path);
+                writeImage(environment.getOut(), url, attributes.toString());
+            }
+        });
         return cfg;
     }
 
@@ -51,63 +215,41 @@ public class FreemarkerEmailTemplateEngine implements EmailTemplateEngine {
         return StringEscapeUtils.escapeHtml4(s);
     }
 
-    private String getPresignedUrl(String path){
-        return storagePresigner.sign(path);
+    private static void writeImage(Writer writer, String url, String attributes) throws IOException {
+        writer.append("<img src=\"").append(url).append('"').append(attributes).append("/>");
     }
 
-    @Override
-    @SneakyThrows
-    public RenderResult render(InputStream templateStream, OutputStream renderStream, Map<String, Object> emailParameters) {
-        var cfg = getBaseConfiguration();
-        cfg.setSharedVariable("loadImage", (TemplateDirectiveModel) (environment, params, templateModels, templateDirectiveBody) -> {
-            var path = getStringParam(params, "path", true);
-            var alt = getStringParam(params, "alt", false);
-            var css = getStringParam(params, "class", false);
-            var style = getStringParam(params, "style", false);
-            var url = getPresignedUrl(path);
-            var img = new StringBuilder("<img src=\"")
-                    .append(url).append("\"");
-            if (alt != null) {
-                img.append(" alt=\"").append(escapeHtml(alt)).append("\"");
-            }
-            if (css != null) {
-                img.append(" class=\"").append(escapeHtml(css)).append("\"");
-            }
-            if (style != null) {
-                img.append(" style=\"").append(escapeHtml(style)).append("\"");
-            }
-            img.append("/>");
+    private String getPresignedUrl(@Nullable StoragePresigner.Scope scope, String path){
+        return scope == null ? storagePresigner.sign(path) : storagePresigner.sign(scope, path);
+    }
 
-            environment.getOut().write(img.toString());
-        });
+    private List<String> getPresignedUrls(@Nullable StoragePresigner.Scope scope, List<String> paths){
+        if (paths.isEmpty()){
+            return List.of();
+        }
+        return storagePresigner.sign(scope == null ? storagePresigner.getCurrentScope() : scope, paths);
+    }
 
+    @Override
+    @SneakyThrows
+    public CompiledTemplate compile(InputStream templateStream) {
         var reader = new InputStreamReader(templateStream, StandardCharsets.UTF_8);
-        Template template;
         try {
-            template = new Template("emailTemplate", reader, cfg);
+            return new FreemarkerTemplate(new Template("emailTemplate", reader, configuration));
         } catch (freemarker.core.ParseException e){
             throw new RequestException(400, e, "Email template contains syntax error");
         }
-        var writer = new OutputStreamWriter(renderStream);
-        HashMap<String, EmailImage> images;
-        {
-            var newParams = new HashMap<String, Object>();
-            images = new HashMap<>();
-            for (var entry : emailParameters.entrySet()){
-                if (entry.getValue() instanceof EmailImage emailImage){
-                    var fileExt = FilenameUtils.getExtension(emailImage.getFileName());
-                    var randomizedName = fileExt.isEmpty() ? UUID.randomUUID().toString() : String.format("%s.%s", UUID.randomUUID(), fileExt);
-                    newParams.put(entry.getKey(), "cid:" + randomizedName);
-                    images.put(randomizedName, emailImage);
-                    continue;
-                }
+    }
 
-                newParams.put(entry.getKey(), entry.getValue());
+    @Override
+    public CompiledTemplate getTemplate(Object key, InputStreamSource templateSource) {
+        // The source is usually read from object storage, which must not happen under the cache's bin lock
+        return CacheUtilities.getOrLoad(templateCache, key, k -> {
+            try (var templateStream = templateSource.getInputStream()){
+                return (FreemarkerTemplate) compile(templateStream);
+            } catch (IOException e){
+                throw new UncheckedIOException(e);
             }
-
-            emailParameters = newParams;
-        }
-        template.process(emailParameters, writer);
-        return new RenderResult(images);
+        });
     }
 }
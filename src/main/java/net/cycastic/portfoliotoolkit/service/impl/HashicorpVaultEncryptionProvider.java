@@ -1,7 +1,9 @@
 package net.cycastic.portfoliotoolkit.service.impl;
 
-import com.bettercloud.vault.Vault;
-import com.bettercloud.vault.VaultConfig;
+import com.bettercloud.vault.json.JsonArray;
+import com.bettercloud.vault.json.JsonObject;
+import com.bettercloud.vault.json.JsonValue;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.constraints.NotNull;
 import lombok.SneakyThrows;
 import net.cycastic.portfoliotoolkit.configuration.HashicorpVaultConfiguration;
@@ -13,23 +15,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Base64;
-import java.util.Collections;
-import java.util.Map;
+import java.util.*;
 
 public class HashicorpVaultEncryptionProvider extends HashicorpVaultService implements EncryptionProvider, DecryptionProvider {
     private static final Logger logger = LoggerFactory.getLogger(HashicorpVaultEncryptionProvider.class);
 
-    public HashicorpVaultEncryptionProvider(HashicorpVaultConfiguration configuration){
-        super(buildConfig(configuration), configuration.getEncryptionKeyName());
+    public HashicorpVaultEncryptionProvider(HashicorpVaultConfiguration configuration, MeterRegistry meterRegistry){
+        super(buildConfig(configuration), configuration.getEncryptionKeyName(), meterRegistry);
     }
 
     @SneakyThrows
     private @NotNull String encryptInternal(byte @NotNull [] unencryptedData){
         var base64 = Base64.getEncoder().encodeToString(unencryptedData);
         Map<String, Object> encryptData = Collections.singletonMap("plaintext", base64);
-        var encResp = vault.logical()
-                .write(String.format("transit/encrypt/%s", ApplicationUtilities.encodeURIComponent(keyName)), encryptData);
+        var encResp = write(VaultOperation.ENCRYPT, String.format("transit/encrypt/%s", ApplicationUtilities.encodeURIComponent(keyName)), encryptData);
         var cipherText = encResp.getData().get("ciphertext");
         if (cipherText == null){
             logger.error("Failed to encrypt password. Rest response: {}",
@@ -42,8 +41,7 @@ public class HashicorpVaultEncryptionProvider extends HashicorpVaultService impl
     @SneakyThrows
     private byte @NotNull [] decryptInternal(@NotNull String encryptedData){
         Map<String, Object> decryptData = Collections.singletonMap("ciphertext", encryptedData);
-        var decResp = vault.logical()
-                .write(String.format("transit/decrypt/%s", ApplicationUtilities.encodeURIComponent(keyName)), decryptData);
+        var decResp = write(VaultOperation.DECRYPT, String.format("transit/decrypt/%s", ApplicationUtilities.encodeURIComponent(keyName)), decryptData);
         var b64Decoded = decResp.getData().get("plaintext");
         if (b64Decoded == null){
             logger.error("Failed to decrypt password. Rest response: {}",
@@ -53,6 +51,65 @@ public class HashicorpVaultEncryptionProvider extends HashicorpVaultService impl
         return Base64.getDecoder().decode(b64Decoded);
     }
 
+    @SneakyThrows
+    private @NotNull JsonArray writeBatch(@NotNull String operation, @NotNull JsonArray batchInput){
+        Map<String, Object> batchData = Collections.singletonMap("batch_input", batchInput);
+        var vaultOperation = operation.equals("encrypt") ? VaultOperation.ENCRYPT_BATCH : VaultOperation.DECRYPT_BATCH;
+        var resp = write(vaultOperation, String.format("transit/%s/%s", operation, ApplicationUtilities.encodeURIComponent(keyName)), batchData);
+        var results = resp.getDataObject().get("batch_results");
+        if (results == null || !results.isArray() || results.asArray().size() != batchInput.size()){
+            logger.error("Failed to {} batch. Rest response: {}", operation,
+                    new String(resp.getRestResponse().getBody(), StandardCharsets.UTF_8));
+            throw new RequestException(500, "Failed to process batch");
+        }
+        return results.asArray();
+    }
+
+    private static @NotNull String getBatchItem(@NotNull JsonValue item, @NotNull String field){
+        var value = item.asObject().get(field);
+        if (value == null || !value.isString()){
+            logger.error("Batch item failed: {}", item.asObject().getString("error", "unknown error"));
+            throw new RequestException(500, "Failed to process batch");
+        }
+        return value.asString();
+    }
+
+    @Override
+    public @NotNull List<byte[]> encryptBatch(@NotNull List<byte[]> unencryptedData) {
+        if (unencryptedData.isEmpty()){
+            return List.of();
+        }
+
+        var batchInput = new JsonArray();
+        for (var data : unencryptedData){
+            batchInput.add(new JsonObject().add("plaintext", Base64.getEncoder().encodeToString(data)));
+        }
+        var results = writeBatch("encrypt", batchInput);
+        var cipherTexts = new ArrayList<byte[]>(results.size());
+        for (var item : results){
+            cipherTexts.add(getBatchItem(item, "ciphertext").getBytes(StandardCharsets.UTF_8));
+        }
+        return cipherTexts;
+    }
+
+    @Override
+    public @NotNull List<byte[]> decryptBatch(@NotNull List<byte[]> encryptedData) {
+        if (encryptedData.isEmpty()){
+            return List.of();
+        }
+
+        var batchInput = new JsonArray();
+        for (var data : encryptedData){
+            batchInput.add(new JsonObject().add("ciphertext", new String(data, StandardCharsets.UTF_8)));
+        }
+        var results = writeBatch("decrypt", batchInput);
+        var plainTexts = new ArrayList<byte[]>(results.size());
+        for (var item : results){
+            plainTexts.add(Base64.getDecoder().decode(getBatchItem(item, "plaintext")));
+        }
+        return plainTexts;
+    }
+
     @Override
     public byte @NotNull [] encrypt(byte @NotNull [] unencryptedData) {
         return encryptInternal(unencryptedData).getBytes(StandardCharsets.UTF_8);
@@ -1,62 +1,302 @@
 package net.cycastic.portfoliotoolkit.service.impl;
 
+import com.bettercloud.vault.json.JsonArray;
+import com.bettercloud.vault.json.JsonObject;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.transaction.NotSupportedException;
+import jakarta.validation.constraints.Null;
 import lombok.SneakyThrows;
 import net.cycastic.portfoliotoolkit.configuration.HashicorpVaultConfiguration;
 import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
 import net.cycastic.portfoliotoolkit.service.Presigner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
-import java.util.Base64;
-import java.util.HashMap;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Component
 public class HashicorpVaultPresigner extends HashicorpVaultService implements Presigner {
+    private static final Logger logger = LoggerFactory.getLogger(HashicorpVaultPresigner.class);
     private static final String VAULT_ALGORITHM_PREFIX = "vault-";
     private static final String DEFAULT_ALGORITHM = "sha2-384";
+    private static final String SIGNATURE_PREFIX = "vault:v";
+    private static final long MIN_FORCED_REFRESH_MILLIS = 10_000;
 
-    public HashicorpVaultPresigner(HashicorpVaultConfiguration configuration){
-        super(buildConfig(configuration), configuration.getPresignKeyName());
+    /**
+     * Exported HMAC keys of the transit key, by key version. The macs are initialized once and cloned per call,
+     * which is cheaper than initializing a fresh instance and safe to share between threads.
+     */
+    private record LocalKeys(int latestVersion, Map<Integer, SecretKeySpec> keys, Map<String, Mac> prototypes, long fetchedAt){}
+
+    private final boolean localHmac;
+    private final long keyRefreshMillis;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile LocalKeys localKeys;
+
+    public HashicorpVaultPresigner(HashicorpVaultConfiguration configuration, MeterRegistry meterRegistry){
+        super(buildConfig(configuration), configuration.getPresignKeyName(), meterRegistry);
+        localHmac = configuration.isPresignLocalHmac();
+        keyRefreshMillis = configuration.getPresignKeyRefreshSeconds() * 1000;
+    }
+
+    private static String getJcaAlgorithm(String algorithm){
+        return switch (algorithm) {
+            case "sha2-224" -> "HmacSHA224";
+            case "sha2-256" -> "HmacSHA256";
+            case "sha2-384" -> "HmacSHA384";
+            case "sha2-512" -> "HmacSHA512";
+            case "sha3-224" -> "HmacSHA3-224";
+            case "sha3-256" -> "HmacSHA3-256";
+            case "sha3-384" -> "HmacSHA3-384";
+            case "sha3-512" -> "HmacSHA3-512";
+            default -> throw new RequestException(400, String.format("Unsupported presign algorithm: %s", algorithm));
+        };
     }
 
-    @Override
     @SneakyThrows
-    public String getSignature(String data, String algorithm) {
+    private static String stripPrefix(String algorithm){
         if (!algorithm.startsWith(VAULT_ALGORITHM_PREFIX)){
             throw new NotSupportedException(String.format("Unsupported presign algorithm: %s", algorithm));
         }
 
-        algorithm = algorithm.substring(VAULT_ALGORITHM_PREFIX.length());
+        return algorithm.substring(VAULT_ALGORITHM_PREFIX.length());
+    }
+
+    @SneakyThrows
+    private LocalKeys fetchLocalKeys(){
+        // Requires the transit key to be exportable; the HMAC key is what Vault itself uses for transit/hmac
+        var response = read(VaultOperation.EXPORT_KEY, String.format("transit/export/hmac-key/%s", ApplicationUtilities.encodeURIComponent(keyName)));
+        var exported = response.getDataObject().get("keys");
+        if (exported == null || !exported.isObject()){
+            logger.error("Failed to export HMAC key. Rest response: {}",
+                    new String(response.getRestResponse().getBody(), StandardCharsets.UTF_8));
+            throw new RequestException(500, "Failed to export HMAC key");
+        }
+
+        var latestVersion = 0;
+        var keys = new HashMap<Integer, SecretKeySpec>();
+        for (var member : exported.asObject()){
+            var version = Integer.parseInt(member.getName());
+            var material = Base64.getDecoder().decode(member.getValue().asString());
+            keys.put(version, new SecretKeySpec(material, "HMAC"));
+            latestVersion = Math.max(latestVersion, version);
+        }
+        return new LocalKeys(latestVersion, Map.copyOf(keys), new ConcurrentHashMap<>(), System.currentTimeMillis());
+    }
 
+    private void refreshLocalKeys(){
+        refreshLock.lock();
+        try {
+            localKeys = fetchLocalKeys();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Exports the keys again when a signature names a version newer than {@code seen}, at most once every
+     * {@link #MIN_FORCED_REFRESH_MILLIS} so that forged versions cannot be used to flood Vault.
+     */
+    private LocalKeys refreshLocalKeys(LocalKeys seen){
+        refreshLock.lock();
+        try {
+            var keys = localKeys;
+            if (keys != seen || System.currentTimeMillis() - seen.fetchedAt() < MIN_FORCED_REFRESH_MILLIS){
+                return keys;
+            }
+
+            localKeys = fetchLocalKeys();
+            return localKeys;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private LocalKeys getLocalKeys(){
+        var keys = localKeys;
+        if (keys == null){
+            refreshLock.lock();
+            try {
+                if (localKeys == null){
+                    localKeys = fetchLocalKeys();
+                }
+                return localKeys;
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+
+        // Stale keys keep serving while a single background refresh is in flight
+        if (System.currentTimeMillis() - keys.fetchedAt() > keyRefreshMillis && refreshing.compareAndSet(false, true)){
+            CompletableFuture.runAsync(this::refreshLocalKeys)
+                    .whenComplete((v, e) -> {
+                        refreshing.set(false);
+                        if (e != null){
+                            logger.error("Failed to refresh HMAC key", e);
+                        }
+                    });
+        }
+        return keys;
+    }
+
+    @SneakyThrows
+    private static Mac getMac(LocalKeys keys, int version, String jcaAlgorithm){
+        var prototype = keys.prototypes().computeIfAbsent(jcaAlgorithm + ':' + version, ignored -> {
+            try {
+                var mac = Mac.getInstance(jcaAlgorithm);
+                mac.init(keys.keys().get(version));
+                return mac;
+            } catch (Exception e){
+                throw new IllegalStateException(e);
+            }
+        });
+        return (Mac) prototype.clone();
+    }
+
+    private static byte[] computeLocal(LocalKeys keys, int version, String algorithm, String data){
+        var mac = getMac(keys, version, getJcaAlgorithm(algorithm));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String formatLocal(int version, byte[] hmac){
+        return SIGNATURE_PREFIX + version + ':' + Base64.getEncoder().encodeToString(hmac);
+    }
+
+    @SneakyThrows
+    private String getRemoteSignature(String data, String algorithm) {
         var base64Data = Base64.getEncoder().encodeToString(data.getBytes(StandardCharsets.UTF_8));
         HashMap<String, Object> signData = HashMap.newHashMap(2);
         signData.put("algorithm", algorithm);
         signData.put("input", base64Data);
-        var encResp = vault.logical()
-                .write(String.format("transit/hmac/%s", ApplicationUtilities.encodeURIComponent(keyName)), signData);
+        var encResp = write(VaultOperation.HMAC, String.format("transit/hmac/%s", ApplicationUtilities.encodeURIComponent(keyName)), signData);
         return encResp.getData().get("hmac");
     }
 
-    @Override
     @SneakyThrows
-    public boolean verifySignature(String data, String signature, String algorithm) {
-        if (!algorithm.startsWith(VAULT_ALGORITHM_PREFIX)){
-            throw new NotSupportedException(String.format("Unsupported presign algorithm: %s", algorithm));
+    private List<String> getRemoteSignatures(List<String> data, String algorithm) {
+        var batchInput = new JsonArray();
+        for (var entry : data){
+            batchInput.add(new JsonObject().add("input", Base64.getEncoder().encodeToString(entry.getBytes(StandardCharsets.UTF_8))));
+        }
+        HashMap<String, Object> signData = HashMap.newHashMap(2);
+        signData.put("algorithm", algorithm);
+        signData.put("batch_input", batchInput);
+        var resp = write(VaultOperation.HMAC_BATCH, String.format("transit/hmac/%s", ApplicationUtilities.encodeURIComponent(keyName)), signData);
+        var results = resp.getDataObject().get("batch_results");
+        if (results == null || !results.isArray() || results.asArray().size() != data.size()){
+            logger.error("Failed to sign batch. Rest response: {}",
+                    new String(resp.getRestResponse().getBody(), StandardCharsets.UTF_8));
+            throw new RequestException(500, "Failed to process batch");
         }
 
-        algorithm = algorithm.substring(VAULT_ALGORITHM_PREFIX.length());
+        var signatures = new ArrayList<String>(data.size());
+        for (var item : results.asArray()){
+            var hmac = item.asObject().get("hmac");
+            if (hmac == null || !hmac.isString()){
+                logger.error("Batch item failed: {}", item.asObject().getString("error", "unknown error"));
+                throw new RequestException(500, "Failed to process batch");
+            }
+            signatures.add(hmac.asString());
+        }
+        return signatures;
+    }
 
+    @SneakyThrows
+    private boolean verifyRemoteSignature(String data, String signature, String algorithm) {
         var base64Data = Base64.getEncoder().encodeToString(data.getBytes(StandardCharsets.UTF_8));
         HashMap<String, Object> verifyData = HashMap.newHashMap(3);
         verifyData.put("algorithm", algorithm);
         verifyData.put("input", base64Data);
         verifyData.put("hmac", signature);
-        var encResp = vault.logical()
-                .write(String.format("transit/verify/%s", ApplicationUtilities.encodeURIComponent(keyName)), verifyData);
+        var encResp = write(VaultOperation.VERIFY, String.format("transit/verify/%s", ApplicationUtilities.encodeURIComponent(keyName)), verifyData);
         return Boolean.parseBoolean(encResp.getData().get("valid"));
     }
 
+    private static @Null Integer parseVersion(String signature){
+        if (!signature.startsWith(SIGNATURE_PREFIX)){
+            return null;
+        }
+        var separator = signature.indexOf(':', SIGNATURE_PREFIX.length());
+        if (separator < 0){
+            return null;
+        }
+        return ApplicationUtilities.tryParseInt(signature.substring(SIGNATURE_PREFIX.length(), separator))
+                .orElse(null);
+    }
+
+    @Override
+    public String getSignature(String data, String algorithm) {
+        algorithm = stripPrefix(algorithm);
+        if (!localHmac){
+            return getRemoteSignature(data, algorithm);
+        }
+
+        var keys = getLocalKeys();
+        return formatLocal(keys.latestVersion(), computeLocal(keys, keys.latestVersion(), algorithm, data));
+    }
+
+    @Override
+    public List<String> getSignatures(List<String> data, String algorithm) {
+        algorithm = stripPrefix(algorithm);
+        if (data.isEmpty()){
+            return List.of();
+        }
+        if (!localHmac){
+            return getRemoteSignatures(data, algorithm);
+        }
+
+        var keys = getLocalKeys();
+        var mac = getMac(keys, keys.latestVersion(), getJcaAlgorithm(algorithm));
+        var signatures = new ArrayList<String>(data.size());
+        for (var entry : data){
+            signatures.add(formatLocal(keys.latestVersion(), mac.doFinal(entry.getBytes(StandardCharsets.UTF_8))));
+        }
+        return signatures;
+    }
+
+    @Override
+    public boolean verifySignature(String data, String signature, String algorithm) {
+        algorithm = stripPrefix(algorithm);
+        if (!localHmac){
+            return verifyRemoteSignature(data, signature, algorithm);
+        }
+
+        var version = parseVersion(signature);
+        if (version == null){
+            return false;
+        }
+        var keys = getLocalKeys();
+        if (!keys.keys().containsKey(version)){
+            // Only a version rotated in after the last export is worth another export, older ones were trimmed
+            if (version <= keys.latestVersion()){
+                return false;
+            }
+            keys = refreshLocalKeys(keys);
+            if (!keys.keys().containsKey(version)){
+                return false;
+            }
+        }
+
+        byte[] provided;
+        try {
+            provided = Base64.getDecoder().decode(signature.substring(signature.indexOf(':', SIGNATURE_PREFIX.length()) + 1));
+        } catch (IllegalArgumentException e){
+            return false;
+        }
+        return MessageDigest.isEqual(computeLocal(keys, version, algorithm, data), provided);
+    }
+
     @Override
     public String getDefaultAlgorithm() {
         return VAULT_ALGORITHM_PREFIX + DEFAULT_ALGORITHM;
@@ -2,16 +2,34 @@ package net.cycastic.portfoliotoolkit.service.impl;
 
 import com.bettercloud.vault.Vault;
 import com.bettercloud.vault.VaultConfig;
+import com.bettercloud.vault.VaultException;
+import com.bettercloud.vault.response.LogicalResponse;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.SneakyThrows;
 import net.cycastic.portfoliotoolkit.configuration.HashicorpVaultConfiguration;
 
+import java.util.Map;
+
 public abstract class HashicorpVaultService {
+    protected enum VaultOperation {
+        ENCRYPT,
+        DECRYPT,
+        ENCRYPT_BATCH,
+        DECRYPT_BATCH,
+        HMAC,
+        HMAC_BATCH,
+        VERIFY,
+        EXPORT_KEY,
+    }
+
     protected final Vault vault;
     protected final String keyName;
+    private final OperationTimers<VaultOperation> timers;
 
-    protected HashicorpVaultService(VaultConfig vaultConfig, String keyName){
+    protected HashicorpVaultService(VaultConfig vaultConfig, String keyName, MeterRegistry meterRegistry){
         this.vault = new Vault(vaultConfig);
         this.keyName = keyName;
+        this.timers = new OperationTimers<>(meterRegistry, "vault.requests", "Round trips to Hashicorp Vault", VaultOperation.class);
     }
 
     @SneakyThrows
@@ -22,4 +40,22 @@ public abstract class HashicorpVaultService {
                 .engineVersion(configuration.getApiVersion())
                 .build();
     }
+
+    protected LogicalResponse read(VaultOperation operation, String path) throws VaultException {
+        var start = System.nanoTime();
+        try {
+            return vault.logical().read(path);
+        } finally {
+            timers.record(operation, start);
+        }
+    }
+
+    protected LogicalResponse write(VaultOperation operation, String path, Map<String, Object> data) throws VaultException {
+        var start = System.nanoTime();
+        try {
+            return vault.logical().write(path, data);
+        } finally {
+            timers.record(operation, start);
+        }
+    }
 }
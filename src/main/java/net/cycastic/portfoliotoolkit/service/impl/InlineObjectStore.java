@@ -0,0 +1,166 @@
+package net.cycastic.portfoliotoolkit.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import net.cycastic.portfoliotoolkit.configuration.CacheConfigurations;
+import net.cycastic.portfoliotoolkit.configuration.StorageConfigurations;
+import net.cycastic.portfoliotoolkit.configuration.StorageEncryptionConfiguration;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentBlobRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Objects kept in the {@code attachment_blobs} table, with a bounded in-memory copy of recently read content. Writes
+ * only invalidate the copy of this instance, others keep serving theirs until it expires.
+ * <p>
+ * Content is encrypted with {@link ChunkedObjectCipher} like bucket objects once storage encryption has a key, and
+ * only the in-memory copy holds plaintext. Rows written before that are flagged as plaintext and still readable.
+ */
+@Lazy
+@Service
+public class InlineObjectStore {
+    private record ObjectRef(String bucketName, String objectKey){}
+
+    private final AttachmentBlobRepository attachmentBlobRepository;
+    private final @Nullable ChunkedObjectCipher cipher;
+    private final long thresholdBytes;
+    private final Cache<ObjectRef, byte[]> contents;
+    private volatile boolean hasObjects;
+
+    @Autowired
+    public InlineObjectStore(AttachmentBlobRepository attachmentBlobRepository,
+                             StorageConfigurations storageConfigurations,
+                             StorageEncryptionConfiguration storageEncryptionConfiguration,
+                             CacheConfigurations cacheConfigurations){
+        this.attachmentBlobRepository = attachmentBlobRepository;
+        this.cipher = storageEncryptionConfiguration.isValid() ? new ChunkedObjectCipher(storageEncryptionConfiguration) : null;
+        this.thresholdBytes = storageConfigurations.getInlineThresholdBytes();
+        this.contents = Caffeine.newBuilder()
+                .maximumWeight(cacheConfigurations.getInlineObjectMaximumBytes())
+                .<ObjectRef, byte[]>weigher((ref, content) -> content.length)
+                .expireAfterWrite(Duration.ofSeconds(cacheConfigurations.getInlineObjectTtlSeconds()))
+                .build();
+        // Objects stored while inlining was enabled stay readable after it is turned off
+        this.hasObjects = thresholdBytes > 0 || attachmentBlobRepository.existsAny() != 0;
+    }
+
+    private byte[] encrypt(byte[] content){
+        try (var encrypted = cipher.encrypt(new ByteArrayInputStream(content), ChunkedObjectCipher.Header.generate())){
+            return encrypted.readAllBytes();
+        } catch (IOException e){
+            throw new RequestException(500, e, "Failed to encrypt object");
+        }
+    }
+
+    private byte[] decrypt(byte[] content){
+        if (cipher == null){
+            throw new RequestException(500, "Object is encrypted but storage encryption is not configured");
+        }
+        try (var decrypted = cipher.decrypt(new ByteArrayInputStream(content), content.length)){
+            return decrypted.readAllBytes();
+        } catch (IOException | IllegalArgumentException e){
+            throw new RequestException(500, e, "Failed to decrypt object");
+        }
+    }
+
+    public boolean accepts(long objectLength){
+        return thresholdBytes > 0 && objectLength <= thresholdBytes;
+    }
+
+    public Optional<byte[]> find(String bucketName, String objectKey){
+        if (!hasObjects){
+            return Optional.empty();
+        }
+
+        var ref = new ObjectRef(bucketName, objectKey);
+        var cached = contents.getIfPresent(ref);
+        if (cached != null){
+            return Optional.of(cached);
+        }
+
+        var content = attachmentBlobRepository.findContent(bucketName, objectKey)
+                .map(c -> c.isEncrypted() ? decrypt(c.getContent()) : c.getContent());
+        content.ifPresent(c -> contents.put(ref, c));
+        return content;
+    }
+
+    public OptionalLong getSize(String bucketName, String objectKey){
+        if (!hasObjects){
+            return OptionalLong.empty();
+        }
+
+        var cached = contents.getIfPresent(new ObjectRef(bucketName, objectKey));
+        if (cached != null){
+            return OptionalLong.of(cached.length);
+        }
+        return attachmentBlobRepository.findContentLength(bucketName, objectKey)
+                .map(l -> OptionalLong.of(l.isEncrypted() ? ChunkedObjectCipher.getPlaintextLength(l.getLength()) : l.getLength()))
+                .orElseGet(OptionalLong::empty);
+    }
+
+    /**
+     * Returns which of {@code objectKeys} are stored inline, with a single query.
+     */
+    public Set<String> findObjectKeys(String bucketName, Collection<String> objectKeys){
+        if (!hasObjects || objectKeys.isEmpty()){
+            return Set.of();
+        }
+        return new HashSet<>(attachmentBlobRepository.findObjectKeys(bucketName, objectKeys));
+    }
+
+    public void store(String bucketName, String objectKey, byte[] content){
+        hasObjects = true;
+        if (cipher == null){
+            attachmentBlobRepository.upsert(bucketName, objectKey, content, false, OffsetDateTime.now());
+        } else {
+            attachmentBlobRepository.upsert(bucketName, objectKey, encrypt(content), true, OffsetDateTime.now());
+        }
+        invalidate(new ObjectRef(bucketName, objectKey));
+    }
+
+    public boolean copy(String bucketName, String sourceKey, String destinationKey){
+        var content = find(bucketName, sourceKey);
+        if (content.isEmpty()){
+            return false;
+        }
+
+        store(bucketName, destinationKey, content.get());
+        return true;
+    }
+
+    public boolean delete(String bucketName, String objectKey){
+        if (!hasObjects){
+            return false;
+        }
+
+        var deleted = attachmentBlobRepository.deleteObject(bucketName, objectKey) > 0;
+        invalidate(new ObjectRef(bucketName, objectKey));
+        return deleted;
+    }
+
+    private void invalidate(ObjectRef ref){
+        contents.invalidate(ref);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()){
+            return;
+        }
+
+        // A concurrent reader may cache the old content before the transaction commits
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                contents.invalidate(ref);
+            }
+        });
+    }
+}
@@ -0,0 +1,140 @@
+package net.cycastic.portfoliotoolkit.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.domain.CryptographicUtilities;
+import net.cycastic.portfoliotoolkit.service.StorageProvider;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps objects below the inline threshold in the database and hands everything else to the bucket. Presigned URLs of
+ * inline objects point at {@code /api/storage/inline} instead of the bucket, so callers cannot tell the two apart.
+ */
+@Lazy
+@Primary
+@Component
+@RequiredArgsConstructor
+public class InlineStorageProvider implements StorageProvider {
+    public static final String INLINE_PATH = "/api/storage/inline";
+
+    private final ConcurrentHashMap<String, InlineBucketProvider> cachedProviders = new ConcurrentHashMap<>();
+    private final EncryptedStorageProvider encryptedStorageProvider;
+    private final InlineObjectStore inlineObjectStore;
+    private final ObjectUrlSigner objectUrlSigner;
+
+    @RequiredArgsConstructor
+    private class InlineBucketProvider implements BucketProvider {
+        private final String bucketName;
+        private final BucketProvider delegate;
+
+        @Override
+        public String generatePresignedUploadPath(String fileKey, String fileName, OffsetDateTime expiration, long objectLength, @Nullable String sha256) {
+            if (!inlineObjectStore.accepts(objectLength)){
+                // The key may have been inline before, the new content goes to the bucket
+                inlineObjectStore.delete(bucketName, fileKey);
+                return delegate.generatePresignedUploadPath(fileKey, fileName, expiration, objectLength, sha256);
+            }
+
+            return objectUrlSigner.signUpload(INLINE_PATH, bucketName, fileKey, expiration, objectLength, sha256);
+        }
+
+        @Override
+        public String generatePresignedDownloadPath(String fileKey, String fileName, @Nullable String contentType, OffsetDateTime expiration) {
+            if (inlineObjectStore.getSize(bucketName, fileKey).isPresent()){
+                return objectUrlSigner.signDownload(INLINE_PATH, bucketName, fileKey, fileName, contentType, expiration);
+            }
+            return delegate.generatePresignedDownloadPath(fileKey, fileName, contentType, expiration);
+        }
+
+        @Override
+        public List<String> generatePresignedDownloadPaths(List<DownloadObject> objects, OffsetDateTime expiration) {
+            var inlineKeys = inlineObjectStore.findObjectKeys(bucketName, objects.stream().map(DownloadObject::fileKey).toList());
+            if (inlineKeys.isEmpty()){
+                return delegate.generatePresignedDownloadPaths(objects, expiration);
+            }
+
+            var inline = new ArrayList<DownloadObject>(inlineKeys.size());
+            var stored = new ArrayList<DownloadObject>(objects.size());
+            for (var object : objects){
+                (inlineKeys.contains(object.fileKey()) ? inline : stored).add(object);
+            }
+            var inlineUrls = objectUrlSigner.signDownloads(INLINE_PATH, bucketName, inline, expiration).iterator();
+            var storedUrls = delegate.generatePresignedDownloadPaths(stored, expiration).iterator();
+            var urls = new ArrayList<String>(objects.size());
+            for (var object : objects){
+                urls.add(inlineKeys.contains(object.fileKey()) ? inlineUrls.next() : storedUrls.next());
+            }
+            return urls;
+        }
+
+        @Override
+        public InputStream openDownloadStream(String fileKey) {
+            var content = inlineObjectStore.find(bucketName, fileKey);
+            if (content.isPresent()){
+                return new ByteArrayInputStream(content.get());
+            }
+            return delegate.openDownloadStream(fileKey);
+        }
+
+        @Override
+        public InputStream openDownloadStream(String fileKey, long offset, long length) {
+            var content = inlineObjectStore.find(bucketName, fileKey);
+            if (content.isPresent()){
+                return new ByteArrayInputStream(content.get(), (int) offset, (int) length);
+            }
+            return delegate.openDownloadStream(fileKey, offset, length);
+        }
+
+        @Override
+        public boolean exists(String fileKey) {
+            return inlineObjectStore.getSize(bucketName, fileKey).isPresent() || delegate.exists(fileKey);
+        }
+
+        @Override
+        public long getObjectSize(String fileKey) {
+            var size = inlineObjectStore.getSize(bucketName, fileKey);
+            if (size.isPresent()){
+                return size.getAsLong();
+            }
+            return delegate.getObjectSize(fileKey);
+        }
+
+        @Override
+        public ObjectMetadata getObjectMetadata(String fileKey) {
+            var content = inlineObjectStore.find(bucketName, fileKey);
+            if (content.isPresent()){
+                return new ObjectMetadata(content.get().length, CryptographicUtilities.sha256Hex(content.get()));
+            }
+            return delegate.getObjectMetadata(fileKey);
+        }
+
+        @Override
+        public void deleteFile(String fileKey) {
+            if (!inlineObjectStore.delete(bucketName, fileKey)){
+                delegate.deleteFile(fileKey);
+            }
+        }
+
+        @Override
+        public void copyFile(String sourceFileKey, String destinationFileKey) {
+            if (!inlineObjectStore.copy(bucketName, sourceFileKey, destinationFileKey)){
+                delegate.copyFile(sourceFileKey, destinationFileKey);
+            }
+        }
+    }
+
+    @Override
+    public BucketProvider getBucket(String bucketName) {
+        return cachedProviders.computeIfAbsent(bucketName,
+                k -> new InlineBucketProvider(k, encryptedStorageProvider.getBucket(k)));
+    }
+}
@@ -0,0 +1,68 @@
+package net.cycastic.portfoliotoolkit.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
+import net.cycastic.portfoliotoolkit.service.StorageProvider;
+import net.cycastic.portfoliotoolkit.service.UrlAccessor;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Signs URLs of objects that are uploaded and downloaded through the application rather than the bucket.
+ */
+@Lazy
+@Component
+@RequiredArgsConstructor
+public class ObjectUrlSigner {
+    private final UriPresigner uriPresigner;
+    private final UrlAccessor urlAccessor;
+
+    private StringBuilder getBaseUrl(String path, String bucketName, String fileKey, OffsetDateTime expiration){
+        return new StringBuilder(urlAccessor.getBackendOrigin())
+                .append(path)
+                .append("?bucket=").append(ApplicationUtilities.encodeURIComponent(bucketName))
+                .append("&key=").append(ApplicationUtilities.encodeURIComponent(fileKey))
+                .append("&notValidAfter=").append(expiration.toEpochSecond());
+    }
+
+    private URI getDownloadUri(String path, String bucketName, String fileKey, String fileName, @Nullable String contentType, OffsetDateTime expiration){
+        var url = getBaseUrl(path, bucketName, fileKey, expiration)
+                .append("&fileName=").append(ApplicationUtilities.encodeURIComponent(fileName));
+        if (contentType != null){
+            url.append("&contentType=").append(ApplicationUtilities.encodeURIComponent(contentType));
+        }
+        return URI.create(url.toString());
+    }
+
+    public String signUpload(String path, String bucketName, String fileKey, OffsetDateTime expiration, long objectLength, @Nullable String sha256){
+        var url = getBaseUrl(path, bucketName, fileKey, expiration)
+                .append("&length=").append(objectLength);
+        if (sha256 != null){
+            url.append("&sha256=").append(sha256);
+        }
+        return uriPresigner.signUri(URI.create(url.toString())).toString();
+    }
+
+    public String signDownload(String path, String bucketName, String fileKey, String fileName, @Nullable String contentType, OffsetDateTime expiration){
+        return uriPresigner.signUri(getDownloadUri(path, bucketName, fileKey, fileName, contentType, expiration)).toString();
+    }
+
+    public List<String> signDownloads(String path, String bucketName, List<StorageProvider.BucketProvider.DownloadObject> objects, OffsetDateTime expiration){
+        var uris = new ArrayList<URI>(objects.size());
+        for (var object : objects){
+            uris.add(getDownloadUri(path, bucketName, object.fileKey(), object.fileName(), null, expiration));
+        }
+
+        var urls = new ArrayList<String>(uris.size());
+        for (var uri : uriPresigner.signUris(uris)){
+            urls.add(uri.toString());
+        }
+        return urls;
+    }
+}
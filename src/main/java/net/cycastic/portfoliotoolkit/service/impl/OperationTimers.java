@@ -0,0 +1,39 @@
+package net.cycastic.portfoliotoolkit.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for a fixed set of operations, registered up front and indexed by ordinal so that recording a call does
+ * not look up tags or allocate a {@link Timer.Sample}.
+ * <pre>{@code
+ * var start = System.nanoTime();
+ * try {
+ *     ...
+ * } finally {
+ *     timers.record(Operation.DELETE, start);
+ * }
+ * }</pre>
+ */
+public class OperationTimers<E extends Enum<E>> {
+    private final Timer[] timers;
+
+    public OperationTimers(MeterRegistry meterRegistry, String name, String description, Class<E> operations){
+        var constants = operations.getEnumConstants();
+        timers = new Timer[constants.length];
+        for (var operation : constants){
+            timers[operation.ordinal()] = Timer.builder(name)
+                    .description(description)
+                    .tag("operation", operation.name().toLowerCase(Locale.ROOT))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+    }
+
+    public void record(E operation, long startNanos){
+        timers[operation.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
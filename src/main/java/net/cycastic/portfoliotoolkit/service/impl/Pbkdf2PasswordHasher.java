@@ -1,11 +1,12 @@
 package net.cycastic.portfoliotoolkit.service.impl;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import net.cycastic.portfoliotoolkit.configuration.auth.Pbkdf2Configuration;
 import net.cycastic.portfoliotoolkit.service.PasswordHasher;
 import org.bouncycastle.crypto.generators.PKCS5S2ParametersGenerator;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
@@ -18,14 +19,19 @@ import java.nio.ByteBuffer;
 
 @Lazy
 @Service
-@RequiredArgsConstructor
 public class Pbkdf2PasswordHasher implements PasswordHasher {
     private static final byte[] IDENTIFIER;
     private static final int KEY_LENGTH_BITS;
     private static final int SALT_SIZE;
     private static final SecureRandom RANDOM;
 
+    private enum HashOperation {
+        HASH,
+        VERIFY,
+    }
+
     private final Pbkdf2Configuration configuration;
+    private final OperationTimers<HashOperation> timers;
 
     static {
         IDENTIFIER = "P2".getBytes(StandardCharsets.UTF_8);
@@ -35,8 +41,23 @@ public class Pbkdf2PasswordHasher implements PasswordHasher {
         RANDOM = new SecureRandom();
     }
 
+    @Autowired
+    public Pbkdf2PasswordHasher(Pbkdf2Configuration configuration, MeterRegistry meterRegistry){
+        this.configuration = configuration;
+        this.timers = new OperationTimers<>(meterRegistry, "password.hashing", "PBKDF2 password hashing", HashOperation.class);
+    }
+
     @Override
     public String hash(String password) {
+        var start = System.nanoTime();
+        try {
+            return hashInternal(password);
+        } finally {
+            timers.record(HashOperation.HASH, start);
+        }
+    }
+
+    private String hashInternal(String password) {
         var salt = new byte[SALT_SIZE];
         RANDOM.nextBytes(salt);
 
@@ -77,7 +98,9 @@ public class Pbkdf2PasswordHasher implements PasswordHasher {
         var expectedHash = Arrays.copyOfRange(digest,
                 IDENTIFIER.length + Integer.BYTES + SALT_SIZE,
                 digest.length);
+        var start = System.nanoTime();
         var actualHash = pbkdf2(input.toCharArray(), salt, iterations);
+        timers.record(HashOperation.VERIFY, start);
 
         return constantTimeEquals(expectedHash, actualHash);
     }
@@ -1,6 +1,10 @@
 package net.cycastic.portfoliotoolkit.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import net.cycastic.portfoliotoolkit.configuration.CacheConfigurations;
 import net.cycastic.portfoliotoolkit.configuration.S3Configurations;
 import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
 import net.cycastic.portfoliotoolkit.service.StorageProvider;
@@ -9,9 +13,12 @@ import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Scope;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
@@ -22,17 +29,50 @@ import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import java.io.InputStream;
 import java.net.URI;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Lazy
 @Component
 @RequiredArgsConstructor
 public class S3StorageProvider implements StorageProvider {
+    private enum StorageOperation {
+        PRESIGN_UPLOAD,
+        PRESIGN_DOWNLOAD,
+        PRESIGN_DOWNLOAD_BATCH,
+        OPEN_DOWNLOAD,
+        UPLOAD,
+        EXISTS,
+        GET_SIZE,
+        DELETE,
+        COPY,
+    }
+
+    private record ObjectRef(String bucketName, String fileKey){}
+
+    private record DownloadVariant(String fileName, @Nullable String contentType){}
+
+    private record PresignedUrl(String url, Instant expiresAt){}
+
     private final ConcurrentHashMap<String, S3BucketProvider> cachedProviders = new ConcurrentHashMap<>();
     private final S3Client s3Client;
     private final S3Presigner s3Presigner;
     private final ApplicationContext ctx;
+    private final OperationTimers<StorageOperation> timers;
+    private final long downloadWindowSeconds;
+
+    /**
+     * Presigned download URLs by object, then by file name. Expirations are rounded up to the end of a fixed window
+     * so that every request within the window is served the same URL, which lets browsers and CDNs reuse what they
+     * have cached and skips the signature. Entries of an object are dropped whenever it is overwritten or deleted.
+     */
+    private final Cache<ObjectRef, ConcurrentHashMap<DownloadVariant, PresignedUrl>> downloadUrls;
 
     @Component
     @RequiredArgsConstructor
@@ -43,29 +83,49 @@ public class S3StorageProvider implements StorageProvider {
 
         @Override
         @HandleS3Exception
-        public String generatePresignedUploadPath(String fileKey, String fileName, OffsetDateTime expiration, long objectLength) {
+        public String generatePresignedUploadPath(String fileKey, String fileName, OffsetDateTime expiration, long objectLength, @Nullable String sha256) {
+            var start = System.nanoTime();
+            provider.invalidateDownloadUrls(bucketName, fileKey);
             var ttl = Duration.between(OffsetDateTime.now(), expiration);
             var requestBuilder = PutObjectRequest.builder()
                     .bucket(bucketName)
                     .key(fileKey)
                     .contentType("application/octet-stream")
                     .contentLength(objectLength);
+            if (sha256 != null){
+                // Signed as x-amz-checksum-sha256, S3 rejects uploads whose content does not match
+                requestBuilder.checksumSHA256(Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha256)));
+            }
 
             var presignedPut = provider.s3Presigner.presignPutObject(r ->
                     r.signatureDuration(ttl)
                             .putObjectRequest(requestBuilder.build())
             );
-            return presignedPut.url().toString();
+            var url = presignedPut.url().toString();
+            provider.timers.record(StorageOperation.PRESIGN_UPLOAD, start);
+            return url;
         }
 
-        @Override
-        @HandleS3Exception
-        public String generatePresignedDownloadPath(String fileKey, String fileName, OffsetDateTime expiration) {
-            var ttl = Duration.between(OffsetDateTime.now(), expiration);
-            var getReq = GetObjectRequest.builder()
-                    .bucket(bucketName)
+        private String presignDownload(GetObjectRequest.Builder requestBuilder, String fileKey, String fileName, @Nullable String contentType, OffsetDateTime expiration){
+            var urls = provider.downloadUrls.get(new ObjectRef(bucketName, fileKey), k -> new ConcurrentHashMap<>());
+            var variant = new DownloadVariant(fileName, contentType);
+            var cached = urls.get(variant);
+            var requested = expiration.toInstant();
+            if (cached != null && !cached.expiresAt().isBefore(requested)){
+                return cached.url();
+            }
+
+            var expiresAt = provider.getWindowEnd(requested);
+            var url = signDownload(requestBuilder, fileKey, fileName, contentType, Duration.between(Instant.now(), expiresAt));
+            urls.put(variant, new PresignedUrl(url, expiresAt));
+            return url;
+        }
+
+        private String signDownload(GetObjectRequest.Builder requestBuilder, String fileKey, String fileName, @Nullable String contentType, Duration ttl){
+            var getReq = requestBuilder
                     .key(fileKey)
                     .responseContentDisposition("attachment; filename=\"" + ApplicationUtilities.encodeURIComponent(fileName) + "\"")
+                    .responseContentType(contentType)
                     .build();
 
             var presignedGet = provider.s3Presigner.presignGetObject(r ->
@@ -76,45 +136,150 @@ public class S3StorageProvider implements StorageProvider {
 
         @Override
         @HandleS3Exception
+        public String generatePresignedDownloadPath(String fileKey, String fileName, @Nullable String contentType, OffsetDateTime expiration) {
+            var start = System.nanoTime();
+            var url = presignDownload(GetObjectRequest.builder().bucket(bucketName), fileKey, fileName, contentType, expiration);
+            provider.timers.record(StorageOperation.PRESIGN_DOWNLOAD, start);
+            return url;
+        }
+
+        @Override
+        @HandleS3Exception
+        public List<String> generatePresignedDownloadPaths(List<DownloadObject> objects, OffsetDateTime expiration) {
+            var start = System.nanoTime();
+            // Every URL of the batch shares the same request template
+            var requestBuilder = GetObjectRequest.builder().bucket(bucketName);
+            var urls = new ArrayList<String>(objects.size());
+            for (var object : objects){
+                urls.add(presignDownload(requestBuilder, object.fileKey(), object.fileName(), null, expiration));
+            }
+            provider.timers.record(StorageOperation.PRESIGN_DOWNLOAD_BATCH, start);
+            return urls;
+        }
+
+        /**
+         * @param range HTTP range of the bytes to read, or null for the whole object
+         */
+        @HandleS3Exception
+        public ResponseInputStream<GetObjectResponse> getObject(String fileKey, @Nullable String range) {
+            var start = System.nanoTime();
+            try {
+                return provider.s3Client.getObject(request -> request
+                                .bucket(bucketName)
+                                .key(fileKey)
+                                .range(range),
+                        ResponseTransformer.toInputStream());
+            } finally {
+                // Only covers the time to first byte, the body is streamed by the caller
+                provider.timers.record(StorageOperation.OPEN_DOWNLOAD, start);
+            }
+        }
+
+        @Override
         public InputStream openDownloadStream(String fileKey) {
-            return provider.s3Client.getObject(request -> request
-                            .bucket(bucketName)
-                            .key(fileKey),
-                    ResponseTransformer.toInputStream());
+            return getObject(fileKey, null);
+        }
+
+        @Override
+        public InputStream openDownloadStream(String fileKey, long offset, long length) {
+            if (length == 0){
+                return InputStream.nullInputStream();
+            }
+            return getObject(fileKey, "bytes=" + offset + "-" + (offset + length - 1));
+        }
+
+        /**
+         * Stores {@code length} bytes of {@code content} without buffering them, the stream is only read once.
+         */
+        @HandleS3Exception
+        public void putObject(String fileKey, InputStream content, long length, Map<String, String> metadata) {
+            var start = System.nanoTime();
+            provider.invalidateDownloadUrls(bucketName, fileKey);
+            try {
+                provider.s3Client.putObject(PutObjectRequest.builder()
+                                .bucket(bucketName)
+                                .key(fileKey)
+                                .contentType("application/octet-stream")
+                                .metadata(metadata)
+                                .build(),
+                        RequestBody.fromInputStream(content, length));
+            } finally {
+                provider.timers.record(StorageOperation.UPLOAD, start);
+            }
         }
 
-        private HeadObjectResponse headObject(String fileKey){
+        private HeadObjectResponse head(String fileKey){
             return provider.s3Client.headObject(HeadObjectRequest.builder()
                     .bucket(bucketName)
                     .key(fileKey)
+                    .checksumMode(ChecksumMode.ENABLED)
                     .build());
         }
 
+        @HandleS3Exception
+        public HeadObjectResponse headObject(String fileKey){
+            var start = System.nanoTime();
+            try {
+                return head(fileKey);
+            } finally {
+                provider.timers.record(StorageOperation.GET_SIZE, start);
+            }
+        }
+
+        public static @Nullable String toHex(@Nullable String checksum){
+            // Multipart uploads carry a checksum of part checksums, suffixed with the part count
+            if (checksum == null || checksum.indexOf('-') >= 0){
+                return null;
+            }
+            return HexFormat.of().formatHex(Base64.getDecoder().decode(checksum));
+        }
+
         @Override
         public boolean exists(String fileKey) {
+            var start = System.nanoTime();
             try {
-                headObject(fileKey);
+                head(fileKey);
                 return true;
             } catch (S3Exception e) {
                 if (e.statusCode() == 404) {
                     return false;
                 }
                 throw e;
+            } finally {
+                provider.timers.record(StorageOperation.EXISTS, start);
             }
         }
 
         @Override
         @HandleS3Exception
         public long getObjectSize(String fileKey){
-            return headObject(fileKey).contentLength();
+            var start = System.nanoTime();
+            try {
+                return head(fileKey).contentLength();
+            } finally {
+                provider.timers.record(StorageOperation.GET_SIZE, start);
+            }
+        }
+
+        @Override
+        @HandleS3Exception
+        public ObjectMetadata getObjectMetadata(String fileKey) {
+            var response = headObject(fileKey);
+            return new ObjectMetadata(response.contentLength(), toHex(response.checksumSHA256()));
         }
 
         @HandleS3Exception
         public void deleteFile(String fileKey){
-            provider.s3Client.deleteObject(DeleteObjectRequest.builder()
-                            .bucket(bucketName)
-                            .key(fileKey)
-                            .build());
+            var start = System.nanoTime();
+            provider.invalidateDownloadUrls(bucketName, fileKey);
+            try {
+                provider.s3Client.deleteObject(DeleteObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(fileKey)
+                        .build());
+            } finally {
+                provider.timers.record(StorageOperation.DELETE, start);
+            }
         }
 
         @Override
@@ -127,7 +292,13 @@ public class S3StorageProvider implements StorageProvider {
                     .destinationKey(destinationFileKey)
                     .build();
 
-            provider.s3Client.copyObject(copyRequest);
+            var start = System.nanoTime();
+            provider.invalidateDownloadUrls(bucketName, destinationFileKey);
+            try {
+                provider.s3Client.copyObject(copyRequest);
+            } finally {
+                provider.timers.record(StorageOperation.COPY, start);
+            }
         }
     }
 
@@ -166,14 +337,34 @@ public class S3StorageProvider implements StorageProvider {
     }
 
     @Autowired
-    public S3StorageProvider(S3Configurations s3Configurations, ApplicationContext ctx){
+    public S3StorageProvider(S3Configurations s3Configurations, CacheConfigurations cacheConfigurations, ApplicationContext ctx, MeterRegistry meterRegistry){
         s3Client = buildClient(s3Configurations);
         s3Presigner = buildPresigner(s3Configurations);
         this.ctx = ctx;
+        this.timers = new OperationTimers<>(meterRegistry, "storage.operations", "Object storage calls", StorageOperation.class);
+        this.downloadWindowSeconds = cacheConfigurations.getPresignedDownloadWindowSeconds();
+        // An entry only satisfies requests made within one window of being signed
+        this.downloadUrls = Caffeine.newBuilder()
+                .maximumSize(cacheConfigurations.getPresignedDownloadMaximumSize())
+                .expireAfterWrite(Duration.ofSeconds(Math.max(downloadWindowSeconds, 1)))
+                .build();
+    }
+
+    private Instant getWindowEnd(Instant expiration){
+        if (downloadWindowSeconds <= 0){
+            return expiration;
+        }
+
+        var seconds = Math.ceilDiv(expiration.getEpochSecond() + (expiration.getNano() > 0 ? 1 : 0), downloadWindowSeconds) * downloadWindowSeconds;
+        return Instant.ofEpochSecond(seconds);
+    }
+
+    private void invalidateDownloadUrls(String bucketName, String fileKey){
+        downloadUrls.invalidate(new ObjectRef(bucketName, fileKey));
     }
 
     @Override
-    public BucketProvider getBucket(String bucketName) {
+    public S3BucketProvider getBucket(String bucketName) {
         return cachedProviders.computeIfAbsent(bucketName,
                 k -> ctx.getBean(S3BucketProvider.class, this, k));
     }
@@ -0,0 +1,58 @@
+package net.cycastic.portfoliotoolkit.service.impl;
+
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class SizeLimitedInputStream extends FilterInputStream {
+    private final long limit;
+    private final String message;
+    private long consumed;
+
+    public SizeLimitedInputStream(InputStream in, long limit, String message) {
+        super(in);
+        this.limit = limit;
+        this.message = message;
+    }
+
+    private void count(long read){
+        if (read <= 0){
+            return;
+        }
+
+        consumed += read;
+        if (consumed > limit){
+            throw new RequestException(413, message);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        var b = super.read();
+        if (b >= 0){
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        var read = super.read(b, off, len);
+        count(read);
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        var skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
@@ -1,7 +1,6 @@
 package net.cycastic.portfoliotoolkit.service.impl;
 
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
 import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
 import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
 import net.cycastic.portfoliotoolkit.domain.repository.listing.AttachmentListingRepository;
@@ -11,6 +10,7 @@ import net.cycastic.portfoliotoolkit.service.UrlAccessor;
 import org.springframework.stereotype.Service;
 
 import java.net.URI;
+import java.util.*;
 
 @Service
 @RequiredArgsConstructor
@@ -21,20 +21,52 @@ public class StoragePresignerImpl implements StoragePresigner {
     private final UriPresigner presigner;
 
     @Override
-    @SneakyThrows
-    public String sign(String listingPath) {
-        var projectId = loggedUserAccessor.getProjectId();
-        var userId = loggedUserAccessor.getUserId();
-        var listing = attachmentListingRepository.findByListing_Project_IdAndListing_ListingPath(projectId, listingPath)
-                .orElseThrow(() -> new RequestException(404, "Listing does not exists"));
-        var token = listing.getShareToken();
-        var url = new StringBuilder(urlAccessor.getBackendOrigin())
+    public Scope getCurrentScope() {
+        return new Scope(loggedUserAccessor.getProjectId(), loggedUserAccessor.getUserId(), urlAccessor.getBackendOrigin());
+    }
+
+    private static URI getUri(Scope scope, String listingPath, UUID shareToken){
+        var url = new StringBuilder(scope.backendOrigin())
                 .append("/api/storage")
-                .append("?projectId=").append(projectId)
-                .append("&userId=").append(userId)
-                .append("&shareToken=").append(token)
+                .append("?projectId=").append(scope.projectId())
+                .append("&userId=").append(scope.userId())
+                .append("&shareToken=").append(shareToken)
                 .append("&path=").append(ApplicationUtilities.encodeURIComponent(listingPath))
                 .toString();
-        return presigner.signUri(URI.create(url)).toString();
+        return URI.create(url);
+    }
+
+    @Override
+    public String sign(Scope scope, String listingPath) {
+        var listing = attachmentListingRepository.findByListing_Project_IdAndListing_ListingPath(scope.projectId(), listingPath)
+                .orElseThrow(() -> new RequestException(404, "Listing does not exists"));
+        return presigner.signUri(getUri(scope, listingPath, listing.getShareToken())).toString();
+    }
+
+    @Override
+    public List<String> sign(Scope scope, List<String> listingPaths) {
+        if (listingPaths.isEmpty()){
+            return List.of();
+        }
+
+        var tokens = new HashMap<String, UUID>();
+        for (var info : attachmentListingRepository.findShareTokensByPaths(scope.projectId(), new HashSet<>(listingPaths))){
+            tokens.put(info.getPath(), info.getShareToken());
+        }
+        var uris = new ArrayList<URI>(listingPaths.size());
+        for (var listingPath : listingPaths){
+            var token = tokens.get(listingPath);
+            if (token == null){
+                throw new RequestException(404, "Listing does not exists");
+            }
+            uris.add(getUri(scope, listingPath, token));
+        }
+
+        var signed = presigner.signUris(uris);
+        var urls = new ArrayList<String>(signed.size());
+        for (var uri : signed){
+            urls.add(uri.toString());
+        }
+        return urls;
     }
 }
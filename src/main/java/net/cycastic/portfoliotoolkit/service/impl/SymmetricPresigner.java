@@ -10,40 +10,90 @@ import org.bouncycastle.crypto.macs.HMac;
 import org.bouncycastle.crypto.params.KeyParameter;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 
 public class SymmetricPresigner implements Presigner {
     private static final int KEY_LENGTH = 32; // 256-bit
     private static final String DEFAULT_ALGORITHM = "hmac-sha256";
     private final KeyParameter key;
 
+    /**
+     * Keyed macs waiting to be reused. {@link HMac#doFinal} restores the keyed state, so a borrowed mac is used as is,
+     * and one whose caller failed halfway is never returned. A shared pool rather than a {@link ThreadLocal} keeps
+     * reuse working when requests run on short-lived virtual threads.
+     */
+    private final ArrayBlockingQueue<HMac> macs = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 2);
+
     public SymmetricPresigner(SymmetricPresignerConfiguration configuration){
         var okm = CryptographicUtilities.deriveKey(KEY_LENGTH, configuration.getIkm(), configuration.getSalt());
         key = new KeyParameter(okm);
     }
 
-    @Override
     @SneakyThrows
-    public String getSignature(String data, String algorithm) {
+    private static void checkAlgorithm(String algorithm){
         if (!algorithm.equals(DEFAULT_ALGORITHM)){
             throw new NotSupportedException(String.format("Unsupported presign algorithm: %s", algorithm));
         }
+    }
+
+    private HMac borrow(){
+        var hmac = macs.poll();
+        if (hmac == null){
+            hmac = new HMac(new SHA256Digest());
+            hmac.init(key);
+        }
+        return hmac;
+    }
 
+    private static byte[] compute(HMac hmac, String data){
         var message = data.getBytes(StandardCharsets.UTF_8);
-        var hmac = new HMac(new SHA256Digest());
-        hmac.init(key);
         hmac.update(message, 0, message.length);
 
         var result = new byte[hmac.getMacSize()];
         hmac.doFinal(result, 0);
-        return Base64.getEncoder().encodeToString(result);
+        return result;
+    }
+
+    private byte[] compute(String data){
+        var hmac = borrow();
+        var result = compute(hmac, data);
+        macs.offer(hmac);
+        return result;
+    }
+
+    @Override
+    public String getSignature(String data, String algorithm) {
+        checkAlgorithm(algorithm);
+        return Base64.getEncoder().encodeToString(compute(data));
+    }
+
+    @Override
+    public List<String> getSignatures(List<String> data, String algorithm) {
+        checkAlgorithm(algorithm);
+        var hmac = borrow();
+        var encoder = Base64.getEncoder();
+        var signatures = new ArrayList<String>(data.size());
+        for (var entry : data){
+            signatures.add(encoder.encodeToString(compute(hmac, entry)));
+        }
+        macs.offer(hmac);
+        return signatures;
     }
 
     @Override
-    @SneakyThrows
     public boolean verifySignature(String data, String signature, String algorithm) {
-        var calculatedSig = getSignature(data, algorithm);
-        return calculatedSig.equals(signature);
+        checkAlgorithm(algorithm);
+        byte[] provided;
+        try {
+            provided = Base64.getDecoder().decode(signature);
+        } catch (IllegalArgumentException e){
+            return false;
+        }
+        return MessageDigest.isEqual(compute(data), provided);
     }
 
     @Override
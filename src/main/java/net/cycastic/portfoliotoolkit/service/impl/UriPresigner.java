@@ -5,13 +5,21 @@ import lombok.SneakyThrows;
 import net.cycastic.portfoliotoolkit.domain.ApplicationConstants;
 import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
 import net.cycastic.portfoliotoolkit.service.Presigner;
+import org.springframework.lang.Nullable;
 
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+/**
+ * Signs and verifies URIs by appending the signature parameters to the query. The signed data is the URI without
+ * them, which both operations derive in a single pass over the raw query.
+ */
 public class UriPresigner {
+    private static final String SIGNATURE_PREFIX = ApplicationConstants.PresignSignatureEntry + "=";
+    private static final String ALGORITHM_PREFIX = ApplicationConstants.PresignSignatureAlgorithmEntry + "=";
+
     private final List<Presigner> presigners;
 
     public UriPresigner(Presigner presigner){
@@ -25,54 +33,134 @@ public class UriPresigner {
         this.presigners = presigners;
     }
 
-    private static URI buildUri(String scheme, String rawAuthority, String rawPath, String rawQuery, String rawFragment){
-        var sb = new StringBuilder()
-                .append(scheme)
+    private static StringBuilder appendBase(StringBuilder sb, URI uri){
+        return sb.append(uri.getScheme())
                 .append("://")
-                .append(rawAuthority)
-                .append(rawPath);
-        if (rawQuery != null){
-            sb.append('?').append(rawQuery);
+                .append(uri.getRawAuthority())
+                .append(uri.getRawPath());
+    }
+
+    /**
+     * End of the query once trailing empty parameters are dropped, matching {@code String.split("&")}: a query
+     * without separators is kept as is, while one made only of separators has no parameters at all.
+     */
+    private static int getQueryEnd(String query){
+        if (query.indexOf('&') < 0){
+            return query.length();
         }
-        if (rawFragment != null){
-            sb.append('#').append(rawFragment);
+
+        var end = query.length();
+        while (end > 0 && query.charAt(end - 1) == '&'){
+            end--;
         }
+        return end;
+    }
 
-        return URI.create(sb.toString());
+    /**
+     * Whether the signed URI keeps a query part besides the signature parameters. A lone empty parameter still
+     * counts, while a query made only of separators does not.
+     */
+    private static boolean keepsQuery(String query, int queryEnd){
+        return queryEnd > 0 || query.indexOf('&') < 0;
     }
 
-    @SneakyThrows
-    public URI signUri(URI uri){
+    /**
+     * A URI being signed: {@code data} holds the signed form of the URI until the signature is known and the
+     * remainder is rewritten in place. The signed form is exactly what {@link #verifyUri} rebuilds from the signed
+     * URI, so trailing separators dropped from the query are not part of it either.
+     */
+    private record PendingUri(URI uri, StringBuilder data, int baseLength, int queryEnd){}
+
+    private static PendingUri prepare(URI uri){
         var query = uri.getRawQuery();
-        var queryParts = new ArrayList<String>();
+        var queryEnd = 0;
         if (query != null) {
-            // TODO: Regex?
-            for (var param : query.split("&")) {
-                if (param.startsWith(ApplicationConstants.PresignSignatureEntry + "=")) {
+            queryEnd = getQueryEnd(query);
+            var start = 0;
+            while (start < queryEnd){
+                if (query.startsWith(SIGNATURE_PREFIX, start)) {
                     throw new IllegalStateException("URI already contains a signature parameter");
                 }
-                if (param.startsWith(ApplicationConstants.PresignSignatureAlgorithmEntry + "=")) {
+                if (query.startsWith(ALGORITHM_PREFIX, start)) {
                     throw new IllegalStateException("URI already contains a signature algorithm parameter");
                 }
 
-                queryParts.add(param);
+                var separator = query.indexOf('&', start);
+                start = separator < 0 ? queryEnd : separator + 1;
             }
         }
 
-        var baseUri = buildUri(uri.getScheme(),
-                uri.getRawAuthority(),
-                uri.getRawPath(),
-                query,
-                uri.getRawFragment());
-        var dataToSign = baseUri.toString();
+        var sb = appendBase(new StringBuilder(256), uri);
+        var baseLength = sb.length();
+        if (query != null && keepsQuery(query, queryEnd)){
+            sb.append('?').append(query, 0, queryEnd);
+        }
+        if (uri.getRawFragment() != null){
+            sb.append('#').append(uri.getRawFragment());
+        }
+        return new PendingUri(uri, sb, baseLength, queryEnd);
+    }
+
+    private static URI complete(PendingUri pending, String signature, String algorithm){
+        var query = pending.uri().getRawQuery();
+        var queryEnd = pending.queryEnd();
+        var sb = pending.data();
+        sb.setLength(pending.baseLength());
+        sb.append('?');
+        if (query != null && keepsQuery(query, queryEnd)){
+            sb.append(query, 0, queryEnd).append('&');
+        }
+        sb.append(SIGNATURE_PREFIX).append(ApplicationUtilities.encodeURIComponent(signature))
+                .append('&').append(ALGORITHM_PREFIX).append(ApplicationUtilities.encodeURIComponent(algorithm));
+        var fragment = pending.uri().getRawFragment();
+        if (fragment != null){
+            sb.append('#').append(fragment);
+        }
+        return URI.create(sb.toString());
+    }
+
+    public URI signUri(URI uri){
+        var pending = prepare(uri);
         var presigner = presigners.getFirst();
-        var signature = presigner.getSignature(dataToSign, presigner.getDefaultAlgorithm());
+        var algorithm = presigner.getDefaultAlgorithm();
+        var signature = presigner.getSignature(pending.data().toString(), algorithm);
+        return complete(pending, signature, algorithm);
+    }
 
-        queryParts.add(ApplicationConstants.PresignSignatureEntry + "=" + ApplicationUtilities.encodeURIComponent(signature));
-        queryParts.add(ApplicationConstants.PresignSignatureAlgorithmEntry + "=" + ApplicationUtilities.encodeURIComponent(presigner.getDefaultAlgorithm()));
+    /**
+     * Signs a batch of URIs with a single call to the presigner, for callers such as email templates that link to
+     * many files at once.
+     */
+    public List<URI> signUris(List<URI> uris){
+        if (uris.isEmpty()){
+            return List.of();
+        }
 
-        query = String.join("&", queryParts);
-        return buildUri(uri.getScheme(), uri.getRawAuthority(), uri.getRawPath(), query, uri.getFragment());
+        var pending = new ArrayList<PendingUri>(uris.size());
+        var data = new ArrayList<String>(uris.size());
+        for (var uri : uris){
+            var entry = prepare(uri);
+            pending.add(entry);
+            data.add(entry.data().toString());
+        }
+
+        var presigner = presigners.getFirst();
+        var algorithm = presigner.getDefaultAlgorithm();
+        var signatures = presigner.getSignatures(data, algorithm);
+        var signed = new ArrayList<URI>(uris.size());
+        for (var i = 0; i < pending.size(); i++){
+            signed.add(complete(pending.get(i), signatures.get(i), algorithm));
+        }
+        return signed;
+    }
+
+    private @Nullable Presigner findPresigner(String algorithm){
+        for (var presigner : presigners){
+            if (presigner.canSupport(algorithm)){
+                return presigner;
+            }
+        }
+        return null;
     }
 
     @SneakyThrows
@@ -82,42 +170,49 @@ public class UriPresigner {
             return false;
         }
 
-        var otherParams = new ArrayList<String>();
-        var signatures = new ArrayList<String>();
-        var algorithms = new ArrayList<String>();
-        for (var param : query.split("&")) {
-            if (param.startsWith(ApplicationConstants.PresignSignatureEntry + "=")) {
-                var parts = param.split("=", 2);
-                if (parts.length == 2) {
-                    signatures.add(ApplicationUtilities.decodeURIComponent(parts[1]));
+        String foundSignature = null;
+        String foundAlgorithm = null;
+        var sb = appendBase(new StringBuilder(256), uri);
+        var hasOtherParams = false;
+        var queryEnd = getQueryEnd(query);
+        var start = 0;
+        // A query made only of separators has no parameters at all
+        var empty = queryEnd == 0 && query.indexOf('&') >= 0;
+        while (!empty){
+            var separator = query.indexOf('&', start);
+            var end = separator < 0 || separator > queryEnd ? queryEnd : separator;
+            if (query.startsWith(SIGNATURE_PREFIX, start)) {
+                if (foundSignature != null){
+                    return false;
                 }
-            } else if (param.startsWith(ApplicationConstants.PresignSignatureAlgorithmEntry + "=")){
-                var parts = param.split("=", 2);
-                if (parts.length == 2) {
-                    algorithms.add(ApplicationUtilities.decodeURIComponent(parts[1]));
+                foundSignature = ApplicationUtilities.decodeURIComponent(query.substring(start + SIGNATURE_PREFIX.length(), end));
+            } else if (query.startsWith(ALGORITHM_PREFIX, start)){
+                if (foundAlgorithm != null){
+                    return false;
                 }
+                foundAlgorithm = ApplicationUtilities.decodeURIComponent(query.substring(start + ALGORITHM_PREFIX.length(), end));
             } else {
-                otherParams.add(param);
+                sb.append(hasOtherParams ? '&' : '?').append(query, start, end);
+                hasOtherParams = true;
+            }
+
+            if (end == queryEnd){
+                break;
             }
+            start = end + 1;
         }
 
-        if (signatures.isEmpty() || algorithms.isEmpty()) {
+        if (foundSignature == null || foundAlgorithm == null) {
             return false;
         }
-        if (signatures.size() > 1 || algorithms.size() > 1) {
-            return false;
+        if (uri.getRawFragment() != null){
+            sb.append('#').append(uri.getRawFragment());
         }
-        var foundSignature = signatures.getFirst();
-        var foundAlgo = algorithms.getFirst();
 
-        var newQuery = otherParams.isEmpty() ? null : String.join("&", otherParams);
-        var baseUri = buildUri(uri.getScheme(), uri.getRawAuthority(), uri.getRawPath(), newQuery, uri.getRawFragment());
-        var dataToVerify = baseUri.toString();
-
-        var presigner = presigners.stream()
-                .filter(p -> p.canSupport(foundAlgo))
-                .findFirst();
-        return presigner.orElseThrow(() -> new NotSupportedException(String.format("Unsupported presign algorithm: %s", foundAlgo)))
-                .verifySignature(dataToVerify, foundSignature, foundAlgo);
+        var presigner = findPresigner(foundAlgorithm);
+        if (presigner == null){
+            throw new NotSupportedException(String.format("Unsupported presign algorithm: %s", foundAlgorithm));
+        }
+        return presigner.verifySignature(sb.toString(), foundSignature, foundAlgorithm);
     }
 }
@@ -0,0 +1,90 @@
+package net.cycastic.portfoliotoolkit.service.impl;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
+import org.springframework.lang.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Fails the read that would go past the declared length or reach the end of content that is shorter than declared
+ * or does not match the declared SHA-256. The failure is kept, as it usually surfaces wrapped by whoever consumed
+ * the stream.
+ */
+public class VerifiedContentStream extends FilterInputStream {
+    private final long length;
+    private final @Nullable String sha256;
+    private final @Nullable MessageDigest digest;
+    private long consumed;
+
+    @Getter
+    private @Nullable RequestException failure;
+
+    @SneakyThrows
+    public VerifiedContentStream(InputStream in, long length, @Nullable String sha256) {
+        super(in);
+        this.length = length;
+        this.sha256 = sha256;
+        this.digest = sha256 == null ? null : MessageDigest.getInstance("SHA-256");
+    }
+
+    private IOException fail(RequestException e){
+        failure = e;
+        return new IOException(e.getMessage(), e);
+    }
+
+    private void verifyEnd() throws IOException {
+        if (consumed != length){
+            throw fail(new RequestException(400, "Content is shorter than declared"));
+        }
+        if (digest != null && !HexFormat.of().formatHex(digest.digest()).equals(sha256)){
+            throw fail(new RequestException(400, "Content does not match the declared SHA-256"));
+        }
+    }
+
+    private void count(byte[] b, int off, int read) throws IOException {
+        consumed += read;
+        if (consumed > length){
+            throw fail(new RequestException(413, "Content is longer than declared"));
+        }
+        if (digest != null){
+            digest.update(b, off, read);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        var b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (failure != null){
+            throw new IOException(failure.getMessage(), failure);
+        }
+
+        var read = super.read(b, off, len);
+        if (read < 0){
+            verifyEnd();
+        } else {
+            count(b, off, read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        throw new IOException("Skipping is not supported");
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
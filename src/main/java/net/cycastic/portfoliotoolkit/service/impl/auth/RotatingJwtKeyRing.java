@@ -0,0 +1,169 @@
+package net.cycastic.portfoliotoolkit.service.impl.auth;
+
+import jakarta.validation.constraints.Null;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import net.cycastic.portfoliotoolkit.domain.dto.JwkDto;
+import net.cycastic.portfoliotoolkit.domain.dto.JwksDto;
+import net.cycastic.portfoliotoolkit.service.auth.JwtKeyRing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the active signing key, the key that will be promoted on the next rotation and the retired keys that
+ * are still accepted for verification. Every rotation publishes an immutable snapshot, so readers never lock.
+ * <p>
+ * The next key is published in the JWKS document one rotation ahead of being used for signing, which gives
+ * clients caching the document a full interval to pick it up.
+ */
+public class RotatingJwtKeyRing implements JwtKeyRing {
+    private static final Logger logger = LoggerFactory.getLogger(RotatingJwtKeyRing.class);
+
+    private record RetiredKey(JwtKey key, long retiredAt){}
+
+    private record Snapshot(JwtKey active,
+                            @Null JwtKey next,
+                            List<RetiredKey> retired,
+                            Map<String, JwtKey> keys,
+                            JwksDto jwks){}
+
+    private final List<JwtKey> verificationKeys;
+    private final JwtKey legacyKey;
+    private final long retiredKeyRetentionMillis;
+    private final ReentrantLock rotationLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    /**
+     * @param verificationKeys          keys that are only ever used for verification, e.g. the previous signing
+     *                                  key of a deployment being rolled over
+     * @param retiredKeyRetentionMillis how long a rotated out key keeps verifying tokens
+     * @param prepareNextKey            whether to generate and publish the upcoming signing key right away
+     */
+    public RotatingJwtKeyRing(@NonNull ECPrivateKey privateKey,
+                              @NonNull ECPublicKey publicKey,
+                              @NonNull Collection<ECPublicKey> verificationKeys,
+                              long retiredKeyRetentionMillis,
+                              boolean prepareNextKey){
+        this.verificationKeys = verificationKeys.stream()
+                .map(k -> toJwtKey(k, null))
+                .toList();
+        this.retiredKeyRetentionMillis = retiredKeyRetentionMillis;
+        var active = toJwtKey(publicKey, privateKey);
+        this.legacyKey = new JwtKey(LEGACY_KID, active.publicKey(), null, active.jwk());
+        snapshot = createSnapshot(active, prepareNextKey ? generateKey(active) : null, List.of());
+    }
+
+    @SneakyThrows
+    private static String getKid(ECPublicKey publicKey){
+        var md = MessageDigest.getInstance("SHA-256");
+        var digest = md.digest(publicKey.getEncoded());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+
+    private static JwkDto toJwk(ECPublicKey publicKey, String kid){
+        var fieldSize =  publicKey.getParams().getCurve().getField().getFieldSize();
+        var crv = switch (fieldSize) {
+            case 256 -> "P-256";
+            case 384 -> "P-384";
+            case 521 -> "P-521";
+            default -> throw new IllegalArgumentException("Unsupported curve");
+        };
+        var alg = switch (fieldSize) {
+            case 256 -> "ES256";
+            case 384 -> "ES384";
+            case 521 -> "ES521";
+            default -> throw new IllegalArgumentException("Unsupported curve");
+        };
+        var urlEnc = Base64.getUrlEncoder().withoutPadding();
+        var x = urlEnc.encodeToString(publicKey.getW().getAffineX().toByteArray());
+        var y = urlEnc.encodeToString(publicKey.getW().getAffineY().toByteArray());
+        return JwkDto.builder()
+                .kty("EC")
+                .crv(crv)
+                .x(x)
+                .y(y)
+                .use("sig")
+                .alg(alg)
+                .kid(kid)
+                .build();
+    }
+
+    private static JwtKey toJwtKey(ECPublicKey publicKey, @Null ECPrivateKey privateKey){
+        var kid = getKid(publicKey);
+        return new JwtKey(kid, publicKey, privateKey, toJwk(publicKey, kid));
+    }
+
+    @SneakyThrows
+    private static JwtKey generateKey(JwtKey template){
+        // Stay on the curve of the configured key so that the advertised algorithm does not change
+        var kpg = KeyPairGenerator.getInstance("EC");
+        kpg.initialize(template.publicKey().getParams());
+        var kp = kpg.generateKeyPair();
+        return toJwtKey((ECPublicKey) kp.getPublic(), (ECPrivateKey) kp.getPrivate());
+    }
+
+    private Snapshot createSnapshot(JwtKey active, @Null JwtKey next, List<RetiredKey> retired){
+        var keys = new LinkedHashMap<String, JwtKey>();
+        keys.put(active.kid(), active);
+        if (next != null){
+            keys.put(next.kid(), next);
+        }
+        for (var key : retired){
+            keys.putIfAbsent(key.key().kid(), key.key());
+        }
+        for (var key : verificationKeys){
+            keys.putIfAbsent(key.kid(), key);
+        }
+
+        var jwks = new JwksDto(keys.values().stream()
+                .map(JwtKey::jwk)
+                .toList());
+        // Not published, clients only ever see the key under its real kid
+        keys.put(LEGACY_KID, legacyKey);
+        return new Snapshot(active, next, retired, Map.copyOf(keys), jwks);
+    }
+
+    @Override
+    public @NonNull JwtKey getSigningKey() {
+        return snapshot.active();
+    }
+
+    @Override
+    public @Null JwtKey getKey(@NonNull String kid) {
+        return snapshot.keys().get(kid);
+    }
+
+    @Override
+    public @NonNull JwksDto getJwks() {
+        return snapshot.jwks();
+    }
+
+    @Override
+    public void rotate() {
+        rotationLock.lock();
+        try {
+            var current = snapshot;
+            var now = System.currentTimeMillis();
+            var retired = new ArrayList<RetiredKey>(current.retired().size() + 1);
+            retired.add(new RetiredKey(current.active(), now));
+            for (var key : current.retired()){
+                if (now - key.retiredAt() < retiredKeyRetentionMillis){
+                    retired.add(key);
+                }
+            }
+
+            var active = current.next() == null ? generateKey(current.active()) : current.next();
+            snapshot = createSnapshot(active, generateKey(active), List.copyOf(retired));
+            logger.info("Rotated JWT signing key, active key: {}", active.kid());
+        } finally {
+            rotationLock.unlock();
+        }
+    }
+}
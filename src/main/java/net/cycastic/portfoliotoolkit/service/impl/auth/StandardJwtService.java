@@ -1,23 +1,23 @@
 package net.cycastic.portfoliotoolkit.service.impl.auth;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.ExpiredJwtException;
-import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.*;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.constraints.NotNull;
 import lombok.NonNull;
-import lombok.SneakyThrows;
 import net.cycastic.portfoliotoolkit.configuration.BaseJwtConfiguration;
 import net.cycastic.portfoliotoolkit.configuration.auth.JwtConfiguration;
 import net.cycastic.portfoliotoolkit.domain.ApplicationConstants;
-import net.cycastic.portfoliotoolkit.domain.dto.JwkDto;
+import net.cycastic.portfoliotoolkit.domain.dto.JwksDto;
 import net.cycastic.portfoliotoolkit.domain.exception.RequestException;
 import net.cycastic.portfoliotoolkit.service.auth.AsymmetricJwtVerifier;
 import net.cycastic.portfoliotoolkit.service.auth.JwtIssuer;
+import net.cycastic.portfoliotoolkit.service.auth.JwtKeyRing;
+import net.cycastic.portfoliotoolkit.service.impl.OperationTimers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.security.Key;
 import java.security.KeyFactory;
-import java.security.MessageDigest;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
 import java.security.spec.PKCS8EncodedKeySpec;
@@ -28,21 +28,57 @@ import java.util.Map;
 
 public class StandardJwtService implements JwtIssuer, AsymmetricJwtVerifier {
     private static final Logger logger = LoggerFactory.getLogger(StandardJwtService.class);
+
+    private enum JwtOperation {
+        SIGN,
+        VERIFY,
+    }
+
     private final BaseJwtConfiguration jwtConfiguration;
-    private final ECPrivateKey privateKey;
-    private final ECPublicKey publicKey;
+    private final JwtKeyRing keyRing;
+    private final JwtParser parser;
+    private final OperationTimers<JwtOperation> timers;
 
-    public StandardJwtService(JwtConfiguration jwtConfiguration){
-        this.jwtConfiguration = jwtConfiguration;
-        privateKey = decodePrivateKey(jwtConfiguration.getPrivateKey());
-        publicKey = decodePublicKey(jwtConfiguration.getPublicKey());
+    public StandardJwtService(JwtConfiguration jwtConfiguration, MeterRegistry meterRegistry){
+        this(jwtConfiguration, decodePrivateKey(jwtConfiguration.getPrivateKey()), decodePublicKey(jwtConfiguration.getPublicKey()), meterRegistry);
     }
 
-    public StandardJwtService(BaseJwtConfiguration jwtConfiguration, ECPrivateKey privateKey, ECPublicKey publicKey){
+    public StandardJwtService(JwtConfiguration jwtConfiguration, ECPrivateKey privateKey, ECPublicKey publicKey, MeterRegistry meterRegistry){
+        this(jwtConfiguration, new RotatingJwtKeyRing(privateKey,
+                publicKey,
+                jwtConfiguration.getVerificationPublicKeys().stream()
+                        .map(StandardJwtService::decodePublicKey)
+                        .toList(),
+                jwtConfiguration.getValidForMillis() + ApplicationConstants.REFRESH_TOKEN_TIME_MILLISECONDS,
+                jwtConfiguration.getRotationIntervalMillis() > 0), meterRegistry);
+    }
 
+    public StandardJwtService(BaseJwtConfiguration jwtConfiguration, JwtKeyRing keyRing, MeterRegistry meterRegistry){
         this.jwtConfiguration = jwtConfiguration;
-        this.privateKey = privateKey;
-        this.publicKey = publicKey;
+        this.keyRing = keyRing;
+        this.timers = new OperationTimers<>(meterRegistry, "jwt.operations", "Token signing and verification", JwtOperation.class);
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveVerificationKey(header);
+                    }
+                })
+                .build();
+    }
+
+    private Key resolveVerificationKey(JwsHeader<?> header){
+        var kid = header.getKeyId();
+        // Tokens issued before key IDs were stamped can only have been signed by the configured key
+        var key = keyRing.getKey(kid == null ? JwtKeyRing.LEGACY_KID : kid);
+        if (key == null){
+            throw new JwtException("Unknown signing key");
+        }
+        return key.publicKey();
+    }
+
+    public JwtKeyRing getKeyRing(){
+        return keyRing;
     }
 
     public static @NonNull ECPrivateKey decodePrivateKey(@NotNull String base64Private) {
@@ -69,10 +105,20 @@ public class StandardJwtService implements JwtIssuer, AsymmetricJwtVerifier {
 
     @Override
     public @NonNull String generateTokens(@NonNull String subject, Map<String, Object> extraClaims) {
+        var start = System.nanoTime();
+        try {
+            return generateTokensInternal(subject, extraClaims);
+        } finally {
+            timers.record(JwtOperation.SIGN, start);
+        }
+    }
+
+    private @NonNull String generateTokensInternal(@NonNull String subject, Map<String, Object> extraClaims) {
         var now = new Date();
         var exp = new Date();
         exp.setTime(now.getTime() + jwtConfiguration.getValidForMillis());
 
+        var signingKey = keyRing.getSigningKey();
         var authTokenBuilder = Jwts.builder();
         if (extraClaims != null && !extraClaims.isEmpty()){
             authTokenBuilder.setClaims(extraClaims);
@@ -81,7 +127,8 @@ public class StandardJwtService implements JwtIssuer, AsymmetricJwtVerifier {
                 .setSubject(subject)
                 .setIssuedAt(now)
                 .setExpiration(exp)
-                .signWith(privateKey);
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.kid())
+                .signWith(signingKey.privateKey());
         if (jwtConfiguration.getIssuer() != null){
             authTokenBuilder.setIssuer(jwtConfiguration.getIssuer());
         }
@@ -107,10 +154,7 @@ public class StandardJwtService implements JwtIssuer, AsymmetricJwtVerifier {
 
     private @NonNull Claims extractExpiredClaims(@NonNull String jwt) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(publicKey)
-                    .build()
-                    .parseClaimsJws(jwt)
+            return parser.parseClaimsJws(jwt)
                     .getBody();
         } catch (ExpiredJwtException e){
             return e.getClaims();
@@ -122,48 +166,20 @@ public class StandardJwtService implements JwtIssuer, AsymmetricJwtVerifier {
 
     @Override
     public @NonNull Claims extractClaims(@NonNull String jwt) {
+        var start = System.nanoTime();
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(publicKey)
-                    .build()
-                    .parseClaimsJws(jwt)
+            return parser.parseClaimsJws(jwt)
                     .getBody();
         } catch (Exception e){
             logger.error("Exception caught while parsing token", e);
             throw new RequestException(401, "Failed to authenticate request");
+        } finally {
+            timers.record(JwtOperation.VERIFY, start);
         }
     }
 
     @Override
-    @SneakyThrows
-    public JwkDto getJwk() {
-        var fieldSize =  publicKey.getParams().getCurve().getField().getFieldSize();
-        var crv = switch (fieldSize) {
-            case 256 -> "P-256";
-            case 384 -> "P-384";
-            case 521 -> "P-521";
-            default -> throw new IllegalArgumentException("Unsupported curve");
-        };
-        var alg = switch (fieldSize) {
-            case 256 -> "ES256";
-            case 384 -> "ES384";
-            case 521 -> "ES521";
-            default -> throw new IllegalArgumentException("Unsupported curve");
-        };
-        var urlEnc = Base64.getUrlEncoder().withoutPadding();
-        var x = urlEnc.encodeToString(publicKey.getW().getAffineX().toByteArray());
-        var y = urlEnc.encodeToString(publicKey.getW().getAffineY().toByteArray());
-        var md = MessageDigest.getInstance("SHA-256");
-        var digest = md.digest(publicKey.getEncoded());
-        var kid = Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
-        return JwkDto.builder()
-                .kty("EC")
-                .crv(crv)
-                .x(x)
-                .y(y)
-                .use("sig")
-                .alg(alg)
-                .kid(kid)
-                .build();
+    public JwksDto getJwks() {
+        return keyRing.getJwks();
     }
 }
@@ -0,0 +1,10 @@
+CREATE TABLE project_data_keys
+(
+    project_id  INT           NOT NULL,
+    wrapped_key VARCHAR(1024) NOT NULL,
+    created_at  datetime      NOT NULL,
+    CONSTRAINT pk_project_data_keys PRIMARY KEY (project_id)
+);
+
+ALTER TABLE project_data_keys
+    ADD CONSTRAINT FK_PROJECT_DATA_KEYS_ON_PROJECT FOREIGN KEY (project_id) REFERENCES projects (id);
@@ -0,0 +1,45 @@
+CREATE TABLE outbound_emails
+(
+    id              BIGINT AUTO_INCREMENT NOT NULL,
+    sender_key      VARCHAR(64)   NOT NULL,
+    from_address    VARCHAR(255)  NOT NULL,
+    from_name       VARCHAR(255)  NULL,
+    to_address      VARCHAR(255)  NOT NULL,
+    cc_address      VARCHAR(255)  NULL,
+    subject         VARCHAR(998)  NOT NULL,
+    html_body       MEDIUMTEXT    NOT NULL,
+    status          SMALLINT      NOT NULL,
+    attempts        INT           NOT NULL,
+    next_attempt_at datetime      NOT NULL,
+    created_at      datetime      NOT NULL,
+    sent_at         datetime      NULL,
+    last_error      VARCHAR(1024) NULL,
+    CONSTRAINT pk_outbound_emails PRIMARY KEY (id)
+);
+
+CREATE INDEX outbound_emails_status_next_attempt_at_index
+    ON outbound_emails (status, next_attempt_at);
+
+CREATE TABLE email_image_blobs
+(
+    hash       CHAR(64)     NOT NULL,
+    mime_type  VARCHAR(255) NOT NULL,
+    content    MEDIUMBLOB   NOT NULL,
+    created_at datetime     NOT NULL,
+    CONSTRAINT pk_email_image_blobs PRIMARY KEY (hash)
+);
+
+CREATE TABLE outbound_email_images
+(
+    id         BIGINT AUTO_INCREMENT NOT NULL,
+    email_id   BIGINT       NOT NULL,
+    content_id VARCHAR(255) NOT NULL,
+    image_hash CHAR(64)     NOT NULL,
+    CONSTRAINT pk_outbound_email_images PRIMARY KEY (id)
+);
+
+ALTER TABLE outbound_email_images
+    ADD CONSTRAINT FK_OUTBOUND_EMAIL_IMAGES_ON_EMAIL FOREIGN KEY (email_id) REFERENCES outbound_emails (id) ON DELETE CASCADE;
+
+ALTER TABLE outbound_email_images
+    ADD CONSTRAINT FK_OUTBOUND_EMAIL_IMAGES_ON_IMAGE_HASH FOREIGN KEY (image_hash) REFERENCES email_image_blobs (hash);
@@ -0,0 +1,42 @@
+CREATE TABLE mail_merge_jobs
+(
+    id              BIGINT AUTO_INCREMENT NOT NULL,
+    project_id      INT           NOT NULL,
+    created_by      INT           NOT NULL,
+    credential_id   INT           NULL,
+    template_path   VARCHAR(512)  NOT NULL,
+    subject         VARCHAR(998)  NOT NULL,
+    source_type     SMALLINT      NOT NULL,
+    source_path     VARCHAR(512)  NOT NULL,
+    backend_origin  VARCHAR(255)  NOT NULL,
+    status          SMALLINT      NOT NULL,
+    queued_count    INT           NOT NULL,
+    failed_count    INT           NOT NULL,
+    created_at      datetime      NOT NULL,
+    started_at      datetime      NULL,
+    heartbeat_at    datetime      NULL,
+    lease_token     BINARY(16)    NULL,
+    completed_at    datetime      NULL,
+    last_error      VARCHAR(1024) NULL,
+    CONSTRAINT pk_mail_merge_jobs PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_mail_merge_jobs_status ON mail_merge_jobs (status, heartbeat_at);
+
+ALTER TABLE mail_merge_jobs
+    ADD CONSTRAINT FK_MAIL_MERGE_JOBS_ON_PROJECT FOREIGN KEY (project_id) REFERENCES projects (id);
+
+ALTER TABLE mail_merge_jobs
+    ADD CONSTRAINT FK_MAIL_MERGE_JOBS_ON_CREATED_BY FOREIGN KEY (created_by) REFERENCES users (id);
+
+ALTER TABLE mail_merge_jobs
+    ADD CONSTRAINT FK_MAIL_MERGE_JOBS_ON_CREDENTIAL FOREIGN KEY (credential_id) REFERENCES encrypted_smtp_credentials (id) ON DELETE SET NULL;
+
+ALTER TABLE email_templates
+    MODIFY parameter_string TEXT NULL;
+
+ALTER TABLE email_templates
+    DROP FOREIGN KEY FK_EMAIL_TEMPLATES_ON_ID;
+
+ALTER TABLE email_templates
+    ADD CONSTRAINT FK_EMAIL_TEMPLATES_ON_ID FOREIGN KEY (id) REFERENCES attachment_listings (id) ON DELETE CASCADE;
@@ -0,0 +1,9 @@
+CREATE TABLE attachment_blobs
+(
+    bucket_name VARCHAR(32)  NOT NULL,
+    object_key  VARCHAR(255) NOT NULL,
+    content     MEDIUMBLOB   NOT NULL,
+    encrypted   BOOLEAN      NOT NULL DEFAULT FALSE,
+    created_at  datetime     NOT NULL,
+    CONSTRAINT pk_attachment_blobs PRIMARY KEY (bucket_name, object_key)
+);
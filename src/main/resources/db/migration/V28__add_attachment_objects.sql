@@ -0,0 +1,13 @@
+CREATE TABLE attachment_objects
+(
+    bucket_name VARCHAR(32)  NOT NULL,
+    object_key  VARCHAR(255) NOT NULL,
+    size        BIGINT       NOT NULL,
+    ref_count   INT          NOT NULL,
+    updated_at  datetime     NOT NULL,
+    CONSTRAINT pk_attachment_objects PRIMARY KEY (bucket_name, object_key)
+);
+
+CREATE INDEX idx_attachment_objects_ref_count ON attachment_objects (ref_count, updated_at);
+
+CREATE INDEX idx_attachment_listings_object_key ON attachment_listings (bucket_name, object_key);
@@ -0,0 +1,24 @@
+CREATE TABLE user_storage_usage
+(
+    user_id          INT    NOT NULL,
+    used_bytes       BIGINT NOT NULL,
+    attachment_count INT    NOT NULL,
+    CONSTRAINT pk_user_storage_usage PRIMARY KEY (user_id)
+);
+
+ALTER TABLE user_storage_usage
+    ADD CONSTRAINT FK_USER_STORAGE_USAGE_ON_USER FOREIGN KEY (user_id) REFERENCES users (id);
+
+INSERT INTO user_storage_usage (user_id, used_bytes, attachment_count)
+SELECT u.id,
+       u.accumulated_attachment_storage_usage,
+       (SELECT COUNT(*)
+        FROM attachment_listings a
+                 JOIN listings l ON l.id = a.id
+                 JOIN projects p ON p.id = l.project_id
+        WHERE p.user_id = u.id
+          AND a.upload_completed)
+FROM users u;
+
+ALTER TABLE users
+    DROP COLUMN accumulated_attachment_storage_usage;
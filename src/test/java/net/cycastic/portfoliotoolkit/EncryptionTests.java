@@ -1,7 +1,9 @@
 package net.cycastic.portfoliotoolkit;
 
+import net.cycastic.portfoliotoolkit.configuration.StorageEncryptionConfiguration;
 import net.cycastic.portfoliotoolkit.service.DecryptionProvider;
 import net.cycastic.portfoliotoolkit.service.EncryptionProvider;
+import net.cycastic.portfoliotoolkit.service.impl.ChunkedObjectCipher;
 import net.cycastic.portfoliotoolkit.service.impl.HashicorpVaultEncryptionProvider;
 import net.cycastic.portfoliotoolkit.service.impl.SymmetricEncryptionProvider;
 import org.junit.jupiter.api.Test;
@@ -9,7 +11,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 @ExtendWith(SpringExtension.class)
@@ -45,4 +53,109 @@ public class EncryptionTests {
     public void testSymmetricEncryption(){
         testEncryptDecrypt(symmetricEncryptionProvider, symmetricEncryptionProvider);
     }
+
+    private static ChunkedObjectCipher createObjectCipher(){
+        var configuration = new StorageEncryptionConfiguration();
+        configuration.setKey("object-cipher-test-key");
+        return new ChunkedObjectCipher(configuration);
+    }
+
+    private static byte[] randomBytes(int length){
+        var bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] encrypt(ChunkedObjectCipher cipher, byte[] plaintext) throws IOException {
+        try (var encrypted = cipher.encrypt(new ByteArrayInputStream(plaintext), ChunkedObjectCipher.Header.generate())){
+            return encrypted.readAllBytes();
+        }
+    }
+
+    private static byte[] decrypt(ChunkedObjectCipher cipher, byte[] encrypted) throws IOException {
+        try (var decrypted = cipher.decrypt(new ByteArrayInputStream(encrypted), encrypted.length)){
+            return decrypted.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testChunkedObjectCipherRoundTrip() throws IOException {
+        var cipher = createObjectCipher();
+        for (var length : new int[]{ 0, 1, ChunkedObjectCipher.CHUNK_SIZE - 1, ChunkedObjectCipher.CHUNK_SIZE,
+                ChunkedObjectCipher.CHUNK_SIZE + 1, ChunkedObjectCipher.CHUNK_SIZE * 3 + 17 }){
+            var plaintext = randomBytes(length);
+            var encrypted = encrypt(cipher, plaintext);
+            assertEquals(ChunkedObjectCipher.getEncryptedLength(length), encrypted.length);
+            assertEquals(length, ChunkedObjectCipher.getPlaintextLength(encrypted.length));
+            assertArrayEquals(plaintext, decrypt(cipher, encrypted));
+        }
+    }
+
+    @Test
+    public void testChunkedObjectCipherEmptyContent() throws IOException {
+        var cipher = createObjectCipher();
+        var encrypted = encrypt(cipher, new byte[0]);
+        assertArrayEquals(new byte[0], decrypt(cipher, encrypted));
+
+        // The empty last chunk is still authenticated, so dropping it is detected
+        var headerOnly = Arrays.copyOf(encrypted, ChunkedObjectCipher.HEADER_LENGTH);
+        assertThrows(IOException.class, () -> decrypt(cipher, headerOnly));
+    }
+
+    @Test
+    public void testChunkedObjectCipherRangeRead() throws IOException {
+        var cipher = createObjectCipher();
+        var plaintext = randomBytes(ChunkedObjectCipher.CHUNK_SIZE * 3 + 17);
+        var encrypted = encrypt(cipher, plaintext);
+        var header = ChunkedObjectCipher.Header.decode(Arrays.copyOf(encrypted, ChunkedObjectCipher.HEADER_LENGTH));
+
+        long[][] ranges = {
+                { 0, 1 },
+                { 5, 100 },
+                { ChunkedObjectCipher.CHUNK_SIZE - 3, 10 },
+                { ChunkedObjectCipher.CHUNK_SIZE, ChunkedObjectCipher.CHUNK_SIZE },
+                { ChunkedObjectCipher.CHUNK_SIZE + 1, ChunkedObjectCipher.CHUNK_SIZE * 2 },
+                { plaintext.length - 17, 17 },
+                { 0, plaintext.length },
+        };
+        for (var range : ranges){
+            var offset = range[0];
+            var length = range[1];
+            var encryptedRange = ChunkedObjectCipher.getEncryptedRange(offset, length, encrypted.length);
+            var chunks = Arrays.copyOfRange(encrypted, (int) encryptedRange.start(), (int) encryptedRange.end() + 1);
+            try (var decrypted = cipher.decrypt(new ByteArrayInputStream(chunks), header, encrypted.length, offset, length)){
+                assertArrayEquals(Arrays.copyOfRange(plaintext, (int) offset, (int) (offset + length)), decrypted.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    public void testChunkedObjectCipherTamperedContent() throws IOException {
+        var cipher = createObjectCipher();
+        var encrypted = encrypt(cipher, randomBytes(ChunkedObjectCipher.CHUNK_SIZE * 3 + 17));
+        var firstChunk = ChunkedObjectCipher.getEncryptedRange(0, 1, encrypted.length);
+        var chunkLength = (int) (firstChunk.end() - firstChunk.start() + 1);
+        var start = (int) firstChunk.start();
+
+        // Cut at a chunk boundary, the new last chunk was not encrypted as the last one
+        var truncated = Arrays.copyOf(encrypted, start + chunkLength * 2);
+        assertThrows(IOException.class, () -> decrypt(cipher, truncated));
+
+        // Cut in the middle of a chunk
+        var cut = Arrays.copyOf(encrypted, encrypted.length - 5);
+        assertThrows(IOException.class, () -> decrypt(cipher, cut));
+
+        var reordered = encrypted.clone();
+        System.arraycopy(encrypted, start, reordered, start + chunkLength, chunkLength);
+        System.arraycopy(encrypted, start + chunkLength, reordered, start, chunkLength);
+        assertThrows(IOException.class, () -> decrypt(cipher, reordered));
+
+        var flipped = encrypted.clone();
+        flipped[start + chunkLength + 10] ^= 1;
+        assertThrows(IOException.class, () -> decrypt(cipher, flipped));
+
+        var otherKey = new StorageEncryptionConfiguration();
+        otherKey.setKey("another-object-cipher-test-key");
+        assertThrows(IOException.class, () -> decrypt(new ChunkedObjectCipher(otherKey), encrypted));
+    }
 }
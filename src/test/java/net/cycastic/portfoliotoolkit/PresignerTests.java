@@ -1,17 +1,25 @@
 package net.cycastic.portfoliotoolkit;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.cycastic.portfoliotoolkit.configuration.HashicorpVaultConfiguration;
 import net.cycastic.portfoliotoolkit.domain.ApplicationConstants;
+import net.cycastic.portfoliotoolkit.domain.ApplicationUtilities;
+import net.cycastic.portfoliotoolkit.service.Presigner;
 import net.cycastic.portfoliotoolkit.service.impl.HashicorpVaultPresigner;
 import net.cycastic.portfoliotoolkit.service.impl.SymmetricPresigner;
 import net.cycastic.portfoliotoolkit.service.impl.UriPresigner;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.net.URI;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -21,12 +29,15 @@ public class PresignerTests {
     private final UriPresigner presigner;
     private final HashicorpVaultPresigner hashicorpVaultPresigner;
     private final SymmetricPresigner symmetricPresigner;
+    private final HashicorpVaultConfiguration hashicorpVaultConfiguration;
 
     @Autowired
-    public PresignerTests(UriPresigner presigner, HashicorpVaultPresigner hashicorpVaultPresigner, SymmetricPresigner symmetricPresigner) {
+    public PresignerTests(UriPresigner presigner, HashicorpVaultPresigner hashicorpVaultPresigner, SymmetricPresigner symmetricPresigner,
+                          HashicorpVaultConfiguration hashicorpVaultConfiguration) {
         this.presigner = presigner;
         this.hashicorpVaultPresigner = hashicorpVaultPresigner;
         this.symmetricPresigner = symmetricPresigner;
+        this.hashicorpVaultConfiguration = hashicorpVaultConfiguration;
     }
 
     private void signAndAssert(UriPresigner presigner, String url){
@@ -58,4 +69,119 @@ public class PresignerTests {
     public void testPresignerSymmetric(){
         testPresignerSimpleInternal(new UriPresigner(symmetricPresigner));
     }
+
+    @Test
+    public void testPresignerHashicorpVaultLocalHmacForgedVersion(){
+        var configuration = new HashicorpVaultConfiguration();
+        BeanUtils.copyProperties(hashicorpVaultConfiguration, configuration);
+        configuration.setPresignLocalHmac(true);
+        var localPresigner = new HashicorpVaultPresigner(configuration, new SimpleMeterRegistry());
+        testPresignerSimpleInternal(new UriPresigner(localPresigner));
+
+        final var data = "some data";
+        var algorithm = localPresigner.getDefaultAlgorithm();
+        var signature = localPresigner.getSignature(data, algorithm);
+        assertTrue(localPresigner.verifySignature(data, signature, algorithm));
+
+        var hmac = signature.substring(signature.lastIndexOf(':') + 1);
+        assertFalse(localPresigner.verifySignature(data, "vault:v99999:" + hmac, algorithm));
+        assertFalse(localPresigner.verifySignature(data, "vault:v0:" + hmac, algorithm));
+    }
+
+    /**
+     * Signs everything with the same signature and remembers what it was asked to sign or verify.
+     */
+    private static class RecordingPresigner implements Presigner {
+        private static final String SIGNATURE = "sig/+= é~1";
+        private String lastData;
+
+        @Override
+        public String getSignature(String data, String algorithm) {
+            lastData = data;
+            return SIGNATURE;
+        }
+
+        @Override
+        public boolean verifySignature(String data, String signature, String algorithm) {
+            lastData = data;
+            return SIGNATURE.equals(signature);
+        }
+
+        @Override
+        public String getDefaultAlgorithm() {
+            return "test:alg v1";
+        }
+    }
+
+    @Test
+    public void testUriPresignerCanonicalForm(){
+        final var signatureParams = "x-pt-signature=sig%2F%2B%3D%20%C3%A9~1&x-pt-algorithm=test%3Aalg%20v1";
+        // Input, signed URI, signed data. Signed URIs are the same as before the single-pass rewrite, the signed data
+        // only differs where trailing separators used to be signed, which made those signatures fail verification
+        String[][] cases = {
+                { "https://example.com/files", "https://example.com/files?" + signatureParams, "https://example.com/files" },
+                { "https://example.com/files?", "https://example.com/files?&" + signatureParams, "https://example.com/files?" },
+                { "https://example.com/files?&", "https://example.com/files?" + signatureParams, "https://example.com/files" },
+                { "https://example.com/files?a=1&&b=2&&", "https://example.com/files?a=1&&b=2&" + signatureParams, "https://example.com/files?a=1&&b=2" },
+                { "https://example.com/files?&&leading=1", "https://example.com/files?&&leading=1&" + signatureParams, "https://example.com/files?&&leading=1" },
+                { "https://example.com/files?empty=&=value&flag&", "https://example.com/files?empty=&=value&flag&" + signatureParams, "https://example.com/files?empty=&=value&flag" },
+                { "https://example.com/r%C3%A9sum%C3%A9.pdf?name=日本&q=%E6%97%A5%E6%9C%AC#section",
+                        "https://example.com/r%C3%A9sum%C3%A9.pdf?name=日本&q=%E6%97%A5%E6%9C%AC&" + signatureParams + "#section",
+                        "https://example.com/r%C3%A9sum%C3%A9.pdf?name=日本&q=%E6%97%A5%E6%9C%AC#section" },
+                { "https://example.com/files?path=/a/b:c@d&x=!$'()*,;&amp=a%26b%3Dc%2B",
+                        "https://example.com/files?path=/a/b:c@d&x=!$'()*,;&amp=a%26b%3Dc%2B&" + signatureParams,
+                        "https://example.com/files?path=/a/b:c@d&x=!$'()*,;&amp=a%26b%3Dc%2B" },
+                // The fragment used to be decoded into the signed URI, which failed to parse
+                { "https://example.com/files?a=1#frag%20ment", "https://example.com/files?a=1&" + signatureParams + "#frag%20ment",
+                        "https://example.com/files?a=1#frag%20ment" },
+                { "https://user@example.com:8443/p?x-pt-signaturex=1", "https://user@example.com:8443/p?x-pt-signaturex=1&" + signatureParams,
+                        "https://user@example.com:8443/p?x-pt-signaturex=1" },
+        };
+
+        var recorder = new RecordingPresigner();
+        var uriPresigner = new UriPresigner(recorder);
+        for (var c : cases){
+            var signed = uriPresigner.signUri(URI.create(c[0]));
+            assertEquals(c[1], signed.toString(), c[0]);
+            assertEquals(c[2], recorder.lastData, c[0]);
+
+            assertTrue(uriPresigner.verifyUri(signed), c[0]);
+            assertEquals(c[2], recorder.lastData, c[0]);
+            assertEquals(List.of(signed), uriPresigner.signUris(List.of(URI.create(c[0]))), c[0]);
+        }
+    }
+
+    @Test
+    public void testUriPresignerSignatureInMiddleOfQuery(){
+        var uriPresigner = new UriPresigner(symmetricPresigner);
+        var signed = uriPresigner.signUri(URI.create("https://example.com/files?a=1&b=%2F&c="));
+        var query = signed.getRawQuery();
+        var signature = query.substring(query.indexOf(ApplicationConstants.PresignSignatureEntry + "="), query.indexOf("&" + ApplicationConstants.PresignSignatureAlgorithmEntry + "="));
+        var algorithm = query.substring(query.indexOf(ApplicationConstants.PresignSignatureAlgorithmEntry + "="));
+
+        assertTrue(uriPresigner.verifyUri(URI.create("https://example.com/files?a=1&" + signature + "&b=%2F&" + algorithm + "&c=")));
+        assertTrue(uriPresigner.verifyUri(URI.create("https://example.com/files?" + algorithm + "&a=1&b=%2F&" + signature + "&c=")));
+        assertFalse(uriPresigner.verifyUri(URI.create("https://example.com/files?a=1&" + signature + "&b=%2F&" + algorithm)));
+        assertFalse(uriPresigner.verifyUri(URI.create("https://example.com/files?a=1&" + signature + "&b=%2F&" + signature + "&" + algorithm + "&c=")));
+        assertFalse(uriPresigner.verifyUri(URI.create("https://example.com/files?a=1&" + signature + "&b=%2F")));
+    }
+
+    @Test
+    public void testEncodeURIComponent(){
+        // Outputs of the previous URLEncoder based implementation
+        String[][] cases = {
+                { "", "" },
+                { "plain-value_1.txt", "plain-value_1.txt" },
+                { "a+b=c&d", "a%2Bb%3Dc%26d" },
+                { "(it's) ~fine!*", "(it's)%20~fine!*" },
+                { "résumé – été.pdf", "r%C3%A9sum%C3%A9%20%E2%80%93%20%C3%A9t%C3%A9.pdf" },
+                { "日本語/ファイル.txt", "%E6%97%A5%E6%9C%AC%E8%AA%9E%2F%E3%83%95%E3%82%A1%E3%82%A4%E3%83%AB.txt" },
+                { "emoji 😀 face", "emoji%20%F0%9F%98%80%20face" },
+                { "broken \uD800 surrogate", "broken%20%3F%20surrogate" },
+                { "100% \"quoted\" <tag>", "100%25%20%22quoted%22%20%3Ctag%3E" },
+        };
+        for (var c : cases){
+            assertEquals(c[1], ApplicationUtilities.encodeURIComponent(c[0]), c[0]);
+        }
+    }
 }
@@ -1,23 +1,49 @@
 package net.cycastic.portfoliotoolkit.auth;
 
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.cycastic.portfoliotoolkit.configuration.auth.JwtConfiguration;
 import net.cycastic.portfoliotoolkit.service.auth.JwtIssuer;
 import net.cycastic.portfoliotoolkit.service.auth.JwtVerifier;
+import net.cycastic.portfoliotoolkit.service.impl.auth.StandardJwtService;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Date;
+
 @SpringBootTest
 @ExtendWith(SpringExtension.class)
 public class JwtTests {
     private final JwtIssuer jwtIssuer;
     private final JwtVerifier jwtVerifier;
+    private final JwtConfiguration jwtConfiguration;
 
     @Autowired
-    public JwtTests(JwtIssuer jwtIssuer, JwtVerifier jwtVerifier) {
+    public JwtTests(JwtIssuer jwtIssuer, JwtVerifier jwtVerifier, JwtConfiguration jwtConfiguration) {
         this.jwtIssuer = jwtIssuer;
         this.jwtVerifier = jwtVerifier;
+        this.jwtConfiguration = jwtConfiguration;
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        var kpg = KeyPairGenerator.getInstance("EC");
+        kpg.initialize(new ECGenParameterSpec("secp256r1"));
+        return kpg.generateKeyPair();
+    }
+
+    private StandardJwtService createPrivateService(KeyPair keyPair){
+        // Rotating the shared key ring would leak into every other test of the context
+        return new StandardJwtService(jwtConfiguration, (ECPrivateKey) keyPair.getPrivate(), (ECPublicKey) keyPair.getPublic(),
+                new SimpleMeterRegistry());
     }
 
     @Test
@@ -26,4 +52,35 @@ public class JwtTests {
         jwtVerifier.extractClaims(token);
         jwtIssuer.refreshToken(token);
     }
+
+    @Test
+    public void rotationVerificationTest() throws Exception {
+        var jwtService = createPrivateService(generateKeyPair());
+        var keyRing = jwtService.getKeyRing();
+        var token = jwtService.generateTokens("test", null);
+        var previousKid = keyRing.getSigningKey().kid();
+        keyRing.rotate();
+
+        Assertions.assertNotEquals(previousKid, keyRing.getSigningKey().kid());
+        Assertions.assertNotNull(keyRing.getKey(previousKid));
+        jwtService.extractClaims(token);
+        jwtService.extractClaims(jwtService.generateTokens("test", null));
+    }
+
+    @Test
+    public void legacyTokenVerificationTest() throws Exception {
+        var keyPair = generateKeyPair();
+        var jwtService = createPrivateService(keyPair);
+        var now = new Date();
+        var legacyToken = Jwts.builder()
+                .setSubject("test")
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + jwtConfiguration.getValidForMillis()))
+                .signWith(keyPair.getPrivate())
+                .compact();
+
+        jwtService.getKeyRing().rotate();
+        jwtService.getKeyRing().rotate();
+        Assertions.assertEquals("test", jwtService.extractClaims(legacyToken).getSubject());
+    }
 }